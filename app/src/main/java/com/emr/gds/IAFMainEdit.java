@@ -1,33 +1,28 @@
 package com.emr.gds;
 
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+import com.emr.gds.template.TemplateLayout;
+import com.emr.gds.template.TemplateLayoutCache;
+import com.emr.gds.usage.UsageCounters;
+
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * An editor for creating and managing EMR templates stored in a SQLite database.
- * The templates can be parsed and formatted according to a standard EMR structure.
+ * Templates are compiled into a {@link TemplateLayout} when they are saved; "Use Template" hands the
+ * cached layout to the caller, which appends each section to its area without parsing the text again.
+ * The most used templates are listed first, and their layouts are loaded into the cache at startup.
  */
 public class IAFMainEdit extends JFrame {
-    // === Canonical section titles (labels) ===
-    public static final String[] TEXT_AREA_TITLES = {
-            "CC>", "PI>", "ROS>", "PMH>", "S>",
-            "O>", "Physical Exam>", "A>", "P>", "Comment>"
-    };
-
-    private static final Pattern HEADER_PATTERN = Pattern.compile(
-            "^\\s*(CC>|PI>|ROS>|PMH>|S>|O>|Physical Exam>|A>|P>|Comment>)\\s*(.*)$"
-    );
-
     // === GUI Components ===
     private JTable templateTable;
     private DefaultTableModel tableModel;
@@ -41,22 +36,10 @@ public class IAFMainEdit extends JFrame {
     // === Data / Logic ===
     private final DatabaseManager dbManager;
     private int selectedTemplateId = -1;
-    private final Consumer<String> onTemplateSelectedCallback;
+    private int selectedTemplateVersion = 0;
+    private final Consumer<TemplateLayout> onTemplateSelectedCallback;
 
-    // --- DB Path Helpers ---
-    private static Path repoRoot() {
-        Path p = Paths.get("").toAbsolutePath();
-        while (p != null && !Files.exists(p.resolve("gradlew")) && !Files.exists(p.resolve(".git"))) {
-            p = p.getParent();
-        }
-        return (p != null) ? p : Paths.get("").toAbsolutePath();
-    }
-    
-    private static Path dbPath() {
-        return repoRoot().resolve("app").resolve("db").resolve("emr_templates.db");
-    }
-
-    public IAFMainEdit(Consumer<String> onTemplateSelectedCallback) {
+    public IAFMainEdit(Consumer<TemplateLayout> onTemplateSelectedCallback) {
         this.onTemplateSelectedCallback = onTemplateSelectedCallback;
         this.dbManager = new DatabaseManager();
         initUI();
@@ -65,13 +48,29 @@ public class IAFMainEdit extends JFrame {
     // Main Method for local testing
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() ->
-            new IAFMainEdit(content -> {
-                JTextArea preview = new JTextArea(content, 25, 80);
+            new IAFMainEdit(layout -> {
+                JTextArea preview = new JTextArea(layout.toText(), 25, 80);
                 JOptionPane.showMessageDialog(null, new JScrollPane(preview), "Selected Template Output", JOptionPane.INFORMATION_MESSAGE);
             }).setVisible(true)
         );
     }
     
+    /**
+     * Loads the layouts of the given saved templates (ids as counted by {@link UsageCounters}) into the
+     * shared layout cache, so that using them first does not read the database. Runs on the calling thread.
+     */
+    public static void warmLayoutCache(List<String> templateIds) {
+        if (templateIds.isEmpty()) return;
+        DatabaseManager dbManager = new DatabaseManager();
+        for (String id : templateIds) {
+            try {
+                dbManager.warmLayout(Integer.parseInt(id));
+            } catch (NumberFormatException e) {
+                // Not a template id; ignore
+            }
+        }
+    }
+
     // === UI Initialization ===
     private void initUI() {
         setTitle("EMR Template Editor");
@@ -83,26 +82,20 @@ public class IAFMainEdit extends JFrame {
         layoutComponents();
         attachListeners();
         loadTemplatesIntoTable();
-
-        addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                dbManager.closeConnection();
-            }
-        });
     }
 
     private void initComponents() {
-        String[] columnNames = {"ID", "Template Name"};
+        String[] columnNames = {"ID", "Template Name", "Version"};
         tableModel = new DefaultTableModel(columnNames, 0) {
             @Override public boolean isCellEditable(int row, int column) { return false; }
             @Override public Class<?> getColumnClass(int columnIndex) {
-                return columnIndex == 0 ? Integer.class : String.class;
+                return columnIndex == 1 ? String.class : Integer.class;
             }
         };
         templateTable = new JTable(tableModel);
         templateTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         templateTable.setRowHeight(22);
+        templateTable.removeColumn(templateTable.getColumnModel().getColumn(2));
         templateTable.removeColumn(templateTable.getColumnModel().getColumn(0));
 
         templateNameField = new JTextField(28);
@@ -162,7 +155,8 @@ public class IAFMainEdit extends JFrame {
     // === Core Logic ===
     private void loadTemplatesIntoTable() {
         tableModel.setRowCount(0);
-        dbManager.getAllTemplates().forEach(tableModel::addRow);
+        UsageCounters.shared().ranked(UsageCounters.Kind.SAVED_TEMPLATE, dbManager.getAllTemplates(), row -> String.valueOf(row[0]))
+                .forEach(tableModel::addRow);
         if (tableModel.getRowCount() > 0) {
             templateTable.setRowSelectionInterval(0, 0);
         }
@@ -174,6 +168,7 @@ public class IAFMainEdit extends JFrame {
             int modelRow = templateTable.convertRowIndexToModel(selectedRow);
             selectedTemplateId = (int) tableModel.getValueAt(modelRow, 0);
             String name = (String) tableModel.getValueAt(modelRow, 1);
+            selectedTemplateVersion = (int) tableModel.getValueAt(modelRow, 2);
             String content = dbManager.getTemplateContent(selectedTemplateId);
             templateNameField.setText(name);
             templateContentArea.setText(content);
@@ -183,6 +178,7 @@ public class IAFMainEdit extends JFrame {
     private void clearEditor() {
         templateTable.clearSelection();
         selectedTemplateId = -1;
+        selectedTemplateVersion = 0;
         templateNameField.setText("");
         templateContentArea.setText("");
         templateNameField.requestFocus();
@@ -195,12 +191,10 @@ public class IAFMainEdit extends JFrame {
             JOptionPane.showMessageDialog(this, "Template name cannot be empty.", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        if (selectedTemplateId == -1) {
-            dbManager.createTemplate(name, content);
-        } else {
-            dbManager.updateTemplate(selectedTemplateId, name, content);
-        }
-        loadTemplatesIntoTable();
+        CompletableFuture<Integer> saved = selectedTemplateId == -1
+                ? dbManager.createTemplate(name, content)
+                : dbManager.updateTemplate(selectedTemplateId, name, content);
+        saved.whenComplete((rows, error) -> SwingUtilities.invokeLater(this::loadTemplatesIntoTable));
     }
     
     private void deleteTemplate() {
@@ -210,172 +204,184 @@ public class IAFMainEdit extends JFrame {
         }
         int response = JOptionPane.showConfirmDialog(this, "Delete this template?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         if (response == JOptionPane.YES_OPTION) {
-            dbManager.deleteTemplate(selectedTemplateId);
-            loadTemplatesIntoTable();
+            dbManager.deleteTemplate(selectedTemplateId)
+                    .whenComplete((rows, error) -> SwingUtilities.invokeLater(this::loadTemplatesIntoTable));
             clearEditor();
         }
     }
     
     private void useTemplate() {
-        String rawContent = selectedTemplateId != -1 ?
-                dbManager.getTemplateContent(selectedTemplateId) :
-                templateContentArea.getText();
-        
-        LinkedHashMap<String, List<String>> sections = parseSections(rawContent);
-        String finalOutput = buildOrderedOutput(sections);
+        if (selectedTemplateId != -1) {
+            UsageCounters.shared().increment(UsageCounters.Kind.SAVED_TEMPLATE, String.valueOf(selectedTemplateId));
+        }
+        TemplateLayout layout = selectedTemplateId != -1 ?
+                dbManager.getTemplateLayout(selectedTemplateId, selectedTemplateVersion) :
+                TemplateLayout.compile(templateContentArea.getText());
         
-        deliverAndClose(finalOutput);
+        deliverAndClose(layout);
     }
     
-    private void deliverAndClose(String text) {
+    private void deliverAndClose(TemplateLayout layout) {
         if (onTemplateSelectedCallback != null) {
-            onTemplateSelectedCallback.accept(text);
+            onTemplateSelectedCallback.accept(layout);
         } else {
+            String text = layout.toText();
             Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new java.awt.datatransfer.StringSelection(text), null);
             JOptionPane.showMessageDialog(this, "Content copied to clipboard.", "Info", JOptionPane.INFORMATION_MESSAGE);
         }
         dispose();
     }
 
-    // --- Template Parsing & Formatting ---
-    private static LinkedHashMap<String, List<String>> parseSections(String content) {
-        LinkedHashMap<String, List<String>> sections = new LinkedHashMap<>();
-        for (String title : TEXT_AREA_TITLES) {
-            sections.put(title, new ArrayList<>());
-        }
-        String currentSection = null;
-        for (String line : content.split("\\r?\\n", -1)) {
-            Matcher m = HEADER_PATTERN.matcher(line);
-            if (m.matches()) {
-                currentSection = m.group(1);
-                String afterHeader = m.group(2).trim();
-                if (!afterHeader.isEmpty()) {
-                    sections.get(currentSection).add(afterHeader);
-                }
-            } else if (currentSection != null) {
-                sections.get(currentSection).add(line);
-            } else {
-                sections.get("Comment>").add(line);
-            }
-        }
-        return sections;
-    }
-    
-    private static String buildOrderedOutput(LinkedHashMap<String, List<String>> sections) {
-        StringBuilder out = new StringBuilder();
-        List<String> order = Arrays.asList("CC>", "PI>", "PMH>", "S>", "ROS>", "O>", "Physical Exam>", "A>", "P>", "Comment>");
-
-        for (String label : order) {
-            List<String> lines = sections.getOrDefault(label, Collections.emptyList());
-            if (lines.isEmpty() || lines.stream().allMatch(String::isBlank)) continue;
-
-            out.append(label);
-            String firstLineContent = lines.get(0).trim();
-            if (!firstLineContent.isEmpty()) {
-                out.append(' ').append(firstLineContent);
-            }
-            out.append('\n');
-
-            for (int i = 1; i < lines.size(); i++) {
-                out.append("\t").append(lines.get(i)).append('\n');
-            }
-        }
-        return out.toString().trim();
-    }
-
-    // === Database helper class ===
+    // === Database helper class (borrows the shared emr_templates.db connection) ===
     private static class DatabaseManager {
-        private Connection conn;
+        private final SqliteDatabase db;
+        private final TemplateLayoutCache layouts = TemplateLayoutCache.shared();
 
         DatabaseManager() {
             try {
-                Class.forName("org.sqlite.JDBC");
-                Path db = dbPath();
-                Files.createDirectories(db.getParent());
-                String url = "jdbc:sqlite:" + db.toAbsolutePath();
-                this.conn = DriverManager.getConnection(url);
-                createTableIfNotExists();
-            } catch (Exception e) {
+                this.db = DataSourceRegistry.shared().appDatabase(DataSourceRegistry.TEMPLATES_DB, DatabaseManager::createTableIfNotExists);
+            } catch (SQLException e) {
                 throw new RuntimeException("Failed to open emr_templates.db", e);
             }
         }
 
-        private void createTableIfNotExists() {
-            String sql = "CREATE TABLE IF NOT EXISTS templates (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, content TEXT);";
+        private static void createTableIfNotExists(Connection conn) throws SQLException {
+            // layout: the compiled TemplateLayout; version: bumped on every save, keys the layout cache
+            String sql = "CREATE TABLE IF NOT EXISTS templates (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, content TEXT, "
+                    + "layout BLOB, version INTEGER NOT NULL DEFAULT 1);";
             try (Statement stmt = conn.createStatement()) {
                 stmt.execute(sql);
-            } catch (SQLException e) {
-                System.err.println("Failed to create templates table: " + e.getMessage());
+                // Databases created before layouts were stored; their layouts are compiled on first use
+                Set<String> columns = new HashSet<>();
+                try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(templates);")) {
+                    while (rs.next()) columns.add(rs.getString("name"));
+                }
+                if (!columns.contains("layout")) stmt.execute("ALTER TABLE templates ADD COLUMN layout BLOB;");
+                if (!columns.contains("version")) stmt.execute("ALTER TABLE templates ADD COLUMN version INTEGER NOT NULL DEFAULT 1;");
             }
         }
 
         public List<Object[]> getAllTemplates() {
-            List<Object[]> list = new ArrayList<>();
-            String sql = "SELECT id, name FROM templates ORDER BY name;";
-            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    list.add(new Object[]{rs.getInt("id"), rs.getString("name")});
-                }
+            String sql = "SELECT id, name, version FROM templates ORDER BY name;";
+            try {
+                return db.query(sql, null, rs -> {
+                    List<Object[]> list = new ArrayList<>();
+                    while (rs.next()) {
+                        list.add(new Object[]{rs.getInt("id"), rs.getString("name"), rs.getInt("version")});
+                    }
+                    return list;
+                });
             } catch (SQLException e) {
                 System.err.println("Failed to load templates: " + e.getMessage());
+                return new ArrayList<>();
             }
-            return list;
         }
 
         public String getTemplateContent(int id) {
             String sql = "SELECT content FROM templates WHERE id = ?;";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, id);
-                try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next() ? rs.getString("content") : "";
-                }
+            try {
+                return db.query(sql, ps -> ps.setInt(1, id), rs -> rs.next() ? rs.getString("content") : "");
             } catch (SQLException e) {
                 System.err.println("Failed to get template content: " + e.getMessage());
                 return "";
             }
         }
 
-        public void createTemplate(String name, String content) {
-            String sql = "INSERT INTO templates (name, content) VALUES (?, ?);";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, name);
-                ps.setString(2, content);
-                ps.executeUpdate();
+        /**
+         * The compiled layout of template {@code id} at {@code version}, from the shared cache when possible.
+         * A row saved before layouts were stored is compiled here once and its layout written back.
+         * If the row has moved on from {@code version} (a save committed after the table was filled),
+         * its current version is used; a deleted template gives an empty layout, which is not cached.
+         */
+        public TemplateLayout getTemplateLayout(int id, int version) {
+            TemplateLayout layout = layouts.get(id, version, () -> loadLayout(id, version));
+            if (layout != null) return layout;
+            Integer current = currentVersion(id);
+            if (current != null && current != version) layout = layouts.get(id, current, () -> loadLayout(id, current));
+            return layout != null ? layout : TemplateLayout.empty();
+        }
+
+        /**
+         * Reads (or compiles) the layout of template {@code id} at {@code version}; {@code null} if no such row.
+         */
+        private TemplateLayout loadLayout(int id, int version) {
+            String sql = "SELECT content, layout FROM templates WHERE id = ? AND version = ?;";
+            try {
+                return db.query(sql, ps -> {
+                    ps.setInt(1, id);
+                    ps.setInt(2, version);
+                }, rs -> {
+                    if (!rs.next()) return null;
+                    TemplateLayout stored = TemplateLayout.decode(rs.getBytes("layout"));
+                    if (stored != null) return stored;
+                    TemplateLayout compiled = TemplateLayout.compile(rs.getString("content"));
+                    write("UPDATE templates SET layout = ? WHERE id = ? AND version = ?;", ps -> {
+                        ps.setBytes(1, compiled.encode());
+                        ps.setInt(2, id);
+                        ps.setInt(3, version);
+                    }, "Failed to store template layout");
+                    return compiled;
+                });
             } catch (SQLException e) {
-                System.err.println("Failed to create template: " + e.getMessage());
+                System.err.println("Failed to get template layout: " + e.getMessage());
+                return TemplateLayout.compile(getTemplateContent(id));
             }
         }
 
-        public void updateTemplate(int id, String name, String content) {
-            String sql = "UPDATE templates SET name = ?, content = ? WHERE id = ?;";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, name);
-                ps.setString(2, content);
-                ps.setInt(3, id);
-                ps.executeUpdate();
+        /**
+         * The current version of template {@code id}, or {@code null} if it does not exist.
+         */
+        private Integer currentVersion(int id) {
+            String sql = "SELECT version FROM templates WHERE id = ?;";
+            try {
+                return db.query(sql, ps -> ps.setInt(1, id), rs -> rs.next() ? rs.getInt("version") : null);
             } catch (SQLException e) {
-                System.err.println("Failed to update template: " + e.getMessage());
+                System.err.println("Failed to read template version: " + e.getMessage());
+                return null;
             }
         }
 
-        public void deleteTemplate(int id) {
+        /**
+         * Puts the current layout of template {@code id} into the shared cache; nothing if it does not exist.
+         */
+        void warmLayout(int id) {
+            Integer version = currentVersion(id);
+            if (version != null) getTemplateLayout(id, version);
+        }
+
+        // Writes go through the shared write-behind queue; the returned future completes after commit.
+        // The layout is compiled here, at save time, so using a template never parses it.
+
+        public CompletableFuture<Integer> createTemplate(String name, String content) {
+            String sql = "INSERT INTO templates (name, content, layout, version) VALUES (?, ?, ?, 1);";
+            byte[] layout = TemplateLayout.compile(content).encode();
+            return write(sql, ps -> {
+                ps.setString(1, name);
+                ps.setString(2, content);
+                ps.setBytes(3, layout);
+            }, "Failed to create template");
+        }
+
+        public CompletableFuture<Integer> updateTemplate(int id, String name, String content) {
+            String sql = "UPDATE templates SET name = ?, content = ?, layout = ?, version = version + 1 WHERE id = ?;";
+            byte[] layout = TemplateLayout.compile(content).encode();
+            return write(sql, ps -> {
+                ps.setString(1, name);
+                ps.setString(2, content);
+                ps.setBytes(3, layout);
+                ps.setInt(4, id);
+            }, "Failed to update template");
+        }
+
+        public CompletableFuture<Integer> deleteTemplate(int id) {
             String sql = "DELETE FROM templates WHERE id = ?;";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, id);
-                ps.executeUpdate();
-            } catch (SQLException e) {
-                System.err.println("Failed to delete template: " + e.getMessage());
-            }
+            return write(sql, ps -> ps.setInt(1, id), "Failed to delete template");
         }
 
-        public void closeConnection() {
-            if (conn != null) {
-                try {
-                    conn.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing template database: " + e.getMessage());
-                }
-            }
+        private CompletableFuture<Integer> write(String sql, SqliteDatabase.SqlConsumer<PreparedStatement> binder, String failureMessage) {
+            return WriteBehindQueue.shared().submit(db, sql, binder).whenComplete((rows, error) -> {
+                if (error != null) System.err.println(failureMessage + ": " + error.getMessage());
+            });
         }
     }
 }
@@ -1,5 +1,14 @@
 package com.emr.gds;
 
+import com.emr.gds.abbrev.AbbreviationIndex;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.autosave.EncounterAutosave;
+import com.emr.gds.autosave.EncounterJournal;
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+import com.emr.gds.document.Rope;
+import com.emr.gds.document.SectionDocument;
 import com.emr.gds.fourgate.ChestPA;
 import com.emr.gds.fourgate.DEXA;
 import com.emr.gds.fourgate.EKG;
@@ -8,13 +17,19 @@ import com.emr.gds.input.IAIFxTextAreaManager;
 import com.emr.gds.input.IAIMain;
 import com.emr.gds.input.IAITextAreaManager;
 import com.emr.gds.main.IAMButtonAction;
+import com.emr.gds.main.IAMCopyAllPipeline;
+import com.emr.gds.main.IAMEncounterHistory;
 import com.emr.gds.main.IAMFunctionkey;
 import com.emr.gds.main.IAMProblemAction;
+import com.emr.gds.main.IAMStartupTimeline;
 import com.emr.gds.main.IAMTextArea;
-import com.emr.gds.main.IAMTextFormatUtil;
+import com.emr.gds.main.IAMToast;
+import com.emr.gds.usage.UsageCounters;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.ObservableList;
+import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
@@ -29,30 +44,32 @@ import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import javax.swing.SwingUtilities;
-import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main JavaFX Application for GDSEMR ITTIA - EMR Prototype.
@@ -71,13 +88,19 @@ public class IttiaApp extends Application {
     private static final String APP_TITLE = "GDSEMR ITTIA – EMR Prototype (JavaFX)";
     private static final int SCENE_WIDTH = 1350;
     private static final int SCENE_HEIGHT = 1000;
-    private static final String DB_FILENAME = "abbreviations.db";
+    private static final String DB_FILENAME = DataSourceRegistry.ABBREVIATIONS_DB;
     private static final String DB_TABLE_NAME = "abbreviations";
-    private static final String DB_URL_PREFIX = "jdbc:sqlite:";
-    private static final String DB_DRIVER = "org.sqlite.JDBC";
     private static final String DEFAULT_ABBREV_C = "hypercholesterolemia";
     private static final String DEFAULT_ABBREV_TO = "hypothyroidism";
     private static final int INITIAL_FOCUS_AREA = 0; // Corresponds to the first text area
+    private static final int STARTUP_LOADER_THREADS = 2; // Abbreviations and problem list
+    private static final int WARM_TEMPLATE_LAYOUTS = 8; // Most used saved templates whose layouts load at startup
+
+    // Non-interactive launches used by the build (see app/build.gradle): "measure" or "train"
+    private static final String STARTUP_MODE = System.getProperty("gdsemr.startup.mode", "");
+    private static final String TRAINING_INPUT = ":c with :to, reviewed :cd";
+    private static final double TRAINING_SETTLE_SECONDS = 3;
+    private static final String AUTOSAVE_DIR = "autosave"; // Under app/db
 
     // ================================
     // UI and Core Logic Components
@@ -85,11 +108,14 @@ public class IttiaApp extends Application {
     private IAMProblemAction problemAction;
     private IAMButtonAction buttonAction;
     private IAMTextArea textAreaManager;
-    private Connection dbConn;
-    private final Map<String, String> abbrevMap = new HashMap<>();
+    private volatile SqliteDatabase abbrevDb; // Set once the abbreviation index has been loaded
     private IAIFreqFrame freqStage; // Manages the vital signs window
     private IAMFunctionkey functionKeyHandler;
     private Stage mainStage;
+    private final IAMStartupTimeline timeline = IAMStartupTimeline.shared();
+    private final IAMCopyAllPipeline copyAllPipeline = new IAMCopyAllPipeline();
+    private EncounterAutosave autosave; // Null in the non-interactive startup modes
+    private IAMEncounterHistory encounterHistory; // Created on first use
 
     // ================================
     // Application Lifecycle
@@ -111,20 +137,25 @@ public class IttiaApp extends Application {
     public void start(Stage primaryStage) {
         this.mainStage = primaryStage;
         primaryStage.setTitle(APP_TITLE);
+        timeline.mark("JavaFX started");
 
         try {
-            // Initialize core components before building the UI
+            // Initialize core components before building the UI (no database access here)
             initializeApplicationComponents();
             
             // Build the main layout
             BorderPane root = buildRootLayout();
             Scene scene = new Scene(root, SCENE_WIDTH, SCENE_HEIGHT);
+            timeline.mark("layout built");
             
             primaryStage.setScene(scene);
             primaryStage.show();
+            timeline.mark("window shown");
             
             // Perform setup tasks after the stage is visible
             configurePostShow(scene);
+            loadStartupData();
+            startAutosave();
         } catch (Exception e) {
             showFatalError("Application Startup Error", "Failed to start the application.", e);
         }
@@ -136,11 +167,11 @@ public class IttiaApp extends Application {
     @Override
     public void stop() throws Exception {
         super.stop();
-        // Ensure the database connection is closed
-        if (dbConn != null && !dbConn.isClosed()) {
-            dbConn.close();
-            System.out.println("Database connection closed.");
-        }
+        if (autosave != null) autosave.close();
+        UsageCounters.shared().close();
+        // Commit anything still queued by editors, then close every shared database connection
+        WriteBehindQueue.shared().shutdown();
+        DataSourceRegistry.shared().closeAll();
     }
 
     // ================================
@@ -148,36 +179,163 @@ public class IttiaApp extends Application {
     // ================================
 
     /**
-     * Initializes database connection and core application managers.
+     * Creates the core application managers. Their data is loaded later by {@link #loadStartupData()}.
      */
-    private void initializeApplicationComponents() throws SQLException, IOException, ClassNotFoundException {
-        initAbbrevDatabase();
+    private void initializeApplicationComponents() {
         problemAction = new IAMProblemAction(this);
-        textAreaManager = new IAMTextArea(abbrevMap, problemAction);
-        buttonAction = new IAMButtonAction(this, dbConn, abbrevMap);
+        textAreaManager = new IAMTextArea(AbbreviationRepository.shared(), problemAction);
+        buttonAction = new IAMButtonAction(this);
         functionKeyHandler = new IAMFunctionkey(this);
     }
 
     /**
-     * Sets up the connection to the abbreviations SQLite database.
+     * Loads the abbreviation index and the problem list concurrently once the window is visible.
+     * Until the index arrives, editors simply see an empty one; a load failure is fatal, as before.
+     * Usage counts load on the same pool afterwards but are not waited for, and failing to load them is not fatal.
+     */
+    private void loadStartupData() {
+        ExecutorService loaders = Executors.newFixedThreadPool(STARTUP_LOADER_THREADS, r -> {
+            Thread t = new Thread(r, "startup-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<Void> abbreviations = CompletableFuture.runAsync(() -> {
+            try {
+                initAbbrevDatabase();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+            timeline.mark("abbreviations loaded (" + getAbbreviationIndex().size() + ")");
+        }, loaders);
+        CompletableFuture<Void> problems = problemAction.loadAsync(loaders)
+                .thenRun(() -> timeline.mark("problem list bound"));
+        loaders.execute(this::startUsageCounters);
+
+        CompletableFuture.allOf(abbreviations, problems).whenComplete((ignored, error) -> {
+            loaders.shutdown();
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Platform.runLater(() -> showFatalError("Application Startup Error", "Failed to load startup data.", cause));
+            } else {
+                timeline.mark("startup data ready");
+                if (!STARTUP_MODE.isEmpty()) Platform.runLater(this::runStartupMode);
+            }
+        });
+    }
+
+    /**
+     * Loads the usage counts of earlier sessions, which rank the pickers, and warms the layout cache with
+     * the most used saved templates. Without them the pickers keep their built-in order.
+     */
+    private void startUsageCounters() {
+        try {
+            SqliteDatabase usageDb = DataSourceRegistry.shared().appDatabase(DataSourceRegistry.USAGE_DB, UsageCounters::createTable);
+            UsageCounters.shared().start(usageDb);
+            timeline.mark("usage counts loaded");
+            IAFMainEdit.warmLayoutCache(UsageCounters.shared().top(UsageCounters.Kind.SAVED_TEMPLATE, WARM_TEMPLATE_LAYOUTS));
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to load usage counts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts journaling every area edit and offers to restore a note left behind by a crash.
+     * The journal is read on the autosave thread; the window does not wait for it.
      */
-    private void initAbbrevDatabase() throws ClassNotFoundException, SQLException, IOException {
-        Class.forName(DB_DRIVER);
-        Path dbFile = getDbPath(DB_FILENAME);
-        Files.createDirectories(dbFile.getParent()); // Ensure the directory exists
-        String url = DB_URL_PREFIX + dbFile.toAbsolutePath();
-        System.out.println("[DB PATH] abbreviations -> " + dbFile.toAbsolutePath());
+    private void startAutosave() {
+        if (!STARTUP_MODE.isEmpty()) return;
+        autosave = new EncounterAutosave(DataSourceRegistry.appDbPath(AUTOSAVE_DIR), IAMTextArea.TEXT_AREA_TITLES.length);
+        for (SectionDocument document : textAreaManager.getDocuments()) {
+            document.addListener(autosave::recordDelta);
+        }
+        autosave.recovered().thenAccept(recovery -> {
+            if (!recovery.clean() && !recovery.isEmpty()) Platform.runLater(() -> offerRestore(recovery));
+        });
+    }
 
-        dbConn = DriverManager.getConnection(url);
-        createAbbreviationTable();
-        loadAbbreviations();
+    /**
+     * Asks whether to restore the note recovered from the autosave journal.
+     */
+    private void offerRestore(EncounterJournal.Recovery recovery) {
+        String savedAt = recovery.savedAtMillis() > 0
+                ? Instant.ofEpochMilli(recovery.savedAtMillis()).atZone(ZoneId.systemDefault())
+                        .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))
+                : "an earlier session";
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                "The previous session ended unexpectedly.\nRestore the unsaved note (last snapshot " + savedAt + ")?",
+                ButtonType.YES, ButtonType.NO);
+        alert.setTitle("Restore Note");
+        alert.setHeaderText(null);
+        boolean restore = alert.showAndWait().filter(ButtonType.YES::equals).isPresent();
+
+        List<TextArea> areas = textAreaManager.getTextAreas();
+        if (restore) {
+            for (int i = 0; i < areas.size() && i < recovery.texts().length; i++) {
+                areas.get(i).setText(recovery.texts()[i]);
+            }
+            IAMToast.show(mainStage, "Note restored");
+        } else {
+            String[] current = new String[areas.size()];
+            for (int i = 0; i < current.length; i++) current[i] = areas.get(i).getText();
+            autosave.discardRecovered(current);
+        }
+    }
+
+    /**
+     * Writes an autosave snapshot of the whole note now (F9).
+     */
+    public void saveCurrentState() {
+        if (autosave == null) {
+            IAMToast.show(mainStage, "Autosave is not available");
+            return;
+        }
+        autosave.saveNow().whenComplete((ignored, error) -> Platform.runLater(() ->
+                IAMToast.show(mainStage, error == null ? "Note saved" : "Save failed: " + error.getMessage())));
+    }
+
+    /**
+     * Runs a non-interactive startup mode. "measure" exits as soon as startup is complete (startup
+     * benchmark); "train" first exercises abbreviation expansion and the KCD window, so an AppCDS
+     * archive dumped at exit contains the classes of a typical session.
+     */
+    private void runStartupMode() {
+        switch (STARTUP_MODE) {
+            case "measure" -> Platform.exit();
+            case "train" -> {
+                textAreaManager.focusArea(INITIAL_FOCUS_AREA);
+                insertBlockIntoFocusedArea(TRAINING_INPUT);
+                formatCurrentArea();
+                Stage kcdStage = buttonAction.openKcdManager();
+                timeline.mark("training actions done");
+
+                // Let the KCD table load its first pages before exiting
+                PauseTransition settle = new PauseTransition(Duration.seconds(TRAINING_SETTLE_SECONDS));
+                settle.setOnFinished(e -> {
+                    if (kcdStage != null) kcdStage.close();
+                    textAreaManager.clearAllTextAreas();
+                    Platform.exit();
+                });
+                settle.play();
+            }
+            default -> System.err.println("Unknown gdsemr.startup.mode: " + STARTUP_MODE);
+        }
+    }
+
+    /**
+     * Borrows the shared abbreviations database and publishes its abbreviations to the shared repository.
+     * Runs on a startup loader thread; the database is exposed only once the index is published.
+     */
+    private void initAbbrevDatabase() throws SQLException {
+        SqliteDatabase db = DataSourceRegistry.shared().appDatabase(DB_FILENAME, this::createAbbreviationTable);
+        AbbreviationRepository.shared().publish(loadAbbreviations(db));
+        abbrevDb = db;
     }
 
     /**
      * Creates the abbreviations table if it doesn't exist and inserts default values.
      */
-    private void createAbbreviationTable() throws SQLException {
-        try (Statement stmt = dbConn.createStatement()) {
+    private void createAbbreviationTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             stmt.execute("CREATE TABLE IF NOT EXISTS " + DB_TABLE_NAME + " (short TEXT PRIMARY KEY, full TEXT)");
             // Insert default abbreviations if they don't already exist
             stmt.execute("INSERT OR IGNORE INTO " + DB_TABLE_NAME + " (short, full) VALUES ('c', '" + DEFAULT_ABBREV_C + "')");
@@ -186,16 +344,16 @@ public class IttiaApp extends Application {
     }
 
     /**
-     * Loads all abbreviations from the database into the in-memory map.
+     * Loads all abbreviations from the database into the shared, immutable abbreviation index.
      */
-    private void loadAbbreviations() throws SQLException {
-        abbrevMap.clear();
-        try (Statement stmt = dbConn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM " + DB_TABLE_NAME)) {
+    private AbbreviationIndex loadAbbreviations(SqliteDatabase db) throws SQLException {
+        return db.query("SELECT short, full FROM " + DB_TABLE_NAME, null, rs -> {
+            AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
             while (rs.next()) {
-                abbrevMap.put(rs.getString("short"), rs.getString("full"));
+                builder.put(rs.getString("short"), rs.getString("full"));
             }
-        }
+            return builder.build();
+        });
     }
 
     // ================================
@@ -227,30 +385,35 @@ public class IttiaApp extends Application {
         ToolBar topBar = buttonAction.buildTopBar();
 
         // Create and configure additional buttons
+        Button patientButton = new Button("Patient");
+        patientButton.setOnAction(e -> openEncounterHistory());
+
         Button templateButton = new Button("Load Template");
         templateButton.setOnAction(e -> openTemplateEditor());
 
         Button vitalButton = new Button("Vital BP & HbA1c");
         vitalButton.setOnAction(e -> openVitalWindow());
         
+        // The 4-gate modules are only class-loaded on first click
         Button dexaButton = new Button("DEXA");
-        dexaButton.setOnAction(e -> {
+        dexaButton.setOnAction(e -> timeline.firstUse("DEXA", () -> {
             DEXA dexaApp = new DEXA();
             Stage dexaStage = new Stage();
             dexaApp.start(dexaStage);
-        });
+        }));
         
         Button ekgButton = new Button("EKG");
-        ekgButton.setOnAction(e -> SwingUtilities.invokeLater(() -> new EKG().setVisible(true)));
+        ekgButton.setOnAction(e -> SwingUtilities.invokeLater(() -> timeline.firstUse("EKG", () -> new EKG().setVisible(true))));
         
         Button cpaButton = new Button("ChestPA");
-        cpaButton.setOnAction(event -> {
+        cpaButton.setOnAction(event -> timeline.firstUse("ChestPA", () -> {
             ChestPA chestPAWindow = new ChestPA(mainStage);
             chestPAWindow.show();
-        });
+        }));
         
         // Add buttons to the toolbar
         topBar.getItems().addAll(
+            new Separator(), patientButton,
             new Separator(), templateButton,
             new Separator(), vitalButton,
             new Separator(), dexaButton,
@@ -318,15 +481,23 @@ public class IttiaApp extends Application {
         }
     }
 
+    /**
+     * Opens the patient window: current patient, saving the note as an encounter, and previous encounters.
+     */
+    public void openEncounterHistory() {
+        if (encounterHistory == null) encounterHistory = new IAMEncounterHistory(this);
+        encounterHistory.show();
+    }
+
     /**
      * Opens the EMR template editor.
      */
     private void openTemplateEditor() {
         SwingUtilities.invokeLater(() -> {
             // The editor runs in the Swing EDT
-            IAFMainEdit editor = new IAFMainEdit(templateContent ->
+            IAFMainEdit editor = new IAFMainEdit(layout ->
                 // When a template is selected, update the JavaFX UI on the FX Application Thread
-                Platform.runLater(() -> textAreaManager.parseAndAppendTemplate(templateContent))
+                Platform.runLater(() -> textAreaManager.appendTemplate(layout))
             );
             editor.setVisible(true);
         });
@@ -346,8 +517,16 @@ public class IttiaApp extends Application {
                 establishBridgeConnection();
             }
             textAreaManager.focusArea(INITIAL_FOCUS_AREA);
+            timeline.mark("ready for input");
         });
         installAllKeyboardShortcuts(scene);
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, new EventHandler<>() {
+            @Override
+            public void handle(KeyEvent event) {
+                timeline.mark("first keystroke");
+                scene.removeEventFilter(KeyEvent.KEY_PRESSED, this);
+            }
+        });
     }
 
     /**
@@ -453,93 +632,49 @@ public class IttiaApp extends Application {
 
     /**
      * Compiles all EMR content, formats it, and copies it to the system clipboard.
+     * <p>
+     * Only the snapshot of the problem list and the area texts is taken here; de-duplication and formatting
+     * run on the Copy All worker, and the clipboard is set back on the FX thread when it is done.
      */
     public void copyAllToClipboard() {
-        String compiledContent = compileAllContent();
-        String finalizedContent = IAMTextFormatUtil.finalizeForEMR(compiledContent);
-
-        ClipboardContent clipboardContent = new ClipboardContent();
-        clipboardContent.putString(finalizedContent);
-        Clipboard.getSystemClipboard().setContent(clipboardContent);
-
-        showToast("Copied all content to clipboard");
-    }
-
-    /**
-     * Gathers content from the problem list and all text areas.
-     */
-    private String compileAllContent() {
-        StringJoiner contentJoiner = new StringJoiner("\n\n");
-        addProblemListToContent(contentJoiner);
-        addTextAreasToContent(contentJoiner);
-        return contentJoiner.toString();
-    }
-
-    /**
-     * Appends the formatted problem list to the content joiner.
-     */
-    private void addProblemListToContent(StringJoiner contentJoiner) {
-        Optional.ofNullable(problemAction)
-                .map(IAMProblemAction::getProblems)
-                .filter(problems -> !problems.isEmpty())
-                .ifPresent(problems -> {
-                    StringBuilder problemBuilder = new StringBuilder("# Problem List (as of ")
-                            .append(LocalDate.now().format(DateTimeFormatter.ISO_DATE))
-                            .append(")\n");
-                    problems.forEach(problem -> problemBuilder.append("- ").append(problem).append("\n"));
-                    contentJoiner.add(problemBuilder.toString().trim());
-                });
-    }
-
-    /**
-     * Appends content from each text area to the content joiner.
-     */
-    private void addTextAreasToContent(StringJoiner contentJoiner) {
-        List<TextArea> textAreas = Optional.ofNullable(textAreaManager)
-                                           .map(IAMTextArea::getTextAreas)
-                                           .orElse(List.of());
-
-        for (int i = 0; i < textAreas.size(); i++) {
-            String uniqueText = IAMTextFormatUtil.getUniqueLines(textAreas.get(i).getText());
-            if (!uniqueText.isEmpty()) {
-                String title = getAreaTitle(i);
-                contentJoiner.add("# " + title + "\n" + uniqueText);
+        IAMCopyAllPipeline.Snapshot snapshot = snapshotAllContent();
+        copyAllPipeline.compileAsync(snapshot).whenComplete((content, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("Copy All failed: " + cause.getMessage());
+                IAMToast.show(mainStage, "Copy failed: " + cause.getMessage());
+                return;
             }
-        }
+            ClipboardContent clipboardContent = new ClipboardContent();
+            clipboardContent.putString(content);
+            Clipboard.getSystemClipboard().setContent(clipboardContent);
+            IAMToast.show(mainStage, "Copied all content to clipboard");
+        }));
     }
 
     /**
-     * Retrieves the title for a given text area index.
+     * Captures the problem list and the document of every area. Runs on the FX thread; the ropes are
+     * immutable, so nothing is copied here.
      */
-    private String getAreaTitle(int areaIndex) {
-        return (areaIndex < IAMTextArea.TEXT_AREA_TITLES.length)
-                ? IAMTextArea.TEXT_AREA_TITLES[areaIndex].replaceAll(">$", "")
-                : "Area " + (areaIndex + 1);
+    private IAMCopyAllPipeline.Snapshot snapshotAllContent() {
+        List<String> problems = Optional.ofNullable(problemAction)
+                                        .map(IAMProblemAction::getProblems)
+                                        .map(List::copyOf)
+                                        .orElse(List.of());
+        List<SectionDocument> documents = Optional.ofNullable(textAreaManager)
+                                                  .map(IAMTextArea::getDocuments)
+                                                  .orElse(List.of());
+        List<Rope> areaTexts = new ArrayList<>(documents.size());
+        for (SectionDocument document : documents) {
+            areaTexts.add(document.text());
+        }
+        return new IAMCopyAllPipeline.Snapshot(problems, LocalDate.now(), areaTexts);
     }
 
     // ================================
     // Utility Methods
     // ================================
 
-    /**
-     * Finds the root directory of the repository.
-     */
-    private Path getRepoRoot() {
-        Path p = Paths.get("").toAbsolutePath();
-        // Traverse up until a marker file is found
-        while (p != null && !Files.exists(p.resolve("gradlew")) && !Files.exists(p.resolve(".git"))) {
-            p = p.getParent();
-        }
-        return (p != null) ? p : Paths.get("").toAbsolutePath();
-    }
-
-    /**
-     * Constructs the full path to a database file within the project structure.
-     */
-    private Path getDbPath(String fileName) {
-        return getRepoRoot().resolve("app").resolve("db").resolve(fileName);
-    }
-
     /**
      * Displays a simple informational pop-up message.
      */
@@ -580,12 +715,19 @@ public class IttiaApp extends Application {
         return textAreaManager;
     }
 
-    public Connection getDbConnection() {
-        return dbConn;
+    public IAMProblemAction getProblemAction() {
+        return problemAction;
+    }
+
+    public SqliteDatabase getAbbreviationDatabase() {
+        return abbrevDb;
     }
 
-    public Map<String, String> getAbbrevMap() {
-        return abbrevMap;
+    /**
+     * Returns the current abbreviation index shared by all editors.
+     */
+    public AbbreviationIndex getAbbreviationIndex() {
+        return AbbreviationRepository.shared().get();
     }
 
     public IAMFunctionkey getFunctionKeyHandler() {
@@ -0,0 +1,197 @@
+package com.emr.gds.abbrev;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Single-pass abbreviation expander shared by every editor.
+ * <p>
+ * The expander walks the input once, token by token (tokens are runs of non-whitespace), and copies
+ * unchanged spans straight into a reusable builder. It recognizes:
+ * <ul>
+ *   <li>{@code :key} - the non-whitespace run after a colon, looked up in the {@link AbbreviationIndex}
+ *       without creating a substring; where the colon may appear depends on the {@link Syntax},</li>
+ *   <li>{@code :cd} - the current date in ISO format,</li>
+ *   <li>editor-specific whole-token codes supplied through a {@link TokenRule}
+ *       (e.g., the Plan editor's follow-up {@code 1w}/{@code 3m} and meds codes).</li>
+ * </ul>
+ * Instances hold a scratch buffer and are therefore not thread-safe; create one per editor.
+ */
+public final class AbbreviationExpander {
+
+    /**
+     * Expands an entire whitespace-delimited token, or returns {@code null} to leave it to the default rules.
+     */
+    @FunctionalInterface
+    public interface TokenRule {
+        String expand(CharSequence text, int start, int end);
+    }
+
+    /**
+     * Which tokens carry a {@code :key}. Each keeps the rules its editors had when they matched keys with
+     * their own regex or word split.
+     */
+    public enum Syntax {
+        /**
+         * The key starts after the first colon anywhere in a token ({@code Dx:htn}), and {@code :cd} matches
+         * in any case; the old {@code :([\S]+)} regex of the main text areas.
+         */
+        INLINE,
+        /**
+         * Only a token that starts with the colon is a key, and only a lower-case {@code :cd} is the date;
+         * the old whole-word rule of the Chief Complaint, Present Illness and Plan editors.
+         */
+        WHOLE_TOKEN
+    }
+
+    private static final String CURRENT_DATE_KEY = "cd";
+
+    private final Supplier<AbbreviationIndex> abbreviations;
+    private final Syntax syntax;
+    private final TokenRule tokenRule;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    private LocalDate cachedDay;
+    private String cachedDayText;
+
+    public AbbreviationExpander(Supplier<AbbreviationIndex> abbreviations) {
+        this(abbreviations, Syntax.INLINE, null);
+    }
+
+    public AbbreviationExpander(Supplier<AbbreviationIndex> abbreviations, Syntax syntax) {
+        this(abbreviations, syntax, null);
+    }
+
+    public AbbreviationExpander(Supplier<AbbreviationIndex> abbreviations, Syntax syntax, TokenRule tokenRule) {
+        this.abbreviations = Objects.requireNonNull(abbreviations, "abbreviations");
+        this.syntax = Objects.requireNonNull(syntax, "syntax");
+        this.tokenRule = tokenRule;
+    }
+
+    /**
+     * Convenience factory for editors bound to a fixed index snapshot.
+     */
+    public static AbbreviationExpander of(AbbreviationIndex index) {
+        AbbreviationIndex fixed = (index != null) ? index : AbbreviationIndex.empty();
+        return new AbbreviationExpander(() -> fixed);
+    }
+
+    // ================================
+    // Expansion
+    // ================================
+
+    /**
+     * Expands all abbreviations in {@code text}.
+     *
+     * @return The expanded text; the original string instance when nothing was expanded.
+     */
+    public String expand(CharSequence text) {
+        if (text == null) return "";
+        buffer.setLength(0);
+        boolean changed = expandInto(text, buffer);
+        return changed ? buffer.toString() : text.toString();
+    }
+
+    /**
+     * Appends the expansion of {@code text} to {@code out}.
+     *
+     * @return {@code true} if at least one token was expanded.
+     */
+    public boolean expandInto(CharSequence text, StringBuilder out) {
+        AbbreviationIndex index = abbreviations.get();
+        int length = text.length();
+        int copyFrom = 0;
+        boolean changed = false;
+
+        int i = 0;
+        while (i < length) {
+            if (isSeparator(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && !isSeparator(text.charAt(end))) end++;
+
+            String replacement = null;
+            int replaceFrom = i;
+            if (tokenRule != null) {
+                replacement = tokenRule.expand(text, i, end);
+            }
+            if (replacement == null) {
+                // First colon in the token starts a key that runs to the end of the token.
+                int lastColon = syntax == Syntax.INLINE ? end - 2 : Math.min(i, end - 2);
+                for (int colon = i; colon <= lastColon; colon++) {
+                    if (text.charAt(colon) == ':') {
+                        replacement = lookup(index, text, colon + 1, end);
+                        replaceFrom = colon;
+                        break;
+                    }
+                }
+            }
+            if (replacement != null) {
+                out.append(text, copyFrom, replaceFrom).append(replacement);
+                copyFrom = end;
+                changed = true;
+            }
+            i = end;
+        }
+        out.append(text, copyFrom, length);
+        return changed;
+    }
+
+    /**
+     * Resolves the key spelled by {@code text[start, end)} (without the leading colon).
+     *
+     * @return The expansion, or {@code null} if the key is unknown.
+     */
+    public String lookup(CharSequence text, int start, int end) {
+        return lookup(abbreviations.get(), text, start, end);
+    }
+
+    public String lookup(CharSequence key) {
+        return lookup(key, 0, key.length());
+    }
+
+    /**
+     * The longest key {@link #lookup} can resolve, including the built-in {@code cd}.
+     */
+    public int maxKeyLength() {
+        return Math.max(abbreviations.get().maxKeyLength(), CURRENT_DATE_KEY.length());
+    }
+
+    private String lookup(AbbreviationIndex index, CharSequence text, int start, int end) {
+        if (end - start == CURRENT_DATE_KEY.length() && isDateKey(text.charAt(start), text.charAt(start + 1))) {
+            return today();
+        }
+        int ordinal = index.indexOf(text, start, end);
+        return ordinal < 0 ? null : index.valueAt(ordinal);
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private boolean isDateKey(char c, char d) {
+        return syntax == Syntax.INLINE
+                ? Character.toLowerCase(c) == 'c' && Character.toLowerCase(d) == 'd'
+                : c == 'c' && d == 'd';
+    }
+
+    private String today() {
+        LocalDate now = LocalDate.now();
+        if (!now.equals(cachedDay)) {
+            cachedDay = now;
+            cachedDayText = now.format(DateTimeFormatter.ISO_DATE);
+        }
+        return cachedDayText;
+    }
+
+    /**
+     * Token separators, matching the regex {@code \s} class the editors used before.
+     */
+    static boolean isSeparator(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+}
@@ -0,0 +1,128 @@
+package com.emr.gds.abbrev;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Case-insensitive search over the keys and expansions of an {@link AbbreviationIndex}, for the
+ * abbreviation manager.
+ * <p>
+ * The manager used to lower-case, filter and format every entry into a new list on each keystroke. The filter
+ * folds an index to lower case once and answers with ordinals into it, so nothing is formatted until a row is
+ * shown. Keys that start with the query are listed first, then the other matches; both groups keep key order.
+ * The first group is one range of the folded keys in sorted order, found by binary search. The second needs a
+ * substring scan; while the user keeps typing (the new query extends the previous one against the same
+ * index), only the previous matches are scanned. Not thread-safe; use one instance from one thread.
+ */
+public final class AbbreviationFilter {
+
+    /**
+     * The matches of one query.
+     *
+     * @param index    The index the ordinals refer to.
+     * @param ordinals The matching entries, in display order.
+     */
+    public record Result(AbbreviationIndex index, int[] ordinals) {
+        public int size() {
+            return ordinals.length;
+        }
+
+        public String keyAt(int i) {
+            return index.keyAt(ordinals[i]);
+        }
+
+        public String valueAt(int i) {
+            return index.valueAt(ordinals[i]);
+        }
+    }
+
+    private AbbreviationIndex folded;
+    private String[] foldedKeys;
+    private String[] foldedValues;
+    /** Ordinals sorted by folded key (then ordinal), so the keys with a prefix are one range. */
+    private int[] byFoldedKey;
+
+    private String lastQuery;
+    private Result lastResult;
+
+    /**
+     * @param query Matched anywhere in a key or expansion, ignoring case; blank matches everything.
+     */
+    public Result filter(AbbreviationIndex index, String query) {
+        Objects.requireNonNull(index, "index");
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (index != folded) fold(index);
+
+        int[] candidates = null;
+        if (lastResult != null && lastResult.index() == index && q.startsWith(lastQuery)) {
+            if (q.equals(lastQuery)) return lastResult;
+            candidates = lastResult.ordinals();
+        }
+
+        Result result = new Result(index, q.isEmpty() ? all(index.size()) : match(q, candidates));
+        lastQuery = q;
+        lastResult = result;
+        return result;
+    }
+
+    private int[] match(String q, int[] candidates) {
+        int from = firstFoldedKeyAtLeast(q);
+        int to = from;
+        while (to < byFoldedKey.length && foldedKeys[byFoldedKey[to]].startsWith(q)) to++;
+        int p = to - from;
+        int[] prefixed = Arrays.copyOfRange(byFoldedKey, from, to);
+        Arrays.sort(prefixed);
+
+        int n = candidates != null ? candidates.length : foldedKeys.length;
+        int[] others = new int[n];
+        int o = 0;
+        for (int c = 0; c < n; c++) {
+            int i = candidates != null ? candidates[c] : c;
+            if (!foldedKeys[i].startsWith(q) && (foldedKeys[i].contains(q) || foldedValues[i].contains(q))) {
+                others[o++] = i;
+            }
+        }
+        // Narrowing can move former prefix matches into the second group; restore key order there
+        if (candidates != null) Arrays.sort(others, 0, o);
+        int[] ordinals = Arrays.copyOf(prefixed, p + o);
+        System.arraycopy(others, 0, ordinals, p, o);
+        return ordinals;
+    }
+
+    /** Position in {@link #byFoldedKey} of the first folded key not less than {@code q}. */
+    private int firstFoldedKeyAtLeast(String q) {
+        int lo = 0;
+        int hi = byFoldedKey.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (foldedKeys[byFoldedKey[mid]].compareTo(q) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private void fold(AbbreviationIndex index) {
+        int size = index.size();
+        foldedKeys = new String[size];
+        foldedValues = new String[size];
+        for (int i = 0; i < size; i++) {
+            foldedKeys[i] = index.keyAt(i).toLowerCase(Locale.ROOT);
+            foldedValues[i] = index.valueAt(i).toLowerCase(Locale.ROOT);
+        }
+        byFoldedKey = IntStream.range(0, size).boxed()
+                .sorted(Comparator.<Integer, String>comparing(i -> foldedKeys[i]).thenComparingInt(i -> i))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        folded = index;
+        lastResult = null;
+    }
+
+    private static int[] all(int size) {
+        int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) ordinals[i] = i;
+        return ordinals;
+    }
+}
@@ -0,0 +1,405 @@
+package com.emr.gds.abbrev;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Immutable, compact trie over the abbreviation dictionary ({@code short -> full}).
+ * <p>
+ * Keys are stored once, in sorted order, and the trie is flattened into parallel primitive arrays.
+ * Because the keys are sorted, every trie node covers a contiguous range of the key array, so:
+ * <ul>
+ *   <li>exact lookup walks at most {@code key.length()} nodes,</li>
+ *   <li>prefix enumeration is a single range of ordinals (no subtree traversal),</li>
+ *   <li>longest-match scans the input once and never allocates.</li>
+ * </ul>
+ * A single instance is shared by every editor. Instances are never mutated; edits produce a new index
+ * (see {@link #withEntry(String, String)} / {@link #withoutEntry(String)}).
+ */
+public final class AbbreviationIndex {
+
+    private static final AbbreviationIndex EMPTY = new AbbreviationIndex(new String[0], new String[0]);
+
+    // --- Dictionary (sorted by key) ---
+    private final String[] keys;
+    private final String[] values;
+    private final int maxKeyLength;
+
+    // --- Flattened trie; node 0 is the root, children of a node are contiguous and sorted by label ---
+    private final char[] label;
+    private final int[] childStart;
+    private final int[] childEnd;
+    private final int[] rangeStart;
+    private final int[] rangeEnd;
+    private final int[] terminal; // ordinal of the key ending at this node, or -1
+
+    private AbbreviationIndex(String[] sortedKeys, String[] values) {
+        this.keys = sortedKeys;
+        this.values = values;
+
+        int capacity = 1;
+        int longest = 0;
+        for (String key : sortedKeys) {
+            capacity += key.length();
+            longest = Math.max(longest, key.length());
+        }
+        this.maxKeyLength = longest;
+
+        char[] lbl = new char[capacity];
+        int[] cStart = new int[capacity];
+        int[] cEnd = new int[capacity];
+        int[] rStart = new int[capacity];
+        int[] rEnd = new int[capacity];
+        int[] term = new int[capacity];
+        int[] depth = new int[capacity];
+
+        rEnd[0] = sortedKeys.length;
+        int nodeCount = 1;
+        // Breadth-first construction keeps the children of each node in one contiguous block.
+        for (int node = 0; node < nodeCount; node++) {
+            int d = depth[node];
+            int i = rStart[node];
+            int hi = rEnd[node];
+            term[node] = -1;
+            if (i < hi && sortedKeys[i].length() == d) {
+                term[node] = i++;
+            }
+            cStart[node] = nodeCount;
+            while (i < hi) {
+                char c = sortedKeys[i].charAt(d);
+                int j = i + 1;
+                while (j < hi && sortedKeys[j].charAt(d) == c) j++;
+                lbl[nodeCount] = c;
+                depth[nodeCount] = d + 1;
+                rStart[nodeCount] = i;
+                rEnd[nodeCount] = j;
+                nodeCount++;
+                i = j;
+            }
+            cEnd[node] = nodeCount;
+        }
+
+        this.label = Arrays.copyOf(lbl, nodeCount);
+        this.childStart = Arrays.copyOf(cStart, nodeCount);
+        this.childEnd = Arrays.copyOf(cEnd, nodeCount);
+        this.rangeStart = Arrays.copyOf(rStart, nodeCount);
+        this.rangeEnd = Arrays.copyOf(rEnd, nodeCount);
+        this.terminal = Arrays.copyOf(term, nodeCount);
+    }
+
+    // ================================
+    // Factories
+    // ================================
+
+    public static AbbreviationIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds an index from an arbitrary map. Null keys/values and empty keys are ignored.
+     */
+    public static AbbreviationIndex of(Map<String, String> entries) {
+        Builder builder = builder();
+        entries.forEach(builder::put);
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a copy of this index with {@code key} mapped to {@code value}.
+     */
+    public AbbreviationIndex withEntry(String key, String value) {
+        return toBuilder().put(key, value).build();
+    }
+
+    /**
+     * Returns a copy of this index without {@code key}.
+     */
+    public AbbreviationIndex withoutEntry(String key) {
+        return toBuilder().remove(key).build();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        for (int i = 0; i < keys.length; i++) {
+            builder.entries.put(keys[i], values[i]);
+        }
+        return builder;
+    }
+
+    // ================================
+    // Exact Lookup
+    // ================================
+
+    /**
+     * Returns the expansion for {@code key}, or {@code null} if it is not an abbreviation.
+     */
+    public String get(CharSequence key) {
+        int ordinal = indexOf(key, 0, key.length());
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    public boolean containsKey(CharSequence key) {
+        return indexOf(key, 0, key.length()) >= 0;
+    }
+
+    /**
+     * Looks up the key spelled by {@code text[start, end)} without creating a substring.
+     *
+     * @return The ordinal of the key, or -1 if the range is not a key.
+     */
+    public int indexOf(CharSequence text, int start, int end) {
+        int node = nodeFor(text, start, end);
+        return node < 0 ? -1 : terminal[node];
+    }
+
+    // ================================
+    // Prefix Enumeration
+    // ================================
+
+    /**
+     * Returns the number of keys starting with {@code prefix}.
+     */
+    public int countWithPrefix(CharSequence prefix) {
+        int node = nodeFor(prefix, 0, prefix.length());
+        return node < 0 ? 0 : rangeEnd[node] - rangeStart[node];
+    }
+
+    /**
+     * Returns the first ordinal of the (contiguous) ordinal range of keys starting with {@code prefix}.
+     * Use together with {@link #countWithPrefix(CharSequence)}; returns -1 if no key matches.
+     */
+    public int firstWithPrefix(CharSequence prefix) {
+        int node = nodeFor(prefix, 0, prefix.length());
+        return (node < 0 || rangeStart[node] == rangeEnd[node]) ? -1 : rangeStart[node];
+    }
+
+    /**
+     * Returns up to {@code limit} keys starting with {@code prefix}, in sorted order.
+     */
+    public List<String> keysWithPrefix(CharSequence prefix, int limit) {
+        int node = nodeFor(prefix, 0, prefix.length());
+        if (node < 0 || limit <= 0) return Collections.emptyList();
+        int from = rangeStart[node];
+        int to = from + Math.min(limit, rangeEnd[node] - from); // from + limit may overflow
+        return Collections.unmodifiableList(Arrays.asList(keys).subList(from, to));
+    }
+
+    /**
+     * Visits every {@code (key, value)} pair whose key starts with {@code prefix}, in sorted order.
+     */
+    public void forEachWithPrefix(CharSequence prefix, BiConsumer<String, String> action) {
+        int node = nodeFor(prefix, 0, prefix.length());
+        if (node < 0) return;
+        for (int i = rangeStart[node]; i < rangeEnd[node]; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Returns the ordinals of up to {@code limit} keys starting with {@code prefix}, highest {@code weight}
+     * first; keys of equal weight stay in sorted order. The matches are kept in a heap of {@code limit}
+     * entries, so ranking m matches costs O(m log limit) and nothing is sorted beyond the result.
+     *
+     * @param weight Maps an ordinal to its weight (e.g., how often the key was expanded).
+     */
+    public int[] topWithPrefix(CharSequence prefix, int limit, IntToLongFunction weight) {
+        int node = nodeFor(prefix, 0, prefix.length());
+        if (node < 0 || limit <= 0) return new int[0];
+        int from = rangeStart[node];
+        int to = rangeEnd[node];
+        int capacity = Math.min(limit, to - from);
+        int[] heap = new int[capacity];
+        long[] weights = new long[capacity];
+
+        // Min-heap by rank: the root is the worst of the best matches seen so far
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            long w = weight.applyAsLong(i);
+            if (size < capacity) {
+                heap[size] = i;
+                weights[size] = w;
+                siftUp(heap, weights, size++);
+            } else if (ranksBefore(w, i, weights[0], heap[0])) {
+                heap[0] = i;
+                weights[0] = w;
+                siftDown(heap, weights, size);
+            }
+        }
+        int[] ranked = new int[size];
+        while (size > 0) {
+            ranked[--size] = heap[0];
+            heap[0] = heap[size];
+            weights[0] = weights[size];
+            siftDown(heap, weights, size);
+        }
+        return ranked;
+    }
+
+    private static boolean ranksBefore(long w1, int o1, long w2, int o2) {
+        return w1 != w2 ? w1 > w2 : o1 < o2;
+    }
+
+    private static void siftUp(int[] heap, long[] weights, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBefore(weights[parent], heap[parent], weights[i], heap[i])) return;
+            swap(heap, weights, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, long[] weights, int size) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if (l < size && ranksBefore(weights[worst], heap[worst], weights[l], heap[l])) worst = l;
+            if (r < size && ranksBefore(weights[worst], heap[worst], weights[r], heap[r])) worst = r;
+            if (worst == i) return;
+            swap(heap, weights, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] heap, long[] weights, int a, int b) {
+        int o = heap[a];
+        heap[a] = heap[b];
+        heap[b] = o;
+        long w = weights[a];
+        weights[a] = weights[b];
+        weights[b] = w;
+    }
+
+    // ================================
+    // Longest Match
+    // ================================
+
+    /**
+     * Finds the longest key that is a prefix of {@code text[start, end)}.
+     *
+     * @return The ordinal of the longest matching key, or -1 if no key matches.
+     */
+    public int longestMatch(CharSequence text, int start, int end) {
+        int node = 0;
+        int best = terminal[0];
+        for (int i = start; i < end; i++) {
+            node = child(node, text.charAt(i));
+            if (node < 0) break;
+            if (terminal[node] >= 0) best = terminal[node];
+        }
+        return best;
+    }
+
+    // ================================
+    // Accessors
+    // ================================
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Length of the longest key; an upper bound for trigger scanning.
+     */
+    public int maxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public String keyAt(int ordinal) {
+        return keys[ordinal];
+    }
+
+    public String valueAt(int ordinal) {
+        return values[ordinal];
+    }
+
+    /**
+     * Visits every entry in sorted key order.
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    public List<String> keys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    // ================================
+    // Trie Navigation
+    // ================================
+
+    private int nodeFor(CharSequence text, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end && node >= 0; i++) {
+            node = child(node, text.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int lo = childStart[node];
+        int hi = childEnd[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = label[mid];
+            if (m < c) lo = mid + 1;
+            else if (m > c) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // ================================
+    // Builder
+    // ================================
+
+    /**
+     * Mutable staging area used to assemble a new index.
+     */
+    public static final class Builder {
+        private final TreeMap<String, String> entries = new TreeMap<>();
+
+        private Builder() {}
+
+        public Builder put(String key, String value) {
+            if (key != null && !key.isEmpty() && value != null) {
+                entries.put(key, value);
+            }
+            return this;
+        }
+
+        public Builder remove(String key) {
+            entries.remove(key);
+            return this;
+        }
+
+        public AbbreviationIndex build() {
+            if (entries.isEmpty()) return EMPTY;
+            List<String> sortedKeys = new ArrayList<>(entries.keySet());
+            String[] k = sortedKeys.toArray(new String[0]);
+            String[] v = new String[k.length];
+            for (int i = 0; i < k.length; i++) {
+                v[i] = Objects.requireNonNull(entries.get(k[i]));
+            }
+            return new AbbreviationIndex(k, v);
+        }
+    }
+}
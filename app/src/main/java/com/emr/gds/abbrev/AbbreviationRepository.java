@@ -0,0 +1,122 @@
+package com.emr.gds.abbrev;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The application's abbreviations as a sequence of immutable, versioned snapshots.
+ * <p>
+ * The database is read once at startup and published here; every editor window then expands against
+ * {@link #get()}, the current {@link AbbreviationIndex}, so opening an editor reads nothing and an edit in
+ * the abbreviation manager is visible to all open windows at once. An edit never changes an index in
+ * place: {@link #update} derives a new index from the current one and swaps it in atomically with the
+ * next version number, so a reader always sees one complete snapshot. Listeners are told about every new
+ * snapshot on the publishing thread.
+ */
+public final class AbbreviationRepository implements Supplier<AbbreviationIndex> {
+
+    /**
+     * One published state of the abbreviations.
+     *
+     * @param index   The abbreviations.
+     * @param version Increases by one with every publication; 0 before the first.
+     */
+    public record Snapshot(AbbreviationIndex index, long version) {}
+
+    private static final AbbreviationRepository SHARED = new AbbreviationRepository();
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(AbbreviationIndex.empty(), 0));
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    public static AbbreviationRepository shared() {
+        return SHARED;
+    }
+
+    // ================================
+    // Reading
+    // ================================
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * @return The current index; hold on to it for one operation, not for the life of a window.
+     */
+    @Override
+    public AbbreviationIndex get() {
+        return current.get().index();
+    }
+
+    public long version() {
+        return current.get().version();
+    }
+
+    // ================================
+    // Publishing
+    // ================================
+
+    /**
+     * Replaces the abbreviations with {@code index} (e.g., after loading them from the database).
+     */
+    public Snapshot publish(AbbreviationIndex index) {
+        Objects.requireNonNull(index, "index");
+        return update(ignored -> index);
+    }
+
+    /**
+     * Atomically publishes {@code change} applied to the current index. {@code change} must be free of side
+     * effects: it is called again if another thread published in between.
+     *
+     * @return The published snapshot, or the current one if {@code change} returned the same index.
+     */
+    public Snapshot update(UnaryOperator<AbbreviationIndex> change) {
+        Objects.requireNonNull(change, "change");
+        while (true) {
+            Snapshot before = current.get();
+            AbbreviationIndex index = Objects.requireNonNull(change.apply(before.index()), "index");
+            if (index == before.index()) return before;
+            Snapshot after = new Snapshot(index, before.version() + 1);
+            if (current.compareAndSet(before, after)) {
+                notifyListeners(after);
+                return after;
+            }
+        }
+    }
+
+    /**
+     * Publishes {@code index} only if {@code expected} is still the current snapshot (e.g., to undo an edit
+     * whose write failed without discarding a later one).
+     */
+    public boolean compareAndPublish(Snapshot expected, AbbreviationIndex index) {
+        Objects.requireNonNull(index, "index");
+        Snapshot after = new Snapshot(index, expected.version() + 1);
+        if (!current.compareAndSet(expected, after)) return false;
+        notifyListeners(after);
+        return true;
+    }
+
+    /**
+     * @return Removes the listener.
+     */
+    public Runnable addListener(Consumer<Snapshot> listener) {
+        Objects.requireNonNull(listener, "listener");
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private void notifyListeners(Snapshot snapshot) {
+        for (Consumer<Snapshot> listener : listeners) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Abbreviation listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.emr.gds.abbrev;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Suggests abbreviations for a partly typed {@code :key}, most used first.
+ * <p>
+ * {@link #query(CharSequence, int)} recognizes the token before the caret the same way
+ * {@link AbbreviationTrigger} does (reading at most one key length back), and {@link #suggest} takes the
+ * top matches straight from the index's prefix range with {@link AbbreviationIndex#topWithPrefix}, ranked by
+ * {@link AbbreviationUsage}. Keys that were never expanded keep their sorted order. Stateless apart from its
+ * sources, so one instance can serve every editor.
+ */
+public final class AbbreviationSuggester {
+
+    /** Characters after the colon before suggestions are offered. */
+    public static final int DEFAULT_MIN_PREFIX = 1;
+
+    /**
+     * A partly typed abbreviation: {@code [start, end)} is the colon and the {@code prefix} after it.
+     */
+    public record Query(int start, int end, String prefix) {}
+
+    /**
+     * One suggestion.
+     *
+     * @param uses How often the key has been expanded.
+     */
+    public record Suggestion(String key, String expansion, long uses) {}
+
+    private final Supplier<AbbreviationIndex> abbreviations;
+    private final AbbreviationUsage usage;
+    private final int minPrefix;
+
+    public AbbreviationSuggester(Supplier<AbbreviationIndex> abbreviations, AbbreviationUsage usage) {
+        this(abbreviations, usage, DEFAULT_MIN_PREFIX);
+    }
+
+    public AbbreviationSuggester(Supplier<AbbreviationIndex> abbreviations, AbbreviationUsage usage, int minPrefix) {
+        this.abbreviations = Objects.requireNonNull(abbreviations, "abbreviations");
+        this.usage = Objects.requireNonNull(usage, "usage");
+        this.minPrefix = Math.max(1, minPrefix);
+    }
+
+    /**
+     * Finds a {@code :prefix} token ending at {@code caret} that could still become a key. Nothing is copied
+     * unless the token is a colon followed by at least the minimum number of characters.
+     *
+     * @return The query, or {@code null} if there is no such token or no key starts with it.
+     */
+    public Query query(CharSequence text, int caret) {
+        if (caret <= minPrefix || caret > text.length()) return null;
+        AbbreviationIndex index = abbreviations.get();
+        int limit = Math.max(0, caret - index.maxKeyLength() - 1);
+        int start = caret;
+        while (start > limit && !AbbreviationExpander.isSeparator(text.charAt(start - 1))) start--;
+        if (start > 0 && !AbbreviationExpander.isSeparator(text.charAt(start - 1))) {
+            return null; // Longer than any key
+        }
+        if (caret - start <= minPrefix || text.charAt(start) != ':') return null;
+        String prefix = text.subSequence(start + 1, caret).toString();
+        return index.countWithPrefix(prefix) == 0 ? null : new Query(start, caret, prefix);
+    }
+
+    /**
+     * @return Up to {@code limit} keys starting with {@code prefix}, most expanded first.
+     */
+    public List<Suggestion> suggest(CharSequence prefix, int limit) {
+        AbbreviationIndex index = abbreviations.get();
+        int[] ordinals = index.topWithPrefix(prefix, limit, ordinal -> usage.count(index.keyAt(ordinal)));
+        if (ordinals.length == 0) return Collections.emptyList();
+        List<Suggestion> suggestions = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            String key = index.keyAt(ordinal);
+            suggestions.add(new Suggestion(key, index.valueAt(ordinal), usage.count(key)));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Records that the user expanded {@code key}, raising it in later suggestions.
+     */
+    public void accepted(String key) {
+        usage.record(key);
+    }
+}
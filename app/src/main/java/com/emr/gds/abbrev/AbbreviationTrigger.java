@@ -0,0 +1,83 @@
+package com.emr.gds.abbrev;
+
+import java.util.Objects;
+
+/**
+ * Detects a {@code :key} abbreviation right before the caret when the user presses SPACE.
+ * <p>
+ * The editors used to copy everything before the caret and search it for the last space or newline on every
+ * space press. The trigger instead walks back from the caret over the text itself and stops at the first
+ * separator, reading at most {@link #window()} characters: one more than the longest token that can be an
+ * abbreviation ({@code :} plus {@link AbbreviationExpander#maxKeyLength()}). A space press therefore costs
+ * O(key length) however long the section is, and allocates nothing unless an abbreviation is found.
+ * <p>
+ * {@link #find(CharSequence, int)} works on any {@link CharSequence} indexed like the document, such as a
+ * {@code Rope}. Editors that can only copy ranges out of their control (a {@code TextArea}, a Swing
+ * {@code Document}) use {@link #find(TextSource, int)}, which reads the one window before the caret. Not
+ * thread-safe, like the expander it uses; create one per editor.
+ */
+public final class AbbreviationTrigger {
+
+    /**
+     * A recognized abbreviation: {@code [start, end)} (the colon through the caret) is to be replaced.
+     */
+    public record Match(int start, int end, String replacement) {}
+
+    /**
+     * Reads {@code [start, end)} of a document, e.g. {@code TextArea::getText}.
+     */
+    @FunctionalInterface
+    public interface TextSource {
+        CharSequence read(int start, int end);
+    }
+
+    private final AbbreviationExpander expander;
+
+    public AbbreviationTrigger(AbbreviationExpander expander) {
+        this.expander = Objects.requireNonNull(expander, "expander");
+    }
+
+    public static AbbreviationTrigger of(AbbreviationIndex index) {
+        return new AbbreviationTrigger(AbbreviationExpander.of(index));
+    }
+
+    /**
+     * How many characters before the caret {@link #find} may read: the longest {@code :key} token plus the
+     * separator in front of it.
+     */
+    public int window() {
+        return expander.maxKeyLength() + 2;
+    }
+
+    /**
+     * Looks for a {@code :key} token ending at {@code caret}. The token is the run of non-separator
+     * characters before the caret; it must start with a colon and the rest must be a known key.
+     *
+     * @return The match, or {@code null} (the common case, without allocating).
+     */
+    public Match find(CharSequence text, int caret) {
+        if (caret < 2 || caret > text.length()) return null;
+        int limit = Math.max(0, caret - window() + 1);
+        int start = caret;
+        while (start > limit && !AbbreviationExpander.isSeparator(text.charAt(start - 1))) start--;
+        if (start > 0 && !AbbreviationExpander.isSeparator(text.charAt(start - 1))) {
+            return null; // Longer than any key
+        }
+        if (caret - start < 2 || text.charAt(start) != ':') return null;
+
+        String replacement = expander.lookup(text, start + 1, caret);
+        return replacement == null ? null : new Match(start, caret, replacement);
+    }
+
+    /**
+     * Same as {@link #find(CharSequence, int)}, reading only the {@link #window()} before the caret from
+     * {@code source}. The match is in document positions.
+     */
+    public Match find(TextSource source, int caret) {
+        if (caret < 2) return null;
+        int from = Math.max(0, caret - window());
+        Match match = find(source.read(from, caret), caret - from);
+        if (match == null || from == 0) return match;
+        return new Match(from + match.start(), from + match.end(), match.replacement());
+    }
+}
@@ -0,0 +1,46 @@
+package com.emr.gds.abbrev;
+
+import com.emr.gds.usage.UsageCounters;
+
+import java.util.Objects;
+
+/**
+ * How often each abbreviation has been expanded, learned from the editors.
+ * <p>
+ * Every expansion the user actually applies (SPACE after {@code :key}, or picking a suggestion) is
+ * recorded here, and {@link AbbreviationSuggester} ranks suggestions by these counts. The counts are the
+ * {@link UsageCounters.Kind#ABBREVIATION} counters, so the shared instance remembers them across sessions.
+ * Counting is cheap and safe from any thread; counts are kept for keys that are later removed, which is harmless.
+ */
+public final class AbbreviationUsage {
+
+    private static final AbbreviationUsage SHARED = new AbbreviationUsage(UsageCounters.shared());
+
+    private final UsageCounters counters;
+
+    /**
+     * Creates usage counts that live only in memory.
+     */
+    public AbbreviationUsage() {
+        this(new UsageCounters());
+    }
+
+    public AbbreviationUsage(UsageCounters counters) {
+        this.counters = Objects.requireNonNull(counters, "counters");
+    }
+
+    public static AbbreviationUsage shared() {
+        return SHARED;
+    }
+
+    public void record(String key) {
+        counters.increment(UsageCounters.Kind.ABBREVIATION, key);
+    }
+
+    /**
+     * @return How often {@code key} has been expanded; 0 if never.
+     */
+    public long count(String key) {
+        return counters.count(UsageCounters.Kind.ABBREVIATION, key);
+    }
+}
@@ -0,0 +1,297 @@
+package com.emr.gds.autosave;
+
+import com.emr.gds.document.SectionDelta;
+import com.emr.gds.document.SectionDocument;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe autosave of the encounter note, one {@link EncounterJournal} per application.
+ * <p>
+ * The FX thread only hands over each {@link SectionDelta} of an area's document ({@link #recordDelta});
+ * deltas are immutable, so this is a queue insert and nothing more. A single writer thread appends the
+ * delta's range to the memory-mapped journal as it is, so typing pays no I/O and the journal grows by the
+ * size of the edit, not of the note. Only a delta that does not follow the last one journaled for its
+ * area (the first after startup or a reset) and a whole text ({@link #recordEdit}) are diffed against
+ * the journaled text first.
+ * The writer compacts the journal into a snapshot every {@value #COMPACT_INTERVAL_SECONDS} s when there
+ * were edits, when the journal passes half its capacity, on {@link #saveNow()} (F9), and on
+ * {@link #close()}; the mapped pages are forced to disk at most every {@value #FORCE_INTERVAL_MS} ms.
+ * <p>
+ * {@link #recovered()} completes with what the previous session left behind. After a clean shutdown the
+ * journal starts again from empty areas; otherwise it continues from the recovered text, and if the user
+ * declines to restore it, {@link #discardRecovered(String[])} makes the current areas the new baseline.
+ */
+public final class EncounterAutosave {
+
+    // ================================
+    // Constants
+    // ================================
+    private static final long COMPACT_INTERVAL_SECONDS = 60;
+    private static final long FORCE_INTERVAL_MS = 1000;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+    private static final int MAX_BATCH = 512;
+
+    /** One queued request; only the fields its kind needs are set. */
+    private record Task(Kind kind, int area, String text, SectionDelta delta, String[] texts,
+                        CompletableFuture<Void> done) {}
+
+    private enum Kind { EDIT, DELTA, SAVE, RESET, CLOSE }
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final EncounterJournal journal;
+    private final int areaCount;
+    private final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final CompletableFuture<EncounterJournal.Recovery> recovered = new CompletableFuture<>();
+    private final Thread writer;
+
+    // Writer-thread state
+    private CharSequence[] journaled;
+    /** Document version of the last delta journaled per area; -1 when the text came from elsewhere. */
+    private long[] journaledVersions;
+    private boolean dirtySinceCompact;
+    private boolean dirtySinceForce;
+    private long lastCompactNanos = System.nanoTime();
+    private long lastForceNanos = System.nanoTime();
+    private boolean failed;
+
+    public EncounterAutosave(Path directory, int areaCount) {
+        this(new EncounterJournal(directory, areaCount), areaCount);
+    }
+
+    EncounterAutosave(EncounterJournal journal, int areaCount) {
+        this.journal = journal;
+        this.areaCount = areaCount;
+        this.writer = new Thread(this::run, "encounter-autosave");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ================================
+    // API (any thread; edits in order from the FX thread)
+    // ================================
+
+    /**
+     * Completes with the state left by the previous session, once the writer has read it.
+     */
+    public CompletableFuture<EncounterJournal.Recovery> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Records that area {@code area} now contains {@code text}.
+     */
+    public void recordEdit(int area, String text) {
+        if (area < 0 || area >= areaCount || !writer.isAlive()) return;
+        queue.add(new Task(Kind.EDIT, area, text != null ? text : "", null, null, null));
+    }
+
+    /**
+     * Records one change of an area's document; pass this to {@link SectionDocument#addListener}.
+     */
+    public void recordDelta(SectionDelta delta) {
+        if (delta.area() < 0 || delta.area() >= areaCount || !writer.isAlive()) return;
+        queue.add(new Task(Kind.DELTA, delta.area(), null, delta, null, null));
+    }
+
+    /**
+     * Compacts everything recorded so far into a snapshot and forces it to disk.
+     */
+    public CompletableFuture<Void> saveNow() {
+        return submit(new Task(Kind.SAVE, -1, null, null, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Replaces the recovered state with {@code currentTexts} (what the areas show now).
+     */
+    public CompletableFuture<Void> discardRecovered(String[] currentTexts) {
+        String[] texts = Arrays.copyOf(currentTexts, areaCount);
+        return submit(new Task(Kind.RESET, -1, null, null, texts, new CompletableFuture<>()));
+    }
+
+    /**
+     * Writes a final snapshot marked as a clean shutdown and stops the writer. Blocks for a few seconds at most.
+     */
+    public void close() {
+        if (!writer.isAlive()) return;
+        CompletableFuture<Void> done = submit(new Task(Kind.CLOSE, -1, null, null, null, new CompletableFuture<>()));
+        try {
+            done.get(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("Autosave did not close cleanly: " + e);
+        }
+    }
+
+    private CompletableFuture<Void> submit(Task task) {
+        if (!writer.isAlive()) {
+            task.done().completeExceptionally(new IllegalStateException("Autosave is closed"));
+        } else {
+            queue.add(task);
+        }
+        return task.done();
+    }
+
+    // ================================
+    // Writer
+    // ================================
+
+    private void run() {
+        try {
+            EncounterJournal.Recovery recovery = journal.recover();
+            journaled = Arrays.copyOf(recovery.texts(), areaCount, CharSequence[].class);
+            journaledVersions = new long[areaCount];
+            Arrays.fill(journaledVersions, -1);
+            if (recovery.clean() && !recovery.isEmpty()) {
+                // Closed cleanly: nothing to restore, the new encounter starts from empty areas
+                Arrays.fill(journaled, "");
+                compact(true);
+            }
+            recovered.complete(recovery);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Autosave unavailable: " + e);
+            recovered.completeExceptionally(e);
+            failAll(e);
+            return;
+        }
+
+        List<Task> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                Task first = queue.poll(FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (!apply(batch.get(i))) {
+                        journal.close();
+                        IllegalStateException closed = new IllegalStateException("Autosave is closed");
+                        batch.subList(0, i + 1).clear();
+                        queue.drainTo(batch);
+                        for (Task task : batch) {
+                            if (task.done() != null) task.done().completeExceptionally(closed);
+                        }
+                        return;
+                    }
+                }
+                maintain();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (!failed) System.err.println("Autosave write failed: " + e);
+                failed = true; // Keep draining so callers never wait on a dead writer
+                for (Task task : batch) {
+                    if (task.done() != null) task.done().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} once the autosave has been closed.
+     */
+    private boolean apply(Task task) throws IOException {
+        switch (task.kind()) {
+            case EDIT -> {
+                journalText(task.area(), task.text());
+                journaledVersions[task.area()] = -1;
+            }
+            case DELTA -> journalDelta(task.delta());
+            case SAVE -> {
+                compact(false);
+                task.done().complete(null);
+            }
+            case RESET -> {
+                for (int i = 0; i < areaCount; i++) {
+                    journaled[i] = task.texts()[i] != null ? task.texts()[i] : "";
+                }
+                Arrays.fill(journaledVersions, -1);
+                compact(false);
+                task.done().complete(null);
+            }
+            case CLOSE -> {
+                compact(true);
+                task.done().complete(null);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends {@code delta} as it is if it directly follows the last delta journaled for its area; otherwise
+     * the journaled text may not be the one it was made against, so the texts are compared instead.
+     */
+    private void journalDelta(SectionDelta delta) throws IOException {
+        int area = delta.area();
+        boolean follows = journaledVersions[area] >= 0
+                && delta.version() == journaledVersions[area] + 1
+                && journaled[area].length() == delta.text().length() - delta.inserted().length() + delta.removedLength();
+        journaledVersions[area] = delta.version();
+        if (!follows) {
+            journalText(area, delta.text());
+            return;
+        }
+        journaled[area] = delta.text();
+        append(area, delta.start(), delta.removedLength(), delta.inserted(), 0, delta.inserted().length());
+    }
+
+    /**
+     * Appends the difference between the last journaled text of {@code area} and {@code text}.
+     */
+    private void journalText(int area, CharSequence text) throws IOException {
+        SectionDocument.Difference d = SectionDocument.difference(journaled[area], text);
+        journaled[area] = text;
+        if (d == null) return;
+        append(area, d.start(), d.removedEnd() - d.start(), text, d.start(), d.insertedEnd());
+    }
+
+    private void append(int area, int offset, int removed, CharSequence inserted, int from, int to) throws IOException {
+        if (!journal.append(area, offset, removed, inserted, from, to)) {
+            compact(false); // Full: the snapshot already contains this edit
+            return;
+        }
+        dirtySinceCompact = true;
+        dirtySinceForce = true;
+    }
+
+    private void maintain() throws IOException {
+        long now = System.nanoTime();
+        if (dirtySinceCompact && (now - lastCompactNanos >= TimeUnit.SECONDS.toNanos(COMPACT_INTERVAL_SECONDS)
+                || journal.journalSize() > journal.capacity() / 2)) {
+            compact(false);
+        } else if (dirtySinceForce && now - lastForceNanos >= TimeUnit.MILLISECONDS.toNanos(FORCE_INTERVAL_MS)) {
+            journal.force();
+            dirtySinceForce = false;
+            lastForceNanos = now;
+        }
+    }
+
+    private void compact(boolean clean) throws IOException {
+        String[] texts = new String[areaCount];
+        for (int i = 0; i < areaCount; i++) texts[i] = journaled[i].toString();
+        journal.compact(texts, clean);
+        dirtySinceCompact = false;
+        dirtySinceForce = false;
+        lastCompactNanos = lastForceNanos = System.nanoTime();
+    }
+
+    private void failAll(Exception cause) {
+        List<Task> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Task task : pending) {
+            if (task.done() != null) task.done().completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.emr.gds.autosave;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk state of the encounter autosave: a compacted snapshot of every area plus an append-only,
+ * memory-mapped journal of the edits made since that snapshot.
+ * <p>
+ * Files in the autosave directory:
+ * <ul>
+ *   <li>{@value #SNAPSHOT_FILE} - the full text of each area, the generation of the journal that continues
+ *       it, and whether the application was closed cleanly. Replaced atomically (write, fsync, rename).</li>
+ *   <li>{@value #JOURNAL_FILE} - a fixed-size mapped file: a header with the current generation, then one
+ *       record per edit ({@code area, offset, removed length, inserted text}), each with its generation and a
+ *       CRC32. Appending is a copy into the mapping; the OS writes the pages back even if the JVM dies.</li>
+ * </ul>
+ * {@link #recover()} loads the snapshot and replays the journal records of the snapshot's generation,
+ * stopping at the first record that is incomplete or fails its checksum (a write torn by a crash).
+ * {@link #compact(String[], boolean)} writes a new snapshot first and only then starts the next journal
+ * generation, so a crash between the two steps recovers the same text.
+ * <p>
+ * Not thread-safe; {@link EncounterAutosave} drives it from its single writer thread.
+ */
+public final class EncounterJournal implements AutoCloseable {
+
+    /**
+     * The state found on disk.
+     *
+     * @param texts         The text of each area (never {@code null}; empty strings for unused areas).
+     * @param clean         {@code true} if the last session ended with a clean shutdown.
+     * @param savedAtMillis Time of the snapshot the state is based on, or {@code 0} if there was none.
+     * @param replayed      Number of journal records applied on top of the snapshot.
+     */
+    public record Recovery(String[] texts, boolean clean, long savedAtMillis, int replayed) {
+        public boolean isEmpty() {
+            return Arrays.stream(texts).allMatch(String::isEmpty);
+        }
+    }
+
+    // ================================
+    // Constants
+    // ================================
+    public static final String JOURNAL_FILE = "encounter.journal";
+    public static final String SNAPSHOT_FILE = "encounter.snapshot";
+    public static final int DEFAULT_CAPACITY = 4 * 1024 * 1024;
+
+    private static final int JOURNAL_MAGIC = 0x47444a4c;  // "GDJL"
+    private static final int SNAPSHOT_MAGIC = 0x47445353; // "GDSS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    // Record: int payload length, payload, int CRC32 of the payload
+    // Payload: long generation, byte area, int offset, int removed, int inserted length, inserted chars
+    private static final int PAYLOAD_FIXED_SIZE = 8 + 1 + 4 + 4 + 4;
+    private static final int RECORD_OVERHEAD = 4 + 4;
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final Path directory;
+    private final int areaCount;
+    private final int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer journal;
+    private long generation;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+    public EncounterJournal(Path directory, int areaCount) {
+        this(directory, areaCount, DEFAULT_CAPACITY);
+    }
+
+    public EncounterJournal(Path directory, int areaCount, int capacity) {
+        this.directory = directory;
+        this.areaCount = areaCount;
+        this.capacity = Math.max(capacity, HEADER_SIZE + RECORD_OVERHEAD + PAYLOAD_FIXED_SIZE + 64);
+    }
+
+    // ================================
+    // Recovery
+    // ================================
+
+    /**
+     * Opens (or creates) the files and returns the state they describe. Must be called once, first.
+     */
+    public Recovery recover() throws IOException {
+        Files.createDirectories(directory);
+        String[] texts = new String[areaCount];
+        Arrays.fill(texts, "");
+        boolean clean = true;
+        long savedAt = 0;
+        long snapshotGeneration = 0;
+
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            if (in.readInt() == SNAPSHOT_MAGIC && in.readInt() == FORMAT_VERSION) {
+                snapshotGeneration = in.readLong();
+                savedAt = in.readLong();
+                clean = in.readBoolean();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String text = readString(in);
+                    if (i < areaCount) texts[i] = text;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // First run
+        } catch (IOException e) {
+            System.err.println("Autosave snapshot unreadable, ignoring it: " + e.getMessage());
+            Arrays.fill(texts, "");
+            clean = true;
+            savedAt = 0;
+        }
+
+        channel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        int replayed = 0;
+        if (journal.getInt(0) == JOURNAL_MAGIC && journal.getInt(4) == FORMAT_VERSION
+                && journal.getLong(8) == snapshotGeneration) {
+            StringBuilder[] edited = new StringBuilder[areaCount];
+            journal.position(HEADER_SIZE);
+            while (true) {
+                int start = journal.position();
+                if (!readRecord(snapshotGeneration, texts, edited)) {
+                    journal.position(start);
+                    break;
+                }
+                replayed++;
+            }
+            for (int i = 0; i < areaCount; i++) {
+                if (edited[i] != null) texts[i] = edited[i].toString();
+            }
+            if (replayed > 0) clean = false;
+        }
+
+        // Continue in a fresh generation on top of what was recovered
+        generation = snapshotGeneration;
+        compact(texts, clean, savedAt == 0 ? System.currentTimeMillis() : savedAt);
+        return new Recovery(texts, clean, savedAt, replayed);
+    }
+
+    /**
+     * Applies the record at the current position if it is complete, of {@code expectedGeneration},
+     * passes its checksum, and fits the text it edits.
+     */
+    private boolean readRecord(long expectedGeneration, String[] texts, StringBuilder[] edited) {
+        int position = journal.position();
+        if (capacity - position < RECORD_OVERHEAD + PAYLOAD_FIXED_SIZE) return false;
+        int length = journal.getInt(position);
+        if (length < PAYLOAD_FIXED_SIZE || length > capacity - position - RECORD_OVERHEAD) return false;
+
+        int payloadStart = position + 4;
+        crc.reset();
+        crc.update(journal.slice(payloadStart, length));
+        if ((int) crc.getValue() != journal.getInt(payloadStart + length)) return false;
+
+        long recordGeneration = journal.getLong(payloadStart);
+        int area = journal.get(payloadStart + 8);
+        int offset = journal.getInt(payloadStart + 9);
+        int removed = journal.getInt(payloadStart + 13);
+        int inserted = journal.getInt(payloadStart + 17);
+        if (recordGeneration != expectedGeneration || area < 0 || area >= areaCount
+                || inserted < 0 || PAYLOAD_FIXED_SIZE + 2 * inserted != length) {
+            return false;
+        }
+        StringBuilder text = edited[area];
+        if (text == null) text = edited[area] = new StringBuilder(texts[area]);
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) return false;
+
+        char[] chars = new char[inserted];
+        journal.slice(payloadStart + PAYLOAD_FIXED_SIZE, 2 * inserted).asCharBuffer().get(chars);
+        text.replace(offset, offset + removed, new String(chars));
+        journal.position(position + RECORD_OVERHEAD + length);
+        return true;
+    }
+
+    // ================================
+    // Writing
+    // ================================
+
+    /**
+     * Appends one edit: in area {@code area}, replace {@code removed} chars at {@code offset} with
+     * {@code inserted[from, to)}.
+     *
+     * @return {@code false} if the journal is full; the caller then compacts.
+     */
+    public boolean append(int area, int offset, int removed, CharSequence inserted, int from, int to) {
+        int chars = to - from;
+        int length = PAYLOAD_FIXED_SIZE + 2 * chars;
+        int position = journal.position();
+        if ((long) position + RECORD_OVERHEAD + length > capacity) return false;
+
+        if (scratch.capacity() < length) scratch = ByteBuffer.allocate(Math.max(length, 2 * scratch.capacity()));
+        ByteBuffer payload = scratch.clear();
+        payload.putLong(generation).put((byte) area).putInt(offset).putInt(removed).putInt(chars);
+        for (int i = from; i < to; i++) payload.putChar(inserted.charAt(i));
+        payload.flip();
+        crc.reset();
+        crc.update(payload.duplicate());
+
+        // Payload and checksum first, length last: a torn write never looks like a complete record
+        journal.put(position + 4, payload, 0, length);
+        journal.putInt(position + 4 + length, (int) crc.getValue());
+        journal.putInt(position, length);
+        journal.position(position + RECORD_OVERHEAD + length);
+        return true;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Bytes of journal used since the last compaction.
+     */
+    public int journalSize() {
+        return journal.position() - HEADER_SIZE;
+    }
+
+    /**
+     * Writes {@code texts} as the new snapshot and starts an empty journal generation after it.
+     *
+     * @param clean {@code true} when called for a clean shutdown; recovery then does not offer a restore.
+     */
+    public void compact(String[] texts, boolean clean) throws IOException {
+        compact(texts, clean, System.currentTimeMillis());
+    }
+
+    private void compact(String[] texts, boolean clean, long savedAtMillis) throws IOException {
+        long next = generation + 1;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(next);
+            out.writeLong(savedAtMillis);
+            out.writeBoolean(clean);
+            out.writeInt(texts.length);
+            for (String text : texts) writeString(out, text != null ? text : "");
+        }
+        Path target = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(bytes.toByteArray()));
+            out.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Only now is the old journal obsolete; records of older generations are ignored on recovery
+        generation = next;
+        journal.putInt(0, JOURNAL_MAGIC);
+        journal.putInt(4, FORMAT_VERSION);
+        journal.putLong(8, generation);
+        journal.putInt(HEADER_SIZE, 0);
+        journal.position(HEADER_SIZE);
+        journal.force();
+    }
+
+    /**
+     * Flushes the mapped journal to the storage device (crash of the OS or power loss).
+     */
+    public void force() {
+        journal.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) return;
+        journal.force();
+        channel.close();
+        channel = null;
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new IOException("Corrupt snapshot");
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.emr.gds.db;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns one long-lived {@link SqliteDatabase} per database file for the whole application.
+ * <p>
+ * Modules borrow a database by file name instead of opening their own connections, so opening an editor
+ * or saving a row no longer pays for a new connection, driver setup, pragmas, or schema checks.
+ * {@link #closeAll()} is called once on application shutdown.
+ */
+public final class DataSourceRegistry {
+
+    // ================================
+    // Constants (files under app/db)
+    // ================================
+    public static final String ABBREVIATIONS_DB = "abbreviations.db";
+    public static final String PROBLEMS_DB = "prolist.db";
+    public static final String TEMPLATES_DB = "emr_templates.db";
+    public static final String PLAN_HISTORY_DB = "plan_history.db";
+    public static final String ENCOUNTERS_DB = "encounters.db";
+    public static final String USAGE_DB = "usage.db";
+
+    /** Bundled KCD code database, relative to the repository root. */
+    public static final String KCD_DB_RESOURCE = "app/src/main/resources/database/kcd_database.db";
+
+    private static final String DRIVER = "org.sqlite.JDBC";
+    private static final DataSourceRegistry INSTANCE = new DataSourceRegistry();
+
+    private final Map<Path, SqliteDatabase> databases = new ConcurrentHashMap<>();
+
+    private DataSourceRegistry() {
+        try {
+            Class.forName(DRIVER);
+        } catch (ClassNotFoundException e) {
+            System.err.println("SQLite JDBC driver not found: " + e.getMessage());
+        }
+    }
+
+    public static DataSourceRegistry shared() {
+        return INSTANCE;
+    }
+
+    // ================================
+    // Lookup
+    // ================================
+
+    /**
+     * Returns the shared database for {@code app/db/<fileName>}, running {@code schema} if it has not run
+     * on that file yet ({@link SqliteDatabase#ensureSchema}).
+     */
+    public SqliteDatabase appDatabase(String fileName, SqliteDatabase.SchemaInitializer schema) throws SQLException {
+        return database(appDbPath(fileName), schema);
+    }
+
+    /**
+     * Returns the shared database for an arbitrary file, running {@code schema} if it has not run on that
+     * file yet ({@link SqliteDatabase#ensureSchema}).
+     */
+    public SqliteDatabase database(Path file, SqliteDatabase.SchemaInitializer schema) throws SQLException {
+        Path key = file.toAbsolutePath().normalize();
+        SqliteDatabase db = databases.computeIfAbsent(key, SqliteDatabase::new);
+        return db.ensureSchema(schema);
+    }
+
+    /**
+     * Closes every open connection. Databases are re-opened lazily if used afterwards.
+     */
+    public void closeAll() {
+        databases.values().forEach(SqliteDatabase::close);
+    }
+
+    // ================================
+    // Paths (repo-tracked under app/db)
+    // ================================
+
+    public static Path repoRoot() {
+        Path p = Paths.get("").toAbsolutePath();
+        while (p != null && !Files.exists(p.resolve("gradlew")) && !Files.exists(p.resolve(".git"))) {
+            p = p.getParent();
+        }
+        return (p != null) ? p : Paths.get("").toAbsolutePath();
+    }
+
+    public static Path appDbPath(String fileName) {
+        return repoRoot().resolve("app").resolve("db").resolve(fileName);
+    }
+
+    public static Path kcdDbPath() {
+        return repoRoot().resolve(KCD_DB_RESOURCE);
+    }
+}
@@ -0,0 +1,257 @@
+package com.emr.gds.db;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One long-lived connection to a single SQLite file, owned by {@link DataSourceRegistry}.
+ * <p>
+ * All access goes through the methods below, which serialize use of the connection with a lock and
+ * reuse prepared statements from a small LRU cache. Callers never close the connection or cached
+ * statements; they only close the {@link Statement}s they create themselves in {@link #withConnection}.
+ */
+public final class SqliteDatabase {
+
+    // ================================
+    // Callbacks
+    // ================================
+
+    @FunctionalInterface
+    public interface SqlFunction<T, R> {
+        R apply(T t) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface SqlConsumer<T> {
+        void accept(T t) throws SQLException;
+    }
+
+    /**
+     * Creates or migrates the schema. Each initializer runs once per file per process; see {@link #ensureSchema}.
+     */
+    @FunctionalInterface
+    public interface SchemaInitializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    // ================================
+    // Constants
+    // ================================
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final String[] PRAGMAS = {
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "PRAGMA cache_size=-8000",       // ~8 MB page cache
+            "PRAGMA mmap_size=268435456",    // 256 MB memory-mapped I/O
+            "PRAGMA temp_store=MEMORY",
+            "PRAGMA busy_timeout=5000"
+    };
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final Path file;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection connection;
+    /** Classes of the initializers that have run on this file. */
+    private final Set<Class<?>> initialized = new HashSet<>();
+    private final Map<String, PreparedStatement> statements =
+            new LinkedHashMap<>(STATEMENT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= STATEMENT_CACHE_SIZE) return false;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+
+    SqliteDatabase(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // ================================
+    // Schema
+    // ================================
+
+    /**
+     * Runs {@code schema} on this file unless it has run before. Several callers may each bring their own
+     * initializer for the same file, and each one runs. Initializers are told apart by class, which is one
+     * per lambda or method reference in the source, so later calls from the same place (e.g., re-opening an
+     * editor) are free. An initializer whose DDL depends on captured values runs only for the first value
+     * passed; run such DDL with {@link #withConnection} instead.
+     */
+    public SqliteDatabase ensureSchema(SchemaInitializer schema) throws SQLException {
+        if (schema == null) return this;
+        lock.lock();
+        try {
+            if (!initialized.contains(schema.getClass())) {
+                schema.initialize(connection());
+                initialized.add(schema.getClass());
+            }
+            return this;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ================================
+    // Access
+    // ================================
+
+    /**
+     * Runs {@code work} with exclusive use of the connection.
+     */
+    public <R> R withConnection(SqlFunction<Connection, R> work) throws SQLException {
+        lock.lock();
+        try {
+            return work.apply(connection());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs {@code work} in a single transaction; rolls back if it throws.
+     */
+    public <R> R inTransaction(SqlFunction<Connection, R> work) throws SQLException {
+        lock.lock();
+        try {
+            Connection c = connection();
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                R result = work.apply(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException | Error e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes a cached prepared query and maps its result set.
+     */
+    public <R> R query(String sql, SqlConsumer<PreparedStatement> binder, SqlFunction<ResultSet, R> mapper) throws SQLException {
+        lock.lock();
+        try {
+            PreparedStatement ps = prepared(sql);
+            if (binder != null) binder.accept(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                return mapper.apply(rs);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes a cached prepared INSERT/UPDATE/DELETE.
+     *
+     * @return The number of affected rows.
+     */
+    public int update(String sql, SqlConsumer<PreparedStatement> binder) throws SQLException {
+        lock.lock();
+        try {
+            PreparedStatement ps = prepared(sql);
+            if (binder != null) binder.accept(ps);
+            return ps.executeUpdate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a cached prepared statement. Only valid while the caller holds the connection,
+     * i.e., inside {@link #withConnection} or {@link #inTransaction}. Do not close it.
+     */
+    public PreparedStatement prepared(String sql) throws SQLException {
+        if (!lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("prepared() must be called while holding the connection");
+        }
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null || ps.isClosed()) {
+            ps = connection().prepareStatement(sql);
+            statements.put(sql, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    // ================================
+    // Lifecycle
+    // ================================
+
+    private Connection connection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            statements.clear();
+            try {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            } catch (Exception e) {
+                throw new SQLException("Cannot create directory for " + file, e);
+            }
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                for (String pragma : PRAGMAS) {
+                    st.execute(pragma);
+                }
+            }
+        }
+        return connection;
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+            if (connection != null) {
+                try {
+                    if (!connection.isClosed()) {
+                        try (Statement st = connection.createStatement()) {
+                            st.execute("PRAGMA optimize");
+                        }
+                        connection.close();
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Error closing " + file.getFileName() + ": " + e.getMessage());
+                }
+                connection = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // Closing a cached statement cannot be recovered from; the connection stays usable.
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.emr.gds.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind queue for small INSERT/UPDATE/DELETE statements issued from UI actions.
+ * <p>
+ * {@link #submit} returns at once with a future; a single writer thread drains the queue and commits
+ * consecutive writes to the same database in one transaction (group commit), so a burst of edits costs
+ * one fsync instead of one per row. Writes are applied strictly in submission order. Each write runs in
+ * its own savepoint, so one failing statement (e.g., a UNIQUE violation) fails only its own future.
+ * Futures complete on the writer thread after the transaction has committed; callers hop back to their
+ * UI thread to refresh views.
+ * <p>
+ * The queue is bounded: when it is full, {@link #submit} blocks until the writer catches up.
+ * {@link #shutdown()} (called from application stop, and from a JVM shutdown hook as a backstop)
+ * flushes everything still queued; writes submitted afterwards run synchronously, as do writes submitted
+ * if the writer thread has died.
+ */
+public final class WriteBehindQueue {
+
+    // ================================
+    // Constants
+    // ================================
+    private static final int CAPACITY = 1024;
+    private static final int MAX_GROUP = 256;
+    private static final long GROUP_WINDOW_MS = 5;
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
+    /** How often a submitter blocked on a full queue checks that the writer is still alive. */
+    private static final long ENQUEUE_CHECK_MS = 100;
+
+    private static final WriteBehindQueue INSTANCE = new WriteBehindQueue();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::shutdown, "db-write-behind-flush"));
+    }
+
+    /** One queued statement. A {@code null} database marks a {@link #flush()} barrier. */
+    private record Write(SqliteDatabase db, String sql, SqliteDatabase.SqlConsumer<PreparedStatement> binder,
+                         CompletableFuture<Integer> result) {}
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final BlockingQueue<Write> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Thread writer;
+    private volatile boolean stopped = false;
+
+    /** Package-private for tests; the application uses {@link #shared()}. */
+    WriteBehindQueue() {
+        writer = new Thread(this::run, "db-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static WriteBehindQueue shared() {
+        return INSTANCE;
+    }
+
+    // ================================
+    // Submission
+    // ================================
+
+    /**
+     * Queues a prepared INSERT/UPDATE/DELETE against {@code db}.
+     *
+     * @return A future for the number of affected rows, completed once the write is committed.
+     */
+    public CompletableFuture<Integer> submit(SqliteDatabase db, String sql,
+                                             SqliteDatabase.SqlConsumer<PreparedStatement> binder) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (stopped || Thread.currentThread() == writer || !writer.isAlive()) {
+            // After shutdown, from a completion callback, or with no writer left: write directly
+            try {
+                result.complete(db.update(sql, binder));
+            } catch (SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        enqueue(new Write(db, sql, binder, result));
+        return result;
+    }
+
+    /**
+     * Blocks until every write submitted before this call has committed or failed.
+     *
+     * @return {@code false} if the writer did not catch up within the timeout.
+     */
+    public boolean flush() {
+        if (Thread.currentThread() == writer || !writer.isAlive()) return true;
+        CompletableFuture<Integer> barrier = new CompletableFuture<>();
+        enqueue(new Write(null, null, null, barrier));
+        try {
+            barrier.get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Write-behind flush did not complete: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Flushes pending writes; later submissions bypass the queue. Safe to call more than once.
+     */
+    public void shutdown() {
+        if (stopped) return;
+        flush();
+        stopped = true;
+        flush(); // Anything that raced in before the flag was set
+    }
+
+    /**
+     * Queues {@code write}, blocking while the queue is full. Fails it instead if the writer dies meanwhile,
+     * since nothing would ever take it.
+     */
+    private void enqueue(Write write) {
+        try {
+            while (!queue.offer(write, ENQUEUE_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    write.result().completeExceptionally(new IllegalStateException("Write-behind writer has stopped"));
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.result().completeExceptionally(e);
+        }
+    }
+
+    // ================================
+    // Writer
+    // ================================
+
+    private void run() {
+        List<Write> group = new ArrayList<>(MAX_GROUP);
+        while (true) {
+            try {
+                group.add(queue.take());
+                // Give a burst of edits a moment to arrive so they share one commit
+                Write next = queue.poll(GROUP_WINDOW_MS, TimeUnit.MILLISECONDS);
+                if (next != null) group.add(next);
+                queue.drainTo(group, MAX_GROUP - group.size());
+                commit(group);
+            } catch (InterruptedException e) {
+                failAll(group, e);
+                group.clear();
+                queue.drainTo(group);
+                failAll(group, e);
+                return;
+            } catch (Throwable e) {
+                // Errors too: a dead writer would leave every later submit blocked on a full queue
+                System.err.println("Write-behind writer error: " + e);
+                failAll(group, e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Commits runs of consecutive writes to the same database, one transaction per run.
+     */
+    private void commit(List<Write> group) {
+        int i = 0;
+        while (i < group.size()) {
+            SqliteDatabase db = group.get(i).db();
+            if (db == null) {
+                group.get(i++).result().complete(0);
+                continue;
+            }
+            int end = i + 1;
+            while (end < group.size() && group.get(end).db() == db) end++;
+            commitRun(db, group.subList(i, end));
+            i = end;
+        }
+    }
+
+    private void commitRun(SqliteDatabase db, List<Write> run) {
+        int[] counts = new int[run.size()];
+        Exception[] errors = new Exception[run.size()];
+        try {
+            db.inTransaction(conn -> {
+                for (int k = 0; k < run.size(); k++) {
+                    Write write = run.get(k);
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        PreparedStatement ps = db.prepared(write.sql());
+                        if (write.binder() != null) write.binder().accept(ps);
+                        counts[k] = ps.executeUpdate();
+                        conn.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        rollbackTo(conn, savepoint);
+                        errors[k] = e;
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            failAll(run, e);
+            return;
+        }
+        for (int k = 0; k < run.size(); k++) {
+            if (errors[k] != null) run.get(k).result().completeExceptionally(errors[k]);
+            else run.get(k).result().complete(counts[k]);
+        }
+    }
+
+    private static void rollbackTo(Connection conn, Savepoint savepoint) throws SQLException {
+        conn.rollback(savepoint);
+        conn.releaseSavepoint(savepoint);
+    }
+
+    private static void failAll(List<Write> writes, Throwable e) {
+        for (Write write : writes) {
+            write.result().completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.emr.gds.document;
+
+import java.util.Objects;
+
+/**
+ * Immutable text stored as a height-balanced tree of short string chunks.
+ * <p>
+ * {@link #insert}, {@link #delete}, {@link #replace}, {@link #subSequence} and {@link #charAt} are
+ * O(log n) (plus the length of the inserted or copied text) and never copy the whole text; every edit
+ * returns a new rope that shares all untouched chunks with the old one. A rope is therefore also its own
+ * snapshot: handing it to another thread costs nothing and later edits cannot change it.
+ * <p>
+ * Chunks hold at most {@value #MAX_CHUNK} characters; adjacent short chunks are merged when they meet,
+ * so typing one character at a time does not leave a tree of one-character leaves. The tree is kept
+ * AVL-balanced by height.
+ */
+public final class Rope implements CharSequence {
+
+    static final int MAX_CHUNK = 512;
+
+    public static final Rope EMPTY = new Rope("");
+
+    // A leaf has a chunk and no children; an inner node has two non-empty children and no chunk
+    private final String chunk;
+    private final Rope left;
+    private final Rope right;
+    private final int length;
+    private final int height;
+    private int hash;
+
+    private Rope(String chunk) {
+        this.chunk = chunk;
+        this.left = null;
+        this.right = null;
+        this.length = chunk.length();
+        this.height = 0;
+    }
+
+    private Rope(Rope left, Rope right) {
+        this.chunk = null;
+        this.left = left;
+        this.right = right;
+        this.length = Math.addExact(left.length, right.length);
+        this.height = Math.max(left.height, right.height) + 1;
+    }
+
+    // ================================
+    // Construction
+    // ================================
+
+    public static Rope of(CharSequence text) {
+        if (text instanceof Rope rope) return rope;
+        if (text == null || text.isEmpty()) return EMPTY;
+        return build(text.toString(), 0, text.length());
+    }
+
+    private static Rope build(String text, int start, int end) {
+        if (end - start <= MAX_CHUNK) return new Rope(text.substring(start, end));
+        int chunks = (end - start + MAX_CHUNK - 1) / MAX_CHUNK;
+        int mid = start + (chunks / 2) * MAX_CHUNK;
+        return new Rope(build(text, start, mid), build(text, mid, end));
+    }
+
+    // ================================
+    // Editing
+    // ================================
+
+    public Rope insert(int index, CharSequence text) {
+        return replace(index, index, text);
+    }
+
+    public Rope delete(int start, int end) {
+        return replace(start, end, "");
+    }
+
+    public Rope append(CharSequence text) {
+        return replace(length, length, text);
+    }
+
+    /**
+     * Replaces the characters in {@code [start, end)} with {@code text}.
+     */
+    public Rope replace(int start, int end, CharSequence text) {
+        Objects.checkFromToIndex(start, end, length);
+        Rope inserted = of(text);
+        if (start == end && inserted.length == 0) return this;
+        Rope head = prefix(this, start);
+        Rope tail = suffix(this, end);
+        return join(join(head, inserted), tail);
+    }
+
+    // ================================
+    // Reading
+    // ================================
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, length);
+        Rope node = this;
+        while (node.chunk == null) {
+            if (index < node.left.length) {
+                node = node.left;
+            } else {
+                index -= node.left.length;
+                node = node.right;
+            }
+        }
+        return node.chunk.charAt(index);
+    }
+
+    /**
+     * @return The characters in {@code [start, end)} as a rope that shares chunks with this one.
+     */
+    @Override
+    public Rope subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        if (start == 0 && end == length) return this;
+        return suffix(prefix(this, end), start);
+    }
+
+    /**
+     * @return The characters in {@code [start, end)} copied into a string; only the chunks that overlap
+     *         the range are visited.
+     */
+    public String substring(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        if (start == end) return "";
+        if (chunk != null) return chunk.substring(start, end);
+        StringBuilder sb = new StringBuilder(end - start);
+        appendRange(sb, start, end);
+        return sb.toString();
+    }
+
+    /**
+     * @return The index of the last occurrence of {@code c} before {@code from}, or -1.
+     */
+    public int lastIndexOf(char c, int from) {
+        Objects.checkIndex(from, length + 1);
+        for (int i = from - 1; i >= 0; i--) {
+            if (charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return {@code true} if the rope is empty or contains only whitespace, without copying it.
+     */
+    public boolean isBlank() {
+        if (chunk != null) return chunk.isBlank();
+        return left.isBlank() && right.isBlank();
+    }
+
+    /**
+     * Appends the whole text to {@code sb}, chunk by chunk.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        if (chunk != null) return sb.append(chunk);
+        left.appendTo(sb);
+        return right.appendTo(sb);
+    }
+
+    @Override
+    public String toString() {
+        if (chunk != null) return chunk;
+        return appendTo(new StringBuilder(length)).toString();
+    }
+
+    /**
+     * Compares the characters of both sequences; a rope equals a string with the same text.
+     */
+    public boolean contentEquals(CharSequence other) {
+        if (other == this) return true;
+        if (other == null || other.length() != length) return false;
+        if (other instanceof Rope rope && rope.hash != 0 && hash != 0 && rope.hash != hash) return false;
+        return CharSequence.compare(this, other) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Rope rope && contentEquals(rope);
+    }
+
+    /**
+     * Same value as {@link String#hashCode()} of the text.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && length > 0) {
+            h = hashInto(0);
+            hash = h;
+        }
+        return h;
+    }
+
+    private int hashInto(int h) {
+        if (chunk != null) {
+            for (int i = 0; i < chunk.length(); i++) h = 31 * h + chunk.charAt(i);
+            return h;
+        }
+        return right.hashInto(left.hashInto(h));
+    }
+
+    private void appendRange(StringBuilder sb, int start, int end) {
+        if (chunk != null) {
+            sb.append(chunk, start, end);
+            return;
+        }
+        int split = left.length;
+        if (start < split) left.appendRange(sb, start, Math.min(end, split));
+        if (end > split) right.appendRange(sb, Math.max(start, split) - split, end - split);
+    }
+
+    // ================================
+    // Tree Operations
+    // ================================
+
+    /** The first {@code index} characters of {@code rope}. */
+    private static Rope prefix(Rope rope, int index) {
+        if (index == 0) return EMPTY;
+        if (index == rope.length) return rope;
+        if (rope.chunk != null) return new Rope(rope.chunk.substring(0, index));
+        int split = rope.left.length;
+        if (index <= split) return prefix(rope.left, index);
+        return join(rope.left, prefix(rope.right, index - split));
+    }
+
+    /** Everything after the first {@code index} characters of {@code rope}. */
+    private static Rope suffix(Rope rope, int index) {
+        if (index == 0) return rope;
+        if (index == rope.length) return EMPTY;
+        if (rope.chunk != null) return new Rope(rope.chunk.substring(index));
+        int split = rope.left.length;
+        if (index >= split) return suffix(rope.right, index - split);
+        return join(suffix(rope.left, index), rope.right);
+    }
+
+    /**
+     * Concatenates two balanced ropes into a balanced rope in O(|height(a) - height(b)|).
+     */
+    static Rope join(Rope a, Rope b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        if (a.chunk != null && b.chunk != null && a.length + b.length <= MAX_CHUNK) {
+            return new Rope(a.chunk.concat(b.chunk));
+        }
+        if (a.height > b.height + 1) {
+            return balance(a.left, join(a.right, b));
+        }
+        if (b.height > a.height + 1) {
+            return balance(join(a, b.left), b.right);
+        }
+        return new Rope(a, b);
+    }
+
+    /**
+     * Creates the node {@code (l, r)}, rotating once or twice if the heights differ by two.
+     */
+    private static Rope balance(Rope l, Rope r) {
+        if (l.height > r.height + 1) {
+            if (l.left.height >= l.right.height) {
+                return new Rope(l.left, new Rope(l.right, r));
+            }
+            return new Rope(new Rope(l.left, l.right.left), new Rope(l.right.right, r));
+        }
+        if (r.height > l.height + 1) {
+            if (r.right.height >= r.left.height) {
+                return new Rope(new Rope(l, r.left), r.right);
+            }
+            return new Rope(new Rope(l, r.left.left), new Rope(r.left.right, r.right));
+        }
+        return new Rope(l, r);
+    }
+
+    /** Checks the tree invariants; for tests. */
+    boolean isBalanced() {
+        if (chunk != null) return length <= MAX_CHUNK;
+        return left.length > 0 && right.length > 0
+                && Math.abs(left.height - right.height) <= 1
+                && height == Math.max(left.height, right.height) + 1
+                && length == left.length + right.length
+                && left.isBalanced() && right.isBalanced();
+    }
+}
@@ -0,0 +1,25 @@
+package com.emr.gds.document;
+
+/**
+ * One change of a {@link SectionDocument}: {@code removedLength} characters at {@code start} were replaced
+ * with {@code inserted}.
+ *
+ * @param area          The index of the section.
+ * @param start         Where the change starts, in the text before the change.
+ * @param removedLength How many characters were removed.
+ * @param inserted      The inserted text; empty for a pure deletion.
+ * @param text          The whole section after the change; immutable, so it can be read on any thread.
+ * @param version       The document version after the change; increases by one per delta.
+ */
+public record SectionDelta(int area, int start, int removedLength, String inserted, Rope text, long version) {
+
+    /** The end of the removed range, in the text before the change. */
+    public int removedEnd() {
+        return start + removedLength;
+    }
+
+    /** The end of the inserted text, in the text after the change. */
+    public int insertedEnd() {
+        return start + inserted.length();
+    }
+}
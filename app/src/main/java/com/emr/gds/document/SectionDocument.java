@@ -0,0 +1,117 @@
+package com.emr.gds.document;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The text of one EMR section as a {@link Rope}, with listeners that receive every change as a
+ * {@link SectionDelta}.
+ * <p>
+ * The section's {@code TextArea} reports each edit with {@link #replace}; listeners get the range that
+ * changed and an O(1) snapshot of the new text instead of a copy of the whole section. When only the old
+ * and new text are known (e.g., after {@code setText}), {@link #sync} finds the changed range itself.
+ * Edits are made on one thread (the FX thread); {@link #text()} may be read from any thread.
+ */
+public final class SectionDocument {
+
+    private final int area;
+    private final List<Consumer<SectionDelta>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Rope text = Rope.EMPTY;
+    private long version;
+
+    public SectionDocument(int area) {
+        this.area = area;
+    }
+
+    public int area() {
+        return area;
+    }
+
+    /**
+     * @return The current text; an immutable snapshot.
+     */
+    public Rope text() {
+        return text;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Listeners run on the thread that edits the document, in the order they were added.
+     *
+     * @return Removes the listener.
+     */
+    public Runnable addListener(Consumer<SectionDelta> listener) {
+        Objects.requireNonNull(listener, "listener");
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    // ================================
+    // Editing
+    // ================================
+
+    /**
+     * Replaces {@code [start, end)} with {@code inserted} and notifies the listeners.
+     * Does nothing if the range is empty and nothing is inserted.
+     */
+    public void replace(int start, int end, String inserted) {
+        String value = inserted != null ? inserted : "";
+        Rope current = text;
+        Objects.checkFromToIndex(start, end, current.length());
+        if (start == end && value.isEmpty()) return;
+
+        Rope updated = current.replace(start, end, value);
+        text = updated;
+        SectionDelta delta = new SectionDelta(area, start, end - start, value, updated, ++version);
+        for (Consumer<SectionDelta> listener : listeners) {
+            listener.accept(delta);
+        }
+    }
+
+    /**
+     * Brings the document in line with {@code newText}, reporting the smallest single range that differs.
+     */
+    public void sync(CharSequence newText) {
+        CharSequence target = newText != null ? newText : "";
+        Difference d = difference(text, target);
+        if (d != null) {
+            replace(d.start(), d.removedEnd(), target.subSequence(d.start(), d.insertedEnd()).toString());
+        }
+    }
+
+    // ================================
+    // Differences
+    // ================================
+
+    /**
+     * The single range in which two texts differ: {@code before[start, removedEnd)} became
+     * {@code after[start, insertedEnd)}, everything around it is common to both.
+     */
+    public record Difference(int start, int removedEnd, int insertedEnd) {}
+
+    /**
+     * @return The range between the longest common prefix and suffix, or {@code null} if the texts are equal.
+     */
+    public static Difference difference(CharSequence before, CharSequence after) {
+        int common = Math.min(before.length(), after.length());
+        int prefix = 0;
+        while (prefix < common && before.charAt(prefix) == after.charAt(prefix)) prefix++;
+        int maxSuffix = common - prefix;
+        int suffix = 0;
+        while (suffix < maxSuffix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (prefix == before.length() && prefix == after.length()) return null;
+        return new Difference(prefix, before.length() - suffix, after.length() - suffix);
+    }
+}
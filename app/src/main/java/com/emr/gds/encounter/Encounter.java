@@ -0,0 +1,39 @@
+package com.emr.gds.encounter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One saved visit: the full note (one text per EMR area) and the problem list as they were when saved.
+ *
+ * @param patientId The patient the note belongs to.
+ * @param date      The encounter (visit) date.
+ * @param createdAt When the note was saved; orders several saves on the same date.
+ * @param sections  The text of each area, in {@code IAMTextArea.TEXT_AREA_TITLES} order.
+ * @param problems  The problem list, in display order.
+ */
+public record Encounter(String patientId, LocalDate date, LocalDateTime createdAt,
+                        List<String> sections, List<String> problems) {
+
+    /** Newest first: by encounter date, then by save time. */
+    public static final Comparator<Encounter> NEWEST_FIRST =
+            Comparator.comparing(Encounter::date).thenComparing(Encounter::createdAt).reversed();
+
+    public Encounter {
+        Objects.requireNonNull(patientId, "patientId");
+        Objects.requireNonNull(date, "date");
+        Objects.requireNonNull(createdAt, "createdAt");
+        sections = sections.stream().map(s -> s != null ? s : "").toList();
+        problems = List.copyOf(problems);
+    }
+
+    /**
+     * The text of area {@code index}, or an empty string if the note has no such area.
+     */
+    public String section(int index) {
+        return (index >= 0 && index < sections.size()) ? sections.get(index) : "";
+    }
+}
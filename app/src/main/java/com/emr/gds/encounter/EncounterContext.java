@@ -0,0 +1,36 @@
+package com.emr.gds.encounter;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Global holder for the patient of the encounter being written, so editors that record history
+ * (e.g. the plan editor) can tag their rows without a reference to the main window.
+ */
+public final class EncounterContext {
+
+    private static final AtomicReference<String> PATIENT_ID = new AtomicReference<>(null);
+
+    private EncounterContext() {}
+
+    /**
+     * Sets the current patient; a blank id clears it.
+     */
+    public static void setPatientId(String patientId) {
+        PATIENT_ID.set(patientId == null || patientId.isBlank() ? null : patientId.trim());
+    }
+
+    /**
+     * @return The current patient id, or {@code null} if no patient has been chosen.
+     */
+    public static String patientId() {
+        return PATIENT_ID.get();
+    }
+
+    /**
+     * The date of the encounter being written.
+     */
+    public static LocalDate encounterDate() {
+        return LocalDate.now();
+    }
+}
@@ -0,0 +1,78 @@
+package com.emr.gds.encounter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small LRU cache of the most recent encounters of the last few patients opened.
+ * <p>
+ * Each entry holds a patient's newest encounters, newest first, and whether that list is the patient's
+ * whole history. A request for the last {@code n} encounters is answered from the cache when the entry has
+ * at least {@code n} of them or is complete. Thread-safe.
+ */
+final class EncounterHistoryCache {
+
+    private record History(List<Encounter> newestFirst, boolean complete) {}
+
+    private final Map<String, History> entries;
+
+    EncounterHistoryCache(int maxPatients) {
+        this.entries = new LinkedHashMap<>(maxPatients + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, History> eldest) {
+                return size() > maxPatients;
+            }
+        };
+    }
+
+    /**
+     * @return The newest {@code limit} encounters of {@code patientId}, or {@code null} on a miss.
+     */
+    synchronized List<Encounter> get(String patientId, int limit) {
+        History history = entries.get(patientId);
+        if (history == null) return null;
+        List<Encounter> list = history.newestFirst();
+        if (list.size() < limit && !history.complete()) return null;
+        return List.copyOf(list.subList(0, Math.min(limit, list.size())));
+    }
+
+    /**
+     * Stores what the database returned for a query with {@code limit}; fewer rows means the whole history.
+     */
+    synchronized void put(String patientId, List<Encounter> newestFirst, int limit) {
+        History current = entries.get(patientId);
+        if (current != null && current.newestFirst().size() > newestFirst.size() && !current.complete()) {
+            return; // Keep the longer list from an earlier, larger query
+        }
+        entries.put(patientId, new History(List.copyOf(newestFirst), newestFirst.size() < limit));
+    }
+
+    /**
+     * Adds a just-saved encounter to its patient's entry, if that patient is cached and it is not there yet.
+     */
+    synchronized void add(Encounter encounter) {
+        History history = entries.get(encounter.patientId());
+        if (history == null || history.newestFirst().contains(encounter)) return;
+        List<Encounter> list = new ArrayList<>(history.newestFirst().size() + 1);
+        list.addAll(history.newestFirst());
+        int position = 0;
+        while (position < list.size() && Encounter.NEWEST_FIRST.compare(list.get(position), encounter) < 0) {
+            position++;
+        }
+        if (position == list.size() && !history.complete()) {
+            return; // Older than everything cached; the database still has the rows in between
+        }
+        list.add(position, encounter);
+        entries.put(encounter.patientId(), new History(List.copyOf(list), history.complete()));
+    }
+
+    synchronized void invalidate(String patientId) {
+        entries.remove(patientId);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+}
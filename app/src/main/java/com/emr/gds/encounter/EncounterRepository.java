@@ -0,0 +1,219 @@
+package com.emr.gds.encounter;
+
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores every saved encounter (the ten-area note plus the problem list) per patient, in
+ * {@value DataSourceRegistry#ENCOUNTERS_DB}.
+ * <p>
+ * One row per encounter, with one column per area, so loading a note is a single row read. The
+ * {@code (patient_id, encounter_date DESC, created_at DESC)} index makes "the last N encounters of a
+ * patient" an index range scan that stops after N rows, independent of how many years of history the
+ * patient or the whole table has; {@code encounter_date} has its own index for day lists.
+ * The most recent encounters of the last {@value #CACHED_PATIENTS} patients are kept in an LRU cache, so
+ * reopening a patient does not touch the database at all.
+ * <p>
+ * Saves go through the shared {@link WriteBehindQueue}; a query that misses the cache waits for this
+ * repository's queued saves to commit first, so it never returns a history without them.
+ * <p>
+ * The problem list is stored as a JSON array in {@code problems}, so a problem with line breaks comes back whole.
+ */
+public final class EncounterRepository {
+
+    // ================================
+    // Constants
+    // ================================
+    private static final int CACHED_PATIENTS = 32;
+    private static final DateTimeFormatter CREATED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    /** Area columns, in {@code IAMTextArea.TEXT_AREA_TITLES} order. */
+    static final String[] SECTION_COLUMNS = {
+            "cc", "pi", "ros", "pmh", "subjective", "objective", "physical_exam", "assessment", "plan", "comment"
+    };
+
+    private static final String COLUMNS = "patient_id, encounter_date, created_at, problems, "
+            + String.join(", ", SECTION_COLUMNS);
+    private static final String INSERT_SQL = "INSERT INTO encounter (" + COLUMNS + ") VALUES ("
+            + "?, ".repeat(3 + SECTION_COLUMNS.length) + "?)";
+    private static final String LAST_N_SQL = "SELECT " + COLUMNS + " FROM encounter WHERE patient_id = ? "
+            + "ORDER BY encounter_date DESC, created_at DESC LIMIT ?";
+
+    private static final EncounterRepository INSTANCE = new EncounterRepository();
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final EncounterHistoryCache cache = new EncounterHistoryCache(CACHED_PATIENTS);
+    private final AtomicInteger pendingSaves = new AtomicInteger();
+    /** Bumped when a save commits or fails, so a cache miss can tell that what it read may be stale. */
+    private final AtomicLong settledSaves = new AtomicLong();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "encounter-history");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile SqliteDatabase db;
+
+    private EncounterRepository() {}
+
+    public static EncounterRepository shared() {
+        return INSTANCE;
+    }
+
+    // ================================
+    // Schema
+    // ================================
+
+    private SqliteDatabase db() throws SQLException {
+        SqliteDatabase current = db;
+        if (current == null) {
+            current = db = DataSourceRegistry.shared().appDatabase(DataSourceRegistry.ENCOUNTERS_DB,
+                    EncounterRepository::createSchema);
+        }
+        return current;
+    }
+
+    private static void createSchema(Connection c) throws SQLException {
+        StringBuilder table = new StringBuilder("CREATE TABLE IF NOT EXISTS encounter ("
+                + "id INTEGER PRIMARY KEY, "
+                + "patient_id TEXT NOT NULL, "
+                + "encounter_date TEXT NOT NULL, "  // yyyy-MM-dd
+                + "created_at TEXT NOT NULL, "      // yyyy-MM-ddTHH:mm:ss.SSS, sorts as text
+                + "problems TEXT NOT NULL");        // JSON array of strings
+        for (String column : SECTION_COLUMNS) table.append(", ").append(column).append(" TEXT NOT NULL DEFAULT ''");
+        table.append(')');
+        try (Statement st = c.createStatement()) {
+            st.executeUpdate(table.toString());
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_encounter_patient_date "
+                    + "ON encounter (patient_id, encounter_date DESC, created_at DESC)");
+            st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_encounter_date ON encounter (encounter_date)");
+        }
+    }
+
+    // ================================
+    // Saving
+    // ================================
+
+    /**
+     * Saves a note for {@code patientId} dated {@code date}, as of now.
+     *
+     * @param sections The text of each area.
+     * @param problems The problem list.
+     * @return The saved encounter; the future completes once it has been committed.
+     */
+    public CompletableFuture<Encounter> save(String patientId, LocalDate date, List<String> sections, List<String> problems) {
+        Encounter encounter = new Encounter(patientId, date, LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS), sections, problems);
+        return save(encounter).thenApply(rows -> encounter);
+    }
+
+    /**
+     * Queues {@code encounter} on the write-behind queue and adds it to the cached history right away.
+     */
+    public CompletableFuture<Integer> save(Encounter encounter) {
+        SqliteDatabase database;
+        try {
+            database = db();
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        pendingSaves.incrementAndGet();
+        cache.add(encounter);
+        return WriteBehindQueue.shared().submit(database, INSERT_SQL, ps -> {
+            ps.setString(1, encounter.patientId());
+            ps.setString(2, encounter.date().toString());
+            ps.setString(3, encounter.createdAt().format(CREATED_AT_FORMAT));
+            ps.setString(4, ProblemListJson.write(encounter.problems()));
+            for (int i = 0; i < SECTION_COLUMNS.length; i++) {
+                ps.setString(5 + i, encounter.section(i));
+            }
+        }).whenComplete((rows, error) -> {
+            pendingSaves.decrementAndGet();
+            settledSaves.incrementAndGet();
+            if (error != null) {
+                cache.invalidate(encounter.patientId()); // It was cached but never stored
+            } else {
+                cache.add(encounter); // In case a concurrent cache miss read the table just before the commit
+            }
+        });
+    }
+
+    // ================================
+    // History
+    // ================================
+
+    /**
+     * The newest {@code limit} encounters of {@code patientId}, newest first. Served from the cache when
+     * possible; otherwise read on the history thread. A cache hit completes immediately.
+     */
+    public CompletableFuture<List<Encounter>> lastEncountersAsync(String patientId, int limit) {
+        List<Encounter> cached = cache.get(patientId, limit);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return lastEncounters(patientId, limit);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, loader);
+    }
+
+    /**
+     * The newest {@code limit} encounters of {@code patientId}, newest first. Blocks on a cache miss.
+     */
+    public List<Encounter> lastEncounters(String patientId, int limit) throws SQLException {
+        if (patientId == null || patientId.isBlank() || limit <= 0) return List.of();
+        List<Encounter> cached = cache.get(patientId, limit);
+        if (cached != null) return cached;
+
+        if (pendingSaves.get() > 0) WriteBehindQueue.shared().flush();
+        long settled = settledSaves.get();
+        List<Encounter> loaded = db().query(LAST_N_SQL, ps -> {
+            ps.setString(1, patientId);
+            ps.setInt(2, limit);
+        }, rs -> {
+            List<Encounter> rows = new ArrayList<>(limit);
+            while (rs.next()) rows.add(readEncounter(rs));
+            return rows;
+        });
+        cache.put(patientId, loaded, limit);
+        if (settledSaves.get() != settled) {
+            // A save settled while reading: its add() may have found no entry yet, so the rows just cached
+            // could lack it. A save settling after this check adds itself to the entry put above.
+            cache.invalidate(patientId);
+        }
+        return loaded;
+    }
+
+    private static Encounter readEncounter(ResultSet rs) throws SQLException {
+        String[] sections = new String[SECTION_COLUMNS.length];
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = rs.getString(5 + i);
+        }
+        return new Encounter(
+                rs.getString(1),
+                LocalDate.parse(rs.getString(2)),
+                LocalDateTime.parse(rs.getString(3), CREATED_AT_FORMAT),
+                Arrays.asList(sections),
+                ProblemListJson.read(rs.getString(4)));
+    }
+}
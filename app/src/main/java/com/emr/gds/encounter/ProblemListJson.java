@@ -0,0 +1,124 @@
+package com.emr.gds.encounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes a problem list as a JSON array of strings, so that every problem comes back exactly as
+ * saved, line breaks and separators included.
+ */
+final class ProblemListJson {
+
+    private ProblemListJson() {}
+
+    static String write(List<String> problems) {
+        StringBuilder out = new StringBuilder(16 * problems.size() + 2).append('[');
+        for (int i = 0; i < problems.size(); i++) {
+            if (i > 0) out.append(',');
+            writeString(problems.get(i), out);
+        }
+        return out.append(']').toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException If {@code json} is not an array of strings.
+     */
+    static List<String> read(String json) {
+        Parser p = new Parser(json);
+        List<String> problems = new ArrayList<>();
+        p.expect('[');
+        if (!p.consume(']')) {
+            do {
+                problems.add(p.string());
+            } while (p.consume(','));
+            p.expect(']');
+        }
+        p.skipWhitespace();
+        if (p.pos != json.length()) throw p.error("trailing text");
+        return problems;
+    }
+
+    private static void writeString(String s, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        void skipWhitespace() {
+            while (pos < s.length() && " \t\r\n".indexOf(s.charAt(pos)) >= 0) pos++;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) throw error("expected '" + c + "'");
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder out = new StringBuilder();
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') return out.toString();
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (pos == s.length()) break;
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> out.append(e);
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw error("short \\u escape");
+                        int code = 0;
+                        for (int end = pos + 4; pos < end; pos++) {
+                            int digit = Character.digit(s.charAt(pos), 16);
+                            if (digit < 0) throw error("bad \\u escape");
+                            code = code * 16 + digit;
+                        }
+                        out.append((char) code);
+                    }
+                    default -> throw error("bad escape '\\" + e + "'");
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Malformed problem list at " + pos + ": " + message);
+        }
+    }
+}
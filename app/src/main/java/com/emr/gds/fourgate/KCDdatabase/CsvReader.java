@@ -0,0 +1,133 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader.
+ * <p>
+ * Handles quoted fields with embedded commas, line breaks and doubled quotes, CRLF/LF/CR line endings,
+ * and a leading UTF-8 byte order mark. Input is read through one fixed buffer and each field is built in
+ * a reused {@link StringBuilder}, so the only per-record allocations are the field strings themselves.
+ * Not thread-safe.
+ */
+final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char BOM = '\uFEFF';
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private int pos;
+    private int limit;
+    private boolean started;
+    private long recordNumber;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    static CsvReader open(Path file) throws IOException {
+        return new CsvReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The 1-based number of the last record read (the header is record 1).
+     */
+    long recordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Reads the next record into {@code fields}, replacing its contents.
+     *
+     * @return {@code false} at end of input.
+     */
+    boolean next(List<String> fields) throws IOException {
+        fields.clear();
+        if (!started) {
+            started = true;
+            if (peek() == BOM) pos++;
+        }
+        int c = read();
+        if (c < 0) return false;
+
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+            }
+            c = readUnquoted(c);
+            fields.add(field.toString());
+            if (c != ',') break;
+            c = read();
+        }
+        if (c == '\r' && peek() == '\n') pos++;
+        recordNumber++;
+        return true;
+    }
+
+    /**
+     * Appends a quoted field's content; returns the character after the closing quote.
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) return c; // Unterminated quote: keep what was read
+            if (c == '"') {
+                int next = read();
+                if (next != '"') return next;
+            }
+            field.append((char) c);
+        }
+    }
+
+    /**
+     * Appends characters up to the next delimiter or line break, copying runs straight from the buffer.
+     * Also absorbs stray text after a closing quote, as most spreadsheet tools do.
+     */
+    private int readUnquoted(int c) throws IOException {
+        while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+            field.append((char) c);
+            int start = pos;
+            while (pos < limit) {
+                char ch = buffer[pos];
+                if (ch == ',' || ch == '\n' || ch == '\r') break;
+                pos++;
+            }
+            field.append(buffer, start, pos - start);
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
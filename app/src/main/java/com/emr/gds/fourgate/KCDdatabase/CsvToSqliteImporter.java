@@ -1,44 +1,149 @@
 package com.emr.gds.fourgate.KCDdatabase;
 
-import java.io.BufferedReader;
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A utility class to import data from a CSV file into a SQLite database.
- * This class is designed to be run as a standalone application.
+ * Command-line importer for the KCD master CSV into the {@code kcd_codes} table.
+ * <p>
+ * The CSV is streamed through {@link CsvReader} and written in chunks, one transaction per chunk.
+ * With {@code --parallel}, parsing and inserting overlap: the reader hands finished chunks to a writer
+ * thread through a small bounded queue. With {@code --upsert}, each row updates an existing row with the
+ * same classification, code and names or is inserted, so a yearly revision can be applied repeatedly.
+ * <pre>
+ * CsvToSqliteImporter [--csv FILE] [--db FILE] [--batch-size N] [--parallel] [--upsert]
+ * </pre>
+ * Defaults are the bundled {@code KCD-9master_4digit.csv} and {@code kcd_database.db}.
  */
 public class CsvToSqliteImporter {
 
-    private static final String CSV_FILE_PATH = "/home/migowj/git/GDSEMR_ver_0.2/app/src/main/resources/database/KCD-9master_4digit.csv";
-    private static final String DB_NAME = "/home/migowj/git/GDSEMR_ver_0.2/app/src/main/resources/database/kcd_database.db";
-    private static final String JDBC_URL = "jdbc:sqlite:" + DB_NAME;
+    // ================================
+    // Constants
+    // ================================
+    private static final String DEFAULT_CSV = "app/src/main/resources/database/KCD-9master_4digit.csv";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int QUEUED_CHUNKS = 4;
+    private static final int COLUMN_COUNT = 6;
+
+    // id is the rowid the search mirror is keyed on; declared so that VACUUM cannot renumber it
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS kcd_codes ("
+            + "id INTEGER PRIMARY KEY, classification TEXT, disease_code TEXT, check_field TEXT, "
+            + "note TEXT, korean_name TEXT, english_name TEXT)";
+    private static final String CREATE_KEY_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_kcd_codes_key "
+            + "ON kcd_codes(disease_code, korean_name, english_name, classification)";
+    // CSV column order: classification, disease_code, check_field, note, korean_name, english_name
+    private static final String INSERT_SQL = "INSERT INTO kcd_codes"
+            + "(classification, disease_code, check_field, note, korean_name, english_name) VALUES(?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE kcd_codes SET check_field = ?, note = ? "
+            + "WHERE classification = ? AND disease_code = ? AND korean_name = ? AND english_name = ?";
+
+    /** End-of-input marker for the writer queue. */
+    private static final List<String[]> END = new ArrayList<>();
+
+    /** Command-line options. */
+    record Options(Path csv, Path db, int batchSize, boolean parallel, boolean upsert) {}
+
+    /** Import totals. */
+    record Result(long inserted, long updated, long skipped, long nanos) {
+        long rows() {
+            return inserted + updated;
+        }
+
+        double rowsPerSecond() {
+            return nanos == 0 ? 0 : rows() * 1_000_000_000.0 / nanos;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(List<String[]> chunk) throws IOException, SQLException;
+    }
 
     public static void main(String[] args) {
-        if (!validateCsvFile()) {
+        Options options;
+        try {
+            options = parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Usage: CsvToSqliteImporter [--csv FILE] [--db FILE] [--batch-size N] [--parallel] [--upsert]");
+            return;
+        }
+        if (!validateCsvFile(options.csv().toFile())) {
             return;
         }
 
-        importData();
+        try {
+            Result result = importData(options);
+            System.out.printf("Imported %d rows (%d inserted, %d updated, %d skipped) in %.2f s: %.0f rows/s%n",
+                    result.rows(), result.inserted(), result.updated(), result.skipped(),
+                    result.nanos() / 1e9, result.rowsPerSecond());
+        } catch (SQLException e) {
+            System.err.println("Database error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("File I/O error: " + e.getMessage());
+        } finally {
+            DataSourceRegistry.shared().closeAll();
+        }
+    }
+
+    static Options parseArgs(String[] args) {
+        Path csv = DataSourceRegistry.repoRoot().resolve(DEFAULT_CSV);
+        Path db = DataSourceRegistry.kcdDbPath();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        boolean parallel = false;
+        boolean upsert = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--csv" -> csv = Path.of(value(args, ++i, "--csv"));
+                case "--db" -> db = Path.of(value(args, ++i, "--db"));
+                case "--batch-size" -> {
+                    try {
+                        batchSize = Integer.parseInt(value(args, ++i, "--batch-size"));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--batch-size must be a number");
+                    }
+                    if (batchSize < 1) throw new IllegalArgumentException("--batch-size must be positive");
+                }
+                case "--parallel" -> parallel = true;
+                case "--upsert" -> upsert = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        return new Options(csv, db, batchSize, parallel, upsert);
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " requires a value");
+        return args[i];
     }
 
     /**
      * Validates the existence of the CSV file and provides debugging information if it's not found.
      * @return true if the file exists, false otherwise.
      */
-    private static boolean validateCsvFile() {
-        File csvFile = new File(CSV_FILE_PATH);
+    private static boolean validateCsvFile(File csvFile) {
         if (csvFile.exists()) {
             return true;
         }
 
-        System.err.println("Error: CSV file not found at: " + CSV_FILE_PATH);
+        System.err.println("Error: CSV file not found at: " + csvFile.getAbsolutePath());
         System.err.println("Please check the file path and ensure the file exists.");
 
         // Provide debugging information about the directory content
@@ -55,76 +160,187 @@ public class CsvToSqliteImporter {
         return false;
     }
 
+    // ================================
+    // Import
+    // ================================
+
     /**
-     * Handles the entire data import process from CSV to SQLite.
+     * Runs the whole import and returns its totals.
      */
-    private static void importData() {
-        String createTableSql = "CREATE TABLE IF NOT EXISTS kcd_codes (" +
-                "classification TEXT, disease_code TEXT, check_field TEXT, " +
-                "note TEXT, korean_name TEXT, english_name TEXT);";
-        String insertSql = "INSERT INTO kcd_codes(classification, disease_code, check_field, note, korean_name, english_name) VALUES(?, ?, ?, ?, ?, ?)";
+    static Result importData(Options options) throws IOException, SQLException {
+        long start = System.nanoTime();
+        SqliteDatabase db = DataSourceRegistry.shared().database(options.db(), CsvToSqliteImporter::createTable);
+        if (options.upsert()) {
+            // Depends on the mode, so it is not part of the once-per-file initializer
+            db.withConnection(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_KEY_INDEX_SQL);
+                }
+                return null;
+            });
+        }
+        ChunkWriter writer = new ChunkWriter(db, options.upsert());
+        System.out.println("Importing " + options.csv() + " -> " + options.db()
+                + (options.parallel() ? " (parallel)" : "") + (options.upsert() ? " (upsert)" : ""));
 
-        try (Connection conn = DriverManager.getConnection(JDBC_URL);
-             BufferedReader br = new BufferedReader(new FileReader(CSV_FILE_PATH))) {
+        long skipped = options.parallel()
+                ? importPipelined(options, writer)
+                : readChunks(options, writer::write);
 
-            System.out.println("Connection to SQLite has been established.");
+        // Search index: created and filled if new; otherwise rebuilt, which also repairs it after
+        // changes made behind the triggers' back (e.g. by another tool)
+        db.withConnection(conn -> {
+            if (!DatabaseManager.createSearchSchema(conn)) DatabaseManager.rebuildSearchIndex(conn);
+            return null;
+        });
+        return new Result(writer.inserted, writer.updated, skipped, System.nanoTime() - start);
+    }
 
-            // Create table if it doesn't exist
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createTableSql);
-                System.out.println("Table 'kcd_codes' is ready.");
-            }
+    private static void createTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_TABLE_SQL);
+        }
+    }
 
-            // Process CSV and insert data
-            processCsvFile(conn, br, insertSql);
+    /**
+     * Parses on the calling thread while a single writer thread commits finished chunks.
+     */
+    private static long importPipelined(Options options, ChunkWriter writer) throws IOException, SQLException {
+        BlockingQueue<List<String[]>> queue = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "kcd-import-writer"));
+        try {
+            Future<Void> writing = executor.submit(() -> {
+                for (List<String[]> chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                    writer.write(chunk);
+                }
+                return null;
+            });
+            long skipped = 0;
+            try {
+                skipped = readChunks(options, chunk -> handOff(queue, chunk, writing));
+                handOff(queue, END, writing);
+            } catch (WriterStopped e) {
+                // Reading stopped early; the writer's own error is thrown by get() below
+            }
+            writing.get();
+            return skipped;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            throw new IOException("Import writer failed: " + cause, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Database error: " + e.getMessage());
-        } catch (IOException e) {
-            System.err.println("File I/O error: " + e.getMessage());
+    /**
+     * Queues a chunk, or throws {@link WriterStopped} if the writer has already stopped, so that the rest
+     * of the file is not parsed for nothing (the writer's error is reported by the caller).
+     */
+    private static void handOff(BlockingQueue<List<String[]>> queue, List<String[]> chunk, Future<Void> writing)
+            throws IOException {
+        try {
+            while (writing.isDone() || !queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (writing.isDone()) throw new WriterStopped();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
         }
     }
 
-    private static void processCsvFile(Connection conn, BufferedReader br, String insertSql) throws SQLException, IOException {
-        conn.setAutoCommit(false); // Use transaction for performance
+    /**
+     * Streams the CSV (skipping its header) and passes rows to {@code sink} in chunks of the batch size.
+     *
+     * @return The number of malformed records skipped.
+     */
+    private static long readChunks(Options options, ChunkSink sink) throws IOException, SQLException {
+        long skipped = 0;
+        try (CsvReader csv = CsvReader.open(options.csv())) {
+            List<String> fields = new ArrayList<>(COLUMN_COUNT + 2);
+            csv.next(fields); // Skip header record
 
-        try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-            String line;
-            int lineNumber = 0;
-            int successfulInserts = 0;
+            List<String[]> chunk = new ArrayList<>(options.batchSize());
+            while (csv.next(fields)) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+                if (fields.size() < COLUMN_COUNT) {
+                    System.err.println("Warning: Record " + csv.recordNumber() + " has insufficient columns ("
+                            + fields.size() + "): " + String.join(",", fields));
+                    skipped++;
+                    continue;
+                }
+                String[] row = new String[COLUMN_COUNT];
+                for (int i = 0; i < COLUMN_COUNT; i++) {
+                    row[i] = fields.get(i).trim();
+                }
+                chunk.add(row);
+                if (chunk.size() == options.batchSize()) {
+                    sink.accept(chunk);
+                    chunk = new ArrayList<>(options.batchSize());
+                }
+            }
+            if (!chunk.isEmpty()) sink.accept(chunk);
+        }
+        return skipped;
+    }
 
-            br.readLine(); // Skip header line
+    /** Thrown by {@link #handOff} to abort reading once the writer thread has finished. */
+    private static final class WriterStopped extends IOException {
+        WriterStopped() {
+            super("Import writer stopped");
+        }
+    }
 
-            System.out.println("Starting to read and insert data from CSV...");
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                if (line.trim().isEmpty()) continue;
+    /**
+     * Commits one chunk per transaction. Used by a single thread at a time.
+     */
+    private static final class ChunkWriter {
+        private final SqliteDatabase db;
+        private final boolean upsert;
+        private long inserted;
+        private long updated;
 
-                String[] values = line.split(",", -1); // Simple CSV parsing
+        ChunkWriter(SqliteDatabase db, boolean upsert) {
+            this.db = db;
+            this.upsert = upsert;
+        }
 
-                if (values.length >= 6) {
-                    for (int i = 0; i < 6; i++) {
-                        pstmt.setString(i + 1, values[i] != null ? values[i].trim() : "");
+        void write(List<String[]> chunk) throws SQLException {
+            db.inTransaction(conn -> {
+                PreparedStatement insert = db.prepared(INSERT_SQL);
+                PreparedStatement update = upsert ? db.prepared(UPDATE_SQL) : null;
+                int pending = 0;
+                for (String[] row : chunk) {
+                    if (update != null) {
+                        update.setString(1, row[2]);
+                        update.setString(2, row[3]);
+                        update.setString(3, row[0]);
+                        update.setString(4, row[1]);
+                        update.setString(5, row[4]);
+                        update.setString(6, row[5]);
+                        if (update.executeUpdate() > 0) {
+                            updated++;
+                            continue;
+                        }
+                    }
+                    for (int i = 0; i < COLUMN_COUNT; i++) {
+                        insert.setString(i + 1, row[i]);
+                    }
+                    if (update != null) {
+                        insert.executeUpdate(); // Visible to the next row's UPDATE, even within this chunk
+                        inserted++;
+                    } else {
+                        insert.addBatch();
+                        pending++;
                     }
-                    pstmt.addBatch();
-                    successfulInserts++;
-                } else {
-                    System.err.println("Warning: Line " + lineNumber + " has insufficient columns (" + values.length + "): " + line);
                 }
-            }
-
-            if (successfulInserts > 0) {
-                int[] updateCounts = pstmt.executeBatch();
-                System.out.println("Batch insert complete. " + updateCounts.length + " rows inserted.");
-            }
-
-            conn.commit();
-            System.out.println("Transaction committed successfully.");
-
-        } catch (SQLException e) {
-            conn.rollback();
-            System.err.println("Transaction rolled back due to an error: " + e.getMessage());
-            throw e; // Re-throw to be caught by the main try-catch block
+                if (pending > 0) insert.executeBatch();
+                inserted += pending;
+                return null;
+            });
         }
     }
 }
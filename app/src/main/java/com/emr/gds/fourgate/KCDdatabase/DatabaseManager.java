@@ -1,51 +1,421 @@
 package com.emr.gds.fourgate.KCDdatabase;
 
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * A manager class for handling all database operations for KCD records.
+ * All calls share the registry's long-lived connection to the KCD database.
+ * <p>
+ * Searches run in the database against an FTS5 table ({@code kcd_fts}, trigram tokenizer) that mirrors
+ * {@code disease_code}, {@code korean_name}, {@code english_name} and {@code note}. Triggers keep it in
+ * sync with {@code kcd_codes}, so edits made here or by the importer are searchable immediately. The mirror
+ * is keyed on rowid, so {@code kcd_codes} has an {@code INTEGER PRIMARY KEY}: an implicit rowid may be
+ * renumbered by {@code VACUUM}, which would point every index entry at the wrong row.
  */
 class DatabaseManager {
-    private static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(KCDDatabaseManagerJavaFX.JDBC_URL);
+
+    private static final String RECORD_COLUMNS =
+            "k.classification, k.disease_code, k.check_field, k.korean_name, k.english_name, k.note";
+    /** bm25 weights in {@code kcd_fts} column order: a code hit outranks a name hit, notes rank last. */
+    private static final String BM25 = "bm25(kcd_fts, 10.0, 5.0, 5.0, 1.0)";
+    /** The trigram tokenizer cannot match terms shorter than this; those fall back to LIKE. */
+    private static final int MIN_FTS_TERM_LENGTH = 3;
+
+    private static SqliteDatabase db() throws SQLException {
+        return DataSourceRegistry.shared().database(DataSourceRegistry.kcdDbPath(), DatabaseManager::createSearchSchema);
     }
 
-    public static List<KCDRecord> getAllRecords() throws SQLException {
-        List<KCDRecord> records = new ArrayList<>();
-        String sql = "SELECT * FROM kcd_codes ORDER BY disease_code";
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+    // ================================
+    // Schema
+    // ================================
+
+    /**
+     * Creates the FTS5 mirror of {@code kcd_codes} and its sync triggers, and fills it if it is new.
+     * Also indexes {@code disease_code} for edits, and the sort key of every column for {@link #openRows}.
+     *
+     * @return {@code true} if the mirror was created (and so filled) now.
+     */
+    static boolean createSearchSchema(Connection conn) throws SQLException {
+        addRowKey(conn);
+        try (Statement stmt = conn.createStatement()) {
+            boolean exists;
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'kcd_fts'")) {
+                exists = rs.next();
+            }
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS kcd_fts USING fts5("
+                    + "disease_code, korean_name, english_name, note, "
+                    + "content='kcd_codes', content_rowid='rowid', tokenize='trigram')");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS kcd_codes_ai AFTER INSERT ON kcd_codes BEGIN "
+                    + "INSERT INTO kcd_fts(rowid, disease_code, korean_name, english_name, note) "
+                    + "VALUES (new.rowid, new.disease_code, new.korean_name, new.english_name, new.note); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS kcd_codes_ad AFTER DELETE ON kcd_codes BEGIN "
+                    + "INSERT INTO kcd_fts(kcd_fts, rowid, disease_code, korean_name, english_name, note) "
+                    + "VALUES ('delete', old.rowid, old.disease_code, old.korean_name, old.english_name, old.note); END");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS kcd_codes_au AFTER UPDATE ON kcd_codes BEGIN "
+                    + "INSERT INTO kcd_fts(kcd_fts, rowid, disease_code, korean_name, english_name, note) "
+                    + "VALUES ('delete', old.rowid, old.disease_code, old.korean_name, old.english_name, old.note); "
+                    + "INSERT INTO kcd_fts(rowid, disease_code, korean_name, english_name, note) "
+                    + "VALUES (new.rowid, new.disease_code, new.korean_name, new.english_name, new.note); END");
+            if (!exists) {
+                stmt.execute("INSERT INTO kcd_fts(kcd_fts) VALUES ('rebuild')");
+            }
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_kcd_codes_code ON kcd_codes(disease_code)");
+            for (KCDSearchIndex.Column column : KCDSearchIndex.Column.values()) {
+                // An index on an expression also orders by rowid, so it serves (sort key, rowid) seeks
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_kcd_codes_" + columnName(column) + "_key"
+                        + " ON kcd_codes(ifnull(" + columnName(column) + ", ''))");
+            }
+            return !exists;
+        }
+    }
+
+    /**
+     * Gives a {@code kcd_codes} table created before it had one an {@code INTEGER PRIMARY KEY}, keeping
+     * every row's rowid so an existing mirror stays valid. Does nothing if the table does not exist yet.
+     */
+    private static void addRowKey(Connection conn) throws SQLException {
+        boolean found = false;
+        boolean keyed = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(kcd_codes)")) {
             while (rs.next()) {
-                records.add(new KCDRecord(
-                        rs.getString("classification"),
-                        rs.getString("disease_code"),
-                        rs.getString("check_field"),
-                        rs.getString("korean_name"),
-                        rs.getString("english_name"),
-                        rs.getString("note")
-                ));
+                found = true;
+                keyed |= rs.getInt("pk") > 0;
+            }
+        }
+        if (!found || keyed) return;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            List<String> indexes = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT sql FROM sqlite_master WHERE type = 'index' AND tbl_name = 'kcd_codes' AND sql IS NOT NULL")) {
+                while (rs.next()) indexes.add(rs.getString(1));
+            }
+            String columns = "classification, disease_code, check_field, note, korean_name, english_name";
+            stmt.execute("CREATE TABLE kcd_codes_keyed (id INTEGER PRIMARY KEY, "
+                    + "classification TEXT, disease_code TEXT, check_field TEXT, "
+                    + "note TEXT, korean_name TEXT, english_name TEXT)");
+            stmt.execute("INSERT INTO kcd_codes_keyed (id, " + columns + ") SELECT rowid, " + columns + " FROM kcd_codes");
+            stmt.execute("DROP TABLE kcd_codes"); // Also drops its sync triggers, which the caller recreates
+            stmt.execute("ALTER TABLE kcd_codes_keyed RENAME TO kcd_codes");
+            for (String index : indexes) stmt.execute(index);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Rebuilds {@code kcd_fts} from {@code kcd_codes}, e.g. after the importer has run or the table was
+     * changed by something that bypassed the triggers.
+     */
+    static void rebuildSearchIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO kcd_fts(kcd_fts) VALUES ('rebuild')");
+        }
+    }
+
+    // ================================
+    // Search
+    // ================================
+
+    /**
+     * Opens a filtered, sorted result set for the paged table, read with keyset pagination.
+     * <p>
+     * Every whitespace-separated term of {@code text} must match. Terms of three or more characters use
+     * the FTS5 index; a query with a shorter term, or on a column outside the index, falls back to LIKE.
+     * <p>
+     * Opening only counts the matching rows. A page is read from its first key with
+     * {@code sort_key >= ? AND (sort_key > ? OR rowid >= ?)} on {@code kcd_codes} itself, so with a column
+     * sort it is a seek on that column's sort-key index plus {@code LIMIT}; it also reads the first key of
+     * the next page. A page whose first key is not known yet (the scrollbar was dragged) first skips from
+     * the nearest known key with {@code OFFSET}. A full-text search is read from its matches instead, which
+     * each page sorts (by bm25 for relevance order); they are few compared with the table.
+     *
+     * @param column     The column to search, or {@code null} for code, names and note.
+     * @param text       The search text as typed.
+     * @param sortColumn The column to sort by, or {@code null} for relevance (full-text) or disease code.
+     * @param ascending  The sort direction of {@code sortColumn}.
+     * @param pageSize   The number of rows per page.
+     */
+    static KCDRowSource openRows(KCDSearchIndex.Column column, String text,
+                                 KCDSearchIndex.Column sortColumn, boolean ascending, int pageSize) throws SQLException {
+        Filter filter = filter(column, text);
+        String sortKey;
+        if (sortColumn == null && filter.fullText()) {
+            sortKey = BM25;
+            ascending = true; // Lower bm25 is a better match
+        } else {
+            sortKey = sortKey(sortColumn == null ? KCDSearchIndex.Column.DISEASE_CODE : sortColumn);
+        }
+        SqliteDatabase db = db();
+        int size = db.query("SELECT count(*) FROM " + filter.from() + filter.where(""), filter::bind,
+                rs -> rs.next() ? rs.getInt(1) : 0);
+        return new KeysetRows(db, filter, sortKey, ascending, size, pageSize);
+    }
+
+    /**
+     * The sort key of a column, as indexed by {@link #createSearchSchema}: never NULL, which would drop the
+     * row from every keyset comparison.
+     */
+    private static String sortKey(KCDSearchIndex.Column column) {
+        return "ifnull(k." + columnName(column) + ", '')";
+    }
+
+    /**
+     * Pages of an {@link #openRows} result, each read from its first key. First keys are learned as pages
+     * are read; {@link #page} runs on the page loader thread.
+     */
+    private static final class KeysetRows implements KCDRowSource {
+        private final SqliteDatabase db;
+        private final Filter filter;
+        private final int size;
+        private final int pageSize;
+        /** Reads from the start, or from a first key: the page's rows plus the next page's first row. */
+        private final String startSql, pageSql;
+        /** Skips from the start, or from a first key, to the first key {@code OFFSET} rows on. */
+        private final String skipFromStartSql, skipSql;
+        /** First {@code (sort key, rowid)} of each page known so far; page 0 starts at the beginning. */
+        private final ConcurrentSkipListMap<Integer, Object[]> firstKeys = new ConcurrentSkipListMap<>();
+
+        KeysetRows(SqliteDatabase db, Filter filter, String sortKey, boolean ascending, int size, int pageSize) {
+            this.db = db;
+            this.filter = filter;
+            this.size = size;
+            this.pageSize = pageSize;
+            String from = " FROM " + filter.from();
+            String fromKey = ascending
+                    ? sortKey + " >= ? AND (" + sortKey + " > ? OR k.rowid >= ?)"
+                    : sortKey + " <= ? AND (" + sortKey + " < ? OR k.rowid <= ?)";
+            String direction = ascending ? "" : " DESC";
+            String order = " ORDER BY " + sortKey + direction + ", k.rowid" + direction;
+            String rows = "SELECT " + RECORD_COLUMNS + ", " + sortKey + " AS sort_key, k.rowid AS rid" + from;
+            String keys = "SELECT " + sortKey + ", k.rowid" + from;
+            this.startSql = rows + filter.where("") + order + " LIMIT ?";
+            this.pageSql = rows + filter.where(fromKey) + order + " LIMIT ?";
+            this.skipFromStartSql = keys + filter.where("") + order + " LIMIT 1 OFFSET ?";
+            this.skipSql = keys + filter.where(fromKey) + order + " LIMIT 1 OFFSET ?";
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int pageSize() {
+            return pageSize;
+        }
+
+        @Override
+        public List<KCDRecord> page(int pageIndex) throws SQLException {
+            if (pageIndex < 0 || (long) pageIndex * pageSize >= size) return List.of();
+            Object[] first = pageIndex == 0 ? null : firstKeys.get(pageIndex);
+            if (pageIndex > 0 && first == null) {
+                first = skipTo(pageIndex);
+                if (first == null) return List.of(); // Rows were deleted since they were counted
             }
+            Object[] from = first;
+            List<KCDRecord> rows = new ArrayList<>(pageSize);
+            Object[] next = db.query(from == null ? startSql : pageSql, ps -> {
+                int i = filter.bind(ps);
+                if (from != null) i = bindKey(ps, i, from);
+                ps.setInt(i, pageSize + 1);
+            }, rs -> {
+                while (rs.next()) {
+                    if (rows.size() == pageSize) return new Object[]{rs.getObject("sort_key"), rs.getLong("rid")};
+                    rows.add(readRecord(rs));
+                }
+                return null;
+            });
+            if (next != null) firstKeys.put(pageIndex + 1, next);
+            return rows;
+        }
+
+        /**
+         * Finds and records the first key of {@code pageIndex} by skipping from the nearest earlier page
+         * whose first key is known; {@code null} if there are not that many rows.
+         */
+        private Object[] skipTo(int pageIndex) throws SQLException {
+            Map.Entry<Integer, Object[]> known = firstKeys.lowerEntry(pageIndex);
+            Object[] from = known == null ? null : known.getValue();
+            int skip = (pageIndex - (known == null ? 0 : known.getKey())) * pageSize;
+            Object[] key = db.query(from == null ? skipFromStartSql : skipSql, ps -> {
+                int i = filter.bind(ps);
+                if (from != null) i = bindKey(ps, i, from);
+                ps.setInt(i, skip);
+            }, rs -> rs.next() ? new Object[]{rs.getObject(1), rs.getLong(2)} : null);
+            if (key != null) firstKeys.put(pageIndex, key);
+            return key;
+        }
+
+        /** Binds {@code sort_key >= ? AND (sort_key > ? OR rowid >= ?)}; returns the next free index. */
+        private static int bindKey(PreparedStatement ps, int i, Object[] key) throws SQLException {
+            ps.setObject(i++, key[0]);
+            ps.setObject(i++, key[0]);
+            ps.setLong(i++, (Long) key[1]);
+            return i;
+        }
+    }
+
+    /**
+     * The FROM/WHERE parts of a search and its arguments.
+     *
+     * @param from      SQL after {@code FROM}, aliasing {@code kcd_codes} as {@code k}.
+     * @param condition The WHERE condition, or {@code null} for every row.
+     * @param fullText  Whether the filter is an FTS5 match, so bm25 is available for ranking.
+     */
+    private record Filter(String from, String condition, List<String> args, boolean fullText) {
+        /** A WHERE clause of this filter and {@code more} (whose arguments follow this filter's), or "". */
+        String where(String more) {
+            if (condition == null) return more.isEmpty() ? "" : " WHERE " + more;
+            return more.isEmpty() ? " WHERE " + condition : " WHERE (" + condition + ") AND " + more;
+        }
+
+        /** Binds the arguments from parameter 1; returns the next free parameter index. */
+        int bind(PreparedStatement ps) throws SQLException {
+            int i = 1;
+            for (String arg : args) ps.setString(i++, arg);
+            return i;
+        }
+    }
+
+    /**
+     * Every whitespace-separated term must match. Terms of three or more characters use the FTS5 index;
+     * a query with a shorter term, or on a column outside the index, falls back to LIKE.
+     */
+    private static Filter filter(KCDSearchIndex.Column column, String text) {
+        String[] terms = text == null || text.isBlank() ? new String[0] : text.trim().split("\\s+");
+        if (terms.length == 0) {
+            return new Filter("kcd_codes k", null, List.of(), false);
+        }
+        if (isFtsColumn(column) && allTermsIndexable(terms)) {
+            return new Filter("kcd_fts JOIN kcd_codes k ON k.rowid = kcd_fts.rowid", "kcd_fts MATCH ?",
+                    List.of(toMatchExpression(column, terms)), true);
+        }
+        List<String> args = new ArrayList<>();
+        StringBuilder where = new StringBuilder();
+        for (String term : terms) {
+            if (where.length() > 0) where.append(" AND ");
+            where.append('(');
+            String[] names = likeColumns(column);
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) where.append(" OR ");
+                where.append("k.").append(names[i]).append(" LIKE ? ESCAPE '\\'");
+                args.add('%' + escapeLike(term) + '%');
+            }
+            where.append(')');
+        }
+        return new Filter("kcd_codes k", where.toString(), args, false);
+    }
+
+    private static boolean isFtsColumn(KCDSearchIndex.Column column) {
+        return column == null
+                || column == KCDSearchIndex.Column.DISEASE_CODE
+                || column == KCDSearchIndex.Column.KOREAN_NAME
+                || column == KCDSearchIndex.Column.ENGLISH_NAME
+                || column == KCDSearchIndex.Column.NOTE;
+    }
+
+    private static boolean allTermsIndexable(String[] terms) {
+        for (String term : terms) {
+            if (term.codePointCount(0, term.length()) < MIN_FTS_TERM_LENGTH) return false;
+        }
+        return true;
+    }
+
+    /** Quotes each term as an FTS5 string so operators and punctuation typed by the user stay literal. */
+    private static String toMatchExpression(KCDSearchIndex.Column column, String[] terms) {
+        StringBuilder sb = new StringBuilder();
+        for (String term : terms) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append('"').append(term.replace("\"", "\"\"")).append('"');
+        }
+        return column == null ? sb.toString() : "{" + columnName(column) + "} : (" + sb + ")";
+    }
+
+    private static String[] likeColumns(KCDSearchIndex.Column column) {
+        return column == null
+                ? new String[]{"disease_code", "korean_name", "english_name", "note"}
+                : new String[]{columnName(column)};
+    }
+
+    private static String columnName(KCDSearchIndex.Column column) {
+        return switch (column) {
+            case CLASSIFICATION -> "classification";
+            case DISEASE_CODE -> "disease_code";
+            case CHECK_FIELD -> "check_field";
+            case KOREAN_NAME -> "korean_name";
+            case ENGLISH_NAME -> "english_name";
+            case NOTE -> "note";
+        };
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // ================================
+    // CRUD
+    // ================================
+
+    public static List<KCDRecord> getAllRecords() throws SQLException {
+        String sql = "SELECT * FROM kcd_codes ORDER BY disease_code";
+        return db().query(sql, null, DatabaseManager::readRecords);
+    }
+
+    private static List<KCDRecord> readRecords(ResultSet rs) throws SQLException {
+        List<KCDRecord> records = new ArrayList<>();
+        while (rs.next()) {
+            records.add(readRecord(rs));
         }
         return records;
     }
 
-    public static void addRecord(KCDRecord record) throws SQLException {
+    private static KCDRecord readRecord(ResultSet rs) throws SQLException {
+        return new KCDRecord(
+                rs.getString("classification"),
+                rs.getString("disease_code"),
+                rs.getString("check_field"),
+                rs.getString("korean_name"),
+                rs.getString("english_name"),
+                rs.getString("note")
+        );
+    }
+
+    /**
+     * Queues an insert on the shared write-behind queue; the future completes after commit.
+     */
+    public static CompletableFuture<Integer> addRecord(KCDRecord record) throws SQLException {
         String sql = "INSERT INTO kcd_codes(classification, disease_code, check_field, korean_name, english_name, note) VALUES(?,?,?,?,?,?)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        return WriteBehindQueue.shared().submit(db(), sql, pstmt -> {
             pstmt.setString(1, record.getClassification());
             pstmt.setString(2, record.getDiseaseCode());
             pstmt.setString(3, record.getCheckField());
             pstmt.setString(4, record.getKoreanName());
             pstmt.setString(5, record.getEnglishName());
             pstmt.setString(6, record.getNote());
-            pstmt.executeUpdate();
-        }
+        });
     }
 
-    public static void updateRecord(String originalDiseaseCode, KCDRecord record) throws SQLException {
+    public static CompletableFuture<Integer> updateRecord(String originalDiseaseCode, KCDRecord record) throws SQLException {
         String sql = "UPDATE kcd_codes SET classification=?, disease_code=?, check_field=?, korean_name=?, english_name=?, note=? WHERE disease_code=?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        return WriteBehindQueue.shared().submit(db(), sql, pstmt -> {
             pstmt.setString(1, record.getClassification());
             pstmt.setString(2, record.getDiseaseCode());
             pstmt.setString(3, record.getCheckField());
@@ -53,15 +423,11 @@ class DatabaseManager {
             pstmt.setString(5, record.getEnglishName());
             pstmt.setString(6, record.getNote());
             pstmt.setString(7, originalDiseaseCode);
-            pstmt.executeUpdate();
-        }
+        });
     }
 
-    public static void deleteRecord(String diseaseCode) throws SQLException {
+    public static CompletableFuture<Integer> deleteRecord(String diseaseCode) throws SQLException {
         String sql = "DELETE FROM kcd_codes WHERE disease_code = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, diseaseCode);
-            pstmt.executeUpdate();
-        }
+        return WriteBehindQueue.shared().submit(db(), sql, pstmt -> pstmt.setString(1, diseaseCode));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+/**
+ * Hangul helpers for incremental (IME-aware) Korean search.
+ * <p>
+ * Syllables are decomposed into basic compatibility jamo, with compound vowels and final consonants split
+ * (e.g., {@code 닭 -> ㄷㅏㄹㄱ}, {@code 과 -> ㄱㅗㅏ}), so a half-typed syllable such as {@code 달} matches
+ * {@code 닭} or {@code 다리}. Initial-consonant strings ({@code 당뇨병 -> ㄷㄴㅂ}) support chosung search.
+ */
+final class HangulJamo {
+
+    private static final char SYLLABLE_BASE = 0xAC00;
+    private static final char SYLLABLE_LAST = 0xD7A3;
+    private static final char JAMO_FIRST = 0x3131; // ㄱ
+    private static final char JAMO_LAST = 0x3163;  // ㅣ
+    private static final char CONSONANT_LAST = 0x314E; // ㅎ
+
+    private static final String INITIALS = "ㄱㄲㄴㄷㄸㄹㅁㅂㅃㅅㅆㅇㅈㅉㅊㅋㅌㅍㅎ";
+    private static final String[] MEDIALS = {
+            "ㅏ", "ㅐ", "ㅑ", "ㅒ", "ㅓ", "ㅔ", "ㅕ", "ㅖ", "ㅗ", "ㅗㅏ", "ㅗㅐ",
+            "ㅗㅣ", "ㅛ", "ㅜ", "ㅜㅓ", "ㅜㅔ", "ㅜㅣ", "ㅠ", "ㅡ", "ㅡㅣ", "ㅣ"
+    };
+    private static final String[] FINALS = {
+            "", "ㄱ", "ㄲ", "ㄱㅅ", "ㄴ", "ㄴㅈ", "ㄴㅎ", "ㄷ", "ㄹ", "ㄹㄱ", "ㄹㅁ", "ㄹㅂ", "ㄹㅅ", "ㄹㅌ",
+            "ㄹㅍ", "ㄹㅎ", "ㅁ", "ㅂ", "ㅂㅅ", "ㅅ", "ㅆ", "ㅇ", "ㅈ", "ㅊ", "ㅋ", "ㅌ", "ㅍ", "ㅎ"
+    };
+    /** Compound compatibility jamo and their basic parts (for jamo typed on their own). */
+    private static final String COMPOUND_JAMO = "ㄳㄵㄶㄺㄻㄼㄽㄾㄿㅀㅄㅘㅙㅚㅝㅞㅟㅢ";
+    private static final String[] COMPOUND_PARTS = {
+            "ㄱㅅ", "ㄴㅈ", "ㄴㅎ", "ㄹㄱ", "ㄹㅁ", "ㄹㅂ", "ㄹㅅ", "ㄹㅌ", "ㄹㅍ", "ㄹㅎ", "ㅂㅅ",
+            "ㅗㅏ", "ㅗㅐ", "ㅗㅣ", "ㅜㅓ", "ㅜㅔ", "ㅜㅣ", "ㅡㅣ"
+    };
+
+    private HangulJamo() {}
+
+    static boolean isSyllable(char c) {
+        return c >= SYLLABLE_BASE && c <= SYLLABLE_LAST;
+    }
+
+    static boolean isJamo(char c) {
+        return c >= JAMO_FIRST && c <= JAMO_LAST;
+    }
+
+    static boolean isConsonant(char c) {
+        return c >= JAMO_FIRST && c <= CONSONANT_LAST;
+    }
+
+    static boolean isHangul(char c) {
+        return isSyllable(c) || isJamo(c);
+    }
+
+    static boolean containsHangul(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (isHangul(s.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if {@code s} consists only of consonant jamo (and spaces), e.g. {@code ㄷㄴ}.
+     */
+    static boolean isInitialsQuery(CharSequence s) {
+        boolean any = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isConsonant(c)) any = true;
+            else if (c != ' ') return false;
+        }
+        return any;
+    }
+
+    /**
+     * Appends the basic jamo of {@code s[from, to)} to {@code out}; non-Hangul characters are copied.
+     */
+    static void decompose(CharSequence s, int from, int to, StringBuilder out) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (isSyllable(c)) {
+                int idx = c - SYLLABLE_BASE;
+                out.append(INITIALS.charAt(idx / 588))
+                        .append(MEDIALS[(idx % 588) / 28])
+                        .append(FINALS[idx % 28]);
+            } else {
+                int compound = isJamo(c) ? COMPOUND_JAMO.indexOf(c) : -1;
+                if (compound >= 0) out.append(COMPOUND_PARTS[compound]);
+                else out.append(c);
+            }
+        }
+    }
+
+    static String decompose(CharSequence s) {
+        StringBuilder sb = new StringBuilder(s.length() * 3);
+        decompose(s, 0, s.length(), sb);
+        return sb.toString();
+    }
+
+    /**
+     * Replaces each syllable with its initial consonant; other characters are kept.
+     */
+    static String initials(CharSequence s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            sb.append(isSyllable(c) ? INITIALS.charAt((c - SYLLABLE_BASE) / 588) : c);
+        }
+        return sb.toString();
+    }
+}
@@ -1,11 +1,9 @@
 package com.emr.gds.fourgate.KCDdatabase;
 
 import com.emr.gds.input.IAIMain;
+import com.emr.gds.input.IAITextAreaManager;
+import com.emr.gds.main.IAMTextChangePipeline;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
 import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -23,28 +21,42 @@ import javafx.stage.Stage;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class KCDDatabaseManagerJavaFX {
 
     private Stage stage;
     public Stage getStage() { return stage; }
 
-    private static final String DB_PATH = "/home/migowj/git/GDSEMR_ver_0.2/app/src/main/resources/database/kcd_database.db";
-    public static final String JDBC_URL = "jdbc:sqlite:" + DB_PATH;
     private static final DateTimeFormatter ISO_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int PAGE_SIZE = 100;
+    /** Full-text searches get their own thread, so a slow query never delays the editor's text views. */
+    private static final IAMTextChangePipeline SEARCH_PIPELINE =
+            new IAMTextChangePipeline("kcd-search", IAMTextChangePipeline.shared().getDebounceMillis());
 
     private TableView<KCDRecord> table;
-    private final ObservableList<KCDRecord> tableData = FXCollections.observableArrayList();
+    private final KCDPagedList tableData = new KCDPagedList(this::pageLoadFailed);
+    private KCDSearchIndex searchIndex;
+    private boolean indexLoading;
+    /** Full-text searches, debounced and run one at a time; only the latest one's rows are shown. */
+    private IAMTextChangePipeline.Channel<SearchRequest, SearchResult> fullTextSearch;
+    private String appliedSort = "";
     private TextField searchField;
     private ComboBox<String> searchColumnCombo;
+    private CheckBox fullTextCheck;
     private Button addButton, editButton, deleteButton, refreshButton, copyButton, saveToEmrButton, quitButton;
     private Label statusLabel;
 
     private final String[] columnNames = {"Classification", "Disease Code", "Check Field", "Korean Name", "English Name", "Note"};
     private final double[] columnWidths = {100, 100, 80, 250, 250, 300};
 
+    /** A full-text search as it stood on the FX thread. */
+    private record SearchRequest(KCDSearchIndex.Column column, String text, KCDSearchIndex.Column sortColumn, boolean ascending) {}
+
+    /** The rows a full-text search opened, or why it failed. */
+    private record SearchResult(KCDRowSource rows, Exception error) {}
+
     public void start(Stage primaryStage) {
         this.stage = primaryStage;
         BorderPane root = new BorderPane();
@@ -57,9 +69,10 @@ public class KCDDatabaseManagerJavaFX {
         Scene scene = new Scene(root, 1200, 800);
         primaryStage.setScene(scene);
         primaryStage.show();
+        primaryStage.setOnHidden(e -> fullTextSearch.cancel());
 
         setupEventHandlers();
-        loadInitialData();
+        search();
     }
 
     private TableView<KCDRecord> createTable() {
@@ -71,6 +84,11 @@ public class KCDDatabaseManagerJavaFX {
             table.getColumns().add(column);
         }
         table.setItems(tableData);
+        // Sorting is done by the query or index behind the paged list, not by the table
+        table.setSortPolicy(t -> {
+            if (!sortKey().equals(appliedSort)) search();
+            return true;
+        });
         return table;
     }
 
@@ -84,7 +102,11 @@ public class KCDDatabaseManagerJavaFX {
         searchColumnCombo = new ComboBox<>();
         searchColumnCombo.getItems().addAll("All Columns", "Classification", "Disease Code", "Check Field", "Korean Name", "English Name", "Note");
         searchColumnCombo.getSelectionModel().selectFirst();
-        searchPanel.getChildren().addAll(new Label("Search:"), searchField, searchColumnCombo);
+        fullTextCheck = new CheckBox("Full-text (database)");
+        fullTextCheck.setSelected(true);
+        fullTextCheck.setTooltip(new Tooltip("Search the database page by page, best matches first.\n"
+                + "Uncheck to load all codes into memory for instant Korean/initial-consonant search."));
+        searchPanel.getChildren().addAll(new Label("Search:"), searchField, searchColumnCombo, fullTextCheck);
         return searchPanel;
     }
 
@@ -116,18 +138,16 @@ public class KCDDatabaseManagerJavaFX {
         addButton.setOnAction(e -> showEditDialog(null));
         editButton.setOnAction(e -> showEditDialog(table.getSelectionModel().getSelectedItem()));
         deleteButton.setOnAction(e -> deleteSelectedRecord());
-        refreshButton.setOnAction(e -> loadInitialData());
+        refreshButton.setOnAction(e -> reload());
         copyButton.setOnAction(e -> copySelectedToClipboard());
         saveToEmrButton.setOnAction(e -> saveSelectedToEMR());
         quitButton.setOnAction(e -> stage.close());
 
-        FilteredList<KCDRecord> filteredData = new FilteredList<>(tableData, p -> true);
-        searchField.textProperty().addListener((obs, ov, nv) -> filteredData.setPredicate(createPredicate(nv)));
-        searchColumnCombo.getSelectionModel().selectedItemProperty().addListener((obs, ov, nv) -> filteredData.setPredicate(createPredicate(searchField.getText())));
-
-        SortedList<KCDRecord> sortedData = new SortedList<>(filteredData);
-        sortedData.comparatorProperty().bind(table.comparatorProperty());
-        table.setItems(sortedData);
+        fullTextSearch = SEARCH_PIPELINE.channel(
+                this::searchRequest, KCDDatabaseManagerJavaFX::openRows, this::showSearchResult);
+        searchField.textProperty().addListener((obs, ov, nv) -> search(false));
+        searchColumnCombo.getSelectionModel().selectedItemProperty().addListener((obs, ov, nv) -> search());
+        fullTextCheck.selectedProperty().addListener((obs, ov, nv) -> search());
 
         table.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
             boolean rowSelected = newSelection != null;
@@ -142,45 +162,123 @@ public class KCDDatabaseManagerJavaFX {
         saveToEmrButton.setDisable(true);
     }
 
-    private java.util.function.Predicate<KCDRecord> createPredicate(String filterText) {
-        return record -> {
-            if (filterText == null || filterText.isEmpty()) return true;
-            String lowerCaseFilter = filterText.toLowerCase();
-            int selectedIndex = searchColumnCombo.getSelectionModel().getSelectedIndex();
+    private KCDSearchIndex.Column selectedColumn() {
+        int selectedIndex = searchColumnCombo.getSelectionModel().getSelectedIndex();
+        return selectedIndex <= 0 ? null : KCDSearchIndex.Column.values()[selectedIndex - 1];
+    }
+
+    /** The table's primary sort column as an index column, or {@code null} if unsorted. */
+    private KCDSearchIndex.Column sortColumn() {
+        if (table.getSortOrder().isEmpty()) return null;
+        int index = table.getColumns().indexOf(table.getSortOrder().get(0));
+        return index < 0 ? null : KCDSearchIndex.Column.values()[index];
+    }
+
+    private boolean sortAscending() {
+        return table.getSortOrder().isEmpty()
+                || table.getSortOrder().get(0).getSortType() == TableColumn.SortType.ASCENDING;
+    }
+
+    private String sortKey() {
+        return sortColumn() + ":" + sortAscending();
+    }
+
+    private void search() {
+        search(true);
+    }
 
-            if (selectedIndex <= 0) { // All Columns
-                return record.toString().toLowerCase().contains(lowerCaseFilter);
+    /**
+     * Re-opens the table's row source for the current text, column, sort and mode. Full-text searches run
+     * on a text-change pipeline of their own: typing is debounced, one query runs at a time, and a search
+     * that was superseded before it finished is never shown.
+     *
+     * @param immediately {@code false} while typing, to wait for a pause first.
+     */
+    private void search(boolean immediately) {
+        appliedSort = sortKey();
+        if (!fullTextCheck.isSelected()) {
+            fullTextSearch.cancel(); // A pending full-text result must not replace these rows
+            if (searchIndex == null) {
+                loadInitialData();
             } else {
-                String property = toCamelCase(columnNames[selectedIndex - 1]);
-                try {
-                    String value = (String) record.getClass().getMethod("get" + property.substring(0, 1).toUpperCase() + property.substring(1)).invoke(record);
-                    return value != null && value.toLowerCase().contains(lowerCaseFilter);
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                    return false;
-                }
+                showRows(searchIndex.rows(selectedColumn(), searchField.getText(), sortColumn(), sortAscending(), PAGE_SIZE));
             }
-        };
+            return;
+        }
+        if (immediately) {
+            fullTextSearch.flush();
+        } else {
+            fullTextSearch.changed();
+        }
+    }
+
+    private SearchRequest searchRequest() {
+        return new SearchRequest(selectedColumn(), searchField.getText(), sortColumn(), sortAscending());
+    }
+
+    private static SearchResult openRows(SearchRequest request) {
+        try {
+            return new SearchResult(DatabaseManager.openRows(
+                    request.column(), request.text(), request.sortColumn(), request.ascending(), PAGE_SIZE), null);
+        } catch (SQLException | RuntimeException e) {
+            return new SearchResult(null, e);
+        }
+    }
+
+    private void showSearchResult(SearchResult result) {
+        if (!fullTextCheck.isSelected()) return;
+        if (result.error() != null) {
+            showErrorDialog("Database Error", "Search failed: " + result.error().getMessage());
+            updateStatus("Error searching data.");
+            result.error().printStackTrace();
+            return;
+        }
+        showRows(result.rows());
+    }
+
+    private void showRows(KCDRowSource source) {
+        tableData.setSource(source);
+        updateStatus("Showing " + source.size() + " records.");
+    }
+
+    private void pageLoadFailed(Exception e) {
+        showErrorDialog("Database Error", "Failed to load rows: " + e.getMessage());
+        updateStatus("Error loading data.");
+        e.printStackTrace();
+    }
+
+    /**
+     * Drops cached data after an edit and searches again.
+     */
+    private void reload() {
+        searchIndex = null;
+        search();
     }
 
     private void loadInitialData() {
-        Task<List<KCDRecord>> task = new Task<>() {
+        if (indexLoading) return;
+        indexLoading = true;
+        Task<KCDSearchIndex> task = new Task<>() {
             @Override
-            protected List<KCDRecord> call() throws Exception {
+            protected KCDSearchIndex call() throws Exception {
                 updateStatus("Loading data...");
-                return DatabaseManager.getAllRecords();
+                return KCDSearchIndex.load();
             }
         };
         task.setOnSucceeded(e -> {
-            tableData.setAll(task.getValue());
-            updateStatus("Loaded " + tableData.size() + " records.");
+            indexLoading = false;
+            searchIndex = task.getValue();
+            if (!fullTextCheck.isSelected()) search();
         });
         task.setOnFailed(e -> {
+            indexLoading = false;
             showErrorDialog("Database Error", "Failed to load data: " + task.getException().getMessage());
             updateStatus("Error loading data.");
             task.getException().printStackTrace();
         });
-        new Thread(task).start();
+        Thread loader = new Thread(task, "kcd-index-load");
+        loader.setDaemon(true);
+        loader.start();
     }
 
     private void showEditDialog(KCDRecord recordToEdit) {
@@ -194,12 +292,9 @@ public class KCDDatabaseManagerJavaFX {
         Optional<KCDRecord> result = dialog.showAndWait();
         result.ifPresent(record -> {
             try {
-                if (isUpdate) {
-                    DatabaseManager.updateRecord(recordToEdit.getDiseaseCode(), record);
-                } else {
-                    DatabaseManager.addRecord(record);
-                }
-                loadInitialData();
+                reloadAfter(isUpdate
+                        ? DatabaseManager.updateRecord(recordToEdit.getDiseaseCode(), record)
+                        : DatabaseManager.addRecord(record), "Could not save record: ");
             } catch (SQLException e) {
                 showErrorDialog("Database Error", "Could not save record: " + e.getMessage());
                 e.printStackTrace();
@@ -215,8 +310,7 @@ public class KCDDatabaseManagerJavaFX {
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.YES) {
                 try {
-                    DatabaseManager.deleteRecord(selectedRecord.getDiseaseCode());
-                    loadInitialData();
+                    reloadAfter(DatabaseManager.deleteRecord(selectedRecord.getDiseaseCode()), "Could not delete record: ");
                 } catch (SQLException e) {
                     showErrorDialog("Database Error", "Could not delete record: " + e.getMessage());
                     e.printStackTrace();
@@ -225,6 +319,19 @@ public class KCDDatabaseManagerJavaFX {
         });
     }
 
+    /**
+     * Refreshes the table once a queued write has committed, or reports why it failed.
+     */
+    private void reloadAfter(CompletableFuture<Integer> write, String failureMessage) {
+        write.whenComplete((rows, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                showErrorDialog("Database Error", failureMessage + error.getMessage());
+                error.printStackTrace();
+            }
+            reload();
+        }));
+    }
+
     private void copySelectedToClipboard() {
         KCDRecord selectedRecord = table.getSelectionModel().getSelectedItem();
         if (selectedRecord == null) return;
@@ -244,8 +351,9 @@ public class KCDDatabaseManagerJavaFX {
             String timestamp = LocalDate.now().format(ISO_DATE_FORMAT);
             String emrEntry = String.format("\n< KCD > %s\n%s", timestamp, selectedRecord.toEMRFormat());
 
-            IAIMain.getTextAreaManager().focusArea(7);
-            IAIMain.getTextAreaManager().insertLineIntoFocusedArea("\t" + emrEntry);
+            IAIMain.getTextAreaManager().batch()
+                    .insertLineAtCaret(IAITextAreaManager.AREA_A, "\t" + emrEntry)
+                    .apply();
             updateStatus("Record saved to EMR.");
         } catch (Exception e) {
             showErrorDialog("EMR Save Error", "Error saving to EMR: " + e.getMessage());
@@ -0,0 +1,118 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Read-only table items backed by a {@link KCDRowSource}, loaded a page at a time as rows are shown.
+ * <p>
+ * The list reports the full row count so the {@code TableView} scrollbar is correct, but only holds a
+ * bounded number of pages: {@link #get} returns {@code null} (an empty row) for a row whose page is not
+ * loaded yet and queues that page, plus its neighbours as prefetch, on a background thread. When a page
+ * arrives its rows are replaced in place. Memory use is therefore independent of the table size.
+ * <p>
+ * All methods are called on the FX thread.
+ */
+final class KCDPagedList extends ObservableListBase<KCDRecord> {
+
+    private static final int MAX_CACHED_PAGES = 32;
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "kcd-page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<Integer, List<KCDRecord>> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<KCDRecord>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> requested = new HashSet<>();
+    private final Consumer<Exception> onError;
+
+    private KCDRowSource source = KCDRowSource.EMPTY;
+    private long generation;
+
+    KCDPagedList(Consumer<Exception> onError) {
+        this.onError = Objects.requireNonNull(onError, "onError");
+    }
+
+    /**
+     * Switches to a new result set (after a search, sort or edit) and drops every cached page.
+     */
+    void setSource(KCDRowSource newSource) {
+        int oldSize = source.size();
+        generation++;
+        pages.clear();
+        requested.clear();
+        source = newSource;
+
+        beginChange();
+        if (oldSize > 0) nextRemove(0, Collections.nCopies(oldSize, (KCDRecord) null));
+        if (newSource.size() > 0) nextAdd(0, newSource.size());
+        endChange();
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    @Override
+    public KCDRecord get(int index) {
+        Objects.checkIndex(index, size());
+        int pageSize = source.pageSize();
+        int page = index / pageSize;
+        List<KCDRecord> rows = pages.get(page);
+        request(page);
+        request(page + 1);
+        request(page - 1);
+        int offset = index - page * pageSize;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    private void request(int page) {
+        if (page < 0 || (long) page * source.pageSize() >= size()) return;
+        if (pages.containsKey(page) || !requested.add(page)) return;
+
+        long gen = generation;
+        KCDRowSource from = source;
+        loader.execute(() -> {
+            try {
+                List<KCDRecord> rows = from.page(page);
+                Platform.runLater(() -> pageLoaded(gen, page, rows));
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    if (gen != generation) return;
+                    requested.remove(page);
+                    onError.accept(e);
+                });
+            }
+        });
+    }
+
+    private void pageLoaded(long gen, int page, List<KCDRecord> rows) {
+        if (gen != generation) return;
+        requested.remove(page);
+        pages.put(page, rows);
+
+        int from = page * source.pageSize();
+        int to = Math.min(size(), from + rows.size());
+        if (from >= to) return;
+        beginChange();
+        nextReplace(from, to, Collections.nCopies(to - from, (KCDRecord) null));
+        endChange();
+    }
+}
@@ -0,0 +1,37 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A filtered, sorted result set that is read one page at a time by {@link KCDPagedList}.
+ * Implementations are immutable snapshots; {@link #page} is called on a background thread.
+ */
+interface KCDRowSource {
+
+    KCDRowSource EMPTY = new KCDRowSource() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public int pageSize() {
+            return 1;
+        }
+
+        @Override
+        public List<KCDRecord> page(int pageIndex) {
+            return List.of();
+        }
+    };
+
+    /** The total number of rows. */
+    int size();
+
+    /** The number of rows in every page but the last. */
+    int pageSize();
+
+    /** The rows of page {@code pageIndex}, in order. */
+    List<KCDRecord> page(int pageIndex) throws SQLException;
+}
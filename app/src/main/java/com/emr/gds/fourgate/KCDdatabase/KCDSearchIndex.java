@@ -0,0 +1,374 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable in-memory search index over the {@code kcd_codes} table.
+ * <p>
+ * Rows are kept in load order ({@code ORDER BY disease_code}) and addressed by ordinal. Every column is
+ * stored once as a pre-lowercased array with its own unigram/bigram posting index (built on the first
+ * search of that column), and "All Columns" uses one more over the row text. A substring query is narrowed
+ * to the rows whose text contains its rarest bigram before they are verified, so a keystroke touches a few
+ * hundred short strings instead of formatting and scanning all ~20k records.
+ * <p>
+ * {@link Column#KOREAN_NAME} matches Korean incrementally: the last syllable of the query may be half
+ * typed ({@code 당뇨ㅂ} or {@code 당뇨벼} find {@code 당뇨병}), using a second posting index over the names
+ * decomposed into jamo, and a query made only of initial consonants ({@code ㄷㄴㅂ}) matches by chosung.
+ * <p>
+ * Results are {@link Hits}: a range over an ordinal array, so an empty query costs nothing and a prefix
+ * query is a single binary search over a sorted permutation. The index is thread-safe once built.
+ */
+final class KCDSearchIndex {
+
+    /** Searchable columns, in table order. */
+    enum Column { CLASSIFICATION, DISEASE_CODE, CHECK_FIELD, KOREAN_NAME, ENGLISH_NAME, NOTE }
+
+    private static final int[] NO_ROWS = new int[0];
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final KCDRecord[] records;
+    private final String[][] columns;     // [column][row], lowercased, never null
+    private final String[] rowText;       // lowercased KCDRecord#toString(), for "All Columns"
+    private final String[] koreanJamo;    // Korean names decomposed into basic jamo
+    private final String[] koreanInitials;
+    private final GramIndex textGrams;
+    private final GramIndex[] columnGrams = new GramIndex[Column.values().length];
+    private final GramIndex jamoGrams;
+    private final GramIndex initialGrams;
+    private final int[][] sortedByColumn = new int[Column.values().length][];
+
+    private KCDSearchIndex(List<KCDRecord> source) {
+        int n = source.size();
+        records = source.toArray(new KCDRecord[0]);
+        columns = new String[Column.values().length][n];
+        rowText = new String[n];
+        koreanInitials = new String[n];
+        koreanJamo = new String[n];
+        for (int row = 0; row < n; row++) {
+            KCDRecord r = records[row];
+            columns[Column.CLASSIFICATION.ordinal()][row] = lower(r.getClassification());
+            columns[Column.DISEASE_CODE.ordinal()][row] = lower(r.getDiseaseCode());
+            columns[Column.CHECK_FIELD.ordinal()][row] = lower(r.getCheckField());
+            columns[Column.KOREAN_NAME.ordinal()][row] = lower(r.getKoreanName());
+            columns[Column.ENGLISH_NAME.ordinal()][row] = lower(r.getEnglishName());
+            columns[Column.NOTE.ordinal()][row] = lower(r.getNote());
+            rowText[row] = r.toString().toLowerCase(Locale.ROOT);
+            koreanInitials[row] = HangulJamo.initials(columns[Column.KOREAN_NAME.ordinal()][row]);
+            koreanJamo[row] = HangulJamo.decompose(columns[Column.KOREAN_NAME.ordinal()][row]);
+        }
+        textGrams = new GramIndex(rowText);
+        jamoGrams = new GramIndex(koreanJamo);
+        initialGrams = new GramIndex(koreanInitials);
+    }
+
+    /**
+     * Builds an index over {@code records}; ordinals follow the list order.
+     */
+    static KCDSearchIndex build(List<KCDRecord> records) {
+        return new KCDSearchIndex(records);
+    }
+
+    /**
+     * Loads {@code kcd_codes} once and indexes it. Call off the FX thread.
+     */
+    static KCDSearchIndex load() throws SQLException {
+        return build(DatabaseManager.getAllRecords());
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    // ================================
+    // Accessors
+    // ================================
+
+    int size() {
+        return records.length;
+    }
+
+    KCDRecord record(int row) {
+        return records[row];
+    }
+
+    /** All rows in load order. */
+    Hits all() {
+        return new Hits(null, 0, records.length);
+    }
+
+    // ================================
+    // Search
+    // ================================
+
+    /**
+     * Case-insensitive substring search.
+     *
+     * @param column The column to search, or {@code null} for all columns.
+     * @param query  The text typed by the user; {@code null} or empty matches every row.
+     * @return Matching ordinals in load order.
+     */
+    Hits search(Column column, String query) {
+        if (query == null || query.isEmpty()) return all();
+        String q = query.toLowerCase(Locale.ROOT);
+        boolean korean = (column == null || column == Column.KOREAN_NAME) && HangulJamo.containsHangul(q);
+
+        if (!korean) {
+            String[] texts = column == null ? rowText : columns[column.ordinal()];
+            int[] candidates = grams(column).candidates(q);
+            int[] out = new int[candidates.length];
+            int count = 0;
+            for (int row : candidates) {
+                if (texts[row].contains(q)) out[count++] = row;
+            }
+            return new Hits(out, 0, count);
+        }
+
+        BitSet hits = new BitSet(records.length);
+        searchKorean(q, hits);
+        if (column == null) {
+            for (int row : textGrams.candidates(q)) {
+                if (rowText[row].contains(q)) hits.set(row);
+            }
+        }
+        int[] out = new int[hits.cardinality()];
+        for (int i = 0, row = hits.nextSetBit(0); row >= 0; row = hits.nextSetBit(row + 1)) {
+            out[i++] = row;
+        }
+        return new Hits(out, 0, out.length);
+    }
+
+    private void searchKorean(String q, BitSet hits) {
+        if (HangulJamo.isInitialsQuery(q)) {
+            for (int row : initialGrams.candidates(q)) {
+                if (koreanInitials[row].contains(q)) hits.set(row);
+            }
+            return;
+        }
+
+        // Syllables always start with a consonant followed by a vowel, so a match in the jamo strings
+        // starts on a syllable boundary: full syllables match exactly, and only the last one may be half
+        // typed or have its final consonant continue into the next syllable (달 -> 다리).
+        String jq = HangulJamo.decompose(q);
+        for (int row : jamoGrams.candidates(jq)) {
+            if (koreanJamo[row].contains(jq)) hits.set(row);
+        }
+    }
+
+    private GramIndex grams(Column column) {
+        if (column == null) return textGrams;
+        synchronized (columnGrams) {
+            GramIndex grams = columnGrams[column.ordinal()];
+            if (grams == null) {
+                grams = new GramIndex(columns[column.ordinal()]);
+                columnGrams[column.ordinal()] = grams;
+            }
+            return grams;
+        }
+    }
+
+    private int[] allRows() {
+        int[] rows = new int[records.length];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+        return rows;
+    }
+
+    /**
+     * Case-insensitive prefix search on one column.
+     *
+     * @return A contiguous range of the column's sorted permutation (ordered by that column's value).
+     */
+    Hits prefix(Column column, String prefix) {
+        int[] order = sortedBy(column);
+        if (prefix == null || prefix.isEmpty()) return new Hits(order, 0, order.length);
+        String p = prefix.toLowerCase(Locale.ROOT);
+        String[] values = columns[column.ordinal()];
+        int from = lowerBound(order, values, p);
+        int to = from;
+        while (to < order.length && values[order[to]].startsWith(p)) to++;
+        return new Hits(order, from, to);
+    }
+
+    private int[] sortedBy(Column column) {
+        synchronized (sortedByColumn) {
+            int[] order = sortedByColumn[column.ordinal()];
+            if (order == null) {
+                String[] values = columns[column.ordinal()];
+                order = Arrays.stream(allRows()).boxed()
+                        .sorted((a, b) -> values[a].compareTo(values[b]))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                sortedByColumn[column.ordinal()] = order;
+            }
+            return order;
+        }
+    }
+
+    private static int lowerBound(int[] order, String[] values, String key) {
+        int lo = 0, hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[order[mid]].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * The hits of {@link #search} as a paged row source for the table, sorted by {@code sortColumn}
+     * through its sorted permutation, or in load (disease code) order if it is {@code null}.
+     */
+    KCDRowSource rows(Column column, String query, Column sortColumn, boolean ascending, int pageSize) {
+        Hits hits = search(column, query);
+        int[] order = new int[hits.size()];
+        if (sortColumn == null) {
+            for (int i = 0; i < order.length; i++) order[i] = hits.row(i);
+        } else {
+            BitSet matched = new BitSet(records.length);
+            for (int i = 0; i < order.length; i++) matched.set(hits.row(i));
+            int n = 0;
+            for (int row : sortedBy(sortColumn)) {
+                if (matched.get(row)) order[n++] = row;
+            }
+            if (!ascending) {
+                for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                }
+            }
+        }
+        return new OrdinalRows(order, pageSize);
+    }
+
+    /**
+     * Pages over a fixed ordinal order; everything is already in memory.
+     */
+    private final class OrdinalRows implements KCDRowSource {
+        private final int[] order;
+        private final int pageSize;
+
+        OrdinalRows(int[] order, int pageSize) {
+            this.order = order;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+
+        @Override
+        public int pageSize() {
+            return pageSize;
+        }
+
+        @Override
+        public List<KCDRecord> page(int pageIndex) {
+            int from = Math.min(order.length, pageIndex * pageSize);
+            int to = Math.min(order.length, from + pageSize);
+            KCDRecord[] page = new KCDRecord[to - from];
+            for (int i = from; i < to; i++) page[i - from] = records[order[i]];
+            return Arrays.asList(page);
+        }
+    }
+
+    // ================================
+    // Results
+    // ================================
+
+    /**
+     * The range {@code [from, to)} of an ordinal array; a {@code null} array means ordinals {@code from..to-1}.
+     */
+    static final class Hits {
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        private Hits(int[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        /** The ordinal of the {@code i}-th hit. */
+        int row(int i) {
+            return rows == null ? from + i : rows[from + i];
+        }
+    }
+
+    // ================================
+    // Posting Lists
+    // ================================
+
+    /**
+     * Unigram and bigram posting lists (ascending ordinals) over one array of texts.
+     */
+    private static final class GramIndex {
+        private final Map<Long, int[]> postings;
+
+        GramIndex(String[] texts) {
+            Map<Long, IntList> lists = new HashMap<>();
+            for (int row = 0; row < texts.length; row++) {
+                String s = texts[row];
+                for (int i = 0; i < s.length(); i++) {
+                    lists.computeIfAbsent(unigram(s.charAt(i)), k -> new IntList()).addRow(row);
+                    if (i + 1 < s.length()) {
+                        lists.computeIfAbsent(bigram(s.charAt(i), s.charAt(i + 1)), k -> new IntList()).addRow(row);
+                    }
+                }
+            }
+            postings = new HashMap<>(lists.size() * 2);
+            lists.forEach((k, v) -> postings.put(k, v.toArray()));
+        }
+
+        /**
+         * Rows that may contain {@code q}: the shortest posting list among its grams. Callers verify.
+         */
+        int[] candidates(String q) {
+            if (q.length() == 1) return postings.getOrDefault(unigram(q.charAt(0)), NO_ROWS);
+            int[] best = null;
+            for (int i = 0; i + 1 < q.length(); i++) {
+                int[] p = postings.get(bigram(q.charAt(i), q.charAt(i + 1)));
+                if (p == null) return NO_ROWS;
+                if (best == null || p.length < best.length) best = p;
+            }
+            return best;
+        }
+
+        private static long unigram(char c) {
+            return c;
+        }
+
+        private static long bigram(char a, char b) {
+            return (1L << 32) | ((long) a << 16) | b;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        /** Appends {@code row} unless it was the last one added (rows arrive in ascending order). */
+        void addRow(int row) {
+            if (size > 0 && values[size - 1] == row) return;
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
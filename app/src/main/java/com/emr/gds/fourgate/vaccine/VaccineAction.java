@@ -158,15 +158,12 @@ public class VaccineAction {
         String assessmentNote = "\n #  " + vaccineName + "  [" + today + "]";
         String planNote = "...Vaccination as scheduled";
 
-        // Insert fragments into their respective EMR areas
-        emrManager.focusArea(1); // PI (Present Illness)
-        emrManager.insertBlockIntoFocusedArea(subjectiveNote);
-
-        emrManager.focusArea(7); // A (Assessment)
-        emrManager.insertLineIntoFocusedArea(assessmentNote);
-
-        emrManager.focusArea(8); // P (Plan)
-        emrManager.insertLineIntoFocusedArea(planNote);
+        // Insert fragments into their respective EMR areas in one update, leaving the focus alone
+        emrManager.batch()
+                .insertAtCaret(IAITextAreaManager.AREA_PI, subjectiveNote)
+                .insertLineAtCaret(IAITextAreaManager.AREA_A, assessmentNote)
+                .insertLineAtCaret(IAITextAreaManager.AREA_P, planNote)
+                .apply();
     }
 
     private static void showError(String title, String content) {
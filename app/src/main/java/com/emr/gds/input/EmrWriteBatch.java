@@ -0,0 +1,118 @@
+package com.emr.gds.input;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Collects writes to several EMR sections and applies them together.
+ * <p>
+ * Helper windows used to route text with {@code focusArea(i)} followed by an insert into the focused
+ * area: every fragment moved the keyboard focus and cost its own FX pulse. A batch addresses each section
+ * directly and {@link #apply()} hands all writes to the manager at once, which performs them in a single
+ * FX-thread task, in the order they were added, without touching the focus.
+ * <pre>{@code
+ * manager.batch()
+ *        .insertAtCaret(IAITextAreaManager.AREA_PI, history)
+ *        .appendLine(IAITextAreaManager.AREA_A, assessment)
+ *        .apply();
+ * }</pre>
+ * Line endings are normalized to {@code \n} when a write is added. Writes to an invalid section, and
+ * {@code null} or empty text for append and insert, are ignored. A batch is meant to be built and applied
+ * once, from one thread.
+ */
+public final class EmrWriteBatch {
+
+    /** How a write changes its section. */
+    public enum Mode {
+        /** Add the text at the end of the section. */
+        APPEND,
+        /** Insert the text at the section's own caret position. */
+        INSERT_AT_CARET,
+        /** Replace the whole content of the section. */
+        REPLACE
+    }
+
+    /**
+     * One write.
+     *
+     * @param area The index of the target section.
+     * @param mode How the text is written.
+     * @param text The normalized text.
+     */
+    public record Edit(int area, Mode mode, String text) {}
+
+    private final IAITextAreaManager manager;
+    private final List<Edit> edits = new ArrayList<>(4);
+
+    EmrWriteBatch(IAITextAreaManager manager) {
+        this.manager = Objects.requireNonNull(manager, "manager");
+    }
+
+    // ================================
+    // Building
+    // ================================
+
+    public EmrWriteBatch append(int area, String text) {
+        return add(area, Mode.APPEND, text, false);
+    }
+
+    /**
+     * Appends {@code line}, adding a trailing newline if it has none.
+     */
+    public EmrWriteBatch appendLine(int area, String line) {
+        return add(area, Mode.APPEND, line, true);
+    }
+
+    public EmrWriteBatch insertAtCaret(int area, String text) {
+        return add(area, Mode.INSERT_AT_CARET, text, false);
+    }
+
+    /**
+     * Inserts {@code line} at the section's caret, adding a trailing newline if it has none.
+     */
+    public EmrWriteBatch insertLineAtCaret(int area, String line) {
+        return add(area, Mode.INSERT_AT_CARET, line, true);
+    }
+
+    /**
+     * Replaces the content of the section; {@code null} or empty text clears it.
+     */
+    public EmrWriteBatch replace(int area, String text) {
+        if (manager.isValidIndex(area)) {
+            edits.add(new Edit(area, Mode.REPLACE, text == null ? "" : normalizeNewlines(text)));
+        }
+        return this;
+    }
+
+    private EmrWriteBatch add(int area, Mode mode, String text, boolean line) {
+        if (!manager.isValidIndex(area) || text == null || text.isEmpty()) return this;
+        String normalized = normalizeNewlines(text);
+        edits.add(new Edit(area, mode, line && !normalized.endsWith("\n") ? normalized + "\n" : normalized));
+        return this;
+    }
+
+    // ================================
+    // Applying
+    // ================================
+
+    public List<Edit> edits() {
+        return Collections.unmodifiableList(edits);
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Hands every write to the manager in one call; nothing happens for an empty batch.
+     */
+    public void apply() {
+        if (!edits.isEmpty()) manager.apply(this);
+    }
+
+    static String normalizeNewlines(String s) {
+        return s.replace("\r\n", "\n").replace('\r', '\n');
+    }
+}
@@ -146,8 +146,10 @@ public class IAIFreqFrame extends Stage {
             try {
                 double hba1c = Double.parseDouble(value);
                 hba1cOutputArea.appendText("   HbA1c [ " + value + " ] %\n");
-                appendHba1cCalculations(hba1c);
-                saveHba1cToEMR();
+                String statusLine = appendHba1cCalculations(hba1c);
+                EmrWriteBatch batch = IAIMain.getTextAreaManager().batch()
+                        .insertLineAtCaret(IAITextAreaManager.AREA_A, statusLine);
+                addHba1cOutput(batch).apply();
                 clearHba1c();
             } catch (NumberFormatException ex) {
                 showError("Invalid HbA1c value.");
@@ -159,13 +161,16 @@ public class IAIFreqFrame extends Stage {
         hba1cInputs[nextIndex].requestFocus();
     }
 
-    private void appendHba1cCalculations(double hba1c) {
+    /**
+     * Appends the derived values to the output and returns the glucose-control line for the assessment.
+     */
+    private String appendHba1cCalculations(double hba1c) {
         double ifcc = (hba1c - 2.15) * 10.929;
         double eagMgDl = (28.7 * hba1c) - 46.7;
         hba1cOutputArea.appendText(String.format("\n\tIFCC HbA1c: [ %.0f ] mmol/mol\n\teAG: [ %.0f ] mg/dL\n", ifcc, eagMgDl));
 
         String status = (hba1c > 9.0) ? "Very poor" : (hba1c > 8.5) ? "Poor" : (hba1c > 7.5) ? "Fair" : (hba1c > 6.5) ? "Good" : "Excellent";
-        IAIMain.getTextAreaManager().insertLineIntoArea(IAITextAreaManager.AREA_A, "\n...now [ " + status + " ] controlled glucose status", true);
+        return "\n...now [ " + status + " ] controlled glucose status";
     }
 
     private void clearHba1c() {
@@ -175,10 +180,15 @@ public class IAIFreqFrame extends Stage {
     }
 
     private void saveHba1cToEMR() {
+        addHba1cOutput(IAIMain.getTextAreaManager().batch()).apply();
+    }
+
+    private EmrWriteBatch addHba1cOutput(EmrWriteBatch batch) {
         String text = hba1cOutputArea.getText();
         if (text != null && !text.isBlank()) {
-            IAIMain.getTextAreaManager().insertBlockIntoArea(IAITextAreaManager.AREA_O, text, true);
+            batch.insertAtCaret(IAITextAreaManager.AREA_O, text);
         }
+        return batch;
     }
 
     private TitledPane createVitalsPane() {
@@ -267,10 +277,10 @@ public class IAIFreqFrame extends Stage {
         String output = vsOutputArea.getText();
         if (description.isBlank() && output.isBlank()) return;
 
-        IAITextAreaManager manager = IAIMain.getTextAreaManager();
-        manager.focusArea(IAITextAreaManager.AREA_O);
-        if (!description.isBlank()) manager.insertLineIntoFocusedArea(description);
-        if (!output.isBlank()) manager.insertLineIntoFocusedArea("\t" + output);
+        EmrWriteBatch batch = IAIMain.getTextAreaManager().batch();
+        if (!description.isBlank()) batch.insertLineAtCaret(IAITextAreaManager.AREA_O, description);
+        if (!output.isBlank()) batch.insertLineAtCaret(IAITextAreaManager.AREA_O, "\t" + output);
+        batch.apply();
         resetVitalsFields();
     }
 
@@ -66,6 +66,22 @@ public class IAIFxTextAreaManager implements IAITextAreaManager {
         runOnFxThread(() -> textAreas.get(index).appendText(textToAppend));
     }
 
+    @Override
+    public void apply(EmrWriteBatch batch) {
+        if (batch == null || batch.isEmpty()) return;
+        final List<EmrWriteBatch.Edit> edits = List.copyOf(batch.edits());
+        runOnFxThread(() -> {
+            for (EmrWriteBatch.Edit edit : edits) {
+                TextArea area = textAreas.get(edit.area());
+                switch (edit.mode()) {
+                    case APPEND -> area.appendText(edit.text());
+                    case INSERT_AT_CARET -> area.insertText(area.getCaretPosition(), edit.text());
+                    case REPLACE -> area.setText(edit.text());
+                }
+            }
+        });
+    }
+
     @Override
     public boolean isReady() {
         // The readiness is confirmed at construction time.
@@ -44,6 +44,13 @@ public interface IAITextAreaManager {
      */
     void appendTextToSection(int index, String text);
 
+    /**
+     * Applies every write of {@code batch} in one task on the UI thread, in order, without moving the focus.
+     * Callers build the batch with {@link #batch()} and call {@link EmrWriteBatch#apply()}.
+     * @param batch The writes to apply.
+     */
+    void apply(EmrWriteBatch batch);
+
     /**
      * Checks if the text area manager is initialized and ready for use.
      * @return true if ready, false otherwise.
@@ -70,7 +77,16 @@ public interface IAITextAreaManager {
     }
 
     /**
-     * Inserts a block of text into a specific text area, optionally moving focus first.
+     * Starts a batch of writes addressed directly to sections, applied together by {@link EmrWriteBatch#apply()}.
+     * Prefer it to {@code focusArea} followed by an insert when writing to one or more sections from another window.
+     * @return A new, empty batch for this manager.
+     */
+    default EmrWriteBatch batch() {
+        return new EmrWriteBatch(this);
+    }
+
+    /**
+     * Inserts a block of text into a specific text area at its caret, optionally moving focus first.
      * @param index The index of the target text area.
      * @param block The block of text to insert.
      * @param moveFocus If true, focuses the area before insertion.
@@ -79,12 +95,14 @@ public interface IAITextAreaManager {
         if (!isValidIndex(index)) return;
         if (moveFocus) {
             focusArea(index);
+            insertBlockIntoFocusedArea(block);
+        } else {
+            batch().insertAtCaret(index, block).apply();
         }
-        insertBlockIntoFocusedArea(block);
     }
 
     /**
-     * Inserts a line of text into a specific text area, optionally moving focus first.
+     * Inserts a line of text into a specific text area at its caret, optionally moving focus first.
      * @param index The index of the target text area.
      * @param line The line of text to insert.
      * @param moveFocus If true, focuses the area before insertion.
@@ -93,7 +111,9 @@ public interface IAITextAreaManager {
         if (!isValidIndex(index)) return;
         if (moveFocus) {
             focusArea(index);
+            insertLineIntoFocusedArea(line);
+        } else {
+            batch().insertLineAtCaret(index, line).apply();
         }
-        insertLineIntoFocusedArea(line);
     }
 }
@@ -1,8 +1,12 @@
 package com.emr.gds.main;
 
-import com.emr.gds.IttiaApp;
+import com.emr.gds.abbrev.AbbreviationFilter;
+import com.emr.gds.abbrev.AbbreviationIndex;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -13,22 +17,23 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.util.Map;
+import java.util.AbstractList;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
 
 /**
  * Controller for the Abbreviations Database Manager dialog.
  * This class provides a UI for adding, editing, deleting, and searching abbreviations
- * stored in the application's database.
+ * stored in the application's database. Edits are published to the {@link AbbreviationRepository},
+ * so every open editor sees them immediately, and the list follows the repository while the dialog is open.
+ * Searching runs on the text-change pipeline through an {@link AbbreviationFilter}; the list shows the
+ * matching ordinals and formats only the rows on screen.
  */
 public class IAMAbbdbControl {
 
-    private final Connection dbConn;
-    private final Map<String, String> abbrevMap;
+    private final SqliteDatabase abbrevDb;
+    private final AbbreviationRepository abbreviations;
     private final Stage ownerStage;
 
     // UI Elements
@@ -41,19 +46,39 @@ public class IAMAbbdbControl {
     private final Button deleteButton = new Button("Delete");
     private final Button clearButton = new Button("Clear");
 
-    public IAMAbbdbControl(Connection dbConn, Map<String, String> abbrevMap, Stage ownerStage, IttiaApp parentApp) {
-        this.dbConn = dbConn;
-        this.abbrevMap = abbrevMap;
+    private final AbbreviationFilter filter = new AbbreviationFilter(); // Used on the pipeline thread
+    private IAMTextChangePipeline.Channel<String, AbbreviationFilter.Result> search;
+
+    public IAMAbbdbControl(SqliteDatabase abbrevDb, Stage ownerStage, AbbreviationRepository abbreviations) {
+        this.abbrevDb = abbrevDb;
+        this.abbreviations = abbreviations;
         this.ownerStage = ownerStage;
     }
 
+    private AbbreviationIndex index() {
+        return abbreviations.get();
+    }
+
     /**
      * Creates and displays the modal dialog for managing abbreviations.
      */
     public void showDbManagerDialog() {
         Stage dialogStage = createStage();
         VBox root = createLayout(dialogStage);
-        setupEventHandlers(dialogStage);
+        setupEventHandlers();
+
+        // Refresh on every publication, whether it came from this dialog or elsewhere
+        Runnable unsubscribe = abbreviations.addListener(snapshot -> {
+            if (Platform.isFxApplicationThread()) {
+                refresh(dialogStage);
+            } else {
+                Platform.runLater(() -> refresh(dialogStage));
+            }
+        });
+        dialogStage.setOnHidden(e -> {
+            unsubscribe.run();
+            search.cancel();
+        });
 
         Scene scene = new Scene(root);
         dialogStage.setScene(scene);
@@ -92,18 +117,19 @@ public class IAMAbbdbControl {
                 actionButtons
         );
 
-        updateListView("");
         updateDialogTitle(stage);
         return root;
     }
 
-    private void setupEventHandlers(Stage stage) {
+    private void setupEventHandlers() {
         // Disable update/delete buttons when no item is selected
         updateButton.disableProperty().bind(abbrevListView.getSelectionModel().selectedItemProperty().isNull());
         deleteButton.disableProperty().bind(abbrevListView.getSelectionModel().selectedItemProperty().isNull());
 
-        // Real-time search functionality
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> updateListView(newVal.trim().toLowerCase()));
+        // Real-time search, filtered off the FX thread against the current index
+        search = IAMTextChangePipeline.shared().watch(searchField.textProperty(),
+                query -> filter.filter(index(), query), this::showResult);
+        search.flush();
 
         // Populate text fields when an item is selected from the list
         abbrevListView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
@@ -123,9 +149,9 @@ public class IAMAbbdbControl {
         fullField.setOnKeyPressed(e -> { if (e.getCode() == KeyCode.ENTER) getEffectiveButton().fire(); });
 
         // Button actions
-        addButton.setOnAction(e -> handleAddAction(stage));
-        updateButton.setOnAction(e -> handleUpdateAction(stage));
-        deleteButton.setOnAction(e -> handleDeleteAction(stage));
+        addButton.setOnAction(e -> handleAddAction());
+        updateButton.setOnAction(e -> handleUpdateAction());
+        deleteButton.setOnAction(e -> handleDeleteAction());
         clearButton.setOnAction(e -> handleClearAction());
     }
 
@@ -133,31 +159,24 @@ public class IAMAbbdbControl {
     // Action Handlers
     // ================================
 
-    private void handleAddAction(Stage stage) {
+    private void handleAddAction() {
         if (addEntry(shortField.getText().trim(), fullField.getText().trim())) {
-            updateListView(searchField.getText().trim().toLowerCase());
             clearInputFields();
-            updateDialogTitle(stage);
         }
     }
 
-    private void handleUpdateAction(Stage stage) {
+    private void handleUpdateAction() {
         String selectedItem = abbrevListView.getSelectionModel().getSelectedItem();
         if (selectedItem == null) return;
 
         String originalShortText = selectedItem.split(" -> ", 2)[0];
-        if (updateEntry(originalShortText, shortField.getText().trim(), fullField.getText().trim())) {
-            updateListView(searchField.getText().trim().toLowerCase());
-            updateDialogTitle(stage);
-        }
+        updateEntry(originalShortText, shortField.getText().trim(), fullField.getText().trim());
     }
 
-    private void handleDeleteAction(Stage stage) {
+    private void handleDeleteAction() {
         String shortText = shortField.getText().trim();
         if (!shortText.isEmpty() && deleteEntry(shortText)) {
-            updateListView(searchField.getText().trim().toLowerCase());
             clearInputFields();
-            updateDialogTitle(stage);
         }
     }
 
@@ -176,22 +195,17 @@ public class IAMAbbdbControl {
             showAlert("Input Error", "Both short and full forms must be provided.", Alert.AlertType.ERROR);
             return false;
         }
-        if (abbrevMap.containsKey(shortText)) {
+        if (index().containsKey(shortText)) {
             showAlert("Duplicate Entry", "The abbreviation '" + shortText + "' already exists.", Alert.AlertType.WARNING);
             return false;
         }
 
         String sql = "INSERT INTO abbreviations (short, full) VALUES (?, ?)";
-        try (PreparedStatement pstmt = dbConn.prepareStatement(sql)) {
-            pstmt.setString(1, shortText);
-            pstmt.setString(2, fullText);
-            pstmt.executeUpdate();
-            abbrevMap.put(shortText, fullText); // Update in-memory map
-            return true;
-        } catch (SQLException e) {
-            showAlert("Database Error", "Failed to add abbreviation: " + e.getMessage(), Alert.AlertType.ERROR);
-            return false;
-        }
+        persist(sql, ps -> {
+            ps.setString(1, shortText);
+            ps.setString(2, fullText);
+        }, index -> index.withEntry(shortText, fullText), "Failed to add abbreviation");
+        return true;
     }
 
     private boolean updateEntry(String originalShort, String newShort, String newFull) {
@@ -199,24 +213,18 @@ public class IAMAbbdbControl {
             showAlert("Input Error", "Both short and full forms must be provided.", Alert.AlertType.ERROR);
             return false;
         }
-        if (!originalShort.equals(newShort) && abbrevMap.containsKey(newShort)) {
+        if (!originalShort.equals(newShort) && index().containsKey(newShort)) {
             showAlert("Duplicate Entry", "Cannot change short form to '" + newShort + "' as it already exists.", Alert.AlertType.ERROR);
             return false;
         }
 
         String sql = "UPDATE abbreviations SET short = ?, full = ? WHERE short = ?";
-        try (PreparedStatement pstmt = dbConn.prepareStatement(sql)) {
-            pstmt.setString(1, newShort);
-            pstmt.setString(2, newFull);
-            pstmt.setString(3, originalShort);
-            pstmt.executeUpdate();
-            abbrevMap.remove(originalShort);
-            abbrevMap.put(newShort, newFull);
-            return true;
-        } catch (SQLException e) {
-            showAlert("Database Error", "Failed to update abbreviation: " + e.getMessage(), Alert.AlertType.ERROR);
-            return false;
-        }
+        persist(sql, ps -> {
+            ps.setString(1, newShort);
+            ps.setString(2, newFull);
+            ps.setString(3, originalShort);
+        }, index -> index.toBuilder().remove(originalShort).put(newShort, newFull).build(), "Failed to update abbreviation");
+        return true;
     }
 
     private boolean deleteEntry(String shortText) {
@@ -224,35 +232,59 @@ public class IAMAbbdbControl {
         Optional<ButtonType> result = confirmAlert.showAndWait();
 
         if (result.isPresent() && result.get() == ButtonType.YES) {
+            if (!index().containsKey(shortText)) return false;
             String sql = "DELETE FROM abbreviations WHERE short = ?";
-            try (PreparedStatement pstmt = dbConn.prepareStatement(sql)) {
-                pstmt.setString(1, shortText);
-                if (pstmt.executeUpdate() > 0) {
-                    abbrevMap.remove(shortText);
-                    return true;
-                }
-            } catch (SQLException e) {
-                showAlert("Database Error", "Failed to delete abbreviation: " + e.getMessage(), Alert.AlertType.ERROR);
-            }
+            persist(sql, ps -> ps.setString(1, shortText), index -> index.withoutEntry(shortText), "Failed to delete abbreviation");
+            return true;
         }
         return false;
     }
 
+    /**
+     * Publishes {@code change} to all editors at once and queues the matching write. The dialog does
+     * not wait for the disk; if the write fails, the previous snapshot is restored (unless a later edit
+     * has been published since) and the error shown.
+     */
+    private void persist(String sql, SqliteDatabase.SqlConsumer<PreparedStatement> binder,
+                         UnaryOperator<AbbreviationIndex> change, String failureMessage) {
+        AbbreviationRepository.Snapshot before = abbreviations.snapshot();
+        AbbreviationRepository.Snapshot published = abbreviations.update(change);
+        WriteBehindQueue.shared().submit(abbrevDb, sql, binder).whenComplete((rows, error) -> {
+            if (error == null) return;
+            abbreviations.compareAndPublish(published, before.index());
+            Platform.runLater(() ->
+                    showAlert("Database Error", failureMessage + ": " + error.getMessage(), Alert.AlertType.ERROR));
+        });
+    }
+
     // ================================
     // UI Helper Methods
     // ================================
 
-    private void updateListView(String filter) {
-        ObservableList<String> items = abbrevMap.entrySet().stream()
-                .filter(entry -> filter.isEmpty() || entry.getKey().toLowerCase().contains(filter) || entry.getValue().toLowerCase().contains(filter))
-                .sorted(Map.Entry.comparingByKey())
-                .map(entry -> entry.getKey() + " -> " + entry.getValue())
-                .collect(Collectors.toCollection(FXCollections::observableArrayList));
-        abbrevListView.setItems(items);
+    /**
+     * Shows {@code result} as a read-only view; the list cells format only the rows they display.
+     */
+    private void showResult(AbbreviationFilter.Result result) {
+        abbrevListView.setItems(FXCollections.observableList(new AbstractList<>() {
+            @Override
+            public String get(int i) {
+                return result.keyAt(i) + " -> " + result.valueAt(i);
+            }
+
+            @Override
+            public int size() {
+                return result.size();
+            }
+        }));
+    }
+
+    private void refresh(Stage stage) {
+        search.flush();
+        updateDialogTitle(stage);
     }
 
     private void updateDialogTitle(Stage stage) {
-        stage.setTitle(String.format("Abbreviations Manager (%d entries)", abbrevMap.size()));
+        stage.setTitle(String.format("Abbreviations Manager (%d entries)", index().size()));
     }
 
     private void clearInputFields() {
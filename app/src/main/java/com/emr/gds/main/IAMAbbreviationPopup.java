@@ -0,0 +1,174 @@
+package com.emr.gds.main;
+
+import com.emr.gds.abbrev.AbbreviationSuggester;
+import com.emr.gds.document.SectionDocument;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Popup;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inline abbreviation autocomplete for one text area.
+ * <p>
+ * Once the user has typed {@code :} and at least {@link AbbreviationSuggester#DEFAULT_MIN_PREFIX} more
+ * characters, a popup under the caret lists up to {@value #MAX_SUGGESTIONS} matching keys with their
+ * expansions, most used first. UP/DOWN move the selection, ENTER or TAB replace the token with the selected
+ * expansion, ESCAPE closes the popup, and typing on narrows the list. Only the token before the caret is read
+ * from the area's {@link SectionDocument}, and the suggestions are a bounded top-k of the index's prefix range,
+ * so the popup keeps up with typing however large the dictionary is.
+ */
+public final class IAMAbbreviationPopup {
+
+    static final int MAX_SUGGESTIONS = 8;
+    private static final double ROW_HEIGHT = 24;
+    private static final int MAX_EXPANSION_PREVIEW = 60;
+
+    private final TextArea area;
+    private final SectionDocument document;
+    private final AbbreviationSuggester suggester;
+    private final Popup popup = new Popup();
+    private final ListView<AbbreviationSuggester.Suggestion> list = new ListView<>();
+    private boolean refreshPending;
+
+    private IAMAbbreviationPopup(TextArea area, SectionDocument document, AbbreviationSuggester suggester) {
+        this.area = Objects.requireNonNull(area, "area");
+        this.document = Objects.requireNonNull(document, "document");
+        this.suggester = Objects.requireNonNull(suggester, "suggester");
+    }
+
+    /**
+     * Adds the popup to {@code area}, which must be mirrored by {@code document}.
+     */
+    public static IAMAbbreviationPopup attach(TextArea area, SectionDocument document, AbbreviationSuggester suggester) {
+        IAMAbbreviationPopup popup = new IAMAbbreviationPopup(area, document, suggester);
+        popup.install();
+        return popup;
+    }
+
+    // ================================
+    // Setup
+    // ================================
+
+    private void install() {
+        list.setFocusTraversable(false);
+        list.setPrefWidth(360);
+        list.setStyle("-fx-font-size: 12px;");
+        list.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(AbbreviationSuggester.Suggestion item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : ":" + item.key() + "  →  " + preview(item.expansion()));
+            }
+        });
+        list.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getButton() == MouseButton.PRIMARY) accept();
+        });
+        popup.getContent().add(list);
+        popup.setAutoHide(true);
+        popup.setHideOnEscape(false);
+
+        // The document changes before the caret moves, so look at the token once both have settled
+        document.addListener(delta -> {
+            if (area.isFocused()) scheduleRefresh();
+        });
+        area.caretPositionProperty().addListener((obs, oldPos, newPos) -> {
+            if (popup.isShowing()) scheduleRefresh();
+        });
+        area.focusedProperty().addListener((obs, was, is) -> {
+            if (!is) popup.hide();
+        });
+        area.addEventFilter(KeyEvent.KEY_PRESSED, this::handleKey);
+    }
+
+    private void handleKey(KeyEvent event) {
+        if (!popup.isShowing()) return;
+        switch (event.getCode()) {
+            case DOWN -> move(1);
+            case UP -> move(-1);
+            case ENTER, TAB -> accept();
+            case ESCAPE -> popup.hide();
+            default -> {
+                return;
+            }
+        }
+        event.consume();
+    }
+
+    // ================================
+    // Suggestions
+    // ================================
+
+    private void scheduleRefresh() {
+        if (refreshPending) return;
+        refreshPending = true;
+        Platform.runLater(() -> {
+            refreshPending = false;
+            refresh();
+        });
+    }
+
+    private void refresh() {
+        AbbreviationSuggester.Query query = area.isFocused()
+                ? suggester.query(document.text(), area.getCaretPosition())
+                : null;
+        List<AbbreviationSuggester.Suggestion> suggestions = (query == null)
+                ? List.of()
+                : suggester.suggest(query.prefix(), MAX_SUGGESTIONS);
+        if (suggestions.isEmpty()) {
+            popup.hide();
+            return;
+        }
+        list.getItems().setAll(suggestions);
+        list.getSelectionModel().selectFirst();
+        list.setPrefHeight(suggestions.size() * ROW_HEIGHT + 2);
+        if (!popup.isShowing()) show();
+    }
+
+    private void show() {
+        Point2D caret = area.getInputMethodRequests() != null
+                ? area.getInputMethodRequests().getTextLocation(0)
+                : null;
+        if (caret != null) {
+            popup.show(area, caret.getX(), caret.getY() + 4);
+        } else {
+            Bounds bounds = area.localToScreen(area.getBoundsInLocal());
+            if (bounds != null) popup.show(area, bounds.getMinX(), bounds.getMaxY());
+        }
+    }
+
+    private void move(int step) {
+        int size = list.getItems().size();
+        if (size == 0) return;
+        int next = Math.floorMod(list.getSelectionModel().getSelectedIndex() + step, size);
+        list.getSelectionModel().select(next);
+        list.scrollTo(next);
+    }
+
+    /**
+     * Replaces the token before the caret with the selected expansion. The token is looked up again, as
+     * the text may have changed since the list was filled.
+     */
+    private void accept() {
+        AbbreviationSuggester.Suggestion selected = list.getSelectionModel().getSelectedItem();
+        popup.hide();
+        if (selected == null) return;
+        AbbreviationSuggester.Query query = suggester.query(document.text(), area.getCaretPosition());
+        if (query == null) return;
+        area.replaceText(query.start(), query.end(), selected.expansion() + " ");
+        suggester.accepted(selected.key());
+    }
+
+    private static String preview(String expansion) {
+        String line = expansion.replace('\n', ' ');
+        return line.length() <= MAX_EXPANSION_PREVIEW ? line : line.substring(0, MAX_EXPANSION_PREVIEW - 1) + "…";
+    }
+}
@@ -1,8 +1,11 @@
 package com.emr.gds.main;
 
 import com.emr.gds.IttiaApp;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.db.SqliteDatabase;
 import com.emr.gds.diagnosis.thyroid.Thyroid;
 import com.emr.gds.input.IAITextAreaManager;
+import com.emr.gds.usage.UsageCounters;
 
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -15,11 +18,10 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality; // Import Modality
 import javafx.stage.Stage;
 
-import java.sql.Connection;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.Map;
+import java.util.List;
 import java.util.stream.Collectors;
 
 // Import for KCDDatabaseManagerJavaFX
@@ -52,8 +54,6 @@ public class IAMButtonAction {
     //================================================================================
 
     private final IttiaApp app;
-    private final Connection dbConn;
-    private final Map<String, String> abbrevMap;
 
     // --- KCD Database Manager Fields ---
     private KCDDatabaseManagerJavaFX kcdDatabaseManager;
@@ -64,10 +64,8 @@ public class IAMButtonAction {
     // Constructor
     //================================================================================
 
-    public IAMButtonAction(IttiaApp app, Connection dbConn, Map<String, String> abbrevMap) {
+    public IAMButtonAction(IttiaApp app) {
         this.app = app;
-        this.dbConn = dbConn;
-        this.abbrevMap = abbrevMap;
     }
 
     //================================================================================
@@ -87,6 +85,10 @@ public class IAMButtonAction {
                   .map(this::createTemplateMenuItem)
                   .collect(Collectors.toList())
         );
+        // Most used templates first, as of each opening
+        templatesMenu.setOnShowing(e -> templatesMenu.getItems().setAll(UsageCounters.shared().ranked(
+                UsageCounters.Kind.TEMPLATE, List.copyOf(templatesMenu.getItems()),
+                item -> ((TemplateLibrary) item.getUserData()).name())));
 
         // 2. Individual Buttons
         Button btnInsertDate = new Button(INSERT_DATE_BUTTON_TEXT);
@@ -137,7 +139,7 @@ public class IAMButtonAction {
         tb.getItems().addAll(
             Arrays.stream(TemplateLibrary.values())
                   .filter(TemplateLibrary::isSnippet) // Filter for snippets only
-                  .map(t -> createSnippetButton(t.displayName(), t.body()))
+                  .map(this::createSnippetButton)
                   .collect(Collectors.toList())
         );
 
@@ -158,6 +160,7 @@ public class IAMButtonAction {
      */
     private MenuItem createTemplateMenuItem(TemplateLibrary template) {
         MenuItem mi = new MenuItem(template.displayName());
+        mi.setUserData(template);
         mi.setOnAction(e -> app.insertTemplateIntoFocusedArea(template));
         return mi;
     }
@@ -165,9 +168,9 @@ public class IAMButtonAction {
     /**
      * Creates a Button that inserts a snippet of text into the focused text area.
      */
-    private Button createSnippetButton(String title, String snippet) {
-        Button b = new Button(title);
-        b.setOnAction(e -> app.insertBlockIntoFocusedArea(snippet));
+    private Button createSnippetButton(TemplateLibrary snippet) {
+        Button b = new Button(snippet.displayName());
+        b.setOnAction(e -> app.insertTemplateIntoFocusedArea(snippet));
         return b;
     }
 
@@ -192,11 +195,21 @@ public class IAMButtonAction {
      */
     private Button createKCD9Button(String title) {
         Button b = new Button(title);
-        b.setOnAction(e -> {
-            try {
-                // Check if the manager or its stage is null, or if the stage has been closed
-                if (kcdDatabaseManager == null || kcdStage == null || !kcdStage.isShowing()) {
-                    // If it's the first time, or the previous stage was truly closed
+        b.setOnAction(e -> openKcdManager());
+        return b;
+    }
+
+    /**
+     * Opens the KCD-9 Database Manager, or brings the existing window to the front.
+     * @return The manager's stage, or {@code null} if it failed to open.
+     */
+    public Stage openKcdManager() {
+        try {
+            // Check if the manager or its stage is null, or if the stage has been closed
+            if (kcdDatabaseManager == null || kcdStage == null || !kcdStage.isShowing()) {
+                // If it's the first time, or the previous stage was truly closed
+                // The KCD classes are loaded on this first click, not at startup
+                IAMStartupTimeline.shared().firstUse("KCD-9", () -> {
                     kcdDatabaseManager = new KCDDatabaseManagerJavaFX();
                     kcdStage = new Stage(); // Create a NEW Stage
                     kcdStage.setTitle("KCD Database Manager"); // Set title explicitly
@@ -205,26 +218,27 @@ public class IAMButtonAction {
 
                     kcdDatabaseManager.start(kcdStage); // Start the manager with the new stage
                     kcdStage.show();
-
-                    // Optional: Handle OS close button (the 'X') to clear references
-                    kcdStage.setOnCloseRequest(event -> {
-                        // Perform any cleanup for the manager if necessary before clearing references
-                        kcdDatabaseManager = null; // Clear the reference to allow garbage collection
-                        kcdStage = null; // Clear the stage reference
-                    });
-
-                } else {
-                    // If the manager exists and its stage is still alive (open or hidden),
-                    // ensure it's visible and bring it to the front.
-                    kcdStage.show(); // Ensure it's visible (e.g., if it was hidden via OS button minimize)
-                    kcdStage.toFront(); // Bring to front if already open
-                }
-            } catch (Exception ex) {
-                System.err.println("Failed to launch KCD-9 application:");
-                ex.printStackTrace();
+                });
+
+                // Optional: Handle OS close button (the 'X') to clear references
+                kcdStage.setOnCloseRequest(event -> {
+                    // Perform any cleanup for the manager if necessary before clearing references
+                    kcdDatabaseManager = null; // Clear the reference to allow garbage collection
+                    kcdStage = null; // Clear the stage reference
+                });
+
+            } else {
+                // If the manager exists and its stage is still alive (open or hidden),
+                // ensure it's visible and bring it to the front.
+                kcdStage.show(); // Ensure it's visible (e.g., if it was hidden via OS button minimize)
+                kcdStage.toFront(); // Bring to front if already open
             }
-        });
-        return b;
+            return kcdStage;
+        } catch (Exception ex) {
+            System.err.println("Failed to launch KCD-9 application:");
+            ex.printStackTrace();
+            return null;
+        }
     }
 
     private Button createThyroidButton(String title) {
@@ -233,26 +247,7 @@ public class IAMButtonAction {
             // It's essential to run UI updates on the JavaFX Application Thread.
             Platform.runLater(() -> {
                 try {
-                    // 1. Create a new Stage (window) for the Thyroid GDS
-                    Stage thyroidStage = new Stage();
-                    thyroidStage.setTitle("Thyroid Disorders GDS");
-
-                    // 2. Create an instance of Thyroid to get its UI content
-                    // The Thyroid class itself isn't the UI node; it's a factory for the UI.
-                    Thyroid thyroidApp = new Thyroid();
-                    VBox thyroidRoot = thyroidApp.createThyroidUI(); // Get the VBox containing all categories
-
-                    // 3. Wrap the UI content in a ScrollPane to handle potential overflow
-                    ScrollPane scrollPane = new ScrollPane(thyroidRoot);
-                    scrollPane.setFitToWidth(true); // Allow content to expand to the width
-                    scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED); // Show scrollbar if needed
-
-                    // 4. Create a Scene for the new Stage
-                    Scene scene = new Scene(scrollPane, 800, 600); // Set preferred initial window size
-
-                    // 5. Set the scene to the stage and show the new window
-                    thyroidStage.setScene(scene);
-                    thyroidStage.show();
+                    IAMStartupTimeline.shared().firstUse("Thyroid", this::openThyroidWindow);
 
                 } catch (Exception ex) {
                     System.err.println("Failed to open Thyroid application: " + ex.getMessage());
@@ -270,12 +265,40 @@ public class IAMButtonAction {
         });
         return b;
     }
+    private void openThyroidWindow() {
+        // 1. Create a new Stage (window) for the Thyroid GDS
+        Stage thyroidStage = new Stage();
+        thyroidStage.setTitle("Thyroid Disorders GDS");
+
+        // 2. Create an instance of Thyroid to get its UI content
+        // The Thyroid class itself isn't the UI node; it's a factory for the UI.
+        Thyroid thyroidApp = new Thyroid();
+        VBox thyroidRoot = thyroidApp.createThyroidUI(); // Get the VBox containing all categories
+
+        // 3. Wrap the UI content in a ScrollPane to handle potential overflow
+        ScrollPane scrollPane = new ScrollPane(thyroidRoot);
+        scrollPane.setFitToWidth(true); // Allow content to expand to the width
+        scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED); // Show scrollbar if needed
+
+        // 4. Create a Scene for the new Stage
+        Scene scene = new Scene(scrollPane, 800, 600); // Set preferred initial window size
+
+        // 5. Set the scene to the stage and show the new window
+        thyroidStage.setScene(scene);
+        thyroidStage.show();
+    }
+
     /**
      * Opens the abbreviation manager dialog.
      */
     private void showAbbreviationManagerDialog(Control ownerControl) {
+        SqliteDatabase abbrevDb = app.getAbbreviationDatabase();
+        if (abbrevDb == null) {
+            new Alert(Alert.AlertType.INFORMATION, "Abbreviations are still loading. Please try again in a moment.", ButtonType.OK).showAndWait();
+            return;
+        }
         Stage ownerStage = (Stage) ownerControl.getScene().getWindow();
-        IAMAbbdbControl controller = new IAMAbbdbControl(dbConn, abbrevMap, ownerStage, app);
+        IAMAbbdbControl controller = new IAMAbbdbControl(abbrevDb, ownerStage, AbbreviationRepository.shared());
         controller.showDbManagerDialog();
     }
 
@@ -0,0 +1,169 @@
+package com.emr.gds.main;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compiles the whole note for Copy All (Ctrl+Shift+C / F12) off the FX thread.
+ * <p>
+ * The FX thread only takes a {@link Snapshot} of the problem list and the area texts, which are immutable
+ * (the areas' document ropes, or strings). A single worker thread then removes duplicate lines per area and formats the result exactly as
+ * {@link IAMTextFormatUtil#finalizeForEMR(String)} formats the joined note. The worker keeps the result of
+ * every section: a section whose text has not changed since the previous copy is neither de-duplicated nor
+ * formatted again, so repeated copies of a long note only pay for the sections that were edited. An area
+ * whose rope is the same instance as last time is recognized without reading its text.
+ */
+public final class IAMCopyAllPipeline {
+
+    /**
+     * What Copy All needs from the UI, captured on the FX thread.
+     *
+     * @param problems  The problem list, in display order.
+     * @param date      The "as of" date of the problem list header.
+     * @param areaTexts The text of each area, in {@link IAMTextArea#TEXT_AREA_TITLES} order; each must be
+     *                  immutable.
+     */
+    public record Snapshot(List<String> problems, LocalDate date, List<? extends CharSequence> areaTexts) {
+        public Snapshot {
+            problems = List.copyOf(problems);
+            Objects.requireNonNull(date, "date");
+            areaTexts = List.copyOf(areaTexts);
+        }
+    }
+
+    private static final String SECTION_SEPARATOR = "\n\n";
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "copy-all");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Touched only by the worker thread (or by a caller of compile() that owns the instance)
+    private final StringBuilder out = new StringBuilder(4096);
+    private Section problemSection = new Section();
+    private Section[] areaSections = new Section[0];
+    private List<String> cachedProblems;
+    private LocalDate cachedDate;
+
+    /**
+     * Compiles and formats {@code snapshot} on the worker thread.
+     *
+     * @return The export-ready note; completes on the worker thread.
+     */
+    public CompletableFuture<String> compileAsync(Snapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        return CompletableFuture.supplyAsync(() -> compile(snapshot), worker);
+    }
+
+    /**
+     * Same result as {@code finalizeForEMR} of the problem list block and the de-duplicated, titled areas
+     * joined by a blank line. Not thread-safe; {@link #compileAsync(Snapshot)} runs it on the worker.
+     */
+    String compile(Snapshot snapshot) {
+        List<? extends CharSequence> texts = snapshot.areaTexts();
+        if (areaSections.length != texts.size()) {
+            areaSections = new Section[texts.size()];
+            for (int i = 0; i < areaSections.length; i++) areaSections[i] = new Section();
+        }
+
+        out.setLength(0);
+        int state = IAMTextFormatter.EXPORT;
+        boolean first = true;
+
+        if (!snapshot.problems().isEmpty()) {
+            if (!snapshot.problems().equals(cachedProblems) || !snapshot.date().equals(cachedDate)) {
+                problemSection = new Section();
+                problemSection.block = problemBlock(snapshot.problems(), snapshot.date());
+                cachedProblems = snapshot.problems();
+                cachedDate = snapshot.date();
+            }
+            state = problemSection.format(state, out);
+            first = false;
+        }
+
+        for (int i = 0; i < texts.size(); i++) {
+            Section section = areaSections[i];
+            section.updateSource(texts.get(i), i);
+            if (section.block.isEmpty()) continue;
+            if (!first) {
+                state = IAMTextFormatter.formatLines("", state, out); // The blank line between sections
+            }
+            state = section.format(state, out);
+            first = false;
+        }
+
+        String result = IAMTextFormatter.finish(out, true);
+        if (out.capacity() > 4 * result.length() + 4096) {
+            out.setLength(0);
+            out.trimToSize();
+        }
+        return result;
+    }
+
+    // ================================
+    // Sections
+    // ================================
+
+    /**
+     * One titled block of the note, with its formatted lines remembered for the line state they were
+     * formatted from.
+     */
+    private static final class Section {
+        private CharSequence source;
+        private String sourceText;
+        private String block = "";
+        private int entryState = -1;
+        private String formatted;
+        private int exitState;
+
+        void updateSource(CharSequence text, int areaIndex) {
+            CharSequence current = (text != null) ? text : "";
+            if (current == source) return;
+            source = current;
+            String value = current.toString();
+            if (value.equals(sourceText)) return;
+            sourceText = value;
+            String unique = IAMTextFormatUtil.getUniqueLines(value);
+            block = unique.isEmpty() ? "" : "# " + areaTitle(areaIndex) + "\n" + unique;
+            entryState = -1;
+        }
+
+        int format(int state, StringBuilder out) {
+            if (state != entryState) {
+                int mark = out.length();
+                exitState = IAMTextFormatter.formatLines(block, state, out);
+                formatted = out.substring(mark);
+                entryState = state;
+            } else {
+                out.append(formatted);
+            }
+            return exitState;
+        }
+    }
+
+    private static String problemBlock(List<String> problems, LocalDate date) {
+        StringBuilder problemBuilder = new StringBuilder("# Problem List (as of ")
+                .append(date.format(DateTimeFormatter.ISO_DATE))
+                .append(")\n");
+        problems.forEach(problem -> problemBuilder.append("- ").append(problem).append("\n"));
+        return problemBuilder.toString().trim();
+    }
+
+    /**
+     * Retrieves the title for a given text area index, without its trailing {@code >}.
+     */
+    static String areaTitle(int areaIndex) {
+        if (areaIndex >= IAMTextArea.TEXT_AREA_TITLES.length) return "Area " + (areaIndex + 1);
+        String title = IAMTextArea.TEXT_AREA_TITLES[areaIndex];
+        return title.endsWith(">") ? title.substring(0, title.length() - 1) : title;
+    }
+}
@@ -0,0 +1,222 @@
+package com.emr.gds.main;
+
+import com.emr.gds.IttiaApp;
+import com.emr.gds.encounter.Encounter;
+import com.emr.gds.encounter.EncounterContext;
+import com.emr.gds.encounter.EncounterRepository;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.Stage;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Patient window: chooses the current patient, saves the note as an encounter, and lists the patient's
+ * previous encounters so one can be loaded back into the areas.
+ * <p>
+ * The history comes from {@link EncounterRepository}; a patient opened recently is served from its cache
+ * without touching the database, and the list is always read off the FX thread.
+ */
+public class IAMEncounterHistory {
+
+    // ================================
+    // Constants
+    // ================================
+    private static final int HISTORY_SIZE = 20;
+    private static final DateTimeFormatter SAVED_AT_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final IttiaApp app;
+    private final EncounterRepository repository = EncounterRepository.shared();
+    private Stage stage;
+    private TextField patientField;
+    private ListView<Encounter> historyList;
+    private TextArea preview;
+    private Label status;
+
+    public IAMEncounterHistory(IttiaApp app) {
+        this.app = app;
+    }
+
+    /**
+     * Shows the window, or brings it to the front if it is already open.
+     */
+    public void show() {
+        if (stage == null) createWindow();
+        String current = EncounterContext.patientId();
+        if (current != null) {
+            patientField.setText(current);
+            refresh();
+        }
+        stage.show();
+        stage.toFront();
+    }
+
+    private void createWindow() {
+        stage = new Stage();
+        stage.setTitle("Patient Encounters");
+        stage.initOwner(app.getTextAreaManager().getTextAreas().get(0).getScene().getWindow());
+
+        patientField = new TextField();
+        patientField.setPromptText("Patient ID");
+        patientField.setOnAction(e -> openPatient());
+        Button openButton = new Button("Open");
+        openButton.setOnAction(e -> openPatient());
+        Button saveButton = new Button("Save Current Note");
+        saveButton.setOnAction(e -> saveCurrentNote());
+        HBox top = new HBox(8, new Label("Patient:"), patientField, openButton, saveButton);
+        HBox.setHgrow(patientField, Priority.ALWAYS);
+
+        historyList = new ListView<>();
+        historyList.setPrefWidth(260);
+        historyList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Encounter item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : describe(item));
+            }
+        });
+        historyList.getSelectionModel().selectedItemProperty().addListener(
+                (obs, oldValue, encounter) -> preview.setText(encounter == null ? "" : render(encounter)));
+        historyList.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) loadSelected();
+        });
+
+        preview = new TextArea();
+        preview.setEditable(false);
+        preview.setWrapText(true);
+
+        Button loadButton = new Button("Load Into Areas");
+        loadButton.setOnAction(e -> loadSelected());
+        status = new Label();
+        HBox bottom = new HBox(8, loadButton, status);
+
+        BorderPane root = new BorderPane();
+        root.setPadding(new Insets(10));
+        root.setTop(top);
+        root.setLeft(historyList);
+        root.setCenter(preview);
+        root.setBottom(bottom);
+        BorderPane.setMargin(historyList, new Insets(8, 8, 8, 0));
+        BorderPane.setMargin(preview, new Insets(8, 0, 8, 0));
+        stage.setScene(new Scene(root, 900, 600));
+    }
+
+    // ================================
+    // Actions
+    // ================================
+
+    private void openPatient() {
+        EncounterContext.setPatientId(patientField.getText());
+        refresh();
+    }
+
+    private void refresh() {
+        String patientId = EncounterContext.patientId();
+        historyList.getItems().clear();
+        preview.clear();
+        if (patientId == null) {
+            status.setText("Enter a patient ID.");
+            return;
+        }
+        status.setText("Loading...");
+        repository.lastEncountersAsync(patientId, HISTORY_SIZE).whenComplete((encounters, error) -> Platform.runLater(() -> {
+            if (!patientId.equals(EncounterContext.patientId())) return; // Another patient was opened meanwhile
+            if (error != null) {
+                status.setText("Failed to load history: " + cause(error).getMessage());
+                return;
+            }
+            historyList.getItems().setAll(encounters);
+            if (!encounters.isEmpty()) historyList.getSelectionModel().selectFirst();
+            status.setText(encounters.isEmpty() ? "No previous encounters." : encounters.size() + " encounter(s).");
+        }));
+    }
+
+    private void saveCurrentNote() {
+        EncounterContext.setPatientId(patientField.getText());
+        String patientId = EncounterContext.patientId();
+        if (patientId == null) {
+            status.setText("Enter a patient ID before saving.");
+            return;
+        }
+        List<String> sections = new ArrayList<>();
+        for (TextArea area : app.getTextAreaManager().getTextAreas()) sections.add(area.getText());
+        List<String> problems = List.copyOf(app.getProblemAction().getProblems());
+
+        repository.save(patientId, EncounterContext.encounterDate(), sections, problems)
+                .whenComplete((saved, error) -> Platform.runLater(() -> {
+                    if (error != null) {
+                        status.setText("Save failed: " + cause(error).getMessage());
+                        return;
+                    }
+                    IAMToast.show(stage.isShowing() ? stage : stage.getOwner(), "Encounter saved");
+                    if (patientId.equals(EncounterContext.patientId())) refresh();
+                }));
+    }
+
+    private void loadSelected() {
+        Encounter encounter = historyList.getSelectionModel().getSelectedItem();
+        if (encounter == null) return;
+        List<TextArea> areas = app.getTextAreaManager().getTextAreas();
+        boolean hasText = areas.stream().anyMatch(area -> !area.getText().isEmpty());
+        if (hasText) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                    "Replace the current note with the encounter of " + encounter.date() + "?",
+                    ButtonType.OK, ButtonType.CANCEL);
+            confirm.setHeaderText(null);
+            confirm.initOwner(stage);
+            if (confirm.showAndWait().filter(ButtonType.OK::equals).isEmpty()) return;
+        }
+        for (int i = 0; i < areas.size(); i++) {
+            areas.get(i).setText(encounter.section(i));
+        }
+        IAMToast.show(stage.getOwner(), "Loaded encounter of " + encounter.date());
+    }
+
+    // ================================
+    // Rendering
+    // ================================
+
+    private static String describe(Encounter encounter) {
+        String cc = encounter.section(0).strip();
+        int newline = cc.indexOf('\n');
+        if (newline >= 0) cc = cc.substring(0, newline);
+        return encounter.date() + " " + encounter.createdAt().format(SAVED_AT_FORMAT) + (cc.isEmpty() ? "" : "  " + cc);
+    }
+
+    private static String render(Encounter encounter) {
+        StringBuilder sb = new StringBuilder();
+        if (!encounter.problems().isEmpty()) {
+            sb.append("# Problem List\n");
+            encounter.problems().forEach(problem -> sb.append("- ").append(problem).append('\n'));
+        }
+        for (int i = 0; i < encounter.sections().size(); i++) {
+            String text = encounter.section(i);
+            if (text.isBlank()) continue;
+            if (!sb.isEmpty()) sb.append('\n');
+            sb.append("# ").append(IAMCopyAllPipeline.areaTitle(i)).append('\n').append(text.strip()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -115,7 +115,7 @@ public class IAMFunctionkey {
     }
 
     private void saveCurrentState() {
-        showInfoDialog("Save State", "Auto-save functionality will be implemented in a future version.");
+        mainApp.saveCurrentState();
     }
 
     private void showAllShortcuts() {
@@ -149,7 +149,7 @@ public class IAMFunctionkey {
             F6  - Format current text area
             F7  - Spell check current area (Not implemented)
             F8  - Toggle word wrap for all areas
-            F9  - Save current state (Not implemented)
+            F9  - Save current state (autosave snapshot)
             F10 - Show all keyboard shortcuts
             F11 - Toggle fullscreen mode
             F12 - Copy all content to clipboard
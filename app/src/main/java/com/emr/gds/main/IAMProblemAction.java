@@ -1,6 +1,10 @@
 package com.emr.gds.main;
 
 import com.emr.gds.IttiaApp;
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -11,14 +15,14 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.*;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Manages the Problem List and Scratchpad sections of the UI.
@@ -42,19 +46,30 @@ public class IAMProblemAction {
     // Instance Variables
     // ================================ 
     private final IttiaApp app;
-    private Connection dbConn;
+    private volatile SqliteDatabase problemsDb; // Set by loadAsync(); writes are ignored until then
     private final ObservableList<String> problems = FXCollections.observableArrayList();
     private ListView<String> problemList;
     private TextArea scratchpadArea;
-    private final LinkedHashMap<String, String> scratchpadEntries = new LinkedHashMap<>();
+
+    // --- Scratchpad model; patches are applied at most once per frame ---
+    private final IAMScratchpadModel scratchpadModel = new IAMScratchpadModel(IAMTextArea.TEXT_AREA_TITLES);
+    private final String[] pendingScratchpadEntries = new String[IAMTextArea.TEXT_AREA_TITLES.length];
+    private boolean scratchpadFlushScheduled = false;
+    private boolean scratchpadOutOfSync = false; // The user edited or cleared the scratchpad directly
+    private boolean applyingScratchpadPatch = false;
+    private final AnimationTimer scratchpadPulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            flushScratchpad();
+        }
+    };
 
     // ================================ 
     // Constructor
     // ================================ 
     public IAMProblemAction(IttiaApp app) {
         this.app = app;
-        initProblemListDatabase();
-        loadProblemsFromDb();
     }
 
     // ================================ 
@@ -62,19 +77,13 @@ public class IAMProblemAction {
     // ================================ 
 
     /**
-     * Initializes the connection to the 'prolist.db' SQLite database.
-     * Creates the database and table if they don't exist.
+     * Borrows the shared 'prolist.db' SQLite database.
+     * Creates the database and table on first use.
      */
     private void initProblemListDatabase() {
         try {
-            Class.forName("org.sqlite.JDBC");
-            Path db = dbPath();
-            Files.createDirectories(db.getParent());
-            String url = "jdbc:sqlite:" + db.toAbsolutePath();
-            System.out.println("[DB PATH] prolist -> " + db.toAbsolutePath());
-            this.dbConn = DriverManager.getConnection(url);
-            createProblemTable();
-        } catch (Exception e) {
+            this.problemsDb = DataSourceRegistry.shared().appDatabase(DataSourceRegistry.PROBLEMS_DB, this::createProblemTable);
+        } catch (SQLException e) {
             System.err.println("FATAL: Failed to initialize Problem List database: " + e.getMessage());
             throw new RuntimeException("Failed to open prolist.db", e);
         }
@@ -83,8 +92,8 @@ public class IAMProblemAction {
     /**
      * Creates the 'problems' table if it doesn't exist and populates it with default data on first run.
      */
-    private void createProblemTable() throws SQLException {
-        try (Statement stmt = dbConn.createStatement()) {
+    private void createProblemTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             stmt.execute("CREATE TABLE IF NOT EXISTS problems (id INTEGER PRIMARY KEY AUTOINCREMENT, problem_text TEXT NOT NULL UNIQUE)");
 
             // Check if the table is empty to add initial default data
@@ -100,58 +109,79 @@ public class IAMProblemAction {
     }
 
     /**
-     * Loads all problems from the database into the UI's ObservableList.
+     * Opens the database and reads the problem list on {@code executor}, then binds it to the UI.
+     * The returned future completes on the FX thread once the list is shown.
      */
-    private void loadProblemsFromDb() {
-        if (dbConn == null) return;
+    public CompletableFuture<Void> loadAsync(Executor executor) {
+        CompletableFuture<Void> bound = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> {
+            initProblemListDatabase();
+            return readProblemsFromDb();
+        }, executor).whenComplete((loaded, error) -> Platform.runLater(() -> {
+            if (error != null) {
+                bound.completeExceptionally(error);
+                return;
+            }
+            problems.setAll(loaded);
+            bound.complete(null);
+        }));
+        return bound;
+    }
 
-        problems.clear();
+    /**
+     * Reads all problems from the database, in insertion order.
+     */
+    private List<String> readProblemsFromDb() {
         String sql = "SELECT problem_text FROM problems ORDER BY id";
-
-        try (Statement stmt = dbConn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                problems.add(rs.getString("problem_text"));
-            }
+        try {
+            return problemsDb.query(sql, null, rs -> {
+                List<String> loaded = new ArrayList<>();
+                while (rs.next()) {
+                    loaded.add(rs.getString("problem_text"));
+                }
+                return loaded;
+            });
         } catch (SQLException e) {
             System.err.println("Failed to load problems from database: " + e.getMessage());
+            return List.of();
         }
     }
 
     /**
-     * Adds a new problem to the database and updates the UI.
+     * Queues a new problem for the database and adds it to the list once the write has committed.
      * @param problemText The problem to add.
      */
     private void addProblem(String problemText) {
-        if (dbConn == null || problemText == null || problemText.isBlank()) return;
+        if (problemsDb == null || problemText == null || problemText.isBlank()) return;
 
         String sql = "INSERT INTO problems(problem_text) VALUES(?)";
-        try (PreparedStatement pstmt = dbConn.prepareStatement(sql)) {
-            pstmt.setString(1, problemText);
-            if (pstmt.executeUpdate() > 0) {
-                Platform.runLater(() -> problems.add(problemText));
-            }
-        } catch (SQLException e) {
-            // This error is expected if the problem already exists due to the UNIQUE constraint.
-            System.err.println("Failed to add problem '" + problemText + "'. It might already exist. Details: " + e.getMessage());
-        }
+        WriteBehindQueue.shared().submit(problemsDb, sql, ps -> ps.setString(1, problemText))
+                .whenComplete((rows, error) -> {
+                    if (error != null) {
+                        // This error is expected if the problem already exists due to the UNIQUE constraint.
+                        System.err.println("Failed to add problem '" + problemText + "'. It might already exist. Details: " + error.getMessage());
+                    } else if (rows > 0) {
+                        Platform.runLater(() -> problems.add(problemText));
+                    }
+                });
     }
 
     /**
-     * Removes a selected problem from the database and updates the UI.
+     * Queues removal of a problem and removes it from the list once the write has committed.
      * @param problemText The problem to remove.
      */
     private void removeProblem(String problemText) {
-        if (dbConn == null || problemText == null) return;
+        if (problemsDb == null || problemText == null) return;
 
         String sql = "DELETE FROM problems WHERE problem_text = ?";
-        try (PreparedStatement pstmt = dbConn.prepareStatement(sql)) {
-            pstmt.setString(1, problemText);
-            if (pstmt.executeUpdate() > 0) {
-                Platform.runLater(() -> problems.remove(problemText));
-            }
-        } catch (SQLException e) {
-            System.err.println("Failed to remove problem '" + problemText + "': " + e.getMessage());
-        }
+        WriteBehindQueue.shared().submit(problemsDb, sql, ps -> ps.setString(1, problemText))
+                .whenComplete((rows, error) -> {
+                    if (error != null) {
+                        System.err.println("Failed to remove problem '" + problemText + "': " + error.getMessage());
+                    } else if (rows > 0) {
+                        Platform.runLater(() -> problems.remove(problemText));
+                    }
+                });
     }
 
     // ================================ 
@@ -172,6 +202,7 @@ public class IAMProblemAction {
 
         // --- Scratchpad Section ---
         scratchpadArea = createScratchpadTextArea();
+        redrawScratchpad(); // Show anything mirrored before the pane existed
 
         // --- Assemble the VBox ---
         VBox box = new VBox(
@@ -239,6 +270,9 @@ public class IAMProblemAction {
         textArea.setWrapText(true);
         textArea.setEditable(true);
         textArea.setPrefRowCount(SCRATCHPAD_ROWS);
+        textArea.textProperty().addListener((obs, oldV, newV) -> {
+            if (!applyingScratchpadPatch) scratchpadOutOfSync = true;
+        });
         return textArea;
     }
 
@@ -252,41 +286,83 @@ public class IAMProblemAction {
      * @param newText The new text content.
      */
     public void updateAndRedrawScratchpad(String title, String newText) {
-        String trimmedText = newText.trim();
-        if (trimmedText.isEmpty()) {
-            scratchpadEntries.remove(title);
-        } else {
-            // Replace newlines with a space and a tab for a more compact view
-            String singleLineText = trimmedText.replaceAll("\\s*\\R\\s*", " \n\t ");
-            scratchpadEntries.put(title, singleLineText);
+        updateScratchpadEntry(title, scratchpadEntry(newText));
+    }
+
+    /**
+     * Normalizes area text for the scratchpad. Pure function; safe to call off the FX thread.
+     */
+    public static String scratchpadEntry(String areaText) {
+        return IAMScratchpadModel.normalizeEntry(areaText != null ? areaText : "");
+    }
+
+    /**
+     * Records an already normalized entry (see {@link #scratchpadEntry(String)}).
+     * The scratchpad is patched on the next animation pulse, so any number of updates
+     * within one frame cost a single redraw.
+     */
+    public void updateScratchpadEntry(String title, String entry) {
+        int section = scratchpadModel.sectionOf(title);
+        if (section < 0) return;
+
+        pendingScratchpadEntries[section] = entry;
+        if (!scratchpadFlushScheduled) {
+            scratchpadFlushScheduled = true;
+            scratchpadPulse.start();
         }
-        redrawScratchpad();
     }
 
     /**
-     * Redraws the scratchpad with the latest content from all mirrored text areas.
+     * Applies all pending section changes to the scratchpad, patching only the changed spans.
      */
-    public void redrawScratchpad() {
-        if (scratchpadArea == null) return;
+    private void flushScratchpad() {
+        scratchpadFlushScheduled = false;
+        boolean changed = false;
 
-        List<String> orderedTitles = Arrays.asList(IAMTextArea.TEXT_AREA_TITLES);
-        StringJoiner sj = new StringJoiner("\n");
+        for (int i = 0; i < pendingScratchpadEntries.length; i++) {
+            String entry = pendingScratchpadEntries[i];
+            if (entry == null) continue;
+            pendingScratchpadEntries[i] = null;
 
-        for (String title : orderedTitles) {
-            String value = scratchpadEntries.get(title);
-            if (value != null && !value.isEmpty()) {
-                sj.add(title + " " + value);
-            }
+            IAMScratchpadModel.Patch patch = scratchpadModel.updateEntry(i, entry);
+            if (patch == null || scratchpadArea == null || scratchpadOutOfSync) continue;
+
+            applyScratchpadEdit(() -> scratchpadArea.replaceText(patch.start, patch.end, patch.text));
+            changed = true;
+        }
+
+        if (scratchpadOutOfSync) {
+            redrawScratchpad();
+        } else if (changed) {
+            scratchpadArea.positionCaret(scratchpadArea.getLength());
+            scratchpadArea.setScrollTop(Double.MAX_VALUE);
         }
+    }
 
-        String newContent = sj.toString();
+    /**
+     * Redraws the whole scratchpad from the model. Used when the scratchpad was edited by hand.
+     */
+    public void redrawScratchpad() {
+        if (scratchpadArea == null) return;
+
+        String newContent = scratchpadModel.render();
+        scratchpadOutOfSync = false;
         if (!scratchpadArea.getText().equals(newContent)) {
-            scratchpadArea.setText(newContent);
+            applyScratchpadEdit(() -> scratchpadArea.setText(newContent));
             scratchpadArea.positionCaret(scratchpadArea.getLength());
             scratchpadArea.setScrollTop(Double.MAX_VALUE);
         }
     }
 
+    private void applyScratchpadEdit(Runnable edit) {
+        applyingScratchpadPatch = true;
+        try {
+            edit.run();
+        } finally {
+            applyingScratchpadPatch = false;
+        }
+    }
+
     public void clearScratchpad() {
         if (scratchpadArea != null) {
             scratchpadArea.clear();
@@ -294,37 +370,10 @@ public class IAMProblemAction {
     }
 
     // ================================ 
-    // Public Getters and Cleanup
+    // Public Getters
     // ================================ 
 
     public ObservableList<String> getProblems() {
         return problems;
     }
-
-    /**
-     * Closes the database connection when the application shuts down.
-     */
-    public void closeDatabase() {
-        if (dbConn != null) {
-            try {
-                dbConn.close();
-                System.out.println("Problem list database connection closed.");
-            } catch (SQLException e) {
-                System.err.println("Error closing problem list database: " + e.getMessage());
-            }
-        }
-    }
-
-    // --- DB Helpers (Repo-tracked under app/db) ---
-    private static Path repoRoot() {
-        Path p = Paths.get("").toAbsolutePath();
-        while (p != null && !Files.exists(p.resolve("gradlew")) && !Files.exists(p.resolve(".git"))) {
-            p = p.getParent();
-        }
-        return (p != null) ? p : Paths.get("").toAbsolutePath();
-    }
-    
-    private static Path dbPath() {
-        return repoRoot().resolve("app").resolve("db").resolve("prolist.db");
-    }
 }
@@ -0,0 +1,218 @@
+package com.emr.gds.main;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Segment table behind the Scratchpad.
+ * <p>
+ * The scratchpad shows one line per non-empty section ({@code "<title> <text>"}), joined with {@code '\n'},
+ * in {@link IAMTextArea#TEXT_AREA_TITLES} order. The model keeps the rendered line of every section and the
+ * total document length, so a change to one section is turned into a single {@link Patch} covering only
+ * that section's span. Computing a patch costs O(section length + number of sections), independent of the
+ * rest of the note.
+ */
+final class IAMScratchpadModel {
+
+    /**
+     * Replace {@code [start, end)} of the current scratchpad text with {@code text}.
+     */
+    static final class Patch {
+        final int start;
+        final int end;
+        final String text;
+
+        Patch(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return "Patch[" + start + ", " + end + ") -> \"" + text + "\"";
+        }
+    }
+
+    private static final String LINE_BREAK_REPLACEMENT = " \n\t ";
+
+    private final String[] titles;
+    private final String[] lines; // rendered line per section, or null when the section is empty
+    private int length;
+
+    IAMScratchpadModel(String[] titles) {
+        this.titles = titles.clone();
+        this.lines = new String[titles.length];
+    }
+
+    // ================================
+    // Queries
+    // ================================
+
+    /**
+     * @return The section index for {@code title}, or -1 if the title is not mirrored.
+     */
+    int sectionOf(String title) {
+        for (int i = 0; i < titles.length; i++) {
+            if (titles[i].equals(title)) return i;
+        }
+        return -1;
+    }
+
+    int sectionCount() {
+        return titles.length;
+    }
+
+    /**
+     * @return The length of {@link #render()} without building it.
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Builds the full scratchpad text (used for the initial draw and to recover from user edits).
+     */
+    String render() {
+        StringJoiner sj = new StringJoiner("\n");
+        for (String line : lines) {
+            if (line != null) sj.add(line);
+        }
+        return sj.toString();
+    }
+
+    // ================================
+    // Updates
+    // ================================
+
+    /**
+     * Records the new content of a section.
+     *
+     * @param section  The section index (see {@link #sectionOf(String)}).
+     * @param areaText The raw text of the center text area.
+     * @return The patch to apply to the scratchpad, or {@code null} if its text does not change.
+     */
+    Patch update(int section, String areaText) {
+        return updateEntry(section, normalizeEntry(areaText));
+    }
+
+    /**
+     * Same as {@link #update(int, String)} for text already passed through {@link #normalizeEntry(String)}.
+     */
+    Patch updateEntry(int section, String entry) {
+        String newLine = entry.isEmpty() ? null : titles[section] + " " + entry;
+        String oldLine = lines[section];
+        if (oldLine == null ? newLine == null : oldLine.equals(newLine)) return null;
+
+        int offset = 0;
+        boolean hasBefore = false;
+        for (int i = 0; i < section; i++) {
+            if (lines[i] != null) {
+                offset += lines[i].length() + 1;
+                hasBefore = true;
+            }
+        }
+        boolean hasAfter = false;
+        for (int i = section + 1; i < lines.length && !hasAfter; i++) {
+            hasAfter = lines[i] != null;
+        }
+
+        Patch patch;
+        if (oldLine != null && newLine != null) {
+            patch = narrow(offset, oldLine, newLine);
+        } else if (newLine != null) {
+            if (hasAfter) patch = new Patch(offset, offset, newLine + "\n");
+            else if (hasBefore) patch = new Patch(offset - 1, offset - 1, "\n" + newLine);
+            else patch = new Patch(0, 0, newLine);
+        } else {
+            if (hasAfter) patch = new Patch(offset, offset + oldLine.length() + 1, "");
+            else if (hasBefore) patch = new Patch(offset - 1, offset + oldLine.length(), "");
+            else patch = new Patch(0, oldLine.length(), "");
+        }
+
+        lines[section] = newLine;
+        length += patch.text.length() - (patch.end - patch.start);
+        return patch;
+    }
+
+    /**
+     * Shrinks a line replacement to the span that actually differs, so typing patches a few characters.
+     */
+    private static Patch narrow(int offset, String oldLine, String newLine) {
+        int max = Math.min(oldLine.length(), newLine.length());
+        int prefix = 0;
+        while (prefix < max && oldLine.charAt(prefix) == newLine.charAt(prefix)) prefix++;
+        int suffix = 0;
+        while (suffix < max - prefix
+                && oldLine.charAt(oldLine.length() - 1 - suffix) == newLine.charAt(newLine.length() - 1 - suffix)) {
+            suffix++;
+        }
+        return new Patch(offset + prefix, offset + oldLine.length() - suffix,
+                newLine.substring(prefix, newLine.length() - suffix));
+    }
+
+    void clear() {
+        Arrays.fill(lines, null);
+        length = 0;
+    }
+
+    // ================================
+    // Normalization
+    // ================================
+
+    /**
+     * Trims {@code text} and folds every line break (with its surrounding whitespace) into {@code " \n\t "}.
+     * Equivalent to {@code text.trim().replaceAll("\\s*\\R\\s*", " \n\t ")} in a single pass.
+     */
+    static String normalizeEntry(String text) {
+        String s = text.trim();
+        int n = s.length();
+        StringBuilder out = null;
+        int copyFrom = 0;
+
+        int i = 0;
+        while (i < n) {
+            int runEnd = i;
+            boolean hasBreak = false;
+            while (runEnd < n && isWhitespace(s.charAt(runEnd))) {
+                hasBreak |= isWhitespaceBreak(s.charAt(runEnd));
+                runEnd++;
+            }
+
+            int matchEnd = -1;
+            if (runEnd < n && isOtherBreak(s.charAt(runEnd))) {
+                matchEnd = runEnd + 1;
+                while (matchEnd < n && isWhitespace(s.charAt(matchEnd))) matchEnd++;
+            } else if (hasBreak) {
+                matchEnd = runEnd;
+            }
+
+            if (matchEnd < 0) {
+                i = runEnd + 1;
+                continue;
+            }
+            if (out == null) out = new StringBuilder(n + 16);
+            out.append(s, copyFrom, i).append(LINE_BREAK_REPLACEMENT);
+            copyFrom = matchEnd;
+            i = matchEnd;
+        }
+
+        if (out == null) return s;
+        return out.append(s, copyFrom, n).toString();
+    }
+
+    /** Regex {@code \s}. */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Regex {@code \R} characters that are also {@code \s}. */
+    private static boolean isWhitespaceBreak(char c) {
+        return c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Regex {@code \R} characters that are not {@code \s}. */
+    private static boolean isOtherBreak(char c) {
+        return c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,55 @@
+package com.emr.gds.main;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-phase startup log, measured from JVM launch.
+ * <p>
+ * Each {@link #mark} prints one line with the time since launch and since the previous mark, e.g.
+ * {@code [STARTUP] +  412 ms (+  35 ms) window shown [JavaFX Application Thread]}. Modules that are only
+ * loaded on demand go through {@link #firstUse}, which also logs how long their first open took,
+ * so deferred class loading stays visible. Thread-safe.
+ */
+public final class IAMStartupTimeline {
+
+    private static final IAMStartupTimeline SHARED = new IAMStartupTimeline();
+
+    private final long originNanos;
+    private long lastNanos;
+    private final Set<String> usedModules = ConcurrentHashMap.newKeySet();
+
+    private IAMStartupTimeline() {
+        long sinceLaunchMillis = Math.max(0, System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+        this.originNanos = System.nanoTime() - sinceLaunchMillis * 1_000_000L;
+        this.lastNanos = originNanos;
+    }
+
+    public static IAMStartupTimeline shared() {
+        return SHARED;
+    }
+
+    /**
+     * Logs that {@code phase} has just finished.
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        System.out.printf("[STARTUP] +%5d ms (+%4d ms) %s [%s]%n",
+                (now - originNanos) / 1_000_000, (now - lastNanos) / 1_000_000, phase, Thread.currentThread().getName());
+        lastNanos = now;
+    }
+
+    /**
+     * Runs {@code open}; the first time a given module is opened, logs how long it took.
+     */
+    public void firstUse(String module, Runnable open) {
+        if (!usedModules.add(module)) {
+            open.run();
+            return;
+        }
+        long start = System.nanoTime();
+        open.run();
+        System.out.printf("[STARTUP] first open of %s took %d ms%n", module, (System.nanoTime() - start) / 1_000_000);
+    }
+}
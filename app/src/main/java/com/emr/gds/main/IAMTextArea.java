@@ -1,5 +1,12 @@
 package com.emr.gds.main;
 
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.abbrev.AbbreviationSuggester;
+import com.emr.gds.abbrev.AbbreviationTrigger;
+import com.emr.gds.abbrev.AbbreviationUsage;
+import com.emr.gds.document.Rope;
+import com.emr.gds.document.SectionDocument;
 import com.emr.gds.input.IAIFxTextAreaManager;
 import com.emr.gds.input.IAIMain;
 import com.emr.gds.input.IAITextAreaManager;
@@ -7,10 +14,13 @@ import com.emr.gds.soap.ChiefComplaintEditor;
 import com.emr.gds.soap.EMRPMH;
 import com.emr.gds.soap.IMSPresentIllness;
 import com.emr.gds.soap.IMSFollowUp.PlanFollowupAction;
+import com.emr.gds.template.TemplateLayout;
+import com.emr.gds.usage.UsageCounters;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextFormatter;
+import javafx.scene.control.TextInputControl;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
@@ -18,18 +28,17 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.text.Font;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.UnaryOperator;
 
 /**
  * Manages the central text areas in the EMR application, providing features like:
  * - Consistent and readable styling for focus, hover, and unfocused states.
- * - Automatic abbreviation expansion (e.g., ":key").
+ * - Automatic abbreviation expansion (e.g., ":key"), with an autocomplete popup while a key is typed.
  * - Section-specific double-click handlers for specialized editors.
  * - Methods for template parsing and insertion.
+ * Each area is mirrored by a {@link SectionDocument}; derived views read its rope and change deltas
+ * instead of copying the area's text.
  */
 public class IAMTextArea {
 
@@ -86,8 +95,12 @@ public class IAMTextArea {
     // Instance Variables
     // ================================ 
     private final List<TextArea> areas = new ArrayList<>(10);
+    private final List<SectionDocument> documents = new ArrayList<>(10);
     private TextArea lastFocusedArea = null;
-    private final Map<String, String> abbrevMap;
+    private final AbbreviationRepository abbreviations;
+    private final AbbreviationExpander expander;
+    private final AbbreviationTrigger trigger;
+    private final AbbreviationSuggester suggester;
     private final IAMProblemAction problemAction;
     private final Map<Integer, TextAreaDoubleClickHandler> doubleClickHandlers = new HashMap<>();
 
@@ -99,8 +112,11 @@ public class IAMTextArea {
     // ================================ 
     // Constructor
     // ================================ 
-    public IAMTextArea(Map<String, String> abbrevMap, IAMProblemAction problemAction) {
-        this.abbrevMap = Objects.requireNonNull(abbrevMap, "abbrevMap");
+    public IAMTextArea(AbbreviationRepository abbreviations, IAMProblemAction problemAction) {
+        this.abbreviations = Objects.requireNonNull(abbreviations, "abbreviations");
+        this.expander = new AbbreviationExpander(abbreviations);
+        this.trigger = new AbbreviationTrigger(expander);
+        this.suggester = new AbbreviationSuggester(abbreviations, AbbreviationUsage.shared());
         this.problemAction = Objects.requireNonNull(problemAction, "problemAction");
         initializeDoubleClickHandlers();
         initializeTextAreas();
@@ -131,17 +147,22 @@ public class IAMTextArea {
      */
     private void initializeTextAreas() {
         areas.clear();
+        documents.clear();
         for (int i = 0; i < 10; i++) {
             final int idx = i;
             TextArea ta = createStyledTextArea(i);
+            SectionDocument doc = new SectionDocument(idx);
+            bindDocument(ta, doc);
 
             // Add listeners for focus, hover, and input events
             addFocusAndHoverListeners(ta);
-            addScratchpadListener(ta, idx);
-            addAbbreviationExpansionListener(ta);
+            addScratchpadListener(doc, idx);
+            addAbbreviationExpansionListener(ta, doc);
+            IAMAbbreviationPopup.attach(ta, doc, suggester);
             addDoubleClickListener(ta, idx);
 
             areas.add(ta);
+            documents.add(doc);
         }
     }
 
@@ -156,10 +177,61 @@ public class IAMTextArea {
         ta.setPrefColumnCount(58);
         ta.setPromptText(index < TEXT_AREA_TITLES.length ? TEXT_AREA_TITLES[index] : "Area " + (index + 1));
         ta.setStyle(STYLE_UNFOCUSED);
-        ta.setTextFormatter(new TextFormatter<>(IAMTextFormatUtil.filterControlChars()));
         return ta;
     }
 
+    /**
+     * Keeps {@code doc} in line with {@code ta}. The formatter filter sees the exact range of every edit
+     * and an invalidation listener applies it to the document once it is committed, reading only the
+     * length and the inserted range back; a change listener would build the whole text on every keystroke.
+     * A change that did not come through the filter is found by comparing the texts.
+     */
+    private void bindDocument(TextArea ta, SectionDocument doc) {
+        DocumentBinding binding = new DocumentBinding(doc);
+        UnaryOperator<TextFormatter.Change> controlChars = IAMTextFormatUtil.filterControlChars();
+        ta.setTextFormatter(new TextFormatter<>(change -> binding.filtered(controlChars.apply(change))));
+        ta.textProperty().addListener(obs -> binding.committed(ta));
+    }
+
+    /**
+     * The edit the filter last accepted for one area, waiting for the text property to commit it.
+     */
+    private static final class DocumentBinding {
+        private final SectionDocument doc;
+        private boolean pending;
+        private int start;
+        private int end;
+        private String text;
+
+        DocumentBinding(SectionDocument doc) {
+            this.doc = doc;
+        }
+
+        TextFormatter.Change filtered(TextFormatter.Change change) {
+            pending = change != null && change.isContentChange();
+            if (pending) {
+                start = change.getRangeStart();
+                end = change.getRangeEnd();
+                text = change.getText() != null ? change.getText() : "";
+            }
+            return change;
+        }
+
+        void committed(TextInputControl control) {
+            boolean exact = pending
+                    && end <= doc.length()
+                    && control.getLength() == doc.length() - (end - start) + text.length()
+                    && control.getText(start, start + text.length()).equals(text);
+            pending = false;
+            if (exact) {
+                doc.replace(start, end, text);
+            } else {
+                doc.sync(control.getText());
+            }
+            text = null;
+        }
+    }
+
     // ================================ 
     // UI Builders
     // ================================ 
@@ -199,17 +271,24 @@ public class IAMTextArea {
         });
     }
 
-    private void addScratchpadListener(TextArea ta, int idx) {
+    /**
+     * The snapshot handed to the pipeline is the document's rope, so the FX thread copies nothing;
+     * the section is turned into a string on the pipeline thread.
+     */
+    private void addScratchpadListener(SectionDocument doc, int idx) {
         if (idx < TEXT_AREA_TITLES.length) {
-            ta.textProperty().addListener((o, oldV, newV) -> 
-                    problemAction.updateAndRedrawScratchpad(TEXT_AREA_TITLES[idx], newV));
+            String title = TEXT_AREA_TITLES[idx];
+            IAMTextChangePipeline.Channel<Rope, String> channel = IAMTextChangePipeline.shared().channel(doc::text,
+                    text -> IAMProblemAction.scratchpadEntry(text.toString()),
+                    entry -> problemAction.updateScratchpadEntry(title, entry));
+            doc.addListener(delta -> channel.changed());
         }
     }
 
-    private void addAbbreviationExpansionListener(TextArea ta) {
+    private void addAbbreviationExpansionListener(TextArea ta, SectionDocument doc) {
         ta.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
             if (event.getCode() == KeyCode.SPACE) {
-                if (expandAbbreviationOnSpace(ta)) event.consume();
+                if (expandAbbreviationOnSpace(ta, doc)) event.consume();
             }
         });
     }
@@ -241,7 +320,7 @@ public class IAMTextArea {
 
     private void executeChiefComplaintHandler(TextArea textArea, int index) {
         try {
-            new ChiefComplaintEditor(textArea).showAndWait();
+            new ChiefComplaintEditor(textArea, abbreviations).showAndWait();
         } catch (Exception e) {
             handleEditorException("Chief Complaint", textArea, index, e);
         }
@@ -249,7 +328,7 @@ public class IAMTextArea {
 
     private void executePresentIllnessHandler(TextArea textArea, int index) {
         try {
-            new IMSPresentIllness(textArea).showAndWait();
+            new IMSPresentIllness(textArea, abbreviations).showAndWait();
         } catch (Exception e) {
             handleEditorException("Present Illness", textArea, index, e);
         }
@@ -261,7 +340,7 @@ public class IAMTextArea {
 
     private void executePastMedicalHistoryHandler(TextArea textArea, int index) {
         try {
-        	new EMRPMH(IAIMain.getTextAreaManager(), textArea, abbrevMap).showDialog();
+        	new EMRPMH(IAIMain.getTextAreaManager(), textArea, abbreviations).showDialog();
         } catch (Exception e) {
             handleEditorException("Past Medical History", textArea, index, e);
         }
@@ -285,7 +364,7 @@ public class IAMTextArea {
 
     private void executePlanHandler(TextArea textArea, int index) {
         try {
-            new PlanFollowupAction(IAIMain.getTextAreaManager(), problemAction).showAndWait();
+            new PlanFollowupAction(IAIMain.getTextAreaManager(), problemAction, abbreviations).showAndWait();
         } catch (Exception e) {
             handleEditorException("Plan & Follow-up Assistant", textArea, index, e);
         }
@@ -331,6 +410,7 @@ public class IAMTextArea {
     // ================================ 
 
     public void insertTemplateIntoFocusedArea(IAMButtonAction.TemplateLibrary t) {
+        UsageCounters.shared().increment(UsageCounters.Kind.TEMPLATE, t.name());
         insertBlockIntoFocusedArea(t.body());
     }
 
@@ -340,15 +420,27 @@ public class IAMTextArea {
 
     public void insertBlockIntoFocusedArea(String block) {
         Optional.ofNullable(getFocusedArea()).ifPresent(ta -> {
-            String expandedBlock = expandAbbreviations(block);
+            String expandedBlock = expander.expand(block);
             ta.insertText(ta.getCaretPosition(), expandedBlock);
             Platform.runLater(ta::requestFocus);
         });
     }
 
+    /**
+     * Formats the focused area and writes back only the span that changed, so the caret outside it and
+     * the document listeners see one small edit instead of a replaced section.
+     */
     public void formatCurrentArea() {
-        Optional.ofNullable(getFocusedArea()).ifPresent(ta ->
-                ta.setText(IAMTextFormatUtil.autoFormat(ta.getText())));
+        Optional.ofNullable(getFocusedArea()).ifPresent(ta -> {
+            int index = areas.indexOf(ta);
+            if (index < 0) return;
+            Rope text = documents.get(index).text();
+            String formatted = IAMTextFormatUtil.autoFormat(text.toString());
+            SectionDocument.Difference d = SectionDocument.difference(text, formatted);
+            if (d != null) {
+                ta.replaceText(d.start(), d.removedEnd(), formatted.substring(d.start(), d.insertedEnd()));
+            }
+        });
     }
 
     public void clearAllTextAreas() {
@@ -356,95 +448,43 @@ public class IAMTextArea {
     }
 
     /**
-     * Parses a multi-section template and appends the content to the corresponding text areas.
+     * Appends each section of a compiled template to its area, expanding abbreviations in the section.
+     * The layout was parsed when the template was saved, so this is one append per non-empty section.
      */
-    public void parseAndAppendTemplate(String templateContent) {
-        if (templateContent == null || templateContent.isBlank()) return;
-
-        String expandedContent = expandAbbreviations(templateContent);
-
-        Map<String, TextArea> areaMap = new HashMap<>();
-        for (int i = 0; i < TEXT_AREA_TITLES.length && i < areas.size(); i++) {
-            areaMap.put(TEXT_AREA_TITLES[i], areas.get(i));
-        }
-
-        // Regex to split the content by section titles
-        String patternString = "(?=(" + String.join("|", TEXT_AREA_TITLES)
-                .replace(">", "\\>")
-                .replace(" ", "\\s") + "))";
-        Pattern pattern = Pattern.compile(patternString);
-        String[] parts = pattern.split(expandedContent);
-
-        int sectionsLoaded = 0;
-        for (String part : parts) {
-            String p = part.trim();
-            if (p.isEmpty()) continue;
-
-            for (String title : TEXT_AREA_TITLES) {
-                if (p.startsWith(title)) {
-                    TextArea target = areaMap.get(title);
-                    if (target != null) {
-                        String body = p.substring(title.length()).trim();
-                        if (!body.isEmpty()) {
-                            target.setText(target.getText().isBlank() ? body : target.getText() + "\n" + body);
-                            sectionsLoaded++;
-                        }
-                    }
-                    break;
-                }
+    public void appendTemplate(TemplateLayout layout) {
+        if (layout == null) return;
+        for (int i = 0; i < layout.sectionCount() && i < areas.size(); i++) {
+            String section = layout.section(i);
+            if (section.isEmpty()) continue;
+            String body = expander.expand(section).trim();
+            if (body.isEmpty()) continue;
+
+            TextArea target = areas.get(i);
+            if (documents.get(i).text().isBlank()) {
+                target.setText(body);
+            } else {
+                target.appendText("\n" + body);
             }
         }
-
-        // If no sections were matched, insert the whole block into the focused area
-        if (sectionsLoaded == 0) {
-            insertBlockIntoFocusedArea(expandedContent);
-        }
     }
 
     // ================================ 
     // Abbreviation Expansion
     // ================================ 
 
-    private boolean expandAbbreviationOnSpace(TextArea ta) {
+    /**
+     * Looks for a {@code :key} before the caret in the area's document, reading only the token itself.
+     */
+    private boolean expandAbbreviationOnSpace(TextArea ta, SectionDocument doc) {
         int caret = ta.getCaretPosition();
-        String upToCaret = ta.getText(0, caret);
-        int start = Math.max(upToCaret.lastIndexOf(' '), upToCaret.lastIndexOf('\n')) + 1;
-
-        String word = upToCaret.substring(start).trim();
-        if (!word.startsWith(":")) return false;
-
-        String key = word.substring(1);
-        String replacement = getAbbreviationReplacement(key);
-        if (replacement == null) return false;
+        AbbreviationTrigger.Match match = trigger.find(doc.text(), caret);
+        if (match == null) return false;
 
-        Platform.runLater(() -> {
-            ta.deleteText(start, caret);
-            ta.insertText(start, replacement + " ");
-        });
+        suggester.accepted(doc.text().substring(match.start() + 1, match.end()));
+        Platform.runLater(() -> ta.replaceText(match.start(), match.end(), match.replacement() + " "));
         return true;
     }
 
-    private String expandAbbreviations(String text) {
-        StringBuilder out = new StringBuilder();
-        Pattern abbrevPattern = Pattern.compile(":([\\S]+)");
-        Matcher matcher = abbrevPattern.matcher(text);
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            String replacement = getAbbreviationReplacement(key);
-            matcher.appendReplacement(out, replacement != null ? Matcher.quoteReplacement(replacement) : matcher.group(0));
-        }
-        matcher.appendTail(out);
-        return out.toString();
-    }
-
-    private String getAbbreviationReplacement(String key) {
-        if ("cd".equalsIgnoreCase(key)) {
-            return LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-        }
-        return abbrevMap.get(key);
-    }
-
     // ================================ 
     // Getters and Helpers
     // ================================ 
@@ -465,6 +505,13 @@ public class IAMTextArea {
         return Collections.unmodifiableList(this.areas);
     }
 
+    /**
+     * @return The document of each area, in {@link #TEXT_AREA_TITLES} order.
+     */
+    public List<SectionDocument> getDocuments() {
+        return Collections.unmodifiableList(documents);
+    }
+
     private void showErrorAlert(String title, String header, String content) {
         Platform.runLater(() -> {
             Alert errorAlert = new Alert(Alert.AlertType.ERROR);
@@ -0,0 +1,188 @@
+package com.emr.gds.main;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared pipeline for views derived from editable text (scratchpad, previews, live summaries).
+ * <p>
+ * Each {@link Channel} debounces its own changes: the FX thread only captures an immutable snapshot,
+ * the derived view is computed on a background thread once the debounce window has passed, and only
+ * the result of the latest change is published back through {@link Platform#runLater(Runnable)}.
+ * Continuous typing is bounded by a maximum delay, so the derived view never falls too far behind.
+ * <p>
+ * The debounce window defaults to {@value #DEFAULT_DEBOUNCE_MS} ms and can be changed with the
+ * {@code gdsemr.text.debounceMs} system property.
+ */
+public final class IAMTextChangePipeline {
+
+    // ================================
+    // Constants
+    // ================================
+    public static final long DEFAULT_DEBOUNCE_MS = 80;
+    private static final int MAX_DELAY_FACTOR = 4;
+
+    private static final IAMTextChangePipeline SHARED =
+            new IAMTextChangePipeline(Long.getLong("gdsemr.text.debounceMs", DEFAULT_DEBOUNCE_MS));
+
+    // ================================
+    // Instance Variables
+    // ================================
+    private final long debounceMillis;
+    private final ScheduledExecutorService executor;
+
+    public IAMTextChangePipeline(long debounceMillis) {
+        this("text-change-pipeline", debounceMillis);
+    }
+
+    /**
+     * A pipeline with its own worker thread, for channels whose work (e.g. a database query) must not
+     * hold up the shared text views.
+     */
+    public IAMTextChangePipeline(String threadName, long debounceMillis) {
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static IAMTextChangePipeline shared() {
+        return SHARED;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    // ================================
+    // Channels
+    // ================================
+
+    /**
+     * Creates a channel; call {@link Channel#changed()} on the FX thread whenever the source changes.
+     *
+     * @param snapshot Captures the source state on the FX thread. Must be cheap and return immutable data.
+     * @param compute  Derives the view from a snapshot on the background thread.
+     * @param publish  Applies the derived view on the FX thread.
+     */
+    public <S, R> Channel<S, R> channel(Supplier<S> snapshot, Function<S, R> compute, Consumer<R> publish) {
+        return new Channel<>(snapshot, compute, publish);
+    }
+
+    /**
+     * Convenience for a single observable value (e.g., a {@code TextArea}'s text property).
+     * The listener is attached immediately; the returned channel can be used to detach it.
+     */
+    public <T, R> Channel<T, R> watch(ObservableValue<T> source, Function<T, R> compute, Consumer<R> publish) {
+        Channel<T, R> channel = new Channel<>(source::getValue, compute, publish);
+        channel.attach(source);
+        return channel;
+    }
+
+    /**
+     * One debounced source-to-view binding. All public methods are called on the FX thread.
+     */
+    public final class Channel<S, R> {
+        private final Supplier<S> snapshot;
+        private final Function<S, R> compute;
+        private final Consumer<R> publish;
+
+        private final AtomicLong generation = new AtomicLong();
+        private volatile S latest;
+        private ScheduledFuture<?> pending;
+        private long firstPendingNanos;
+
+        private ObservableValue<?> attachedTo;
+        private ChangeListener<Object> listener;
+
+        private Channel(Supplier<S> snapshot, Function<S, R> compute, Consumer<R> publish) {
+            this.snapshot = Objects.requireNonNull(snapshot, "snapshot");
+            this.compute = Objects.requireNonNull(compute, "compute");
+            this.publish = Objects.requireNonNull(publish, "publish");
+        }
+
+        /**
+         * Records a change of the source and (re)starts the debounce window.
+         */
+        public void changed() {
+            latest = snapshot.get();
+            generation.incrementAndGet();
+            reschedule(debounceMillis);
+        }
+
+        /**
+         * Recomputes without waiting for the debounce window (e.g., for the initial state of a dialog).
+         */
+        public void flush() {
+            latest = snapshot.get();
+            generation.incrementAndGet();
+            reschedule(0);
+        }
+
+        /**
+         * Drops any pending computation and detaches from the observed source.
+         */
+        public void cancel() {
+            generation.incrementAndGet();
+            synchronized (this) {
+                if (pending != null) pending.cancel(false);
+                pending = null;
+            }
+            if (attachedTo != null) {
+                attachedTo.removeListener(listener);
+                attachedTo = null;
+            }
+        }
+
+        private void attach(ObservableValue<?> source) {
+            listener = (obs, oldV, newV) -> changed();
+            source.addListener(listener);
+            attachedTo = source;
+        }
+
+        private synchronized void reschedule(long delayMillis) {
+            long now = System.nanoTime();
+            boolean idle = pending == null || pending.isDone();
+            if (idle) {
+                firstPendingNanos = now;
+            } else if (delayMillis > 0
+                    && now - firstPendingNanos >= TimeUnit.MILLISECONDS.toNanos(debounceMillis * MAX_DELAY_FACTOR)) {
+                return; // Keep the scheduled run; it will pick up the latest snapshot
+            } else {
+                pending.cancel(false);
+            }
+            pending = executor.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void run() {
+            synchronized (this) {
+                pending = null; // Changes from now on schedule a fresh run
+            }
+            long gen = generation.get();
+            S input = latest;
+            R result;
+            try {
+                result = compute.apply(input);
+            } catch (RuntimeException e) {
+                System.err.println("Derived view computation failed: " + e.getMessage());
+                return;
+            }
+            Platform.runLater(() -> {
+                if (generation.get() == gen) publish.accept(result);
+            });
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package com.emr.gds.main;
 
 import javafx.scene.control.TextFormatter;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
 
 /**
  * Utility class for text formatting and manipulation operations.
@@ -20,6 +19,9 @@ public final class IAMTextFormatUtil {
      */
     private IAMTextFormatUtil() {}
 
+    /** Single-pass formatter with a reusable buffer, one per thread (Auto Format runs on the FX thread). */
+    private static final ThreadLocal<IAMTextFormatter> FORMATTER = ThreadLocal.withInitial(IAMTextFormatter::new);
+
     // ================================ 
     // Basic String Normalization
     // ================================
@@ -48,12 +50,25 @@ public final class IAMTextFormatUtil {
         if (text == null || text.isBlank()) {
             return "";
         }
-        return text.lines()
-                   .map(String::trim)
-                   .filter(line -> !line.isEmpty())
-                   .collect(Collectors.toCollection(LinkedHashSet::new))
-                   .stream()
-                   .collect(Collectors.joining("\n"));
+        Set<String> seen = new HashSet<>();
+        StringBuilder out = new StringBuilder(text.length());
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            // Same line terminators as String.lines(): \n, \r and \r\n
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') lineEnd++;
+            String line = text.substring(lineStart, lineEnd).trim();
+            if (!line.isEmpty() && seen.add(line)) {
+                if (out.length() > 0) out.append('\n');
+                out.append(line);
+            }
+            lineStart = lineEnd + 1;
+            if (lineEnd < length && text.charAt(lineEnd) == '\r' && lineStart < length && text.charAt(lineStart) == '\n') {
+                lineStart++;
+            }
+        }
+        return out.toString();
     }
 
     // ================================ 
@@ -91,43 +106,19 @@ public final class IAMTextFormatUtil {
      *   <li>Collapses multiple consecutive blank lines into a single blank line.</li>
      *   <li>Trims trailing whitespace from each line.</li>
      * </ul>
+     * Runs in a single pass without regexes; see {@link IAMTextFormatter}.
      *
      * @param raw The unprocessed input text.
      * @return A cleaned and consistently formatted version of the text.
      */
     public static String autoFormat(String raw) {
-        if (raw == null || raw.isBlank()) return "";
-
-        StringBuilder out = new StringBuilder();
-        boolean lastLineWasBlank = false;
-
-        for (String line : raw.replace("\r", "").split("\n")) {
-            String trimmedLine = line.strip();
-
-            if (trimmedLine.isEmpty()) {
-                if (!lastLineWasBlank) {
-                    out.append("\n");
-                    lastLineWasBlank = true;
-                }
-            } else {
-                // Standardize bullet points
-                String formattedLine = trimmedLine.replaceAll("^[•·→▶▷‣⦿∘*]+\\s*", "- ");
-                // Standardize hyphens used as bullets
-                if (formattedLine.matches("^[-]{1,2}\\s*.*") && !formattedLine.startsWith("- ")) {
-                    formattedLine = formattedLine.replaceAll("^[-]{1,2}\\s*", "- ");
-                }
-
-                out.append(formattedLine).append("\n");
-                lastLineWasBlank = false;
-            }
-        }
-        return out.toString().strip();
+        return FORMATTER.get().autoFormat(raw);
     }
 
     /**
      * Finalizes a block of text for EMR export by ensuring it meets specific formatting standards.
      * <ul>
-     *   <li>Ensures headers follow a Markdown-like style (e.g., "# Header").</li>
+     *   <li>Ensures a leading header follows a Markdown-like style (e.g., "# Header").</li>
      *   <li>Guarantees a single blank line between sections.</li>
      *   <li>Trims any leading or trailing whitespace from the final block.</li>
      * </ul>
@@ -136,11 +127,6 @@ public final class IAMTextFormatUtil {
      * @return A clean, export-ready string.
      */
     public static String finalizeForEMR(String raw) {
-        String formatted = autoFormat(raw);
-        // Ensure headers have a space after the # symbol (e.g., #Header -> # Header)
-        formatted = formatted.replaceAll("^(#+)([^#\\s\\n])", "$1 $2");
-        // Collapse more than two newlines into exactly two, ensuring a single blank line between paragraphs
-        formatted = formatted.replaceAll("\\n{3,}", "\\n\\n");
-        return formatted.trim();
+        return FORMATTER.get().finalizeForEMR(raw);
     }
 }
@@ -0,0 +1,211 @@
+package com.emr.gds.main;
+
+/**
+ * Single-pass formatter behind {@link IAMTextFormatUtil#autoFormat(String)} and
+ * {@link IAMTextFormatUtil#finalizeForEMR(String)}.
+ * <p>
+ * The input is walked once, line by line, without splitting it or running any regex. Each line is
+ * stripped in place, its leading bullet or hyphen is rewritten as it is copied, runs of blank lines
+ * collapse into one, and the result is built in a scratch buffer that is reused between calls.
+ * The output is identical to the former regex implementation, character for character:
+ * <ul>
+ *   <li>{@code \r} is dropped wherever it occurs.</li>
+ *   <li>A leading run of {@code • · → ▶ ▷ ‣ ⦿ ∘ *} and the ASCII whitespace after it become {@code "- "}.</li>
+ *   <li>A leading {@code -} or {@code --} and the ASCII whitespace after it become {@code "- "}, unless the
+ *       line already starts with {@code "- "} or contains a regex line terminator
+ *       ({@code U+0085}, {@code U+2028}, {@code U+2029}).</li>
+ *   <li>For export only the first line of the note is a header candidate: {@code #Header} gets a space
+ *       after its {@code #} run. The old {@code ^} anchor never matched later lines.</li>
+ * </ul>
+ * Instances hold a scratch buffer and are therefore not thread-safe; {@link IAMTextFormatUtil} keeps one
+ * per thread.
+ */
+final class IAMTextFormatter {
+
+    /** Line state: formatting for export, so the first line may be a header. */
+    static final int EXPORT = 1;
+    /** Line state: the last line was blank (or the text has not started yet, for a following piece). */
+    static final int BLANK = 2;
+    /** Line state: a non-blank line has been written. */
+    private static final int STARTED = 4;
+
+    /** Buffers grown past this by a very large note are dropped instead of being kept for reuse. */
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private StringBuilder buffer = new StringBuilder(1024);
+
+    /**
+     * Same result as {@link IAMTextFormatUtil#autoFormat(String)}.
+     */
+    String autoFormat(String raw) {
+        return format(raw, false);
+    }
+
+    /**
+     * Same result as {@link IAMTextFormatUtil#finalizeForEMR(String)}.
+     */
+    String finalizeForEMR(String raw) {
+        return format(raw, true);
+    }
+
+    private String format(String raw, boolean forExport) {
+        if (raw == null) return "";
+        StringBuilder out = buffer;
+        out.setLength(0);
+        out.ensureCapacity(raw.length());
+        formatLines(raw, forExport ? EXPORT : 0, out);
+        String result = finish(out, forExport);
+        if (out.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder(1024);
+        }
+        return result;
+    }
+
+    // ================================
+    // Segments
+    // ================================
+
+    /**
+     * Appends the formatted lines of {@code raw} to {@code out}, starting from {@code state}, and returns the
+     * state after its last line. Text is formatted piece by piece by passing each returned state on: for
+     * pieces joined with {@code "\n\n"}, format the empty line in between as {@code formatLines("", state, out)}.
+     * {@link #finish(StringBuilder, boolean)} then gives the same result as formatting the joined text, which
+     * lets Copy All reuse the formatted lines of sections that did not change.
+     *
+     * @param state {@code 0}, or {@link #EXPORT} for {@code finalizeForEMR}, at the start of a text;
+     *              otherwise the state returned for the previous piece.
+     */
+    static int formatLines(CharSequence raw, int state, StringBuilder out) {
+        int length = raw.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = indexOfNewline(raw, lineStart, length);
+
+            // strip(); \r is whitespace, so stripping before dropping it gives the same line
+            int s = lineStart;
+            int e = lineEnd;
+            while (s < e && Character.isWhitespace(raw.charAt(s))) s++;
+            while (e > s && Character.isWhitespace(raw.charAt(e - 1))) e--;
+
+            if (s == e) {
+                if ((state & BLANK) == 0) {
+                    out.append('\n');
+                    state |= BLANK;
+                }
+            } else {
+                appendLine(raw, s, e, out, (state & (EXPORT | STARTED)) == EXPORT);
+                out.append('\n');
+                state = (state & ~BLANK) | STARTED;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return state;
+    }
+
+    /**
+     * Extracts the result from lines collected by {@link #formatLines(CharSequence, int, StringBuilder)}:
+     * {@code strip()} of the whole block, then {@code trim()} for export. Formatted lines never leave more
+     * than two newlines in a row, so the old "\n{3,}" collapse had nothing to do and is not repeated here.
+     */
+    static String finish(StringBuilder out, boolean forExport) {
+        int from = 0;
+        int to = out.length();
+        while (from < to && Character.isWhitespace(out.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(out.charAt(to - 1))) to--;
+        if (forExport) {
+            while (from < to && out.charAt(from) <= ' ') from++;
+            while (to > from && out.charAt(to - 1) <= ' ') to--;
+        }
+        return out.substring(from, to);
+    }
+
+    private static int indexOfNewline(CharSequence raw, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (raw.charAt(i) == '\n') return i;
+        }
+        return length;
+    }
+
+    /**
+     * Appends the stripped, non-empty line {@code raw[s, e)} with its bullet normalized.
+     */
+    private static void appendLine(CharSequence raw, int s, int e, StringBuilder out, boolean headerCandidate) {
+        char first = raw.charAt(s);
+        if (isBullet(first)) {
+            int i = s + 1;
+            while (true) {
+                i = skipCr(raw, i, e);
+                if (i >= e || !isBullet(raw.charAt(i))) break;
+                i++;
+            }
+            out.append("- ");
+            appendWithoutCr(raw, skipAsciiWhitespace(raw, i, e), e, out);
+        } else if (first == '-' && !startsWithDashSpace(raw, s, e) && !containsLineTerminator(raw, s, e)) {
+            int i = s + 1;
+            int next = skipCr(raw, i, e);
+            if (next < e && raw.charAt(next) == '-') i = next + 1;
+            out.append("- ");
+            appendWithoutCr(raw, skipAsciiWhitespace(raw, i, e), e, out);
+        } else if (first == '#' && headerCandidate) {
+            int i = s + 1;
+            while (true) {
+                i = skipCr(raw, i, e);
+                if (i >= e || raw.charAt(i) != '#') break;
+                i++;
+            }
+            appendWithoutCr(raw, s, i, out);
+            if (i < e && !isAsciiWhitespace(raw.charAt(i))) out.append(' ');
+            appendWithoutCr(raw, i, e, out);
+        } else {
+            appendWithoutCr(raw, s, e, out);
+        }
+    }
+
+    private static void appendWithoutCr(CharSequence raw, int from, int to, StringBuilder out) {
+        int copyFrom = from;
+        for (int i = from; i < to; i++) {
+            if (raw.charAt(i) == '\r') {
+                out.append(raw, copyFrom, i);
+                copyFrom = i + 1;
+            }
+        }
+        out.append(raw, copyFrom, to);
+    }
+
+    /** {@code line.startsWith("- ")} on the line with {@code \r} removed; the line starts with {@code -}. */
+    private static boolean startsWithDashSpace(CharSequence raw, int s, int e) {
+        int next = skipCr(raw, s + 1, e);
+        return next < e && raw.charAt(next) == ' ';
+    }
+
+    /** Characters other than {@code \n} and {@code \r} that a regex {@code .} does not match. */
+    private static boolean containsLineTerminator(CharSequence raw, int s, int e) {
+        for (int i = s; i < e; i++) {
+            char c = raw.charAt(i);
+            if (c == '\u0085' || c == '\u2028' || c == '\u2029') return true;
+        }
+        return false;
+    }
+
+    private static int skipCr(CharSequence raw, int i, int e) {
+        while (i < e && raw.charAt(i) == '\r') i++;
+        return i;
+    }
+
+    private static int skipAsciiWhitespace(CharSequence raw, int i, int e) {
+        while (i < e && isAsciiWhitespace(raw.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isBullet(char c) {
+        return c == '•' || c == '·' || c == '→' || c == '▶' || c == '▷'
+                || c == '‣' || c == '⦿' || c == '∘' || c == '*';
+    }
+
+    /**
+     * The regex {@code \s} class.
+     */
+    private static boolean isAsciiWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,53 @@
+package com.emr.gds.main;
+
+import javafx.animation.FadeTransition;
+import javafx.animation.PauseTransition;
+import javafx.animation.SequentialTransition;
+import javafx.scene.control.Label;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+/**
+ * Short, non-blocking notification shown near the bottom of a window; it fades out on its own and
+ * never takes focus away from the text areas. Call on the FX thread.
+ */
+public final class IAMToast {
+
+    private static final Duration SHOW_TIME = Duration.millis(1400);
+    private static final Duration FADE_TIME = Duration.millis(400);
+    private static final double BOTTOM_MARGIN = 80;
+    private static final String STYLE =
+            "-fx-background-color: rgba(40,40,40,0.85);" +
+            "-fx-background-radius: 6;" +
+            "-fx-text-fill: white;" +
+            "-fx-font-size: 13px;" +
+            "-fx-padding: 8 16 8 16;";
+
+    private IAMToast() {}
+
+    /**
+     * Shows {@code message} over {@code owner}; does nothing if the window is not showing.
+     */
+    public static void show(Window owner, String message) {
+        if (owner == null || !owner.isShowing()) return;
+
+        Label label = new Label(message);
+        label.setStyle(STYLE);
+        Popup popup = new Popup();
+        popup.getContent().add(label);
+        popup.setAutoFix(true);
+        popup.setAutoHide(false);
+        popup.show(owner);
+        // Center horizontally once the label has been laid out
+        popup.setX(owner.getX() + (owner.getWidth() - popup.getWidth()) / 2);
+        popup.setY(owner.getY() + owner.getHeight() - popup.getHeight() - BOTTOM_MARGIN);
+
+        FadeTransition fade = new FadeTransition(FADE_TIME, label);
+        fade.setFromValue(1);
+        fade.setToValue(0);
+        SequentialTransition lifecycle = new SequentialTransition(new PauseTransition(SHOW_TIME), fade);
+        lifecycle.setOnFinished(e -> popup.hide());
+        lifecycle.play();
+    }
+}
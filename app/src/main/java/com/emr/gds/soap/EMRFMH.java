@@ -1,5 +1,9 @@
 package com.emr.gds.soap;
 
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.abbrev.AbbreviationTrigger;
+import com.emr.gds.abbrev.AbbreviationUsage;
 import com.emr.gds.input.IAITextAreaManager;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -24,9 +28,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Enhanced EMR Family Medical History (FMH) input frame with:
@@ -39,7 +41,7 @@ public class EMRFMH extends JFrame {
 
     private final JTextArea historyTextArea;
     private final IAITextAreaManager textAreaManager;
-	private final Map<String, String> abbrevMap;
+	private final AbbreviationRepository abbreviations;
 
 
     private ObservableList<String> endocrineConditions;
@@ -58,9 +60,9 @@ public class EMRFMH extends JFrame {
     private TextArea notesTextArea;
     private GridPane conditionsGrid;
 
-    public EMRFMH(IAITextAreaManager textAreaManager, Map<String, String> abbrevMap) {
+    public EMRFMH(IAITextAreaManager textAreaManager, AbbreviationRepository abbreviations) {
         this.textAreaManager = textAreaManager;
-		this.abbrevMap = (abbrevMap != null) ? abbrevMap : Collections.emptyMap();
+		this.abbreviations = (abbreviations != null) ? abbreviations : AbbreviationRepository.shared();
 
         // -----------------------------------------------------------------
         // 1. Create the JTextArea **right here** so the final field is set
@@ -431,10 +433,21 @@ public class EMRFMH extends JFrame {
     // Abbreviation Expansion
     // ======================
     private void addAbbreviationExpansionListener(JTextArea ta) {
+        AbbreviationTrigger trigger = new AbbreviationTrigger(new AbbreviationExpander(abbreviations));
+        // Swing hands out the document's characters through a reusable segment instead of a copy
+        javax.swing.text.Segment segment = new javax.swing.text.Segment();
+        AbbreviationTrigger.TextSource source = (start, end) -> {
+            try {
+                ta.getDocument().getText(start, end - start, segment);
+                return segment;
+            } catch (javax.swing.text.BadLocationException e) {
+                return "";
+            }
+        };
         ta.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyPressed(java.awt.event.KeyEvent e) {
                 if (e.getKeyCode() == java.awt.event.KeyEvent.VK_SPACE) {
-                    if (expandAbbreviationOnSpace(ta)) {
+                    if (expandAbbreviationOnSpace(ta, trigger, source)) {
                         e.consume();
                     }
                 }
@@ -442,62 +455,37 @@ public class EMRFMH extends JFrame {
         });
     }
 
-    private boolean expandAbbreviationOnSpace(JTextArea ta) {
-        try {
-            int caret = ta.getCaretPosition();
-            javax.swing.text.Element root = ta.getDocument().getDefaultRootElement();
-            int line = root.getElementIndex(caret);
-            int start = root.getElement(line).getStartOffset();
-            String lineText = ta.getDocument().getText(start, caret - start);
-
-            int wordStart = Math.max(lineText.lastIndexOf(' '), lineText.lastIndexOf('\n')) + 1;
-            String word = lineText.substring(wordStart).trim();
-
-            if (!word.startsWith(":")) return false;
-
-            String key = word.substring(1);
-            String replacement = abbrevMap.get(key);
-            if (replacement == null) return false;
-
-            final int finalWordStart = start + wordStart;
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    ta.getDocument().remove(finalWordStart, caret - finalWordStart);
-                    ta.getDocument().insertString(finalWordStart, replacement + " ", null);
-                } catch (javax.swing.text.BadLocationException e) {
-                    // ignore
-                }
-            });
-            return true;
-        } catch (javax.swing.text.BadLocationException e) {
-            return false;
-        }
+    private boolean expandAbbreviationOnSpace(JTextArea ta, AbbreviationTrigger trigger, AbbreviationTrigger.TextSource source) {
+        AbbreviationTrigger.Match match = trigger.find(source, ta.getCaretPosition());
+        if (match == null) return false;
+
+        AbbreviationUsage.shared().record(source.read(match.start() + 1, match.end()).toString());
+        SwingUtilities.invokeLater(() -> {
+            try {
+                ta.getDocument().remove(match.start(), match.end() - match.start());
+                ta.getDocument().insertString(match.start(), match.replacement() + " ", null);
+            } catch (javax.swing.text.BadLocationException e) {
+                // ignore
+            }
+        });
+        return true;
     }
 
     private void addAbbreviationExpansionListener(TextArea ta) {
+        AbbreviationTrigger trigger = new AbbreviationTrigger(new AbbreviationExpander(abbreviations));
         ta.addEventHandler(javafx.scene.input.KeyEvent.KEY_PRESSED, event -> {
             if (event.getCode() == javafx.scene.input.KeyCode.SPACE) {
-                if (expandAbbreviationOnSpace(ta)) event.consume();
+                if (expandAbbreviationOnSpace(ta, trigger)) event.consume();
             }
         });
     }
 
-    private boolean expandAbbreviationOnSpace(TextArea ta) {
-        int caret = ta.getCaretPosition();
-        String upToCaret = ta.getText(0, caret);
-        int start = Math.max(upToCaret.lastIndexOf(' '), upToCaret.lastIndexOf('\n')) + 1;
+    private boolean expandAbbreviationOnSpace(TextArea ta, AbbreviationTrigger trigger) {
+        AbbreviationTrigger.Match match = trigger.find(ta::getText, ta.getCaretPosition());
+        if (match == null) return false;
 
-        String word = upToCaret.substring(start).trim();
-        if (!word.startsWith(":")) return false;
-
-        String key = word.substring(1);
-        String replacement = abbrevMap.get(key);
-        if (replacement == null) return false;
-
-        Platform.runLater(() -> {
-            ta.deleteText(start, caret);
-            ta.insertText(start, replacement + " ");
-        });
+        AbbreviationUsage.shared().record(ta.getText(match.start() + 1, match.end()));
+        Platform.runLater(() -> ta.replaceText(match.start(), match.end(), match.replacement() + " "));
         return true;
     }
 
@@ -509,7 +497,7 @@ public class EMRFMH extends JFrame {
             try {
                 UIManager.setLookAndFeel(UIManager.getLookAndFeel());
             } catch (Exception ignored) {}
-            new EMRFMH(null, Collections.emptyMap()).setVisible(true);
+            new EMRFMH(null, AbbreviationRepository.shared()).setVisible(true);
         });
     }
 
@@ -1,6 +1,11 @@
 package com.emr.gds.soap;
 
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.abbrev.AbbreviationTrigger;
+import com.emr.gds.abbrev.AbbreviationUsage;
 import com.emr.gds.input.IAITextAreaManager;
+import com.emr.gds.main.IAMTextChangePipeline;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -56,7 +61,12 @@ public class EMRPMH extends Application {
 
     private final Map<String, CheckBox> pmhChecks = new LinkedHashMap<>();
     private final Map<String, TextArea> pmhNotes = new LinkedHashMap<>();
-    private final Map<String, String> abbrevMap;
+    private final AbbreviationRepository abbreviations;
+    private final AbbreviationTrigger trigger;
+    private IAMTextChangePipeline.Channel<PmhState, String> liveSummary;
+
+    /** Immutable copy of the checkbox/note state, captured on the FX thread for the live summary. */
+    private record PmhState(boolean[] checked, String[] notes) {}
 
     // UPGRADE: More comprehensive list of conditions from the Swing example
     private static final String[] CATEGORIES = {
@@ -77,13 +87,14 @@ public class EMRPMH extends Application {
     private static final int NUM_COLUMNS = 3;
 
     // -------- Constructors --------
-    public EMRPMH() { this(null, null, Collections.emptyMap()); }
-    public EMRPMH(IAITextAreaManager manager) { this(manager, null, Collections.emptyMap()); }
-    public EMRPMH(IAITextAreaManager manager, TextArea externalTarget) { this(manager, externalTarget, Collections.emptyMap()); }
-    public EMRPMH(IAITextAreaManager manager, TextArea externalTarget, Map<String, String> abbrevMap) {
+    public EMRPMH() { this(null, null, AbbreviationRepository.shared()); }
+    public EMRPMH(IAITextAreaManager manager) { this(manager, null, AbbreviationRepository.shared()); }
+    public EMRPMH(IAITextAreaManager manager, TextArea externalTarget) { this(manager, externalTarget, AbbreviationRepository.shared()); }
+    public EMRPMH(IAITextAreaManager manager, TextArea externalTarget, AbbreviationRepository abbreviations) {
         this.textAreaManager = manager;
         this.externalTarget = externalTarget;
-        this.abbrevMap = (abbrevMap != null) ? abbrevMap : Collections.emptyMap();
+        this.abbreviations = (abbreviations != null) ? abbreviations : AbbreviationRepository.shared();
+        this.trigger = new AbbreviationTrigger(new AbbreviationExpander(this.abbreviations));
     }
 
     // -------- JavaFX lifecycle --------
@@ -126,6 +137,10 @@ public class EMRPMH extends Application {
             grid.getColumnConstraints().add(col);
         }
 
+        // Live summary is rebuilt off the FX thread, debounced while typing
+        liveSummary = IAMTextChangePipeline.shared().channel(
+                this::captureState, state -> buildSummaryText(state, false), summary -> outputArea.setText(summary));
+
         // Populate the grid
         int row = 0, col = 0;
         for (String key : CATEGORIES) {
@@ -147,8 +162,8 @@ public class EMRPMH extends Application {
             grid.add(cellBox, col, row);
 
             // UPGRADE: Add listener to update summary pane in real-time
-            cb.selectedProperty().addListener((obs, oldVal, newVal) -> updateLiveSummary());
-            ta.textProperty().addListener((obs, oldVal, newVal) -> updateLiveSummary());
+            cb.selectedProperty().addListener((obs, oldVal, newVal) -> liveSummary.changed());
+            ta.textProperty().addListener((obs, oldVal, newVal) -> liveSummary.changed());
 
             addAbbreviationExpansionListener(ta);
 
@@ -178,7 +193,7 @@ public class EMRPMH extends Application {
             if (e.isControlDown() && e.getCode() == KeyCode.ENTER) { onSave(); e.consume(); }
         });
         s.setScene(scene);
-        updateLiveSummary(); // Initial state
+        liveSummary.flush(); // Initial state
     }
 
     private VBox buildFooter(TextArea output) {
@@ -246,32 +261,42 @@ public class EMRPMH extends Application {
         if (stage != null) stage.close();
     }
     
-    // UPGRADE: This method now drives the live summary
-    private void updateLiveSummary() {
-        String summary = buildSummaryText(false); // Build summary without save-specific logic
-        outputArea.setText(summary);
+    private PmhState captureState() {
+        boolean[] checked = new boolean[CATEGORIES.length];
+        String[] notes = new String[CATEGORIES.length];
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            checked[i] = pmhChecks.get(CATEGORIES[i]).isSelected();
+            notes[i] = pmhNotes.get(CATEGORIES[i]).getText();
+        }
+        return new PmhState(checked, notes);
+    }
+
+    private String buildSummaryText(boolean applySaveLogic) {
+        return buildSummaryText(captureState(), applySaveLogic);
     }
 
     /**
-     * Builds the summary text from selected items.
+     * Builds the summary text from selected items. Pure function of the captured state.
      * @param applySaveLogic If true, applies special logic like the "All denied allergies" replacement.
      * @return The formatted summary string.
      */
-    private String buildSummaryText(boolean applySaveLogic) {
+    private static String buildSummaryText(PmhState state, boolean applySaveLogic) {
         StringBuilder sb = new StringBuilder("Past Mdedical History-----------\n");
         boolean hasContent = false;
 
-        boolean allDeniedSelected = pmhChecks.getOrDefault("All denied allergies...", new CheckBox()).isSelected();
+        int allDeniedIndex = Arrays.asList(CATEGORIES).indexOf("All denied allergies...");
+        boolean allDeniedSelected = allDeniedIndex >= 0 && state.checked()[allDeniedIndex];
 
-        for (String key : CATEGORIES) {
-            CheckBox cb = pmhChecks.get(key);
-            String note = pmhNotes.get(key).getText().trim();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            String key = CATEGORIES[i];
+            boolean selected = state.checked()[i];
+            String note = state.notes()[i].trim();
 
-            if (cb.isSelected() || !note.isEmpty()) {
+            if (selected || !note.isEmpty()) {
                 hasContent = true;
 
                 // UPGRADE: Special logic inspired by Swing version
-                if (applySaveLogic && key.equals("All denied allergies...") && cb.isSelected()) {
+                if (applySaveLogic && key.equals("All denied allergies...") && selected) {
                     String date = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
                     sb.append("• Allergy: As of ").append(date)
                       .append(", the patient denies any known allergies to food, injections, or medications.\n");
@@ -283,7 +308,7 @@ public class EMRPMH extends Application {
                     continue;
                 }
 
-                sb.append("• ").append(cb.isSelected() ? "▣ " : "□ ").append(key);
+                sb.append("• ").append(selected ? "▣ " : "□ ").append(key);
                 if (!note.isEmpty()) {
                     sb.append(": ").append(note.replace("\n", " | "));
                 }
@@ -310,21 +335,11 @@ public class EMRPMH extends Application {
     }
 
     private boolean expandAbbreviationOnSpace(TextArea ta) {
-        int caret = ta.getCaretPosition();
-        String upToCaret = ta.getText(0, caret);
-        int start = Math.max(upToCaret.lastIndexOf(' '), upToCaret.lastIndexOf('\n')) + 1;
-
-        String word = upToCaret.substring(start).trim();
-        if (!word.startsWith(":")) return false;
+        AbbreviationTrigger.Match match = trigger.find(ta::getText, ta.getCaretPosition());
+        if (match == null) return false;
 
-        String key = word.substring(1);
-        String replacement = abbrevMap.get(key);
-        if (replacement == null) return false;
-
-        Platform.runLater(() -> {
-            ta.deleteText(start, caret);
-            ta.insertText(start, replacement + " ");
-        });
+        AbbreviationUsage.shared().record(ta.getText(match.start() + 1, match.end()));
+        Platform.runLater(() -> ta.replaceText(match.start(), match.end(), match.replacement() + " "));
         return true;
     }
 
@@ -332,7 +347,7 @@ public class EMRPMH extends Application {
         javax.swing.SwingUtilities.invokeLater(() -> {
             try {
                 // Assuming EMRFMH is a Swing JFrame
-                new EMRFMH(textAreaManager, abbrevMap).setVisible(true); // Example instantiation
+                new EMRFMH(textAreaManager, abbreviations).setVisible(true); // Example instantiation
             } catch (Throwable t) {
                 showError("Unable to open EMRFMH", t);
             }
@@ -1,7 +1,15 @@
 package com.emr.gds.soap.IMSFollowUp;
 
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.db.DataSourceRegistry;
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+import com.emr.gds.encounter.EncounterContext;
 import com.emr.gds.input.IAITextAreaManager;
 import com.emr.gds.main.IAMProblemAction;
+import com.emr.gds.main.IAMTextChangePipeline;
+import com.emr.gds.usage.UsageCounters;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -17,18 +25,16 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.*;
-import java.time.LocalDate;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An editor for creating and managing Plan and Follow-up entries in the EMR.
@@ -40,18 +46,25 @@ public class PlanFollowupAction {
     private Stage editorStage;
     private TextArea editorTextArea;
     private TextField fuField, medsCodeField;
-    private final Map<String, String> abbrevMap = new HashMap<>();
+    private final AbbreviationRepository abbreviations;
+    private final AbbreviationExpander expander;
+    private final AbbreviationExpander previewExpander; // Used off the FX thread by the preview
     private final PlanRepository planRepo;
 
+    private static final Set<String> MEDS_CODES = Set.of("5", "55", "6", "8", "2", "4", "0", "1");
+
     private static final String[] PLAN_TEMPLATES = {
             "1w", "2w", "4w", "1d", "3d", "7d", "1m", "3m", "6m", ":cd",
             "5", "55", "6", "8", "2", "4", "0", "1"
     };
 
-    public PlanFollowupAction(IAITextAreaManager textAreaManager, IAMProblemAction problemAction) {
+    public PlanFollowupAction(IAITextAreaManager textAreaManager, IAMProblemAction problemAction, AbbreviationRepository abbreviations) {
         this.textAreaManager = textAreaManager;
         this.problemAction = problemAction;
-        this.planRepo = new PlanRepository(getDbPath("plan_history.db"));
+        this.abbreviations = (abbreviations != null) ? abbreviations : AbbreviationRepository.shared();
+        this.expander = new AbbreviationExpander(this.abbreviations, AbbreviationExpander.Syntax.WHOLE_TOKEN, this::expandPlanCode);
+        this.previewExpander = new AbbreviationExpander(this.abbreviations, AbbreviationExpander.Syntax.WHOLE_TOKEN, this::expandPlanCode);
+        this.planRepo = new PlanRepository(DataSourceRegistry.appDbPath(DataSourceRegistry.PLAN_HISTORY_DB));
         initDatabases();
         createEditorWindow();
     }
@@ -62,25 +75,12 @@ public class PlanFollowupAction {
 
     private void initDatabases() {
         try {
-            Class.forName("org.sqlite.JDBC");
-            initAbbrevDatabase();
             planRepo.init();
         } catch (Exception e) {
             showError("Failed to initialize databases: " + e.getMessage());
         }
     }
 
-    private void initAbbrevDatabase() throws Exception {
-        Path dbFile = getDbPath("abbreviations.db");
-        if (!Files.exists(dbFile.getParent())) Files.createDirectories(dbFile.getParent());
-        String url = "jdbc:sqlite:" + dbFile.toAbsolutePath();
-        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM abbreviations")) {
-            while (rs.next()) {
-                abbrevMap.put(rs.getString("short"), rs.getString("full"));
-            }
-        }
-    }
-
     private void createEditorWindow() {
         editorStage = new Stage();
         editorStage.setTitle("Plan & Follow-up Editor");
@@ -110,7 +110,14 @@ public class PlanFollowupAction {
         previewArea.setPrefRowCount(4);
         previewArea.setStyle("-fx-background-color: #f5f5f5;");
 
-        editorTextArea.textProperty().addListener((obs, old, val) -> previewArea.setText(expandAbbreviations(val)));
+        IAMTextChangePipeline.Channel<String, String> preview = IAMTextChangePipeline.shared()
+                .watch(editorTextArea.textProperty(), previewExpander::expand, previewArea::setText);
+        // Re-expand when the abbreviations are edited while this window is open
+        Runnable unsubscribe = abbreviations.addListener(snapshot -> Platform.runLater(preview::flush));
+        editorStage.setOnHidden(e -> {
+            unsubscribe.run();
+            preview.cancel();
+        });
 
         return new VBox(10,
                 createQuickPlanPanel(),
@@ -137,10 +144,16 @@ public class PlanFollowupAction {
         GridPane templateGrid = new GridPane();
         templateGrid.setHgap(5);
         templateGrid.setVgap(5);
-        for (int i = 0; i < PLAN_TEMPLATES.length; i++) {
-            final String template = PLAN_TEMPLATES[i];
+        // Most used buttons first
+        UsageCounters usage = UsageCounters.shared();
+        List<String> templates = usage.ranked(UsageCounters.Kind.PLAN_BUTTON, Arrays.asList(PLAN_TEMPLATES), template -> template);
+        for (int i = 0; i < templates.size(); i++) {
+            final String template = templates.get(i);
             Button btn = new Button(template);
-            btn.setOnAction(e -> insertTemplate(template));
+            btn.setOnAction(e -> {
+                usage.increment(UsageCounters.Kind.PLAN_BUTTON, template);
+                insertTemplate(template);
+            });
             templateGrid.add(btn, i % 5, i / 5);
         }
         grid.add(templateGrid, 0, 2, 2, 1);
@@ -172,7 +185,7 @@ public class PlanFollowupAction {
     }
 
     private void applyChanges() {
-        String expandedText = expandAbbreviations(editorTextArea.getText());
+        String expandedText = expander.expand(editorTextArea.getText());
         if (expandedText.isBlank()) {
             showError("Nothing to apply.");
             return;
@@ -184,13 +197,10 @@ public class PlanFollowupAction {
                 if (problemAction != null) {
                     problemAction.updateAndRedrawScratchpad("P>", expandedText);
                 }
-                new Thread(() -> {
-                    try {
-                        planRepo.savePlan("P>", expandedText, null, LocalDate.now().toString());
-                    } catch (Exception ex) {
-                        System.err.println("Failed to save plan history: " + ex.getMessage());
-                    }
-                }).start();
+                planRepo.savePlan("P>", expandedText, EncounterContext.patientId(), EncounterContext.encounterDate().toString())
+                        .whenComplete((rows, error) -> {
+                            if (error != null) System.err.println("Failed to save plan history: " + error.getMessage());
+                        });
                 editorStage.close();
             } catch (Exception ex) {
                 showError("Failed to apply changes: " + ex.getMessage());
@@ -200,17 +210,27 @@ public class PlanFollowupAction {
         Platform.runLater(appendAction);
     }
 
-    private String expandAbbreviations(String text) {
-        return Arrays.stream(text.split("((?<= )|(?= ))"))
-                .map(word -> {
-                    String clean = word.trim();
-                    if (":cd".equals(clean)) return LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-                    if (clean.startsWith(":")) return abbrevMap.getOrDefault(clean.substring(1), word);
-                    if (clean.matches("[0-9]+[wdm]")) return parseFU(clean);
-                    if (Arrays.asList("5", "55", "6", "8", "2", "4", "0", "1").contains(clean)) return parseMedsCode(clean);
-                    return word;
-                })
-                .collect(Collectors.joining());
+    /**
+     * Expands a whole follow-up ({@code 1w}, {@code 3m}) or meds ({@code 55}) token; {@code null} otherwise.
+     */
+    private String expandPlanCode(CharSequence text, int start, int end) {
+        int digitsEnd = start;
+        while (digitsEnd < end && isAsciiDigit(text.charAt(digitsEnd))) digitsEnd++;
+        if (digitsEnd == start) return null;
+
+        if (digitsEnd == end - 1) {
+            char unit = text.charAt(digitsEnd);
+            if (unit == 'w' || unit == 'd' || unit == 'm') return parseFU(text.subSequence(start, end).toString());
+        } else if (digitsEnd == end && end - start <= 2) {
+            String code = text.subSequence(start, end).toString();
+            if (MEDS_CODES.contains(code)) return parseMedsCode(code);
+        }
+        return null;
+    }
+
+    // [0-9] of the old follow-up regex; Character.isDigit would also take other scripts' digits
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     private String parseFU(String input) {
@@ -235,14 +255,6 @@ public class PlanFollowupAction {
         };
     }
 
-    private Path getDbPath(String fileName) {
-        Path p = Paths.get("").toAbsolutePath();
-        while (p != null && !Files.exists(p.resolve("gradlew"))) {
-            p = p.getParent();
-        }
-        return (p != null) ? p.resolve("app/db/").resolve(fileName) : Paths.get("app/db").resolve(fileName);
-    }
-
     private Label createStyledLabel(String text, String style) {
         Label label = new Label(text);
         label.setStyle(style);
@@ -255,27 +267,36 @@ public class PlanFollowupAction {
 
     static final class PlanRepository {
         private final Path dbFile;
+        private SqliteDatabase db;
 
         PlanRepository(Path dbFile) {
             this.dbFile = Objects.requireNonNull(dbFile);
         }
 
-        void init() throws Exception {
-            Files.createDirectories(dbFile.getParent());
-            try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbFile.toAbsolutePath()); Statement st = c.createStatement()) {
+        void init() throws SQLException {
+            db = DataSourceRegistry.shared().database(dbFile, PlanRepository::createSchema);
+        }
+
+        private static void createSchema(Connection c) throws SQLException {
+            try (Statement st = c.createStatement()) {
                 st.executeUpdate("CREATE TABLE IF NOT EXISTS plan_history (id INTEGER PRIMARY KEY, created_at TEXT NOT NULL, section TEXT, content TEXT, patient_id TEXT, encounter_date TEXT);");
+                st.executeUpdate("CREATE INDEX IF NOT EXISTS idx_plan_history_patient_date ON plan_history (patient_id, encounter_date);");
             }
         }
 
-        void savePlan(String section, String content, String patientId, String encounterDate) throws Exception {
-            try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dbFile.toAbsolutePath()); PreparedStatement ps = c.prepareStatement("INSERT INTO plan_history (created_at, section, content, patient_id, encounter_date) VALUES (?,?,?,?,?)")) {
-                ps.setString(1, LocalDateTime.now().toString());
+        /**
+         * Queues the plan on the shared write-behind queue; the future completes after commit.
+         */
+        CompletableFuture<Integer> savePlan(String section, String content, String patientId, String encounterDate) throws SQLException {
+            if (db == null) init();
+            String createdAt = LocalDateTime.now().toString();
+            return WriteBehindQueue.shared().submit(db, "INSERT INTO plan_history (created_at, section, content, patient_id, encounter_date) VALUES (?,?,?,?,?)", ps -> {
+                ps.setString(1, createdAt);
                 ps.setString(2, section);
                 ps.setString(3, content);
                 ps.setString(4, patientId);
                 ps.setString(5, encounterDate);
-                ps.executeUpdate();
-            }
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,10 @@
 package com.emr.gds.soap;
 
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationRepository;
+import com.emr.gds.main.IAMTextChangePipeline;
+import com.emr.gds.usage.UsageCounters;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -14,18 +19,7 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.Statement;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -37,7 +31,9 @@ public class IMSPresentIllness {
     private final TextArea sourceTextArea;
     private Stage editorStage;
     private TextArea editorTextArea;
-    private final Map<String, String> abbrevMap = new HashMap<>();
+    private final AbbreviationRepository abbreviations;
+    private final AbbreviationExpander expander;
+    private final AbbreviationExpander previewExpander; // Used off the FX thread by the preview
 
     private final String[] piTemplates = {
             "Acute", "Chronic", "Severe", "Persistent", "Intermittent", "Localized",
@@ -60,35 +56,14 @@ public class IMSPresentIllness {
         public String getText() { return text.get(); }
     }
 
-    public IMSPresentIllness(TextArea sourceTextArea) {
+    public IMSPresentIllness(TextArea sourceTextArea, AbbreviationRepository abbreviations) {
         this.sourceTextArea = sourceTextArea;
-        initAbbrevDatabase();
+        this.abbreviations = abbreviations;
+        this.expander = new AbbreviationExpander(abbreviations, AbbreviationExpander.Syntax.WHOLE_TOKEN);
+        this.previewExpander = new AbbreviationExpander(abbreviations, AbbreviationExpander.Syntax.WHOLE_TOKEN);
         createEditorWindow();
     }
 
-    private void initAbbrevDatabase() {
-        try {
-            Path dbFile = getDbPath("abbreviations.db");
-            if (!Files.exists(dbFile)) return;
-            String url = "jdbc:sqlite:" + dbFile.toAbsolutePath();
-            try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM abbreviations")) {
-                while (rs.next()) {
-                    abbrevMap.put(rs.getString("short"), rs.getString("full"));
-                }
-            }
-        } catch (Exception e) {
-            showError("Failed to initialize abbreviation database: " + e.getMessage());
-        }
-    }
-
-    private Path getDbPath(String fileName) {
-        Path p = Paths.get("").toAbsolutePath();
-        while (p != null && !Files.exists(p.resolve("gradlew"))) {
-            p = p.getParent();
-        }
-        return (p != null) ? p.resolve("app/db/").resolve(fileName) : Paths.get("app/db").resolve(fileName);
-    }
-
     private void createEditorWindow() {
         editorStage = new Stage();
         editorStage.setTitle("Present Illness Editor");
@@ -112,11 +87,15 @@ public class IMSPresentIllness {
         phraseColumn.prefWidthProperty().bind(table.widthProperty());
         table.getColumns().add(phraseColumn);
 
-        ObservableList<Phrase> phraseData = Arrays.stream(clinicalPhrases).map(Phrase::new).collect(Collectors.toCollection(FXCollections::observableArrayList));
+        // Most used phrases first
+        UsageCounters usage = UsageCounters.shared();
+        ObservableList<Phrase> phraseData = usage.ranked(UsageCounters.Kind.PHRASE, Arrays.asList(clinicalPhrases), text -> text).stream()
+                .map(Phrase::new).collect(Collectors.toCollection(FXCollections::observableArrayList));
         table.setItems(phraseData);
 
         table.getSelectionModel().selectedItemProperty().addListener((obs, old, newSelection) -> {
             if (newSelection != null) {
+                usage.increment(UsageCounters.Kind.PHRASE, newSelection.getText());
                 editorTextArea.appendText(newSelection.getText() + " ");
                 editorTextArea.requestFocus();
             }
@@ -144,8 +123,15 @@ public class IMSPresentIllness {
         previewArea.setPrefRowCount(4);
         previewArea.setStyle("-fx-background-color: #f5f5f5;");
 
-        editorTextArea.textProperty().addListener((obs, old, newText) -> previewArea.setText(expandAbbreviations(newText)));
-        previewArea.setText(expandAbbreviations(editorTextArea.getText()));
+        IAMTextChangePipeline.Channel<String, String> preview = IAMTextChangePipeline.shared()
+                .watch(editorTextArea.textProperty(), previewExpander::expand, previewArea::setText);
+        preview.flush();
+        // Re-expand when the abbreviations are edited while this window is open
+        Runnable unsubscribe = abbreviations.addListener(snapshot -> Platform.runLater(preview::flush));
+        editorStage.setOnHidden(e -> {
+            unsubscribe.run();
+            preview.cancel();
+        });
 
         return new VBox(10,
                 createStyledLabel("Quick Templates:", "-fx-font-weight: bold;"),
@@ -185,7 +171,7 @@ public class IMSPresentIllness {
 
     private void applyChanges() {
         String originalText = editorTextArea.getText();
-        String expandedText = expandAbbreviations(originalText);
+        String expandedText = expander.expand(originalText);
 
         if (!originalText.equals(expandedText)) {
             Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
@@ -200,16 +186,6 @@ public class IMSPresentIllness {
         editorStage.close();
     }
 
-    private String expandAbbreviations(String text) {
-        return Arrays.stream(text.split("((?<= )|(?= ))"))
-                .map(word -> {
-                    String cleanWord = word.trim();
-                    if (":cd".equals(cleanWord)) return LocalDate.now().format(DateTimeFormatter.ISO_DATE);
-                    return cleanWord.startsWith(":") ? abbrevMap.getOrDefault(cleanWord.substring(1), word) : word;
-                })
-                .collect(Collectors.joining());
-    }
-
     private Label createStyledLabel(String text, String style) {
         Label label = new Label(text);
         label.setStyle(style);
@@ -0,0 +1,249 @@
+package com.emr.gds.template;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A template compiled into the text it contributes to each EMR area.
+ * <p>
+ * Template text marks sections with the area titles ({@code CC>}, {@code PI>}, ... {@code Comment>}) at the
+ * start of a line; lines before the first title belong to {@code Comment>}. {@link #compile(String)} parses
+ * that once, when the template is saved, into one body per area: the first line of the section trimmed,
+ * the following lines indented with a tab, as "Use Template" has always laid them out. The result is stored
+ * with the template ({@link #encode()}), so applying a template is a per-area append with no parsing.
+ * Immutable.
+ */
+public final class TemplateLayout {
+
+    /** Area titles, in {@code IAMTextArea.TEXT_AREA_TITLES} order. */
+    public static final List<String> SECTION_TITLES = List.of(
+            "CC>", "PI>", "ROS>", "PMH>", "S>",
+            "O>", "Physical Exam>", "A>", "P>", "Comment>");
+
+    /** Order in which the sections are written when the template is exported as text. */
+    private static final int[] OUTPUT_ORDER = {0, 1, 3, 4, 2, 5, 6, 7, 8, 9};
+    private static final int COMMENT = 9;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final TemplateLayout EMPTY = new TemplateLayout(emptySections());
+
+    private final String[] sections;
+
+    private TemplateLayout(String[] sections) {
+        this.sections = sections;
+    }
+
+    public static TemplateLayout empty() {
+        return EMPTY;
+    }
+
+    // ================================
+    // Compiling
+    // ================================
+
+    /**
+     * Parses template text into its per-area bodies.
+     */
+    public static TemplateLayout compile(String content) {
+        if (content == null || content.isEmpty()) return EMPTY;
+        List<List<String>> lines = new ArrayList<>(SECTION_TITLES.size());
+        for (int i = 0; i < SECTION_TITLES.size(); i++) lines.add(new ArrayList<>());
+
+        int current = -1;
+        int start = 0;
+        int length = content.length();
+        while (start <= length) {
+            int end = content.indexOf('\n', start);
+            if (end < 0) end = length;
+            int next = end + 1;
+            if (end > start && content.charAt(end - 1) == '\r' && end < length) end--; // \r\n
+
+            String line = content.substring(start, end);
+            int header = matchHeader(line);
+            if (header >= 0) {
+                current = header;
+                String afterHeader = line.substring(headerEnd(line, header)).trim();
+                if (!afterHeader.isEmpty()) lines.get(current).add(afterHeader);
+            } else {
+                lines.get(current >= 0 ? current : COMMENT).add(line);
+            }
+            start = next;
+        }
+
+        String[] sections = emptySections();
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = body(lines.get(i));
+        }
+        return new TemplateLayout(sections);
+    }
+
+    /**
+     * Index of the title the line starts with (after optional whitespace), or {@code -1}. The rest of the
+     * line must be a single line; a title followed by a stray carriage return and more text is body text.
+     */
+    private static int matchHeader(String line) {
+        int i = skipWhitespace(line, 0);
+        for (int t = 0; t < SECTION_TITLES.size(); t++) {
+            String title = SECTION_TITLES.get(t);
+            if (line.startsWith(title, i)) {
+                int rest = skipWhitespace(line, i + title.length());
+                for (int k = rest; k < line.length(); k++) {
+                    if (isLineTerminator(line.charAt(k))) return -1;
+                }
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private static int headerEnd(String line, int title) {
+        return skipWhitespace(line, 0) + SECTION_TITLES.get(title).length();
+    }
+
+    private static int skipWhitespace(String line, int i) {
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * First line trimmed, further lines on a tab; empty if the section has only blank lines.
+     */
+    private static String body(List<String> lines) {
+        boolean blank = true;
+        for (String line : lines) {
+            if (!line.isBlank()) {
+                blank = false;
+                break;
+            }
+        }
+        if (blank) return "";
+        StringBuilder sb = new StringBuilder(lines.get(0).trim());
+        for (int i = 1; i < lines.size(); i++) {
+            sb.append("\n\t").append(lines.get(i));
+        }
+        return sb.toString().trim();
+    }
+
+    // ================================
+    // Access
+    // ================================
+
+    /**
+     * The text this template adds to area {@code index}; empty if it has nothing for that area.
+     */
+    public String section(int index) {
+        return (index >= 0 && index < sections.length) ? sections[index] : "";
+    }
+
+    public int sectionCount() {
+        return sections.length;
+    }
+
+    public boolean isEmpty() {
+        for (String section : sections) {
+            if (!section.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The template as titled text ({@code CC> ...}), for the clipboard.
+     */
+    public String toText() {
+        StringBuilder out = new StringBuilder();
+        for (int index : OUTPUT_ORDER) {
+            if (sections[index].isEmpty()) continue;
+            if (!out.isEmpty()) out.append('\n');
+            out.append(SECTION_TITLES.get(index)).append(' ').append(sections[index]);
+        }
+        return out.toString();
+    }
+
+    // ================================
+    // Storage
+    // ================================
+
+    /**
+     * Serializes the layout for the {@code templates.layout} column: a format version, then each area
+     * as its lines (UTF-16, so any text round-trips).
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(sections.length);
+            for (String section : sections) {
+                String[] lines = section.isEmpty() ? new String[0] : section.split("\n", -1);
+                out.writeInt(lines.length);
+                for (String line : lines) {
+                    out.writeInt(line.length());
+                    out.writeChars(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a layout written by {@link #encode()}.
+     *
+     * @return {@code null} if {@code blob} is missing or in another format (the caller recompiles).
+     */
+    public static TemplateLayout decode(byte[] blob) {
+        if (blob == null || blob.length < 8) return null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            int count = in.readInt();
+            if (count < 0 || count > SECTION_TITLES.size()) return null;
+            String[] sections = emptySections();
+            for (int i = 0; i < count; i++) {
+                int lineCount = in.readInt();
+                if (lineCount < 0) return null;
+                StringBuilder section = new StringBuilder();
+                for (int l = 0; l < lineCount; l++) {
+                    int length = in.readInt();
+                    if (length < 0 || 2L * length > in.available()) return null;
+                    if (l > 0) section.append('\n');
+                    for (int c = 0; c < length; c++) section.append(in.readChar());
+                }
+                sections[i] = section.toString();
+            }
+            return new TemplateLayout(sections);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String[] emptySections() {
+        String[] sections = new String[SECTION_TITLES.size()];
+        Arrays.fill(sections, "");
+        return sections;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TemplateLayout other && Arrays.equals(sections, other.sections);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(sections);
+    }
+}
@@ -0,0 +1,60 @@
+package com.emr.gds.template;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide LRU cache of compiled template layouts, keyed by template id and version.
+ * <p>
+ * Every save of a template bumps its version, so an entry never has to be invalidated: a stale version is
+ * simply never asked for again and ages out. Thread-safe.
+ */
+public final class TemplateLayoutCache {
+
+    private static final int CAPACITY = 64;
+    private static final TemplateLayoutCache INSTANCE = new TemplateLayoutCache(CAPACITY);
+
+    private record Key(int templateId, int version) {}
+
+    private final Map<Key, TemplateLayout> layouts;
+
+    TemplateLayoutCache(int capacity) {
+        this.layouts = new LinkedHashMap<>(capacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TemplateLayout> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static TemplateLayoutCache shared() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The cached layout, or {@code null}.
+     */
+    public synchronized TemplateLayout get(int templateId, int version) {
+        return layouts.get(new Key(templateId, version));
+    }
+
+    public synchronized void put(int templateId, int version, TemplateLayout layout) {
+        layouts.put(new Key(templateId, version), layout);
+    }
+
+    /**
+     * Returns the cached layout, loading it with {@code loader} (outside the lock) on a miss.
+     */
+    public TemplateLayout get(int templateId, int version, Supplier<TemplateLayout> loader) {
+        TemplateLayout layout = get(templateId, version);
+        if (layout != null) return layout;
+        layout = loader.get();
+        if (layout != null) put(templateId, version, layout);
+        return layout;
+    }
+
+    synchronized int size() {
+        return layouts.size();
+    }
+}
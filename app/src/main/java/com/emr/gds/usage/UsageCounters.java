@@ -0,0 +1,229 @@
+package com.emr.gds.usage;
+
+import com.emr.gds.db.SqliteDatabase;
+import com.emr.gds.db.WriteBehindQueue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Counts how often the user picks each abbreviation, phrase, template and plan button, and keeps the counts
+ * in SQLite across sessions.
+ * <p>
+ * {@link #increment} only bumps a striped {@link LongAdder} (after a map lookup), so it is cheap enough for
+ * every keystroke-level action and safe from any thread. Nothing touches the database on that path: once
+ * {@link #start started}, a single daemon thread hands the increments gathered since the last flush to the
+ * {@link WriteBehindQueue} every {@value #FLUSH_INTERVAL_SECONDS} seconds, as one upsert per item that changed,
+ * and {@link #close()} flushes the rest at shutdown. A write that fails is retried with the next flush.
+ * <p>
+ * The pickers order their entries with {@link #ranked}, so frequently used items float to the top, and
+ * startup warm-up asks for the {@link #top} items of a kind to load them first. An instance that is never
+ * started simply counts in memory.
+ */
+public final class UsageCounters {
+
+    /** What was used; stored by name, so constants must not be renamed. */
+    public enum Kind {
+        /** An abbreviation key, expanded in an editor. */
+        ABBREVIATION,
+        /** A phrase-bank entry, by its text. */
+        PHRASE,
+        /** A built-in template or snippet, by its {@code TemplateLibrary} name. */
+        TEMPLATE,
+        /** A template saved in the template editor, by its id. */
+        SAVED_TEMPLATE,
+        /** A quick-plan button, by its label. */
+        PLAN_BUTTON
+    }
+
+    static final long FLUSH_INTERVAL_SECONDS = 30;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO usage_counts (kind, item, uses) VALUES (?, ?, ?) "
+            + "ON CONFLICT(kind, item) DO UPDATE SET uses = uses + excluded.uses;";
+
+    private static final UsageCounters SHARED = new UsageCounters();
+
+    /** One item: uses loaded from the database plus uses counted in this session. */
+    private static final class Counter {
+        final LongAdder session = new LongAdder();
+        final AtomicLong flushed = new AtomicLong(); // Part of session already handed to the database
+        volatile long stored;
+
+        long total() {
+            return stored + session.sum();
+        }
+    }
+
+    private final Map<Kind, Map<String, Counter>> counters = new EnumMap<>(Kind.class);
+    private volatile SqliteDatabase db;
+    private ScheduledExecutorService flusher;
+
+    public UsageCounters() {
+        for (Kind kind : Kind.values()) {
+            counters.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    public static UsageCounters shared() {
+        return SHARED;
+    }
+
+    // ================================
+    // Counting
+    // ================================
+
+    public void increment(Kind kind, String item) {
+        if (item == null || item.isEmpty()) return;
+        counter(kind, item).session.increment();
+    }
+
+    /**
+     * @return How often {@code item} has been used, including earlier sessions once they are loaded.
+     */
+    public long count(Kind kind, String item) {
+        Counter counter = counters.get(kind).get(item);
+        return counter == null ? 0 : counter.total();
+    }
+
+    /**
+     * Returns {@code items} ordered by use, most used first; items used equally often keep their order.
+     * Counts are read once, so concurrent increments cannot upset the sort.
+     */
+    public <T> List<T> ranked(Kind kind, Collection<? extends T> items, Function<? super T, String> itemName) {
+        Map<String, Counter> byItem = counters.get(kind);
+        List<Map.Entry<T, Long>> entries = new ArrayList<>(items.size());
+        for (T item : items) {
+            Counter counter = byItem.get(itemName.apply(item));
+            entries.add(Map.entry(item, counter == null ? 0L : counter.total()));
+        }
+        entries.sort(Map.Entry.<T, Long>comparingByValue().reversed());
+        List<T> ranked = new ArrayList<>(entries.size());
+        for (Map.Entry<T, Long> entry : entries) ranked.add(entry.getKey());
+        return ranked;
+    }
+
+    /**
+     * @return Up to {@code limit} items of {@code kind} that have been used, most used first.
+     */
+    public List<String> top(Kind kind, int limit) {
+        List<Map.Entry<String, Long>> used = new ArrayList<>();
+        counters.get(kind).forEach((item, counter) -> {
+            long total = counter.total();
+            if (total > 0) used.add(Map.entry(item, total));
+        });
+        used.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        List<String> top = new ArrayList<>(Math.min(limit, used.size()));
+        for (int i = 0; i < used.size() && i < limit; i++) top.add(used.get(i).getKey());
+        return top;
+    }
+
+    private Counter counter(Kind kind, String item) {
+        Map<String, Counter> byItem = counters.get(Objects.requireNonNull(kind, "kind"));
+        Counter counter = byItem.get(item);
+        return counter != null ? counter : byItem.computeIfAbsent(item, k -> new Counter());
+    }
+
+    // ================================
+    // Persistence
+    // ================================
+
+    public static void createTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS usage_counts ("
+                    + "kind TEXT NOT NULL, item TEXT NOT NULL, uses INTEGER NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY (kind, item));");
+        }
+    }
+
+    /**
+     * Loads the counts of earlier sessions from {@code db} and starts flushing to it periodically.
+     * Uses counted before this call are kept and flushed too. Call once, off the FX thread.
+     */
+    public void start(SqliteDatabase db) throws SQLException {
+        Objects.requireNonNull(db, "db");
+        db.query("SELECT kind, item, uses FROM usage_counts;", null, rs -> {
+            while (rs.next()) {
+                Kind kind = kindOf(rs.getString(1));
+                if (kind != null) counter(kind, rs.getString(2)).stored = rs.getLong(3);
+            }
+            return null;
+        });
+        synchronized (this) {
+            if (flusher != null) return;
+            this.db = db;
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "usage-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Queues one upsert for every item used since the last flush. Does nothing before {@link #start}.
+     *
+     * @return The number of items queued.
+     */
+    public synchronized int flush() {
+        SqliteDatabase target = db;
+        if (target == null) return 0;
+        int queued = 0;
+        for (Map.Entry<Kind, Map<String, Counter>> byKind : counters.entrySet()) {
+            String kind = byKind.getKey().name();
+            for (Map.Entry<String, Counter> entry : byKind.getValue().entrySet()) {
+                Counter counter = entry.getValue();
+                long total = counter.session.sum();
+                long delta = total - counter.flushed.get();
+                if (delta <= 0) continue;
+                counter.flushed.addAndGet(delta);
+                String item = entry.getKey();
+                WriteBehindQueue.shared().submit(target, UPSERT_SQL, ps -> {
+                    ps.setString(1, kind);
+                    ps.setString(2, item);
+                    ps.setLong(3, delta);
+                }).whenComplete((rows, error) -> {
+                    if (error == null) return;
+                    counter.flushed.addAndGet(-delta); // Retried by the next flush
+                    System.err.println("Failed to save usage of " + item + ": " + error.getMessage());
+                });
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Stops the periodic flush and queues what is left. Call before the write-behind queue shuts down.
+     */
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flush();
+    }
+
+    private static Kind kindOf(String name) {
+        try {
+            return Kind.valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null; // Written by a newer version
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The expander must give the same text as the code each editor used before it: the {@code :([\S]+)} regex of
+ * the main text areas ({@link AbbreviationExpander.Syntax#INLINE}) and the space-split whole-word rule of the
+ * SOAP dialog editors ({@link AbbreviationExpander.Syntax#WHOLE_TOKEN}).
+ */
+class AbbreviationExpanderTest {
+
+    private static final Map<String, String> ABBREVIATIONS = Map.of(
+            "htn", "hypertension",
+            "dm", "diabetes mellitus",
+            "c", "hypercholesterolemia",
+            "h:t", "key with a colon",
+            "$1", "dollar \\ backslash");
+    private static final AbbreviationIndex INDEX = AbbreviationIndex.of(ABBREVIATIONS);
+    private static final String TODAY = LocalDate.now().format(DateTimeFormatter.ISO_DATE);
+    private static final String ALPHABET = ":::hhtndmcCDx$1  \n\t";
+
+    @Test void testInlineSyntax() {
+        AbbreviationExpander expander = new AbbreviationExpander(() -> INDEX);
+        assertEquals("PMH hypertension and diabetes mellitus", expander.expand("PMH :htn and :dm"));
+        assertEquals("PMH :htn, ok", expander.expand("PMH :htn, ok"), "the key runs to the end of the token");
+        assertEquals("Dxhypertension", expander.expand("Dx:htn"), "the key starts at the first colon in a token");
+        assertEquals(TODAY + " " + TODAY, expander.expand(":cd :CD"));
+        assertEquals("a\nhypertension\tb", expander.expand("a\n:htn\tb"));
+        assertEquals("key with a colon", expander.expand(":h:t"));
+        assertEquals(":htnx : x:", expander.expand(":htnx : x:"));
+        String unchanged = "nothing to expand";
+        assertSame(unchanged, expander.expand(unchanged));
+        assertEquals("", expander.expand(null));
+    }
+
+    @Test void testWholeTokenSyntax() {
+        AbbreviationExpander expander = new AbbreviationExpander(() -> INDEX, AbbreviationExpander.Syntax.WHOLE_TOKEN);
+        assertEquals("PMH hypertension and diabetes mellitus", expander.expand("PMH :htn and :dm"));
+        assertEquals("Dx:htn", expander.expand("Dx:htn"), "a colon inside a token is not a key");
+        assertEquals(TODAY + " :CD :Cd", expander.expand(":cd :CD :Cd"));
+        assertEquals("key with a colon", expander.expand(":h:t"));
+        assertEquals("a\nhypertension", expander.expand("a\n:htn"), "line breaks separate tokens");
+    }
+
+    @Test void testInlineMatchesOldRegex() {
+        AbbreviationExpander expander = new AbbreviationExpander(() -> INDEX);
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            String text = randomText(random, ALPHABET);
+            assertEquals(oldRegex(text), expander.expand(text), text);
+        }
+    }
+
+    @Test void testWholeTokenMatchesOldWordSplit() {
+        // The old rule split on spaces only and trimmed other whitespace away; with spaces alone both agree
+        AbbreviationExpander expander = new AbbreviationExpander(() -> INDEX, AbbreviationExpander.Syntax.WHOLE_TOKEN);
+        Random random = new Random(13);
+        for (int i = 0; i < 20_000; i++) {
+            String text = randomText(random, ":::hhtndmcCDx$1   ");
+            assertEquals(oldWordSplit(text), expander.expand(text), text);
+        }
+    }
+
+    @Test void testTokenRuleSeesWholeTokens() {
+        AbbreviationExpander expander = new AbbreviationExpander(() -> INDEX, AbbreviationExpander.Syntax.WHOLE_TOKEN,
+                (text, start, end) -> text.subSequence(start, end).toString().equals("2w") ? "F/U in 2 week(s)" : null);
+        assertEquals("F/U in 2 week(s)\nhypertension 2wk x2w", expander.expand("2w\n:htn 2wk x2w"));
+    }
+
+    // ================================
+    // The code the editors used before
+    // ================================
+
+    private static String oldRegex(String text) {
+        StringBuilder out = new StringBuilder();
+        Matcher matcher = Pattern.compile(":([\\S]+)").matcher(text);
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            String replacement = "cd".equalsIgnoreCase(key) ? TODAY : ABBREVIATIONS.get(key);
+            // The old code passed an unknown key back unquoted, so a '$' in it threw; quoted here
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group(0)));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static String oldWordSplit(String text) {
+        return Arrays.stream(text.split("((?<= )|(?= ))"))
+                .map(word -> {
+                    String clean = word.trim();
+                    if (":cd".equals(clean)) return TODAY;
+                    return clean.startsWith(":") ? ABBREVIATIONS.getOrDefault(clean.substring(1), word) : word;
+                })
+                .collect(Collectors.joining());
+    }
+
+    private static String randomText(Random random, String alphabet) {
+        char[] text = new char[random.nextInt(12)];
+        for (int i = 0; i < text.length; i++) text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        return new String(text);
+    }
+}
@@ -0,0 +1,98 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbreviationFilterTest {
+
+    private static final AbbreviationIndex INDEX = AbbreviationIndex.of(Map.of(
+            "cp", "chest pain",
+            "copd", "chronic obstructive pulmonary disease",
+            "pe", "pulmonary embolism",
+            "Pn", "pneumonia",
+            "sob", "shortness of breath"));
+
+    @Test void testBlankQueryListsEverythingInKeyOrder() {
+        AbbreviationFilter.Result result = new AbbreviationFilter().filter(INDEX, "  ");
+        assertEquals(INDEX.keys(), keys(result));
+        assertEquals("chest pain", result.valueAt(2));
+    }
+
+    @Test void testKeyPrefixMatchesComeFirst() {
+        AbbreviationFilter filter = new AbbreviationFilter();
+        assertEquals(List.of("Pn", "pe", "copd", "cp"), keys(filter.filter(INDEX, "P")));
+        assertEquals(List.of("copd", "pe"), keys(filter.filter(INDEX, "pulmonary")));
+        assertEquals(List.of("sob"), keys(filter.filter(INDEX, "BREATH")));
+        assertEquals(0, filter.filter(INDEX, "zzz").size());
+    }
+
+    @Test void testNarrowingMatchesFullScan() {
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        String[] words = {"pain", "pulmonary", "pressure", "pneumonia", "upper", "apnea"};
+        for (int i = 0; i < 500; i++) {
+            builder.put(words[i % words.length].substring(0, 1 + i % 4) + i, words[(i * 7) % words.length] + " " + i);
+        }
+        AbbreviationIndex index = builder.build();
+
+        AbbreviationFilter typing = new AbbreviationFilter();
+        String query = "";
+        for (char c : "pneu".toCharArray()) {
+            query += c;
+            AbbreviationFilter.Result narrowed = typing.filter(index, query);
+            AbbreviationFilter.Result fresh = new AbbreviationFilter().filter(index, query);
+            assertArrayEquals(fresh.ordinals(), narrowed.ordinals(), query);
+            assertEquals(expected(index, query), keys(narrowed), query);
+        }
+        assertSame(typing.filter(index, "pneu"), typing.filter(index, "pneu "), "same query after trimming");
+    }
+
+    @Test void testPrefixRangeMatchesScanForMixedCaseKeys() {
+        Random random = new Random(24);
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        for (int i = 0; i < 300; i++) builder.put(text(random, "aAbB:", 1 + random.nextInt(4)), text(random, "ab ", 6));
+        AbbreviationIndex index = builder.build();
+        AbbreviationFilter filter = new AbbreviationFilter();
+        for (int i = 0; i < 500; i++) {
+            String query = text(random, "aAb:", 1 + random.nextInt(3));
+            assertEquals(expected(index, query), keys(filter.filter(index, query)), query);
+        }
+    }
+
+    @Test void testNewIndexIsSearchedAgain() {
+        AbbreviationFilter filter = new AbbreviationFilter();
+        assertEquals(List.of("cp"), keys(filter.filter(INDEX, "cp")));
+        AbbreviationIndex updated = INDEX.withEntry("cpr", "cardiopulmonary resuscitation");
+        assertEquals(List.of("cp", "cpr"), keys(filter.filter(updated, "cp")));
+    }
+
+    private static List<String> expected(AbbreviationIndex index, String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<String> prefixed = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        index.forEach((key, value) -> {
+            if (key.toLowerCase(Locale.ROOT).startsWith(q)) prefixed.add(key);
+            else if (key.toLowerCase(Locale.ROOT).contains(q) || value.toLowerCase(Locale.ROOT).contains(q)) others.add(key);
+        });
+        prefixed.addAll(others);
+        return prefixed;
+    }
+
+    private static String text(Random random, String alphabet, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        return new String(text);
+    }
+
+    private static List<String> keys(AbbreviationFilter.Result result) {
+        List<String> keys = new ArrayList<>(result.size());
+        for (int i = 0; i < result.size(); i++) keys.add(result.keyAt(i));
+        return keys;
+    }
+}
@@ -0,0 +1,152 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbreviationIndexTest {
+
+    private static final AbbreviationIndex INDEX = AbbreviationIndex.of(Map.of(
+            "c", "hypercholesterolemia",
+            "ca", "cancer",
+            "cad", "coronary artery disease",
+            "cp", "chest pain",
+            "dm", "diabetes mellitus",
+            "htn", "hypertension",
+            "한글", "Korean"));
+
+    @Test void testExactLookup() {
+        assertEquals("cancer", INDEX.get("ca"));
+        assertEquals("coronary artery disease", INDEX.get("cad"));
+        assertEquals("Korean", INDEX.get("한글"));
+        assertNull(INDEX.get("cadx"));
+        assertNull(INDEX.get("h"), "prefix of a key is not a key");
+        assertNull(INDEX.get(""));
+        assertTrue(INDEX.containsKey("htn"));
+        assertFalse(INDEX.containsKey("HTN"), "lookup is case-sensitive");
+
+        assertEquals(INDEX.keys().indexOf("htn"), INDEX.indexOf("PMH htn.", 4, 7));
+        assertEquals(-1, INDEX.indexOf("PMH htn.", 4, 6));
+        assertEquals("hypertension", INDEX.valueAt(INDEX.indexOf("htn", 0, 3)));
+        assertEquals("htn", INDEX.keyAt(INDEX.indexOf("htn", 0, 3)));
+    }
+
+    @Test void testKeysAreSortedWithSizeAndLongestKey() {
+        assertEquals(List.of("c", "ca", "cad", "cp", "dm", "htn", "한글"), INDEX.keys());
+        assertEquals(7, INDEX.size());
+        assertEquals(3, INDEX.maxKeyLength());
+
+        List<String> visited = new ArrayList<>();
+        INDEX.forEach((key, value) -> visited.add(key + "=" + value));
+        assertEquals("c=hypercholesterolemia", visited.get(0));
+        assertEquals(7, visited.size());
+    }
+
+    @Test void testPrefixRanges() {
+        assertEquals(4, INDEX.countWithPrefix("c"));
+        assertEquals(0, INDEX.firstWithPrefix("c"));
+        assertEquals(List.of("ca", "cad"), INDEX.keysWithPrefix("ca", 10));
+        assertEquals(List.of("c", "ca"), INDEX.keysWithPrefix("c", 2));
+        assertEquals(INDEX.keys(), INDEX.keysWithPrefix("", 100));
+        assertEquals(INDEX.size(), INDEX.countWithPrefix(""));
+
+        assertEquals(0, INDEX.countWithPrefix("x"));
+        assertEquals(-1, INDEX.firstWithPrefix("x"));
+        assertEquals(-1, INDEX.firstWithPrefix("cadd"));
+        assertTrue(INDEX.keysWithPrefix("x", 5).isEmpty());
+        assertTrue(INDEX.keysWithPrefix("c", 0).isEmpty());
+
+        Map<String, String> visited = new TreeMap<>();
+        INDEX.forEachWithPrefix("h", visited::put);
+        assertEquals(Map.of("htn", "hypertension"), visited);
+    }
+
+    @Test void testLongestMatch() {
+        assertEquals(INDEX.indexOf("cad", 0, 3), INDEX.longestMatch("cadx", 0, 4));
+        assertEquals(INDEX.indexOf("ca", 0, 2), INDEX.longestMatch("cab", 0, 3));
+        assertEquals(INDEX.indexOf("c", 0, 1), INDEX.longestMatch("cx", 0, 2));
+        assertEquals(INDEX.indexOf("ca", 0, 2), INDEX.longestMatch("cad", 0, 2), "end bounds the match");
+        assertEquals(INDEX.indexOf("htn", 0, 3), INDEX.longestMatch("PMH htn", 4, 7));
+        assertEquals(-1, INDEX.longestMatch("xyz", 0, 3));
+        assertEquals(-1, INDEX.longestMatch("c", 0, 0));
+    }
+
+    @Test void testEditsReturnNewIndex() {
+        AbbreviationIndex added = INDEX.withEntry("cabg", "coronary artery bypass graft");
+        assertEquals("coronary artery bypass graft", added.get("cabg"));
+        assertEquals(List.of("ca", "cabg", "cad"), added.keysWithPrefix("ca", 10));
+        assertNull(INDEX.get("cabg"), "the original index is unchanged");
+
+        AbbreviationIndex replaced = INDEX.withEntry("cp", "chest pressure");
+        assertEquals("chest pressure", replaced.get("cp"));
+        assertEquals(INDEX.size(), replaced.size());
+
+        AbbreviationIndex removed = INDEX.withoutEntry("ca");
+        assertNull(removed.get("ca"));
+        assertEquals("coronary artery disease", removed.get("cad"), "keys below a removed key remain");
+        assertEquals(List.of("c", "cad", "cp"), removed.keysWithPrefix("c", 10));
+        assertEquals(removed.keys(), removed.withoutEntry("nothing").keys());
+    }
+
+    @Test void testEmptyIndex() {
+        AbbreviationIndex empty = AbbreviationIndex.empty();
+        assertTrue(empty.isEmpty());
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.maxKeyLength());
+        assertNull(empty.get("c"));
+        assertEquals(-1, empty.longestMatch("cad", 0, 3));
+        assertEquals(-1, empty.firstWithPrefix(""));
+        assertEquals(0, empty.countWithPrefix(""));
+        assertEquals(0, empty.topWithPrefix("", 5, o -> 0).length);
+        assertTrue(empty.keys().isEmpty());
+
+        Map<String, String> invalid = new HashMap<>();
+        invalid.put("", "empty key");
+        invalid.put("k", null);
+        assertSame(empty, AbbreviationIndex.of(invalid), "invalid entries are ignored");
+        assertSame(empty, INDEX.toBuilder().remove("c").remove("ca").remove("cad").remove("cp")
+                .remove("dm").remove("htn").remove("한글").build());
+    }
+
+    @Test void testMatchesSortedMapOnRandomKeys() {
+        Random random = new Random(3);
+        TreeMap<String, String> expected = new TreeMap<>();
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        for (int i = 0; i < 3000; i++) {
+            String key = randomKey(random);
+            expected.put(key, "v" + i);
+            builder.put(key, "v" + i);
+        }
+        AbbreviationIndex index = builder.build();
+        assertEquals(new ArrayList<>(expected.keySet()), index.keys());
+
+        for (int i = 0; i < 2000; i++) {
+            String probe = randomKey(random);
+            assertEquals(expected.get(probe), index.get(probe), probe);
+
+            List<String> withPrefix = new ArrayList<>(expected.subMap(probe, probe + Character.MAX_VALUE).keySet());
+            assertEquals(withPrefix.size(), index.countWithPrefix(probe), probe);
+            assertEquals(withPrefix, index.keysWithPrefix(probe, Integer.MAX_VALUE), probe);
+
+            String longest = null;
+            for (int end = probe.length(); end > 0 && longest == null; end--) {
+                if (expected.containsKey(probe.substring(0, end))) longest = probe.substring(0, end);
+            }
+            int match = index.longestMatch(probe, 0, probe.length());
+            assertEquals(longest, match < 0 ? null : index.keyAt(match), probe);
+        }
+    }
+
+    private static String randomKey(Random random) {
+        char[] key = new char[1 + random.nextInt(4)];
+        for (int i = 0; i < key.length; i++) key[i] = (char) ('a' + random.nextInt(4));
+        return new String(key);
+    }
+}
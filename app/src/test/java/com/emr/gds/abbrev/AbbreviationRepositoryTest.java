@@ -0,0 +1,96 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbreviationRepositoryTest {
+
+    @Test void testPublishIncrementsVersion() {
+        AbbreviationRepository repository = new AbbreviationRepository();
+        assertEquals(0, repository.version());
+        assertTrue(repository.get().isEmpty());
+
+        AbbreviationIndex index = AbbreviationIndex.of(Map.of("htn", "hypertension"));
+        AbbreviationRepository.Snapshot published = repository.publish(index);
+        assertEquals(1, published.version());
+        assertSame(index, repository.get());
+        assertSame(published, repository.snapshot());
+
+        assertSame(published, repository.publish(index), "republishing the same index is not a new version");
+        assertEquals(1, repository.version());
+    }
+
+    @Test void testUpdateDerivesFromCurrentSnapshot() {
+        AbbreviationRepository repository = new AbbreviationRepository();
+        repository.publish(AbbreviationIndex.of(Map.of("htn", "hypertension")));
+        AbbreviationIndex before = repository.get();
+
+        repository.update(index -> index.withEntry("dm", "diabetes mellitus"));
+        assertEquals("hypertension", repository.get().get("htn"));
+        assertEquals("diabetes mellitus", repository.get().get("dm"));
+        assertEquals(2, repository.version());
+        assertNull(before.get("dm"), "published snapshots never change");
+    }
+
+    @Test void testCompareAndPublishRejectsStaleSnapshot() {
+        AbbreviationRepository repository = new AbbreviationRepository();
+        AbbreviationRepository.Snapshot first = repository.publish(AbbreviationIndex.of(Map.of("a", "1")));
+        repository.update(index -> index.withEntry("b", "2"));
+
+        assertFalse(repository.compareAndPublish(first, AbbreviationIndex.empty()));
+        assertEquals(2, repository.get().size());
+
+        assertTrue(repository.compareAndPublish(repository.snapshot(), AbbreviationIndex.empty()));
+        assertTrue(repository.get().isEmpty());
+        assertEquals(3, repository.version());
+    }
+
+    @Test void testListenersSeeEveryPublication() {
+        AbbreviationRepository repository = new AbbreviationRepository();
+        List<Long> versions = new ArrayList<>();
+        Runnable remove = repository.addListener(snapshot -> versions.add(snapshot.version()));
+        repository.addListener(snapshot -> { throw new IllegalStateException("ignored"); });
+
+        repository.publish(AbbreviationIndex.of(Map.of("a", "1")));
+        repository.update(index -> index.withEntry("b", "2"));
+        remove.run();
+        repository.update(index -> index.withEntry("c", "3"));
+
+        assertEquals(List.of(1L, 2L), versions);
+    }
+
+    @Test void testConcurrentUpdatesAreNotLost() throws Exception {
+        AbbreviationRepository repository = new AbbreviationRepository();
+        int threads = 4;
+        int perThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    String key = "k" + id + "_" + i;
+                    repository.update(index -> index.withEntry(key, key));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+
+        assertEquals(threads * perThread, repository.get().size());
+        assertEquals(threads * perThread, repository.version());
+    }
+}
@@ -0,0 +1,83 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbbreviationSuggesterTest {
+
+    private static final AbbreviationIndex INDEX = AbbreviationIndex.of(Map.of(
+            "ha", "headache",
+            "hb", "hemoglobin",
+            "hbp", "high blood pressure",
+            "htn", "hypertension",
+            "dm", "diabetes mellitus"));
+
+    @Test void testQueryFindsPartialKeyBeforeCaret() {
+        AbbreviationSuggester suggester = new AbbreviationSuggester(() -> INDEX, new AbbreviationUsage());
+        assertEquals(new AbbreviationSuggester.Query(4, 7, "ht"), suggester.query("PMH :ht", 7));
+        assertEquals(new AbbreviationSuggester.Query(0, 2, "h"), suggester.query(":h and", 2));
+        assertNull(suggester.query("PMH :", 5), "nothing typed after the colon");
+        assertNull(suggester.query("PMH :x", 6), "no key starts with x");
+        assertNull(suggester.query("a:ht", 4), "colon inside a word");
+        assertNull(suggester.query("PMH ht", 6));
+        assertNull(suggester.query(":htnxx", 6), "longer than any key");
+
+        AbbreviationSuggester twoChars = new AbbreviationSuggester(() -> INDEX, new AbbreviationUsage(), 2);
+        assertNull(twoChars.query(":h", 2));
+        assertEquals("hb", twoChars.query(":hb", 3).prefix());
+    }
+
+    @Test void testSuggestionsRankedByUse() {
+        AbbreviationUsage usage = new AbbreviationUsage();
+        AbbreviationSuggester suggester = new AbbreviationSuggester(() -> INDEX, usage);
+        assertEquals(List.of("ha", "hb", "hbp"), keys(suggester.suggest("h", 3)), "unused keys keep sorted order");
+
+        suggester.accepted("htn");
+        suggester.accepted("htn");
+        suggester.accepted("hbp");
+        List<AbbreviationSuggester.Suggestion> ranked = suggester.suggest("h", 3);
+        assertEquals(List.of("htn", "hbp", "ha"), keys(ranked));
+        assertEquals(new AbbreviationSuggester.Suggestion("htn", "hypertension", 2), ranked.get(0));
+
+        assertEquals(List.of("hbp", "hb"), keys(suggester.suggest("hb", 5)));
+        assertTrue(suggester.suggest("x", 5).isEmpty());
+        assertTrue(suggester.suggest("h", 0).isEmpty());
+    }
+
+    @Test void testTopWithPrefixMatchesFullSort() {
+        Random random = new Random(7);
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.put("k" + Integer.toString(random.nextInt(5000), 36), "v" + i);
+        }
+        AbbreviationIndex index = builder.build();
+        long[] weights = new long[index.size()];
+        for (int i = 0; i < weights.length; i++) weights[i] = random.nextInt(4);
+
+        for (String prefix : new String[] {"", "k", "k1", "k2z", "x"}) {
+            for (int limit : new int[] {1, 5, 50, 5000}) {
+                int from = index.firstWithPrefix(prefix);
+                int[] expected = from < 0 ? new int[0] : IntStream.range(from, from + index.countWithPrefix(prefix))
+                        .boxed()
+                        .sorted(Comparator.<Integer>comparingLong(o -> -weights[o]).thenComparingInt(o -> o))
+                        .limit(limit)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                assertArrayEquals(expected, index.topWithPrefix(prefix, limit, o -> weights[o]),
+                        "prefix '" + prefix + "', limit " + limit);
+            }
+        }
+    }
+
+    private static List<String> keys(List<AbbreviationSuggester.Suggestion> suggestions) {
+        return Arrays.asList(suggestions.stream().map(AbbreviationSuggester.Suggestion::key).toArray(String[]::new));
+    }
+}
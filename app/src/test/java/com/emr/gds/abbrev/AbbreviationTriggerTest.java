@@ -0,0 +1,108 @@
+package com.emr.gds.abbrev;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The trigger must find the same abbreviations as the copy-and-search code the editors used on SPACE,
+ * while reading no more than one window before the caret.
+ */
+class AbbreviationTriggerTest {
+
+    private static final AbbreviationIndex INDEX = AbbreviationIndex.of(Map.of(
+            "htn", "hypertension",
+            "dm", "type 2 diabetes mellitus",
+            "c", "hypercholesterolemia",
+            "longerkey", "a longer expansion"));
+    private static final String[] WORDS = {
+            ":htn", ":dm", ":c", ":longerkey", ":cd", ":CD", ":x", "::htn", "a:htn", ":htnx", "htn", ":",
+            "word", "한글", ":longerkeyz", "x:longerkey", "",
+    };
+
+    @Test void testFindsKeyBeforeCaret() {
+        AbbreviationTrigger trigger = AbbreviationTrigger.of(INDEX);
+        assertEquals(new AbbreviationTrigger.Match(4, 8, "hypertension"), trigger.find("PMH :htn", 8));
+        assertEquals(new AbbreviationTrigger.Match(0, 3, "type 2 diabetes mellitus"), trigger.find(":dm and", 3));
+        assertEquals(LocalDate.now().format(DateTimeFormatter.ISO_DATE), trigger.find("on\n:cd", 6).replacement());
+        assertNull(trigger.find("PMH :htn", 7));
+        assertNull(trigger.find("xx:htn", 6));
+        assertNull(trigger.find(":", 1));
+        assertNull(trigger.find("", 0));
+        assertNull(trigger.find(":htn", 5));
+        assertEquals(11, trigger.window());
+    }
+
+    @Test void testMatchesLegacyDetection() {
+        AbbreviationTrigger trigger = AbbreviationTrigger.of(INDEX);
+        Random random = new Random(22);
+        for (int n = 0; n < 20_000; n++) {
+            String text = randomText(random);
+            int caret = random.nextInt(text.length() + 1);
+            AbbreviationTrigger.Match match = trigger.find(text, caret);
+            String legacy = legacyReplacement(text, caret);
+            assertEquals(legacy, match == null ? null : match.replacement(), () -> "'" + text + "' at " + caret);
+            if (match != null) {
+                assertEquals(caret, match.end());
+                assertEquals(':', text.charAt(match.start()));
+            }
+        }
+    }
+
+    @Test void testTextSourceReadsOneWindow() {
+        AbbreviationTrigger trigger = AbbreviationTrigger.of(INDEX);
+        Random random = new Random(9);
+        for (int n = 0; n < 20_000; n++) {
+            String text = "x".repeat(random.nextInt(40)) + randomText(random);
+            int caret = random.nextInt(text.length() + 1);
+            int[] read = new int[1];
+            AbbreviationTrigger.Match windowed = trigger.find((start, end) -> {
+                read[0] += end - start;
+                return text.substring(start, end);
+            }, caret);
+            assertEquals(trigger.find(text, caret), windowed, () -> "'" + text + "' at " + caret);
+            assertTrue(read[0] <= trigger.window());
+        }
+    }
+
+    @Test void testLongDocumentReadsOnlyTheToken() {
+        AbbreviationTrigger trigger = AbbreviationTrigger.of(INDEX);
+        int[] reads = new int[1];
+        String prefix = "word ".repeat(100_000) + ":htn";
+        CharSequence counting = new CharSequence() {
+            @Override public int length() { return prefix.length(); }
+            @Override public char charAt(int index) { reads[0]++; return prefix.charAt(index); }
+            @Override public CharSequence subSequence(int start, int end) { return prefix.subSequence(start, end); }
+        };
+        assertEquals("hypertension", trigger.find(counting, prefix.length()).replacement());
+        assertTrue(reads[0] <= 2 * trigger.window(), "reads " + reads[0]);
+
+        reads[0] = 0;
+        assertNull(trigger.find(counting, prefix.length() - 4));
+        assertTrue(reads[0] <= trigger.window(), "reads " + reads[0]);
+    }
+
+    /** The detection the editors used: the text after the last space or newline, trimmed. */
+    private static String legacyReplacement(String text, int caret) {
+        String upToCaret = text.substring(0, caret);
+        int start = Math.max(upToCaret.lastIndexOf(' '), upToCaret.lastIndexOf('\n')) + 1;
+        String word = upToCaret.substring(start).trim();
+        if (!word.startsWith(":")) return null;
+        return AbbreviationExpander.of(INDEX).lookup(word.substring(1));
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int words = random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(random.nextInt(4) == 0 ? "\n" : " ");
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.emr.gds.autosave;
+
+import com.emr.gds.document.SectionDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncounterJournalTest {
+
+    private static final int AREAS = 3;
+
+    @TempDir Path dir;
+
+    @Test void testFirstRunIsEmptyAndClean() throws IOException {
+        try (EncounterJournal journal = new EncounterJournal(dir, AREAS)) {
+            EncounterJournal.Recovery recovery = journal.recover();
+            assertTrue(recovery.clean());
+            assertTrue(recovery.isEmpty());
+            assertEquals(AREAS, recovery.texts().length);
+        }
+    }
+
+    @Test void testReplaysJournalAfterCrash() throws IOException {
+        EncounterJournal journal = new EncounterJournal(dir, AREAS);
+        journal.recover();
+        append(journal, 0, 0, 0, "chest pain");
+        append(journal, 0, 0, 5, "Chest");          // "Chest pain"
+        append(journal, 2, 0, 0, "f/u 1 month");
+        append(journal, 0, 10, 0, " x 3 days");
+        // No close(): the JVM "dies" with the records only in the mapping
+
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertFalse(recovery.clean());
+        assertEquals(4, recovery.replayed());
+        assertArrayEquals(new String[] {"Chest pain x 3 days", "", "f/u 1 month"}, recovery.texts());
+    }
+
+    @Test void testCompactionStartsNewGeneration() throws IOException {
+        EncounterJournal journal = new EncounterJournal(dir, AREAS);
+        journal.recover();
+        append(journal, 1, 0, 0, "old");
+        journal.compact(new String[] {"", "old", ""}, false);
+        assertEquals(0, journal.journalSize());
+        append(journal, 1, 3, 0, " and new");
+
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertEquals(1, recovery.replayed());
+        assertEquals("old and new", recovery.texts()[1]);
+    }
+
+    @Test void testCleanShutdownIsNotOfferedForRestore() throws IOException {
+        try (EncounterJournal journal = new EncounterJournal(dir, AREAS)) {
+            journal.recover();
+            append(journal, 0, 0, 0, "done");
+            journal.compact(new String[] {"done", "", ""}, true);
+        }
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertTrue(recovery.clean());
+        assertEquals("done", recovery.texts()[0]);
+    }
+
+    @Test void testTornRecordIsIgnored() throws IOException {
+        EncounterJournal journal = new EncounterJournal(dir, AREAS);
+        journal.recover();
+        append(journal, 0, 0, 0, "kept");
+        int tornAt = 32 + journal.journalSize();
+        append(journal, 0, 4, 0, " lost");
+        journal.close();
+
+        // Corrupt one byte of the second record's text
+        try (FileChannel channel = FileChannel.open(dir.resolve(EncounterJournal.JOURNAL_FILE), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), tornAt + 4 + 21 + 1);
+        }
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertEquals(1, recovery.replayed());
+        assertEquals("kept", recovery.texts()[0]);
+    }
+
+    @Test void testFullJournalReportsNoSpace() throws IOException {
+        EncounterJournal journal = new EncounterJournal(dir, AREAS, 256);
+        journal.recover();
+        assertFalse(journal.append(0, 0, 0, "x".repeat(200), 0, 200));
+        assertTrue(journal.append(0, 0, 0, "x", 0, 1));
+    }
+
+    @Test void testAutosaveKeepsLatestTexts() throws Exception {
+        EncounterAutosave autosave = new EncounterAutosave(dir, AREAS);
+        assertTrue(autosave.recovered().get(5, TimeUnit.SECONDS).isEmpty());
+        autosave.recordEdit(0, "a");
+        autosave.recordEdit(0, "ab");
+        autosave.recordEdit(0, "xab");
+        autosave.recordEdit(1, "plan");
+        autosave.saveNow().get(5, TimeUnit.SECONDS);
+        autosave.recordEdit(1, "plan B");
+        autosave.recordEdit(1, "plan C");
+        autosave.close();
+
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertTrue(recovery.clean());
+        assertArrayEquals(new String[] {"xab", "plan C", ""}, recovery.texts());
+    }
+
+    @Test void testAutosaveJournalsDocumentDeltas() throws Exception {
+        EncounterAutosave autosave = new EncounterAutosave(dir, AREAS);
+        assertTrue(autosave.recovered().get(5, TimeUnit.SECONDS).isEmpty());
+        SectionDocument cc = new SectionDocument(0);
+        cc.replace(0, 0, "before the autosave listened ");
+        cc.addListener(autosave::recordDelta);
+        cc.replace(cc.length(), cc.length(), "headache");
+        cc.replace(0, 7, "BEFORE");
+        cc.sync("headache since yesterday");
+
+        SectionDocument plan = new SectionDocument(1);
+        plan.addListener(autosave::recordDelta);
+        autosave.recordEdit(1, "set as a whole text");
+        plan.replace(0, 0, "f/u");
+        plan.replace(3, 3, " 1w");
+        autosave.saveNow().get(5, TimeUnit.SECONDS);
+        plan.replace(0, 3, "F/U");
+        autosave.close();
+
+        EncounterJournal.Recovery recovery = new EncounterJournal(dir, AREAS).recover();
+        assertArrayEquals(new String[] {"headache since yesterday", "F/U 1w", ""}, recovery.texts());
+    }
+
+    private static void append(EncounterJournal journal, int area, int offset, int removed, String inserted) {
+        assertTrue(journal.append(area, offset, removed, inserted, 0, inserted.length()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.emr.gds.db;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteDatabaseTest {
+
+    @TempDir Path dir;
+
+    @Test void testEveryInitializerRunsOncePerFile() throws Exception {
+        SqliteDatabase db = new SqliteDatabase(dir.resolve("schema.db"));
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        try {
+            for (int i = 0; i < 3; i++) {
+                db.ensureSchema(conn -> {
+                    first.incrementAndGet();
+                    execute(conn, "CREATE TABLE IF NOT EXISTS a(x)");
+                });
+                db.ensureSchema(conn -> {
+                    second.incrementAndGet();
+                    execute(conn, "CREATE TABLE IF NOT EXISTS b(x)");
+                });
+            }
+            assertEquals(1, first.get());
+            assertEquals(1, second.get(), "a second caller's initializer is not skipped");
+            assertEquals(2, (int) db.query("SELECT count(*) FROM sqlite_master WHERE type = 'table'", null,
+                    rs -> rs.next() ? rs.getInt(1) : 0));
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
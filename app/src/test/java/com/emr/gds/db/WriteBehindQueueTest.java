@@ -0,0 +1,196 @@
+package com.emr.gds.db;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+
+    private static final String INSERT = "INSERT INTO t(name) VALUES (?)";
+
+    @TempDir Path dir;
+
+    @Test void testWritesQueuedTogetherShareOneTransaction() throws Exception {
+        SqliteDatabase db = database("group.db");
+        SqliteDatabase reader = new SqliteDatabase(dir.resolve("group.db"));
+        WriteBehindQueue queue = new WriteBehindQueue();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            results.add(queue.submit(db, INSERT, ps -> {
+                started.countDown();
+                await(release);
+                ps.setString(1, "first");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // Everything below queues up behind the blocked first write and is drained as one group
+            for (int i = 0; i < 9; i++) {
+                String name = "queued " + i;
+                results.add(queue.submit(db, INSERT, ps -> ps.setString(1, name)));
+            }
+            int[] committedBeforeLast = new int[1];
+            results.add(queue.submit(db, INSERT, ps -> {
+                committedBeforeLast[0] = count(reader);
+                ps.setString(1, "last");
+            }));
+            release.countDown();
+
+            assertTrue(queue.flush());
+            for (CompletableFuture<Integer> result : results) assertEquals(1, (int) result.getNow(-1));
+            assertEquals(1, committedBeforeLast[0], "the other queued writes were not yet committed");
+            assertEquals(11, count(db));
+            assertEquals("last", db.query("SELECT name FROM t ORDER BY id DESC LIMIT 1", null,
+                    rs -> rs.next() ? rs.getString(1) : null), "applied in submission order");
+        } finally {
+            queue.shutdown();
+            reader.close();
+            db.close();
+        }
+    }
+
+    @Test void testFailingWriteFailsOnlyItsOwnFuture() throws Exception {
+        SqliteDatabase db = database("savepoint.db");
+        WriteBehindQueue queue = new WriteBehindQueue();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Integer> a = queue.submit(db, INSERT, ps -> {
+                await(release);
+                ps.setString(1, "a");
+            });
+            CompletableFuture<Integer> duplicate = queue.submit(db, INSERT, ps -> ps.setString(1, "a"));
+            CompletableFuture<Integer> broken = queue.submit(db, INSERT, ps -> { throw new IllegalStateException("binder"); });
+            CompletableFuture<Integer> b = queue.submit(db, INSERT, ps -> ps.setString(1, "b"));
+            release.countDown();
+
+            assertTrue(queue.flush());
+            assertEquals(1, (int) a.get());
+            assertEquals(1, (int) b.get());
+            assertInstanceOf(SQLException.class, cause(duplicate), "UNIQUE violation");
+            assertInstanceOf(IllegalStateException.class, cause(broken));
+            assertEquals(List.of("a", "b"), names(db));
+        } finally {
+            queue.shutdown();
+            db.close();
+        }
+    }
+
+    @Test void testWriterSurvivesAnError() throws Exception {
+        SqliteDatabase db = database("error.db");
+        WriteBehindQueue queue = new WriteBehindQueue();
+        try {
+            CompletableFuture<Integer> fatal = queue.submit(db, INSERT, ps -> {
+                ps.setString(1, "rolled back");
+                throw new AssertionError("not an exception");
+            });
+            assertInstanceOf(AssertionError.class, cause(fatal));
+
+            // More than the queue holds: with a dead writer the submits would block once it filled up
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                int n = i;
+                results.add(queue.submit(db, INSERT, ps -> ps.setString(1, "row " + n)));
+            }
+            assertTrue(queue.flush());
+            for (CompletableFuture<Integer> result : results) assertEquals(1, (int) result.getNow(-1));
+            assertEquals(1500, count(db));
+        } finally {
+            queue.shutdown();
+            db.close();
+        }
+    }
+
+    @Test void testFlushWaitsForEarlierWrites() throws Exception {
+        SqliteDatabase db = database("flush.db");
+        WriteBehindQueue queue = new WriteBehindQueue();
+        try {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                int n = i;
+                results.add(queue.submit(db, INSERT, ps -> ps.setString(1, "row " + n)));
+            }
+            assertTrue(queue.flush());
+            for (CompletableFuture<Integer> result : results) assertTrue(result.isDone());
+            assertEquals(300, count(db));
+            assertTrue(queue.flush(), "nothing queued");
+        } finally {
+            queue.shutdown();
+            db.close();
+        }
+    }
+
+    @Test void testShutdownFlushesAndLaterWritesRunDirectly() throws Exception {
+        SqliteDatabase db = database("shutdown.db");
+        WriteBehindQueue queue = new WriteBehindQueue();
+        try {
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int n = i;
+                results.add(queue.submit(db, INSERT, ps -> ps.setString(1, "row " + n)));
+            }
+            queue.shutdown();
+            for (CompletableFuture<Integer> result : results) assertTrue(result.isDone());
+
+            CompletableFuture<Integer> after = queue.submit(db, INSERT, ps -> ps.setString(1, "after"));
+            assertEquals(1, (int) after.getNow(-1), "written before submit returned");
+            CompletableFuture<Integer> failed = queue.submit(db, INSERT, ps -> ps.setString(1, "after"));
+            assertInstanceOf(SQLException.class, cause(failed));
+            queue.shutdown();
+            assertEquals(51, count(db));
+        } finally {
+            db.close();
+        }
+    }
+
+    // ================================
+    // Helpers
+    // ================================
+
+    private SqliteDatabase database(String name) throws SQLException {
+        SqliteDatabase db = new SqliteDatabase(dir.resolve(name));
+        db.update("CREATE TABLE t(id INTEGER PRIMARY KEY, name TEXT UNIQUE)", null);
+        return db;
+    }
+
+    private static int count(SqliteDatabase db) throws SQLException {
+        return db.query("SELECT count(*) FROM t", null, rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+    private static List<String> names(SqliteDatabase db) throws SQLException {
+        return db.query("SELECT name FROM t ORDER BY id", null, rs -> {
+            List<String> names = new ArrayList<>();
+            while (rs.next()) names.add(rs.getString(1));
+            return names;
+        });
+    }
+
+    private static Throwable cause(CompletableFuture<Integer> result) throws InterruptedException {
+        try {
+            result.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            fail("write did not complete");
+        }
+        return fail("write did not fail");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.emr.gds.document;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A rope must read exactly like the string built by the same edits, and stay balanced while it is edited.
+ */
+class RopeTest {
+
+    @Test void testEmpty() {
+        assertEquals("", Rope.of("").toString());
+        assertSame(Rope.EMPTY, Rope.of(null));
+        assertTrue(Rope.EMPTY.isBlank());
+        assertEquals(0, Rope.EMPTY.hashCode());
+    }
+
+    @Test void testLargeTextIsChunked() {
+        String text = "x".repeat(100_000);
+        Rope rope = Rope.of(text);
+        assertEquals(text, rope.toString());
+        assertTrue(rope.isBalanced());
+        assertTrue(rope.height() <= 9, "height " + rope.height());
+        assertEquals(text.hashCode(), rope.hashCode());
+    }
+
+    @Test void testRandomEditsMatchStringBuilder() {
+        Random random = new Random(21);
+        StringBuilder expected = new StringBuilder();
+        Rope rope = Rope.EMPTY;
+        for (int n = 0; n < 20_000; n++) {
+            int start = random.nextInt(expected.length() + 1);
+            int op = random.nextInt(10);
+            if (op < 6) {
+                // Typing: mostly single characters
+                String text = op == 0 ? randomText(random, random.nextInt(2000)) : randomText(random, 1);
+                expected.insert(start, text);
+                rope = rope.insert(start, text);
+            } else if (op < 9) {
+                int end = Math.min(expected.length(), start + random.nextInt(op == 8 ? 3000 : 3));
+                expected.delete(start, end);
+                rope = rope.delete(start, end);
+            } else {
+                int end = Math.min(expected.length(), start + random.nextInt(50));
+                String text = randomText(random, random.nextInt(50));
+                expected.replace(start, end, text);
+                rope = rope.replace(start, end, text);
+            }
+            assertEquals(expected.length(), rope.length());
+            if (n % 250 == 0) {
+                assertTrue(rope.isBalanced(), "unbalanced after edit " + n);
+                assertEquals(expected.toString(), rope.toString(), "edit " + n);
+            }
+        }
+        assertEquals(expected.toString(), rope.toString());
+    }
+
+    @Test void testReadsMatchString() {
+        Random random = new Random(5);
+        String text = randomText(random, 20_000);
+        Rope rope = Rope.EMPTY;
+        for (int i = 0; i < text.length(); i += 7) {
+            rope = rope.append(text.substring(i, Math.min(text.length(), i + 7)));
+        }
+        assertTrue(rope.isBalanced());
+        for (int n = 0; n < 2_000; n++) {
+            int start = random.nextInt(text.length() + 1);
+            int end = start + random.nextInt(text.length() - start + 1);
+            assertEquals(text.charAt(Math.min(start, text.length() - 1)), rope.charAt(Math.min(start, text.length() - 1)));
+            assertEquals(text.substring(start, end), rope.substring(start, end));
+            Rope sub = rope.subSequence(start, end);
+            assertTrue(sub.isBalanced());
+            assertEquals(text.substring(start, end), sub.toString());
+            assertEquals(text.lastIndexOf('\n', start - 1), rope.lastIndexOf('\n', start));
+        }
+        assertTrue(rope.contentEquals(text));
+        assertEquals(Rope.of(text), rope);
+        assertEquals(text.hashCode(), rope.hashCode());
+        assertFalse(rope.isBlank());
+        assertTrue(Rope.of(" \n\t".repeat(1000)).isBlank());
+    }
+
+    @Test void testEditsShareUnchangedText() {
+        Rope before = Rope.of("a".repeat(10_000));
+        Rope after = before.insert(5_000, "b");
+        assertEquals("a".repeat(10_000), before.toString());
+        assertEquals('b', after.charAt(5_000));
+        assertSame(before, before.insert(3, ""));
+        assertThrows(IndexOutOfBoundsException.class, () -> before.delete(5, 10_001));
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int r = random.nextInt(20);
+            chars[i] = r == 0 ? '\n' : r == 1 ? ' ' : r == 2 ? '한' : (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,58 @@
+package com.emr.gds.document;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SectionDocumentTest {
+
+    @Test void testListenersReceiveDeltas() {
+        SectionDocument doc = new SectionDocument(3);
+        List<SectionDelta> deltas = new ArrayList<>();
+        Runnable remove = doc.addListener(deltas::add);
+
+        doc.replace(0, 0, "PMH> DM");
+        doc.replace(5, 7, "HTN");
+        doc.replace(0, 0, "");
+
+        assertEquals(List.of(
+                new SectionDelta(3, 0, 0, "PMH> DM", Rope.of("PMH> DM"), 1),
+                new SectionDelta(3, 5, 2, "HTN", Rope.of("PMH> HTN"), 2)), deltas);
+        assertEquals(8, deltas.get(1).insertedEnd());
+        assertEquals("PMH> HTN", doc.text().toString());
+
+        remove.run();
+        doc.replace(0, 3, "");
+        assertEquals(2, deltas.size());
+        assertEquals(3, doc.version());
+    }
+
+    @Test void testSyncReportsChangedRangeOnly() {
+        SectionDocument doc = new SectionDocument(0);
+        doc.sync("headache for 3 days");
+        List<SectionDelta> deltas = new ArrayList<>();
+        doc.addListener(deltas::add);
+
+        doc.sync("headache for 5 days");
+        doc.sync("headache for 5 days");
+        doc.sync("headache");
+        doc.sync("");
+
+        assertEquals(3, deltas.size());
+        assertEquals(new SectionDelta(0, 13, 1, "5", Rope.of("headache for 5 days"), 2), deltas.get(0));
+        assertEquals(8, deltas.get(1).start());
+        assertEquals(11, deltas.get(1).removedLength());
+        assertEquals("", deltas.get(1).inserted());
+        assertTrue(doc.text().isEmpty());
+    }
+
+    @Test void testDifference() {
+        assertNull(SectionDocument.difference("same", "same"));
+        assertEquals(new SectionDocument.Difference(2, 2, 3), SectionDocument.difference("aa", "aaa"));
+        assertEquals(new SectionDocument.Difference(0, 3, 0), SectionDocument.difference("abc", ""));
+        assertEquals(new SectionDocument.Difference(2, 3, 3), SectionDocument.difference("- a\n\n\nb", "- x\n\n\nb"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.emr.gds.encounter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncounterHistoryCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @Test void testMissUntilLoaded() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        assertNull(cache.get("p1", 5));
+        cache.put("p1", history("p1", 5), 5);
+        assertEquals(5, cache.get("p1", 5).size());
+        assertEquals(3, cache.get("p1", 3).size());
+        assertNull(cache.get("p1", 6), "only the newest 5 are known");
+    }
+
+    @Test void testShortHistoryIsComplete() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        cache.put("p1", history("p1", 2), 5);
+        assertEquals(2, cache.get("p1", 100).size());
+        cache.put("p2", List.of(), 5);
+        assertEquals(List.of(), cache.get("p2", 5));
+    }
+
+    @Test void testSavedEncounterGoesFirst() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        cache.put("p1", history("p1", 3), 3);
+        Encounter today = encounter("p1", DAY.plusDays(30), 0);
+        cache.add(today);
+        cache.add(today);
+        List<Encounter> latest = cache.get("p1", 4);
+        assertEquals(4, latest.size());
+        assertEquals(today, latest.get(0));
+    }
+
+    @Test void testOlderThanCachedWindowIsNotAdded() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        cache.put("p1", history("p1", 3), 3);
+        cache.add(encounter("p1", DAY.minusYears(5), 0));
+        assertNull(cache.get("p1", 4));
+
+        cache.put("p2", history("p2", 1), 3); // Complete: everything is cached, so anything belongs
+        Encounter old = encounter("p2", DAY.minusYears(5), 0);
+        cache.add(old);
+        assertEquals(old, cache.get("p2", 3).get(1));
+    }
+
+    @Test void testUncachedPatientIsNotCreatedBySave() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        cache.add(encounter("p1", DAY, 0));
+        assertNull(cache.get("p1", 1));
+    }
+
+    @Test void testLeastRecentlyUsedPatientIsEvicted() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(2);
+        cache.put("p1", history("p1", 1), 5);
+        cache.put("p2", history("p2", 1), 5);
+        assertNotNull(cache.get("p1", 1));
+        cache.put("p3", history("p3", 1), 5);
+        assertNotNull(cache.get("p1", 1));
+        assertNull(cache.get("p2", 1));
+        assertNotNull(cache.get("p3", 1));
+    }
+
+    @Test void testSameDaySavesOrderedBySaveTime() {
+        EncounterHistoryCache cache = new EncounterHistoryCache(4);
+        Encounter morning = encounter("p1", DAY, 9);
+        cache.put("p1", List.of(morning), 5);
+        Encounter afternoon = encounter("p1", DAY, 15);
+        cache.add(afternoon);
+        assertEquals(List.of(afternoon, morning), cache.get("p1", 5));
+    }
+
+    private static List<Encounter> history(String patientId, int count) {
+        List<Encounter> newestFirst = new ArrayList<>();
+        for (int i = 0; i < count; i++) newestFirst.add(encounter(patientId, DAY.minusMonths(i), 10));
+        return newestFirst;
+    }
+
+    private static Encounter encounter(String patientId, LocalDate date, int hour) {
+        List<String> sections = new ArrayList<>();
+        for (int i = 0; i < EncounterRepository.SECTION_COLUMNS.length; i++) sections.add("note " + date + " " + i);
+        return new Encounter(patientId, date, date.atStartOfDay().plusHours(hour), sections, List.of("HTN"));
+    }
+}
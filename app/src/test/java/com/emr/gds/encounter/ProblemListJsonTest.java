@@ -0,0 +1,50 @@
+package com.emr.gds.encounter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProblemListJsonTest {
+
+    @Test void testProblemsWithLineBreaksStayWhole() {
+        List<String> problems = List.of("HTN", "DM type 2\n- on metformin\r\n- HbA1c 7.1", "", "say \"no\" \\ \t tab");
+        String json = ProblemListJson.write(problems);
+        assertFalse(json.contains("\n"), json);
+        assertEquals(problems, ProblemListJson.read(json));
+    }
+
+    @Test void testEmptyList() {
+        assertEquals("[]", ProblemListJson.write(List.of()));
+        assertEquals(List.of(), ProblemListJson.read("[]"));
+        assertEquals(List.of(), ProblemListJson.read(" [ ] "));
+    }
+
+    @Test void testReadsOtherValidJson() {
+        assertEquals(List.of("a/b", "고혈압", "\u0001\b\f"), ProblemListJson.read(" [ \"a\\/b\" ,\n\"\\uace0혈압\", \"\\u0001\\b\\f\" ] "));
+    }
+
+    @Test void testRejectsMalformedInput() {
+        for (String bad : new String[] {"", "HTN\nDM", "[", "[\"a\"", "[\"a\",]", "[\"a\" \"b\"]", "[1]",
+                "[\"\\x\"]", "[\"\\u12\"]", "[\"\\u+123\"]", "[\"a\"] x", "[\"a\\"}) {
+            assertThrows(IllegalArgumentException.class, () -> ProblemListJson.read(bad), bad);
+        }
+    }
+
+    @Test void testRoundTripsAnyText() {
+        Random random = new Random(3);
+        String alphabet = "aZ \"\\/\n\r\t\u0000\u001f,[]한\uD83D\uDE00";
+        for (int i = 0; i < 5000; i++) {
+            List<String> problems = new ArrayList<>();
+            for (int n = random.nextInt(5); n > 0; n--) {
+                char[] text = new char[random.nextInt(8)];
+                for (int j = 0; j < text.length; j++) text[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+                problems.add(new String(text));
+            }
+            assertEquals(problems, ProblemListJson.read(ProblemListJson.write(problems)));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test void testQuotedFields() throws IOException {
+        assertEquals(List.of(
+                List.of("A00", "Cholera, unspecified", "콜레라"),
+                List.of("A01", "line one\nline two", "say \"hi\""),
+                List.of("", "", "\"")),
+                records("A00,\"Cholera, unspecified\",콜레라\n"
+                        + "A01,\"line one\nline two\",\"say \"\"hi\"\"\"\n"
+                        + ",\"\",\"\"\"\"\n"));
+    }
+
+    @Test void testLineEndings() throws IOException {
+        List<List<String>> expected = List.of(List.of("a", "b"), List.of("c", "d"), List.of("e", ""));
+        assertEquals(expected, records("a,b\r\nc,d\r\ne,\r\n"));
+        assertEquals(expected, records("a,b\rc,d\re,"));
+        assertEquals(expected, records("a,b\nc,d\r\ne,\r"));
+        assertEquals(List.of(List.of("a"), List.of(""), List.of("b")), records("a\n\nb\n"), "a blank line is one empty field");
+        assertEquals(List.of(List.of("\r\n")), records("\"\r\n\""), "line breaks inside quotes are kept as is");
+    }
+
+    @Test void testByteOrderMark() throws IOException {
+        assertEquals(List.of(List.of("code", "name"), List.of("x", "\uFEFF")), records("\uFEFFcode,name\nx,\uFEFF"));
+        assertTrue(records("\uFEFF").isEmpty());
+        assertTrue(records("").isEmpty());
+    }
+
+    @Test void testUnterminatedQuoteKeepsRest() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "open,\nrest")), records("a,b\nc,\"open,\nrest"));
+        assertEquals(List.of(List.of("ab", "c")), records("\"a\"b,c"), "text after a closing quote is kept");
+    }
+
+    @Test void testRecordNumbers() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("h1,h2\n\"multi\nline\",x\ny,z\n"))) {
+            List<String> fields = new ArrayList<>();
+            assertEquals(0, csv.recordNumber());
+            assertTrue(csv.next(fields));
+            assertTrue(csv.next(fields));
+            assertEquals(List.of("multi\nline", "x"), fields);
+            assertEquals(2, csv.recordNumber());
+            assertTrue(csv.next(fields));
+            assertFalse(csv.next(fields));
+            assertTrue(fields.isEmpty());
+            assertEquals(3, csv.recordNumber());
+        }
+    }
+
+    @Test void testRecordsSpanningTheBuffer() throws IOException {
+        // The reader fills a 64K buffer; put every kind of token across its boundary
+        String longField = "x".repeat((1 << 16) - 3);
+        String text = longField + ",\"q,\"\"\r\nz\"\r\nnext," + longField + "y\r\n\"" + "é".repeat(1 << 16) + "\"";
+        assertEquals(List.of(
+                List.of(longField, "q,\"\r\nz"),
+                List.of("next", longField + "y"),
+                List.of("é".repeat(1 << 16))), records(text));
+
+        for (int shift = 0; shift < 8; shift++) {
+            String shifted = "a".repeat((1 << 16) - 4 + shift) + ",\"b\"\"\",c\r\nd";
+            assertEquals(List.of(List.of("a".repeat((1 << 16) - 4 + shift), "b\"", "c"), List.of("d")),
+                    records(shifted), "shift " + shift);
+        }
+    }
+
+    @Test void testSmallReadsMatchOneRead() throws IOException {
+        Random random = new Random(17);
+        String alphabet = "ab,,\"\"\n\r한\uFEFF";
+        for (int i = 0; i < 5000; i++) {
+            char[] text = new char[random.nextInt(30)];
+            for (int j = 0; j < text.length; j++) text[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            String csv = new String(text);
+            assertEquals(records(new StringReader(csv)), records(new OneCharReader(csv)), csv);
+        }
+    }
+
+    private static List<List<String>> records(String text) throws IOException {
+        List<List<String>> whole = records(new StringReader(text));
+        assertEquals(whole, records(new OneCharReader(text)), "reading one character at a time");
+        return whole;
+    }
+
+    private static List<List<String>> records(Reader in) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(in)) {
+            List<String> fields = new ArrayList<>();
+            while (csv.next(fields)) records.add(List.copyOf(fields));
+        }
+        return records;
+    }
+
+    /** Returns at most one character per read, so that every position is a buffer boundary. */
+    private static final class OneCharReader extends Reader {
+        private final String text;
+        private int pos;
+
+        OneCharReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos == text.length()) return -1;
+            cbuf[off] = text.charAt(pos++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
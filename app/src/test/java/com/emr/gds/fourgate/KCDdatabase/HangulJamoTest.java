@@ -0,0 +1,65 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HangulJamoTest {
+
+    @Test void testDecomposeSplitsCompoundsAndKeepsOtherText() {
+        assertEquals("ㄷㅏㄹㄱ", HangulJamo.decompose("닭"));
+        assertEquals("ㄱㅗㅏ", HangulJamo.decompose("과"));
+        assertEquals("ㄷㅏㅇㄴㅛㅂㅕㅇ", HangulJamo.decompose("당뇨병"));
+        assertEquals("ㄹㄱ ㅗㅏ", HangulJamo.decompose("ㄺ ㅘ"), "compound jamo typed on their own");
+        assertEquals("E11 ㄷㅏㅇ-2", HangulJamo.decompose("E11 당-2"));
+        assertEquals("", HangulJamo.decompose(""));
+
+        StringBuilder out = new StringBuilder("x");
+        HangulJamo.decompose("가나다", 1, 2, out);
+        assertEquals("xㄴㅏ", out.toString());
+    }
+
+    @Test void testHalfTypedSyllableIsPrefixOfFullOne() {
+        // What an IME shows while the last syllable is being typed
+        assertTrue(HangulJamo.decompose("닭").startsWith(HangulJamo.decompose("달")));
+        assertTrue(HangulJamo.decompose("당뇨병").startsWith(HangulJamo.decompose("당뇨벼")));
+        assertTrue(HangulJamo.decompose("당뇨병").startsWith(HangulJamo.decompose("당뇨ㅂ")));
+        assertTrue(HangulJamo.decompose("다리").startsWith(HangulJamo.decompose("달")), "final consonant moves on");
+    }
+
+    @Test void testEverySyllableDecomposes() {
+        for (char c = 0xAC00; c <= 0xD7A3; c++) {
+            assertTrue(HangulJamo.isSyllable(c));
+            String jamo = HangulJamo.decompose(String.valueOf(c));
+            assertTrue(jamo.length() >= 2 && jamo.length() <= 5, jamo);
+            assertEquals(HangulJamo.initials(String.valueOf(c)).charAt(0), jamo.charAt(0));
+            assertTrue(HangulJamo.isConsonant(jamo.charAt(0)), jamo);
+            assertFalse(HangulJamo.isConsonant(jamo.charAt(1)), "a vowel follows the initial: " + jamo);
+            for (int i = 0; i < jamo.length(); i++) assertTrue(HangulJamo.isJamo(jamo.charAt(i)), jamo);
+        }
+    }
+
+    @Test void testInitials() {
+        assertEquals("ㄷㄴㅂ", HangulJamo.initials("당뇨병"));
+        assertEquals("ㄱㅎㅇ ㄱㄷㅇ", HangulJamo.initials("고혈압 고도의"));
+        assertEquals("i10 ㄱㅎㅇ", HangulJamo.initials("i10 고혈압"));
+
+        assertTrue(HangulJamo.isInitialsQuery("ㄷㄴㅂ"));
+        assertTrue(HangulJamo.isInitialsQuery("ㄷ ㄴ"));
+        assertFalse(HangulJamo.isInitialsQuery("ㄷㅏ"));
+        assertFalse(HangulJamo.isInitialsQuery("당"));
+        assertFalse(HangulJamo.isInitialsQuery(" "));
+        assertFalse(HangulJamo.isInitialsQuery(""));
+    }
+
+    @Test void testClassification() {
+        assertTrue(HangulJamo.containsHangul("E11 당뇨"));
+        assertTrue(HangulJamo.containsHangul("ㅂ"));
+        assertFalse(HangulJamo.containsHangul("E11 diabetes"));
+        assertTrue(HangulJamo.isConsonant('ㄱ'));
+        assertTrue(HangulJamo.isConsonant('ㅎ'));
+        assertFalse(HangulJamo.isConsonant('ㅏ'));
+        assertTrue(HangulJamo.isJamo('ㅣ'));
+        assertFalse(HangulJamo.isHangul('a'));
+    }
+}
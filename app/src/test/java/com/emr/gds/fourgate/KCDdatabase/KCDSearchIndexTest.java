@@ -0,0 +1,130 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import com.emr.gds.fourgate.KCDdatabase.KCDSearchIndex.Column;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KCDSearchIndexTest {
+
+    private static final List<KCDRecord> RECORDS = List.of(
+            new KCDRecord("A", "A00", "", "콜레라", "Cholera", ""),
+            new KCDRecord("E", "E10", "*", "제1형 당뇨병", "Type 1 diabetes mellitus", ""),
+            new KCDRecord("E", "E11", "*", "제2형 당뇨병", "Type 2 diabetes mellitus", "most common"),
+            new KCDRecord("E", "E14", "", "상세불명의 당뇨병", "Unspecified diabetes mellitus", null),
+            new KCDRecord("I", "I10", "", "본태성 고혈압", "Essential hypertension", ""),
+            new KCDRecord("J", "J45", "", "천식", "Asthma", "see also E11"),
+            new KCDRecord("S", "S82", "", "다리의 골절", "Fracture of lower leg", ""));
+    private static final KCDSearchIndex INDEX = KCDSearchIndex.build(RECORDS);
+
+    @Test void testEmptyQueryMatchesEverything() {
+        assertEquals(RECORDS.size(), INDEX.search(null, "").size());
+        assertEquals(RECORDS.size(), INDEX.search(Column.NOTE, null).size());
+        assertEquals(List.of("A00", "E10", "E11", "E14", "I10", "J45", "S82"), codes(INDEX.all()));
+    }
+
+    @Test void testColumnSearchOnlyMatchesThatColumn() {
+        assertEquals(List.of("E11", "J45"), codes(INDEX.search(null, "e11")));
+        assertEquals(List.of("E11"), codes(INDEX.search(Column.DISEASE_CODE, "E11")));
+        assertEquals(List.of("J45"), codes(INDEX.search(Column.NOTE, "e11")));
+        assertEquals(List.of("E10", "E11", "E14"), codes(INDEX.search(Column.ENGLISH_NAME, "DIABETES")));
+        assertTrue(codes(INDEX.search(Column.DISEASE_CODE, "diabetes")).isEmpty());
+        assertTrue(codes(INDEX.search(Column.KOREAN_NAME, "cholera")).isEmpty());
+        assertEquals(List.of("E10", "E11"), codes(INDEX.search(Column.CHECK_FIELD, "*")));
+        assertEquals(List.of("A00", "I10", "J45"), codes(INDEX.search(Column.ENGLISH_NAME, "h")), "single character");
+        assertTrue(codes(INDEX.search(null, "zzz")).isEmpty());
+    }
+
+    @Test void testAllColumnsMatchesAcrossColumns() {
+        assertEquals(List.of("I10"), codes(INDEX.search(null, "고혈압 essential")));
+        assertTrue(codes(INDEX.search(Column.KOREAN_NAME, "고혈압 essential")).isEmpty());
+    }
+
+    @Test void testKoreanNameMatchesIncrementally() {
+        for (String typed : new String[] {"당뇨병", "당뇨벼", "당뇨ㅂ", "당ㄴ"}) {
+            assertEquals(List.of("E10", "E11", "E14"), codes(INDEX.search(Column.KOREAN_NAME, typed)), typed);
+            assertEquals(List.of("E10", "E11", "E14"), codes(INDEX.search(null, typed)), typed);
+        }
+        assertEquals(List.of("S82"), codes(INDEX.search(Column.KOREAN_NAME, "달")), "final consonant continues");
+        assertEquals(List.of("E10", "E11"), codes(INDEX.search(Column.KOREAN_NAME, "형 당")));
+        assertTrue(codes(INDEX.search(Column.KOREAN_NAME, "당뇨병이")).isEmpty());
+        assertTrue(codes(INDEX.search(Column.ENGLISH_NAME, "당뇨")).isEmpty(), "other columns match plainly");
+    }
+
+    @Test void testInitialConsonants() {
+        assertEquals(List.of("E10", "E11", "E14"), codes(INDEX.search(Column.KOREAN_NAME, "ㄷㄴㅂ")));
+        assertEquals(List.of("I10"), codes(INDEX.search(Column.KOREAN_NAME, "ㄱㅎㅇ")));
+        assertEquals(List.of("I10"), codes(INDEX.search(null, "ㅂㅌㅅ ㄱ")));
+        assertEquals(List.of("J45"), codes(INDEX.search(Column.KOREAN_NAME, "ㅊ")));
+        assertTrue(codes(INDEX.search(Column.KOREAN_NAME, "ㄴㄷ")).isEmpty());
+    }
+
+    @Test void testPrefixIsSortedByColumn() {
+        assertEquals(List.of("E10", "E11", "E14"), codes(INDEX.prefix(Column.DISEASE_CODE, "e1")));
+        assertEquals(List.of("J45", "A00", "I10", "S82", "E10", "E11", "E14"), codes(INDEX.prefix(Column.ENGLISH_NAME, "")));
+        assertEquals(List.of("I10"), codes(INDEX.prefix(Column.ENGLISH_NAME, "ess")));
+        assertTrue(codes(INDEX.prefix(Column.DISEASE_CODE, "x")).isEmpty());
+    }
+
+    @Test void testRowsAreSortedAndPaged() throws Exception {
+        KCDRowSource rows = INDEX.rows(Column.ENGLISH_NAME, "diabetes", Column.KOREAN_NAME, false, 2);
+        assertEquals(3, rows.size());
+        assertEquals(2, rows.pageSize());
+        // 제2형 > 제1형 > 상세불명의 in descending Korean order
+        assertEquals(List.of("E11", "E10"), codes(rows.page(0)));
+        assertEquals(List.of("E14"), codes(rows.page(1)));
+        assertTrue(rows.page(2).isEmpty());
+
+        KCDRowSource loadOrder = INDEX.rows(null, "diabetes", null, true, 10);
+        assertEquals(List.of("E10", "E11", "E14"), codes(loadOrder.page(0)));
+    }
+
+    @Test void testMatchesLinearScan() {
+        Random random = new Random(5);
+        String alphabet = "abcde 1가나다";
+        List<KCDRecord> records = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            records.add(new KCDRecord(text(random, alphabet, 3), "C" + i, text(random, alphabet, 2),
+                    text(random, "가나다라 ", 6), text(random, alphabet, 8), i % 7 == 0 ? null : text(random, alphabet, 5)));
+        }
+        KCDSearchIndex index = KCDSearchIndex.build(records);
+        for (int i = 0; i < 500; i++) {
+            String query = text(random, "abcde 1", 1 + random.nextInt(3));
+            for (Column column : new Column[] {null, Column.CLASSIFICATION, Column.ENGLISH_NAME, Column.NOTE}) {
+                List<String> expected = new ArrayList<>();
+                for (KCDRecord r : records) {
+                    String value = column == null ? r.toString() : (String) r.toArray()[column.ordinal()];
+                    if (value != null && value.toLowerCase(Locale.ROOT).contains(query)) expected.add(r.getDiseaseCode());
+                }
+                assertEquals(expected, codes(index, index.search(column, query)), column + " '" + query + "'");
+            }
+        }
+    }
+
+    private static String text(Random random, String alphabet, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        return new String(text);
+    }
+
+    private static List<String> codes(KCDSearchIndex.Hits hits) {
+        return codes(INDEX, hits);
+    }
+
+    private static List<String> codes(KCDSearchIndex index, KCDSearchIndex.Hits hits) {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) codes.add(index.record(hits.row(i)).getDiseaseCode());
+        return codes;
+    }
+
+    private static List<String> codes(List<KCDRecord> records) {
+        List<String> codes = new ArrayList<>();
+        for (KCDRecord r : records) codes.add(r.getDiseaseCode());
+        return codes;
+    }
+}
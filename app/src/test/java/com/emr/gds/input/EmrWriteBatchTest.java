@@ -0,0 +1,73 @@
+package com.emr.gds.input;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmrWriteBatchTest {
+
+    /** Records batches instead of touching text areas; the focus-based methods must not be used. */
+    private static final class RecordingManager implements IAITextAreaManager {
+        final List<List<EmrWriteBatch.Edit>> applied = new ArrayList<>();
+
+        @Override public void focusArea(int index) { fail("batch must not move the focus"); }
+        @Override public void insertLineIntoFocusedArea(String line) { fail("unexpected focused insert"); }
+        @Override public void insertBlockIntoFocusedArea(String block) { fail("unexpected focused insert"); }
+        @Override public void appendTextToSection(int index, String text) { fail("unexpected append"); }
+        @Override public void apply(EmrWriteBatch batch) { applied.add(List.copyOf(batch.edits())); }
+        @Override public boolean isReady() { return true; }
+    }
+
+    @Test void testWritesAreAppliedTogetherInOrder() {
+        RecordingManager manager = new RecordingManager();
+        manager.batch()
+               .insertAtCaret(IAITextAreaManager.AREA_PI, "history\r\nline")
+               .insertLineAtCaret(IAITextAreaManager.AREA_A, "# dx")
+               .appendLine(IAITextAreaManager.AREA_P, "plan\n")
+               .replace(IAITextAreaManager.AREA_O, "BP 120/80\r")
+               .append(IAITextAreaManager.AREA_P, "more")
+               .apply();
+
+        assertEquals(1, manager.applied.size());
+        assertEquals(List.of(
+                new EmrWriteBatch.Edit(IAITextAreaManager.AREA_PI, EmrWriteBatch.Mode.INSERT_AT_CARET, "history\nline"),
+                new EmrWriteBatch.Edit(IAITextAreaManager.AREA_A, EmrWriteBatch.Mode.INSERT_AT_CARET, "# dx\n"),
+                new EmrWriteBatch.Edit(IAITextAreaManager.AREA_P, EmrWriteBatch.Mode.APPEND, "plan\n"),
+                new EmrWriteBatch.Edit(IAITextAreaManager.AREA_O, EmrWriteBatch.Mode.REPLACE, "BP 120/80\n"),
+                new EmrWriteBatch.Edit(IAITextAreaManager.AREA_P, EmrWriteBatch.Mode.APPEND, "more")),
+                manager.applied.get(0));
+    }
+
+    @Test void testInvalidWritesAreIgnored() {
+        RecordingManager manager = new RecordingManager();
+        EmrWriteBatch batch = manager.batch()
+                .append(-1, "x")
+                .append(10, "x")
+                .insertAtCaret(IAITextAreaManager.AREA_S, null)
+                .appendLine(IAITextAreaManager.AREA_S, "");
+        assertTrue(batch.isEmpty());
+        batch.apply();
+        assertTrue(manager.applied.isEmpty(), "an empty batch is not handed to the manager");
+    }
+
+    @Test void testReplaceWithNothingClears() {
+        RecordingManager manager = new RecordingManager();
+        manager.batch().replace(IAITextAreaManager.AREA_COMMENT, null).apply();
+        assertEquals(List.of(new EmrWriteBatch.Edit(IAITextAreaManager.AREA_COMMENT, EmrWriteBatch.Mode.REPLACE, "")),
+                manager.applied.get(0));
+    }
+
+    @Test void testInsertIntoAreaWithoutFocusUsesBatch() {
+        RecordingManager manager = new RecordingManager();
+        manager.insertBlockIntoArea(IAITextAreaManager.AREA_O, "block", false);
+        manager.insertLineIntoArea(IAITextAreaManager.AREA_A, "line", false);
+        assertEquals(2, manager.applied.size());
+        assertEquals(new EmrWriteBatch.Edit(IAITextAreaManager.AREA_O, EmrWriteBatch.Mode.INSERT_AT_CARET, "block"),
+                manager.applied.get(0).get(0));
+        assertEquals(new EmrWriteBatch.Edit(IAITextAreaManager.AREA_A, EmrWriteBatch.Mode.INSERT_AT_CARET, "line\n"),
+                manager.applied.get(1).get(0));
+    }
+}
@@ -0,0 +1,130 @@
+package com.emr.gds.main;
+
+import com.emr.gds.document.Rope;
+import com.emr.gds.document.SectionDocument;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The Copy All worker, with its per-section cache, must produce what the synchronous Copy All produced:
+ * {@code finalizeForEMR} of the problem list and the de-duplicated areas joined by blank lines.
+ */
+class IAMCopyAllPipelineTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 1, 1);
+    private static final String[] LINES = {
+            "", " ", "\t", "　", "- dash", "-- double", "• bullet", "#Header", "* star", "plain text",
+            "plain text", "  indented  ", "a\r", "\u0001", "-", "갑상선 결절",
+    };
+
+    @Test void testEmptyNote() {
+        IAMCopyAllPipeline pipeline = new IAMCopyAllPipeline();
+        assertEquals("", pipeline.compile(new IAMCopyAllPipeline.Snapshot(List.of(), DATE, emptyAreas())));
+    }
+
+    @Test void testMatchesSynchronousCopyAll() {
+        IAMCopyAllPipeline pipeline = new IAMCopyAllPipeline();
+        Random random = new Random(7);
+        List<String> problems = new ArrayList<>();
+        List<String> areas = emptyAreas();
+        for (int n = 0; n < 5_000; n++) {
+            // Edit one area (or the problem list) per copy, as a user would between copies
+            int target = random.nextInt(areas.size() + 1);
+            if (target == areas.size()) {
+                if (random.nextBoolean() || problems.isEmpty()) problems.add(randomText(random, 1));
+                else problems.remove(random.nextInt(problems.size()));
+            } else {
+                areas.set(target, randomText(random, random.nextInt(6)));
+            }
+            IAMCopyAllPipeline.Snapshot snapshot = new IAMCopyAllPipeline.Snapshot(problems, DATE, areas);
+            assertEquals(synchronousCopyAll(problems, areas), pipeline.compile(snapshot), "copy " + n);
+        }
+    }
+
+    @Test void testRepeatedCopyIsStable() {
+        IAMCopyAllPipeline pipeline = new IAMCopyAllPipeline();
+        List<String> areas = emptyAreas();
+        areas.set(0, "follow-up\nfollow-up\n• DM");
+        areas.set(7, "#assessment\n\n\n-- stable");
+        IAMCopyAllPipeline.Snapshot snapshot = new IAMCopyAllPipeline.Snapshot(List.of("HTN"), DATE, areas);
+        String first = pipeline.compile(snapshot);
+        assertEquals(first, pipeline.compile(snapshot));
+        assertEquals(synchronousCopyAll(List.of("HTN"), areas), first);
+    }
+
+    @Test void testDocumentRopesMatchStrings() {
+        IAMCopyAllPipeline pipeline = new IAMCopyAllPipeline();
+        Random random = new Random(11);
+        List<SectionDocument> documents = new ArrayList<>();
+        for (int i = 0; i < IAMTextArea.TEXT_AREA_TITLES.length; i++) documents.add(new SectionDocument(i));
+        for (int n = 0; n < 2_000; n++) {
+            SectionDocument doc = documents.get(random.nextInt(documents.size()));
+            int start = random.nextInt(doc.length() + 1);
+            int end = Math.min(doc.length(), start + random.nextInt(4));
+            doc.replace(start, end, randomText(random, random.nextInt(3)));
+
+            List<Rope> ropes = documents.stream().map(SectionDocument::text).toList();
+            List<String> strings = ropes.stream().map(Rope::toString).toList();
+            assertEquals(synchronousCopyAll(List.of(), strings),
+                    pipeline.compile(new IAMCopyAllPipeline.Snapshot(List.of(), DATE, ropes)), "copy " + n);
+        }
+    }
+
+    // The synchronous Copy All that the pipeline replaced, kept as the reference.
+
+    private static String synchronousCopyAll(List<String> problems, List<String> areas) {
+        StringJoiner contentJoiner = new StringJoiner("\n\n");
+        if (!problems.isEmpty()) {
+            StringBuilder problemBuilder = new StringBuilder("# Problem List (as of ")
+                    .append(DATE.format(DateTimeFormatter.ISO_DATE))
+                    .append(")\n");
+            problems.forEach(problem -> problemBuilder.append("- ").append(problem).append("\n"));
+            contentJoiner.add(problemBuilder.toString().trim());
+        }
+        for (int i = 0; i < areas.size(); i++) {
+            String uniqueText = streamUniqueLines(areas.get(i));
+            if (!uniqueText.isEmpty()) {
+                String title = IAMTextArea.TEXT_AREA_TITLES[i].replaceAll(">$", "");
+                contentJoiner.add("# " + title + "\n" + uniqueText);
+            }
+        }
+        return new IAMTextFormatter().finalizeForEMR(contentJoiner.toString());
+    }
+
+    private static String streamUniqueLines(String text) {
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        return text.lines()
+                   .map(String::trim)
+                   .filter(line -> !line.isEmpty())
+                   .collect(Collectors.toCollection(LinkedHashSet::new))
+                   .stream()
+                   .collect(Collectors.joining("\n"));
+    }
+
+    private static List<String> emptyAreas() {
+        List<String> areas = new ArrayList<>();
+        for (int i = 0; i < IAMTextArea.TEXT_AREA_TITLES.length; i++) areas.add("");
+        return areas;
+    }
+
+    private static String randomText(Random random, int lines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) sb.append(random.nextInt(5) == 0 ? "\r\n" : "\n");
+            sb.append(LINES[random.nextInt(LINES.length)]);
+        }
+        return sb.toString();
+    }
+}
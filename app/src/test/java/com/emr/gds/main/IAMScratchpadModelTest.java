@@ -0,0 +1,81 @@
+package com.emr.gds.main;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link IAMScratchpadModel#normalizeEntry} must match the regex it replaced, and applying the patches
+ * from {@link IAMScratchpadModel#update} one after another must always give the text a full redraw
+ * ({@link IAMScratchpadModel#render()}) would.
+ */
+class IAMScratchpadModelTest {
+
+    private static final String[] TITLES = {"CC>", "PI>", "ROS>", "PMH>", "S>", "O>", "Physical Exam>", "A>", "P>", "Comment>"};
+
+    @Test void testNormalizeEntryMatchesRegex() {
+        String alphabet = "ab \t\n\r\u000B\f\u0085\u2028\u2029\u00a0\u3000";
+        Random random = new Random(3);
+        for (int n = 0; n < 200_000; n++) {
+            String input = randomText(random, alphabet, 12);
+            assertEquals(input.trim().replaceAll("\\s*\\R\\s*", " \n\t "), IAMScratchpadModel.normalizeEntry(input),
+                    () -> "normalizeEntry of " + escape(input));
+        }
+    }
+
+    @Test void testKnownEntries() {
+        assertEquals("", IAMScratchpadModel.normalizeEntry(" \r\n\t"));
+        assertEquals("headache", IAMScratchpadModel.normalizeEntry("headache"));
+        assertEquals("a \n\t b", IAMScratchpadModel.normalizeEntry("  a  \r\n\n  b \n"));
+        assertEquals("a \n\t b", IAMScratchpadModel.normalizeEntry("a\u2028b"));
+    }
+
+    @Test void testPatchesReplayToRender() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            IAMScratchpadModel model = new IAMScratchpadModel(TITLES);
+            StringBuilder scratchpad = new StringBuilder();
+            for (int step = 0; step < 200; step++) {
+                int section = random.nextInt(TITLES.length);
+                String text = random.nextInt(3) == 0 ? "" : randomText(random, "ab \n", 6);
+                IAMScratchpadModel.Patch patch = model.update(section, text);
+                if (patch != null) {
+                    assertTrue(patch.start >= 0 && patch.start <= patch.end && patch.end <= scratchpad.length(),
+                            () -> patch + " outside " + escape(scratchpad.toString()));
+                    scratchpad.replace(patch.start, patch.end, patch.text);
+                }
+                assertEquals(model.render(), scratchpad.toString(), "after update of " + TITLES[section]);
+                assertEquals(scratchpad.length(), model.length());
+            }
+        }
+    }
+
+    @Test void testUnchangedSectionGivesNoPatch() {
+        IAMScratchpadModel model = new IAMScratchpadModel(TITLES);
+        assertNull(model.update(0, "  "));
+        assertNotNull(model.update(0, "headache"));
+        assertNull(model.update(0, " headache \n"));
+        assertEquals("CC> headache", model.render());
+
+        model.clear();
+        assertEquals("", model.render());
+        assertEquals(0, model.length());
+    }
+
+    private static String randomText(Random random, String alphabet, int maxLength) {
+        char[] text = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < text.length; i++) text[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        return new String(text);
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,99 @@
+package com.emr.gds.main;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link IAMTextFormatter} must reproduce the former regex implementation of Auto Format and the Copy All
+ * finalizer exactly. The golden files in {@code format-golden/} were produced by that implementation;
+ * the randomized check runs it side by side on short inputs built from the characters it treats specially.
+ */
+class IAMTextFormatterTest {
+
+    private static final String GOLDEN = "format-golden/";
+
+    @Test void testGoldenCorpus() throws IOException {
+        IAMTextFormatter formatter = new IAMTextFormatter();
+        for (String name : resource("index.txt").split("\n")) {
+            if (name.isBlank()) continue;
+            String input = resource(name + ".in.txt");
+            assertEquals(resource(name + ".autoformat.txt"), formatter.autoFormat(input), name + " (autoFormat)");
+            assertEquals(resource(name + ".finalized.txt"), formatter.finalizeForEMR(input), name + " (finalizeForEMR)");
+        }
+    }
+
+    @Test void testNullAndBlank() {
+        IAMTextFormatter formatter = new IAMTextFormatter();
+        assertEquals("", formatter.autoFormat(null));
+        assertEquals("", formatter.finalizeForEMR(null));
+        assertEquals("", formatter.autoFormat(" \r\n\t\n"));
+    }
+
+    @Test void testMatchesRegexImplementation() {
+        String alphabet = "ab #-*•·→▶▷‣⦿∘\r\n\n\t\u000B\f\u0001\u0085\u2028\u3000\u2029\u00a0";
+        IAMTextFormatter formatter = new IAMTextFormatter();
+        Random random = new Random(42);
+        for (int n = 0; n < 200_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String input = sb.toString();
+            assertEquals(regexAutoFormat(input), formatter.autoFormat(input), () -> "autoFormat of " + escape(input));
+            assertEquals(regexFinalizeForEMR(input), formatter.finalizeForEMR(input), () -> "finalizeForEMR of " + escape(input));
+        }
+    }
+
+    // The implementation IAMTextFormatter replaced, kept as the reference.
+
+    private static String regexAutoFormat(String raw) {
+        if (raw == null || raw.isBlank()) return "";
+        StringBuilder out = new StringBuilder();
+        boolean lastLineWasBlank = false;
+        for (String line : raw.replace("\r", "").split("\n")) {
+            String trimmedLine = line.strip();
+            if (trimmedLine.isEmpty()) {
+                if (!lastLineWasBlank) {
+                    out.append("\n");
+                    lastLineWasBlank = true;
+                }
+            } else {
+                String formattedLine = trimmedLine.replaceAll("^[•·→▶▷‣⦿∘*]+\\s*", "- ");
+                if (formattedLine.matches("^[-]{1,2}\\s*.*") && !formattedLine.startsWith("- ")) {
+                    formattedLine = formattedLine.replaceAll("^[-]{1,2}\\s*", "- ");
+                }
+                out.append(formattedLine).append("\n");
+                lastLineWasBlank = false;
+            }
+        }
+        return out.toString().strip();
+    }
+
+    private static String regexFinalizeForEMR(String raw) {
+        String formatted = regexAutoFormat(raw);
+        formatted = formatted.replaceAll("^(#+)([^#\\s\\n])", "$1 $2");
+        formatted = formatted.replaceAll("\\n{3,}", "\\n\\n");
+        return formatted.trim();
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream in = IAMTextFormatterTest.class.getResourceAsStream(GOLDEN + name)) {
+            assertNotNull(in, "missing golden file " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c < 0x20 || c > 0x7E) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
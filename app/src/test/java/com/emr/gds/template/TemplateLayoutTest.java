@@ -0,0 +1,152 @@
+package com.emr.gds.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A compiled layout must hold, for every area, the text the regex-based "Use Template" path produced for
+ * that section, and must survive the round trip through the {@code templates.layout} column.
+ */
+class TemplateLayoutTest {
+
+    private static final String[] LINES = {
+            "", " ", "\t", "CC>", "CC> headache", "  PI> 3 days", "ROS> negative", "PMH>", "PMH> DM, HTN",
+            "S>\tfeels well", "O> BP 120/80", "Physical Exam> clear", "A> stable", "P> f/u 3m", "Comment> none",
+            "P>a\rb", "CC> x\u2028y", "\rS> z", "BP> not a title", "plain line", "  indented", "a\r", "\u3000",
+            "\u0001", ":cd", "P>", "A> :htn",
+    };
+
+    @Test void testKnownTemplate() {
+        TemplateLayout layout = TemplateLayout.compile(
+                "intro\nCC> headache\n  since yesterday\nROS> negative\nP>\n\n f/u 1w\nA>   \n");
+        assertEquals("headache\n\t  since yesterday", layout.section(0));
+        assertEquals("negative", layout.section(2));
+        assertEquals("f/u 1w", layout.section(8));
+        assertEquals("", layout.section(7));
+        assertEquals("intro", layout.section(9));
+        assertEquals("CC> headache\n\t  since yesterday\nROS> negative\nP> f/u 1w\nComment> intro", layout.toText());
+    }
+
+    @Test void testEmptyTemplate() {
+        assertTrue(TemplateLayout.compile("").isEmpty());
+        assertTrue(TemplateLayout.compile(null).isEmpty());
+        assertTrue(TemplateLayout.compile(" \n\t\nCC>\n").isEmpty());
+    }
+
+    @Test void testUntitledTemplateGoesToComment() {
+        TemplateLayout untitled = TemplateLayout.compile("line one\n  line two\nBP> 120/80");
+        assertEquals("line one\n\t  line two\n\tBP> 120/80", untitled.section(9));
+        for (int i = 0; i < 9; i++) assertEquals("", untitled.section(i), TemplateLayout.SECTION_TITLES.get(i));
+        assertEquals("Comment> line one\n\t  line two\n\tBP> 120/80", untitled.toText());
+        assertEquals(TemplateLayout.compile("Comment> line one\n  line two\nBP> 120/80"), untitled);
+    }
+
+    @Test void testMatchesRegexTemplatePath() {
+        Random random = new Random(18);
+        for (int n = 0; n < 50_000; n++) {
+            String template = randomTemplate(random);
+            TemplateLayout layout = TemplateLayout.compile(template);
+            LinkedHashMap<String, List<String>> sections = legacyParseSections(template);
+            for (int i = 0; i < TemplateLayout.SECTION_TITLES.size(); i++) {
+                String title = TemplateLayout.SECTION_TITLES.get(i);
+                String template1 = template;
+                assertEquals(legacyBody(title, sections.get(title)), layout.section(i),
+                        () -> "section " + title + " of " + template1.replace("\n", "\\n").replace("\r", "\\r"));
+            }
+        }
+    }
+
+    @Test void testStoredLayoutRoundTrips() {
+        Random random = new Random(3);
+        for (int n = 0; n < 5_000; n++) {
+            TemplateLayout layout = TemplateLayout.compile(randomTemplate(random) + "\nS> \ud800 lone surrogate");
+            assertEquals(layout, TemplateLayout.decode(layout.encode()));
+        }
+    }
+
+    @Test void testUnreadableLayoutIsRecompiled() {
+        assertNull(TemplateLayout.decode(null));
+        assertNull(TemplateLayout.decode(new byte[0]));
+        assertNull(TemplateLayout.decode(new byte[]{0, 0, 0, 9, 0, 0, 0, 1}));
+        byte[] truncated = TemplateLayout.compile("CC> headache").encode();
+        assertNull(TemplateLayout.decode(java.util.Arrays.copyOf(truncated, truncated.length - 2)));
+    }
+
+    @Test void testCacheKeysOnVersion() {
+        TemplateLayoutCache cache = new TemplateLayoutCache(2);
+        TemplateLayout v1 = TemplateLayout.compile("CC> one");
+        TemplateLayout v2 = TemplateLayout.compile("CC> two");
+        cache.put(7, 1, v1);
+        assertSame(v1, cache.get(7, 1));
+        assertNull(cache.get(7, 2));
+        assertSame(v2, cache.get(7, 2, () -> v2));
+        assertSame(v2, cache.get(7, 2, () -> { throw new AssertionError("loaded twice"); }));
+        cache.get(7, 1);
+        cache.put(8, 1, v1); // Evicts (7, 2), the least recently used
+        assertNull(cache.get(7, 2));
+        assertEquals(2, cache.size());
+    }
+
+    // The regex-based parse and layout that "Use Template" used before layouts were stored, kept as the reference.
+
+    private static final Pattern HEADER_PATTERN = Pattern.compile(
+            "^\\s*(CC>|PI>|ROS>|PMH>|S>|O>|Physical Exam>|A>|P>|Comment>)\\s*(.*)$");
+
+    private static LinkedHashMap<String, List<String>> legacyParseSections(String content) {
+        LinkedHashMap<String, List<String>> sections = new LinkedHashMap<>();
+        for (String title : TemplateLayout.SECTION_TITLES) {
+            sections.put(title, new ArrayList<>());
+        }
+        String currentSection = null;
+        for (String line : content.split("\\r?\\n", -1)) {
+            Matcher m = HEADER_PATTERN.matcher(line);
+            if (m.matches()) {
+                currentSection = m.group(1);
+                String afterHeader = m.group(2).trim();
+                if (!afterHeader.isEmpty()) {
+                    sections.get(currentSection).add(afterHeader);
+                }
+            } else if (currentSection != null) {
+                sections.get(currentSection).add(line);
+            } else {
+                sections.get("Comment>").add(line);
+            }
+        }
+        return sections;
+    }
+
+    /** One section as buildOrderedOutput wrote it, then cut after its title as the area split did. */
+    private static String legacyBody(String label, List<String> lines) {
+        lines = lines != null ? lines : Collections.emptyList();
+        if (lines.isEmpty() || lines.stream().allMatch(String::isBlank)) return "";
+        StringBuilder out = new StringBuilder(label);
+        String firstLineContent = lines.get(0).trim();
+        if (!firstLineContent.isEmpty()) {
+            out.append(' ').append(firstLineContent);
+        }
+        out.append('\n');
+        for (int i = 1; i < lines.size(); i++) {
+            out.append("\t").append(lines.get(i)).append('\n');
+        }
+        return out.toString().trim().substring(label.length()).trim();
+    }
+
+    private static String randomTemplate(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int lines = random.nextInt(12);
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) sb.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+            sb.append(LINES[random.nextInt(LINES.length)]);
+        }
+        return sb.toString();
+    }
+}
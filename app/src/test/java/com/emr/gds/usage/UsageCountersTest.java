@@ -0,0 +1,75 @@
+package com.emr.gds.usage;
+
+import com.emr.gds.usage.UsageCounters.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsageCountersTest {
+
+    @Test void testIncrementCountsPerKind() {
+        UsageCounters counters = new UsageCounters();
+        counters.increment(Kind.PHRASE, "chest pain");
+        counters.increment(Kind.PHRASE, "chest pain");
+        counters.increment(Kind.TEMPLATE, "chest pain");
+        counters.increment(Kind.PHRASE, "");
+        counters.increment(Kind.PHRASE, null);
+
+        assertEquals(2, counters.count(Kind.PHRASE, "chest pain"));
+        assertEquals(1, counters.count(Kind.TEMPLATE, "chest pain"));
+        assertEquals(0, counters.count(Kind.PLAN_BUTTON, "chest pain"));
+        assertEquals(0, counters.count(Kind.PHRASE, ""));
+    }
+
+    @Test void testRankedIsStableMostUsedFirst() {
+        UsageCounters counters = new UsageCounters();
+        List<String> items = List.of("a", "b", "c", "d", "e");
+        assertEquals(items, counters.ranked(Kind.PLAN_BUTTON, items, s -> s), "unused items keep their order");
+
+        counters.increment(Kind.PLAN_BUTTON, "d");
+        counters.increment(Kind.PLAN_BUTTON, "d");
+        counters.increment(Kind.PLAN_BUTTON, "b");
+        counters.increment(Kind.PLAN_BUTTON, "e");
+        assertEquals(List.of("d", "b", "e", "a", "c"), counters.ranked(Kind.PLAN_BUTTON, items, s -> s));
+        assertEquals(items, counters.ranked(Kind.PHRASE, items, s -> s), "other kinds are not affected");
+    }
+
+    @Test void testTopSkipsUnusedItems() {
+        UsageCounters counters = new UsageCounters();
+        assertTrue(counters.top(Kind.SAVED_TEMPLATE, 3).isEmpty());
+
+        for (String id : new String[] {"7", "3", "7", "12", "3", "7"}) counters.increment(Kind.SAVED_TEMPLATE, id);
+        assertEquals(List.of("7", "3"), counters.top(Kind.SAVED_TEMPLATE, 2));
+        assertEquals(List.of("7", "3", "12"), counters.top(Kind.SAVED_TEMPLATE, 10));
+        assertTrue(counters.top(Kind.SAVED_TEMPLATE, 0).isEmpty());
+    }
+
+    @Test void testFlushBeforeStartIsInMemoryOnly() {
+        UsageCounters counters = new UsageCounters();
+        counters.increment(Kind.ABBREVIATION, "htn");
+        assertEquals(0, counters.flush());
+        counters.close();
+        assertEquals(1, counters.count(Kind.ABBREVIATION, "htn"));
+    }
+
+    @Test void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        UsageCounters counters = new UsageCounters();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < 10_000; i++) counters.increment(Kind.ABBREVIATION, "k" + (i % 10));
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        long total = 0;
+        for (int i = 0; i < 10; i++) total += counters.count(Kind.ABBREVIATION, "k" + i);
+        assertEquals(40_000, total);
+    }
+}
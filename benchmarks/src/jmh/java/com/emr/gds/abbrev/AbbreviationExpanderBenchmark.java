@@ -0,0 +1,124 @@
+package com.emr.gds.abbrev;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compares {@link AbbreviationExpander} with the two regex-based expansion paths it replaced
+ * (the main text area's {@code :key} matcher and the Plan editor's token split) on large templates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbbreviationExpanderBenchmark {
+
+    private static final String[] WORDS = {
+            "Patient", "reports", "no", "chest", "pain.", "BP", "stable", "on", "current", "regimen.",
+            "\n", "S>", "O>", "A>", "P>", "-", "labs", "reviewed", "today"
+    };
+
+    @Param({"102400"})
+    public int inputSize;
+
+    private Map<String, String> map;
+    private AbbreviationExpander textAreaExpander;
+    private AbbreviationExpander planExpander;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        map = new HashMap<>();
+        String[] keys = {"htn", "dm", "ckd", "cad", "af", "copd", "gerd", "bph", "oa", "ra", "hf", "osa", "uti"};
+        for (String key : keys) map.put(key, "expansion of " + key);
+        AbbreviationIndex index = AbbreviationIndex.of(map);
+
+        textAreaExpander = AbbreviationExpander.of(index);
+        planExpander = new AbbreviationExpander(() -> index, AbbreviationExpander.Syntax.WHOLE_TOKEN, (text, start, end) -> {
+            char last = text.charAt(end - 1);
+            if (end - start >= 2 && (last == 'w' || last == 'm') && Character.isDigit(text.charAt(start))) {
+                return "F/U";
+            }
+            return null;
+        });
+
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder(inputSize + 64);
+        while (sb.length() < inputSize) {
+            int roll = random.nextInt(10);
+            if (roll == 0) sb.append(':').append(keys[random.nextInt(keys.length)]);
+            else if (roll == 1) sb.append(":cd");
+            else if (roll == 2) sb.append(random.nextInt(12) + 1).append(random.nextBoolean() ? 'w' : 'm');
+            else sb.append(WORDS[random.nextInt(WORDS.length)]);
+            sb.append(' ');
+        }
+        input = sb.toString();
+    }
+
+    // --- Main text area (":key" everywhere) ---
+
+    @Benchmark
+    public String regexMatcher() {
+        StringBuilder out = new StringBuilder();
+        Matcher matcher = Pattern.compile(":([\\S]+)").matcher(input);
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            String replacement = "cd".equalsIgnoreCase(key)
+                    ? LocalDate.now().format(DateTimeFormatter.ISO_DATE)
+                    : map.get(key);
+            matcher.appendReplacement(out, replacement != null ? Matcher.quoteReplacement(replacement) : matcher.group(0));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String scannerTextArea() {
+        return textAreaExpander.expand(input);
+    }
+
+    // --- Plan editor (":key", follow-up codes) ---
+
+    @Benchmark
+    public String regexTokenSplit() {
+        return Arrays.stream(input.split("((?<= )|(?= ))"))
+                .map(word -> {
+                    String clean = word.trim();
+                    if (":cd".equals(clean)) return LocalDate.now().format(DateTimeFormatter.ISO_DATE);
+                    if (clean.startsWith(":")) {
+                        String expansion = map.get(clean.substring(1));
+                        return expansion != null ? expansion : word;
+                    }
+                    if (clean.matches("[0-9]+[wdm]")) return "F/U";
+                    return word;
+                })
+                .collect(Collectors.joining());
+    }
+
+    @Benchmark
+    public String scannerPlan() {
+        return planExpander.expand(input);
+    }
+}
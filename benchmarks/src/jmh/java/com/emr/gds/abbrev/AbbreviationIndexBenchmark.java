@@ -0,0 +1,114 @@
+package com.emr.gds.abbrev;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the shared {@link AbbreviationIndex} against the plain {@code HashMap} it replaced,
+ * for the three access patterns the editors use: exact lookup, prefix enumeration and longest-match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbbreviationIndexBenchmark {
+
+    @Param({"100", "5000", "50000"})
+    public int dictionarySize;
+
+    private Map<String, String> map;
+    private AbbreviationIndex index;
+    private String[] probes;
+    private String prefix;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        map = new HashMap<>();
+        while (map.size() < dictionarySize) {
+            String key = randomKey(random);
+            map.put(key, "expansion of " + key);
+        }
+        index = AbbreviationIndex.of(map);
+
+        probes = new String[1024];
+        String[] keys = map.keySet().toArray(new String[0]);
+        for (int i = 0; i < probes.length; i++) {
+            // Half hits, half misses
+            probes[i] = (i % 2 == 0) ? keys[random.nextInt(keys.length)] : randomKey(random) + "#";
+        }
+        prefix = keys[0].substring(0, 1);
+        text = keys[keys.length / 2] + " and some trailing clinical text";
+    }
+
+    private static String randomKey(Random random) {
+        int length = 2 + random.nextInt(6);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    // --- Exact lookup ---
+
+    @Benchmark
+    public void exactLookupHashMap(Blackhole bh) {
+        for (String probe : probes) bh.consume(map.get(probe));
+    }
+
+    @Benchmark
+    public void exactLookupIndex(Blackhole bh) {
+        for (String probe : probes) bh.consume(index.get(probe));
+    }
+
+    // --- Prefix enumeration ---
+
+    @Benchmark
+    public int prefixScanHashMap() {
+        int count = 0;
+        for (String key : map.keySet()) {
+            if (key.startsWith(prefix)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int prefixScanIndex() {
+        return index.countWithPrefix(prefix);
+    }
+
+    // --- Longest match ---
+
+    @Benchmark
+    public String longestMatchHashMap() {
+        for (int end = Math.min(text.length(), 32); end > 0; end--) {
+            String candidate = map.get(text.substring(0, end));
+            if (candidate != null) return candidate;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int longestMatchIndex() {
+        return index.longestMatch(text, 0, text.length());
+    }
+}
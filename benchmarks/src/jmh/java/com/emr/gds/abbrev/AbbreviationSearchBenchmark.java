@@ -0,0 +1,89 @@
+package com.emr.gds.abbrev;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Abbreviation lookups per keystroke on a large dictionary: the autocomplete's ranked top-k for a short
+ * prefix, the manager's search while the user types a word (narrowing) and from scratch, and the
+ * per-keystroke filter-and-format the manager did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbbreviationSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "pain", "pressure", "pulmonary", "hypertension", "diabetes", "chronic", "acute", "renal",
+            "failure", "infection", "fracture", "syndrome", "disease", "thyroid", "cardiac", "anemia"
+    };
+    private static final String TYPED = "pressure";
+
+    @Param({"1000", "50000"})
+    public int entries;
+
+    private AbbreviationIndex index;
+    private AbbreviationSuggester suggester;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        AbbreviationUsage usage = new AbbreviationUsage();
+        for (int i = 0; i < entries; i++) {
+            String key = Integer.toString(i, 36) + WORDS[i % WORDS.length].substring(0, 2);
+            builder.put(key, WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i);
+            for (int n = random.nextInt(3); n > 0; n--) usage.record(key);
+        }
+        index = builder.build();
+        suggester = new AbbreviationSuggester(() -> index, usage);
+    }
+
+    @Benchmark
+    public List<AbbreviationSuggester.Suggestion> suggestTopK() {
+        return suggester.suggest("1", 8);
+    }
+
+    @Benchmark
+    public int filterTyping() {
+        AbbreviationFilter filter = new AbbreviationFilter();
+        int total = 0;
+        for (int i = 1; i <= TYPED.length(); i++) {
+            total += filter.filter(index, TYPED.substring(0, i)).size();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int filterOnce() {
+        return new AbbreviationFilter().filter(index, TYPED).size();
+    }
+
+    @Benchmark
+    public List<String> legacyFilter() {
+        List<String> items = new ArrayList<>();
+        index.forEach((key, value) -> {
+            if (key.toLowerCase().contains(TYPED) || value.toLowerCase().contains(TYPED)) {
+                items.add(key + " -> " + value);
+            }
+        });
+        return items;
+    }
+}
@@ -0,0 +1,85 @@
+package com.emr.gds.abbrev;
+
+import com.emr.gds.bench.ClinicalNotes;
+import com.emr.gds.document.Rope;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One SPACE press at the end of a section: {@link AbbreviationTrigger} on the section's rope against the
+ * copy-everything-before-the-caret detection it replaced, for a plain word and for a {@code :key}.
+ * The trigger's time should not depend on {@code noteSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AbbreviationTriggerBenchmark {
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M})
+    public int noteSize;
+
+    private AbbreviationIndex index;
+    private AbbreviationTrigger trigger;
+    private String wordText;
+    private String keyText;
+    private Rope wordRope;
+    private Rope keyRope;
+
+    @Setup
+    public void setUp() {
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        for (String[] entry : ClinicalNotes.ABBREVIATIONS) {
+            builder.put(entry[0], entry[1]);
+        }
+        index = builder.build();
+        trigger = AbbreviationTrigger.of(index);
+        String note = ClinicalNotes.words(noteSize);
+        wordText = note + "stable";
+        keyText = note + ":htn";
+        wordRope = Rope.of(wordText);
+        keyRope = Rope.of(keyText);
+    }
+
+    @Benchmark
+    public AbbreviationTrigger.Match triggerOnWord() {
+        return trigger.find(wordRope, wordRope.length());
+    }
+
+    @Benchmark
+    public AbbreviationTrigger.Match triggerOnKey() {
+        return trigger.find(keyRope, keyRope.length());
+    }
+
+    @Benchmark
+    public String legacyOnWord() {
+        return legacy(wordText, wordText.length());
+    }
+
+    @Benchmark
+    public String legacyOnKey() {
+        return legacy(keyText, keyText.length());
+    }
+
+    /** The detection the editors ran on SPACE, with {@code getText(0, caret)} as a substring. */
+    private String legacy(String text, int caret) {
+        String upToCaret = text.substring(0, caret);
+        int start = Math.max(upToCaret.lastIndexOf(' '), upToCaret.lastIndexOf('\n')) + 1;
+        String word = upToCaret.substring(start).trim();
+        if (!word.startsWith(":")) return null;
+        return index.get(word.substring(1));
+    }
+}
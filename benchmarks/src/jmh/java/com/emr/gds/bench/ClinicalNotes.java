@@ -0,0 +1,110 @@
+package com.emr.gds.bench;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic clinical notes for the text benchmarks.
+ * <p>
+ * Notes are built from section blocks in the editor's own layout ({@code CC>}, {@code PI>}, ... {@code Comment>})
+ * with the input the formatters actually see: mixed bullet styles, {@code --} dashes, {@code #Header} lines,
+ * runs of blank lines, trailing whitespace, repeated lines copied forward from earlier visits, Korean
+ * problem names and {@code :key} abbreviations. The same size always yields the same text.
+ */
+public final class ClinicalNotes {
+
+    /** Sizes used by the suites: 1 KB, 16 KB, 128 KB and 1 MB. */
+    public static final String SIZE_1K = "1024";
+    public static final String SIZE_16K = "16384";
+    public static final String SIZE_128K = "131072";
+    public static final String SIZE_1M = "1048576";
+
+    public static final String[] SECTION_TITLES = {
+            "CC>", "PI>", "ROS>", "PMH>", "S>", "O>", "Physical Exam>", "A>", "P>", "Comment>"
+    };
+
+    /** Abbreviations used in the notes, as (key, expansion) pairs. */
+    public static final String[][] ABBREVIATIONS = {
+            {"c", "hypercholesterolemia"},
+            {"to", "hypothyroidism"},
+            {"htn", "hypertension"},
+            {"dm", "type 2 diabetes mellitus"},
+            {"ckd", "chronic kidney disease"},
+            {"fu", "follow-up"},
+            {"cd", "2025-01-01"},
+            {"nod", "thyroid nodule"},
+    };
+
+    private static final String[] LINES = {
+            "- Hypertension: BP 132/84 mmHg, on amlodipine 5 mg qd",
+            "• :dm with HbA1c 7.2 % (prev 7.6 %), metformin 1000 mg bid",
+            "· LDL-C 128 mg/dL on rosuvastatin 10 mg, :c [F/U]",
+            "* TSH 4.8 mIU/L, free T4 1.1 ng/dL -> :to, subclinical",
+            "-- no chest pain, no dyspnea, no palpitation",
+            "--Retinopathy : no NPDR [ :cd ]",
+            "#Assessment",
+            "# Plan",
+            "   - Peripheral neuropathy : denied   ",
+            "   - Nephropathy : :ckd A1 G2, eGFR 68 mL/min/1.73m2\t",
+            "갑상선 결절 (small), US f/u in 6 months :nod",
+            "고지혈증 :fu 3 months with lipid panel",
+            "Vital: BP 128/80, HR 72, BT 36.5, RR 16, SpO2 98 %",
+            "Labs: Cr 0.98, AST 24, ALT 31, K 4.2, Na 139",
+            "Meds reviewed; adherence good, no adverse events reported",
+            "Continue current medication, :fu 1 month",
+    };
+
+    private ClinicalNotes() {
+    }
+
+    /**
+     * A multi-section note of about {@code bytes} characters.
+     */
+    public static String note(int bytes) {
+        Random random = new Random(bytes);
+        StringBuilder sb = new StringBuilder(bytes + 256);
+        int section = 0;
+        while (sb.length() < bytes) {
+            sb.append(SECTION_TITLES[section % SECTION_TITLES.length]).append(' ');
+            int lines = 2 + random.nextInt(6);
+            for (int i = 0; i < lines; i++) {
+                sb.append(LINES[random.nextInt(LINES.length)]);
+                if (random.nextInt(4) == 0) sb.append("   ");
+                sb.append('\n');
+                if (random.nextInt(8) == 0) sb.append("\n\n\n");
+            }
+            sb.append('\n');
+            section++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Section bodies only (no titles), about {@code bytes} characters in total, split across the sections.
+     */
+    public static String[] sections(int bytes) {
+        String[] sections = new String[SECTION_TITLES.length];
+        int perSection = Math.max(1, bytes / SECTION_TITLES.length);
+        Random random = new Random(bytes);
+        for (int s = 0; s < sections.length; s++) {
+            StringBuilder sb = new StringBuilder(perSection + 128);
+            while (sb.length() < perSection) {
+                sb.append(LINES[random.nextInt(LINES.length)]).append('\n');
+            }
+            sections[s] = sb.toString();
+        }
+        return sections;
+    }
+
+    /**
+     * Space-separated words of about {@code bytes} characters, including runs of spaces.
+     */
+    public static String words(int bytes) {
+        Random random = new Random(bytes);
+        StringBuilder sb = new StringBuilder(bytes + 64);
+        while (sb.length() < bytes) {
+            String line = LINES[random.nextInt(LINES.length)];
+            sb.append(line.replace('\n', ' ').replace('\t', ' ')).append(' ');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import com.emr.gds.db.DataSourceRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and importing the bundled {@code KCD-9master_4digit.csv}: the previous line split versus
+ * {@link CsvReader}, and end-to-end imports into a scratch database in each importer mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvReaderBenchmark {
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private Path csvFile;
+    private String csvText;
+    private Path scratchDir;
+
+    @Setup
+    public void setUp() throws Exception {
+        csvFile = DataSourceRegistry.repoRoot().resolve("app/src/main/resources/database/KCD-9master_4digit.csv");
+        csvText = Files.readString(csvFile, StandardCharsets.UTF_8);
+        scratchDir = Files.createTempDirectory("kcd-import-bench");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        DataSourceRegistry.shared().closeAll();
+        try (var files = Files.list(scratchDir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(scratchDir);
+    }
+
+    @Benchmark
+    public int lineSplit() throws Exception {
+        int fields = 0;
+        try (BufferedReader br = new BufferedReader(new StringReader(csvText))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                fields += line.split(",", -1).length;
+            }
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int csvReader() throws Exception {
+        int fields = 0;
+        try (CsvReader reader = new CsvReader(new StringReader(csvText))) {
+            List<String> record = new ArrayList<>();
+            while (reader.next(record)) {
+                fields += record.size();
+            }
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public double importRowsPerSecond() throws Exception {
+        Path db = Files.createTempFile(scratchDir, "kcd", ".db");
+        CsvToSqliteImporter.Options options = new CsvToSqliteImporter.Options(csvFile, db, 1000, parallel, false);
+        double rowsPerSecond = CsvToSqliteImporter.importData(options).rowsPerSecond();
+        DataSourceRegistry.shared().closeAll();
+        return rowsPerSecond;
+    }
+}
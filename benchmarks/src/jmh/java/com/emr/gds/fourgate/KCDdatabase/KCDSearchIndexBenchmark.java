@@ -0,0 +1,61 @@
+package com.emr.gds.fourgate.KCDdatabase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One keystroke of "All Columns" search over the bundled KCD table: the previous
+ * {@code toString().toLowerCase().contains()} scan versus a {@link KCDSearchIndex} lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KCDSearchIndexBenchmark {
+
+    @Param({"e", "e11", "diabetes", "당뇨", "당뇨ㅂ", "ㄷㄴㅂ"})
+    public String query;
+
+    private List<KCDRecord> records;
+    private KCDSearchIndex index;
+
+    @Setup
+    public void setUp() throws Exception {
+        records = DatabaseManager.getAllRecords();
+        index = KCDSearchIndex.build(records);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String lower = query.toLowerCase();
+        int count = 0;
+        for (KCDRecord record : records) {
+            if (record.toString().toLowerCase().contains(lower)) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int indexSearch() {
+        return index.search(null, query).size();
+    }
+
+    @Benchmark
+    public int indexSearchKoreanName() {
+        return index.search(KCDSearchIndex.Column.KOREAN_NAME, query).size();
+    }
+}
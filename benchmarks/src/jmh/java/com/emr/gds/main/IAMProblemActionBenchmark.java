@@ -0,0 +1,65 @@
+package com.emr.gds.main;
+
+import com.emr.gds.bench.ClinicalNotes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The string work of {@link IAMProblemAction#updateAndRedrawScratchpad(String, String)}: normalizing a
+ * section for the scratchpad, and normalizing plus patching the scratchpad model, alternating between two
+ * versions of each section so every call produces a patch. The once-per-frame redraw itself is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IAMProblemActionBenchmark {
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M})
+    public int noteSize;
+
+    private String[] sections;
+    private String[] editedSections;
+    private IAMScratchpadModel model;
+    private int call;
+
+    @Setup
+    public void setUp() {
+        sections = ClinicalNotes.sections(noteSize);
+        editedSections = new String[sections.length];
+        for (int i = 0; i < sections.length; i++) {
+            editedSections[i] = sections[i] + "Added while typing";
+        }
+        model = new IAMScratchpadModel(ClinicalNotes.SECTION_TITLES);
+        for (int i = 0; i < sections.length; i++) {
+            model.update(i, sections[i]);
+        }
+    }
+
+    @Benchmark
+    public String scratchpadEntry() {
+        call = (call + 1) % sections.length;
+        return IAMProblemAction.scratchpadEntry(sections[call]);
+    }
+
+    @Benchmark
+    public IAMScratchpadModel.Patch updateScratchpad() {
+        call = (call + 1) % (2 * sections.length);
+        int section = call % sections.length;
+        String text = call < sections.length ? editedSections[section] : sections[section];
+        return model.updateEntry(section, IAMProblemAction.scratchpadEntry(text));
+    }
+}
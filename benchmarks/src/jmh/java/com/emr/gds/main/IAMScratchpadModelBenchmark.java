@@ -0,0 +1,78 @@
+package com.emr.gds.main;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mirroring one keystroke into the scratchpad: the previous full rebuild
+ * (regex normalize + join of every section) versus an {@link IAMScratchpadModel} patch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IAMScratchpadModelBenchmark {
+
+    @Param({"1000", "20000", "200000"})
+    public int noteSize;
+
+    private final String[] titles = IAMTextArea.TEXT_AREA_TITLES;
+    private String[] sections;
+    private String typedSection;
+    private IAMScratchpadModel model;
+    private LinkedHashMap<String, String> entries;
+    private int keystroke;
+
+    @Setup
+    public void setUp() {
+        sections = new String[titles.length];
+        int perSection = Math.max(1, noteSize / titles.length);
+        for (int i = 0; i < titles.length; i++) {
+            StringBuilder sb = new StringBuilder(perSection);
+            while (sb.length() < perSection) sb.append("line of clinical text\n");
+            sections[i] = sb.toString();
+        }
+        model = new IAMScratchpadModel(titles);
+        entries = new LinkedHashMap<>();
+        for (int i = 0; i < titles.length; i++) {
+            model.update(i, sections[i]);
+            entries.put(titles[i], sections[i].trim().replaceAll("\\s*\\R\\s*", " \n\t "));
+        }
+        typedSection = "Short section being typed";
+    }
+
+    private String nextText() {
+        return typedSection + (char) ('a' + (keystroke++ % 26));
+    }
+
+    @Benchmark
+    public String fullRebuild() {
+        entries.put(titles[2], nextText().trim().replaceAll("\\s*\\R\\s*", " \n\t "));
+        StringJoiner sj = new StringJoiner("\n");
+        for (String title : titles) {
+            String value = entries.get(title);
+            if (value != null && !value.isEmpty()) sj.add(title + " " + value);
+        }
+        return sj.toString();
+    }
+
+    @Benchmark
+    public IAMScratchpadModel.Patch incrementalPatch() {
+        return model.update(2, nextText());
+    }
+}
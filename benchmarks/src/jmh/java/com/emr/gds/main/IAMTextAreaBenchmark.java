@@ -0,0 +1,69 @@
+package com.emr.gds.main;
+
+import com.emr.gds.abbrev.AbbreviationExpander;
+import com.emr.gds.abbrev.AbbreviationIndex;
+import com.emr.gds.bench.ClinicalNotes;
+import com.emr.gds.template.TemplateLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The string work behind {@link IAMTextArea}: expanding {@code :key} abbreviations in an inserted block,
+ * and the per-section expansion of {@link IAMTextArea#appendTemplate(TemplateLayout)} (without the
+ * {@code TextArea} updates, which need a running toolkit).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IAMTextAreaBenchmark {
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M})
+    public int noteSize;
+
+    private AbbreviationExpander expander;
+    private String note;
+    private TemplateLayout layout;
+
+    @Setup
+    public void setUp() {
+        AbbreviationIndex.Builder builder = AbbreviationIndex.builder();
+        for (String[] entry : ClinicalNotes.ABBREVIATIONS) {
+            builder.put(entry[0], entry[1]);
+        }
+        expander = AbbreviationExpander.of(builder.build());
+        note = ClinicalNotes.note(noteSize);
+        layout = TemplateLayout.compile(note);
+    }
+
+    @Benchmark
+    public String expandAbbreviations() {
+        return expander.expand(note);
+    }
+
+    @Benchmark
+    public int appendTemplate(Blackhole blackhole) {
+        int appended = 0;
+        for (int i = 0; i < layout.sectionCount(); i++) {
+            String section = layout.section(i);
+            if (section.isEmpty()) continue;
+            blackhole.consume(expander.expand(section).trim());
+            appended++;
+        }
+        return appended;
+    }
+}
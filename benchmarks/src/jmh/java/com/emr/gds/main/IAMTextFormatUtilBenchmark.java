@@ -0,0 +1,53 @@
+package com.emr.gds.main;
+
+import com.emr.gds.bench.ClinicalNotes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IAMTextFormatUtil} on whole notes: Auto Format, the Copy All finalizer and duplicate-line removal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IAMTextFormatUtilBenchmark {
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M})
+    public int noteSize;
+
+    private String note;
+
+    @Setup
+    public void setUp() {
+        note = ClinicalNotes.note(noteSize);
+    }
+
+    @Benchmark
+    public String autoFormat() {
+        return IAMTextFormatUtil.autoFormat(note);
+    }
+
+    @Benchmark
+    public String finalizeForEMR() {
+        return IAMTextFormatUtil.finalizeForEMR(note);
+    }
+
+    @Benchmark
+    public String getUniqueLines() {
+        return IAMTextFormatUtil.getUniqueLines(note);
+    }
+}
@@ -0,0 +1,62 @@
+package com.emr.gds.template;
+
+import com.emr.gds.bench.ClinicalNotes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The template editor's paths: compiling a template when it is saved, reading the stored layout on a
+ * cache miss, and the cache hit that "Use Template" normally takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateLayoutBenchmark {
+
+    private static final int TEMPLATE_ID = 1;
+    private static final int VERSION = 1;
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M})
+    public int noteSize;
+
+    private String template;
+    private byte[] stored;
+    private final TemplateLayoutCache cache = new TemplateLayoutCache(16);
+
+    @Setup
+    public void setUp() {
+        template = ClinicalNotes.note(noteSize);
+        TemplateLayout layout = TemplateLayout.compile(template);
+        stored = layout.encode();
+        cache.put(TEMPLATE_ID, VERSION, layout);
+    }
+
+    @Benchmark
+    public byte[] compileOnSave() {
+        return TemplateLayout.compile(template).encode();
+    }
+
+    @Benchmark
+    public TemplateLayout decodeOnCacheMiss() {
+        return TemplateLayout.decode(stored);
+    }
+
+    @Benchmark
+    public TemplateLayout useTemplate() {
+        return cache.get(TEMPLATE_ID, VERSION);
+    }
+}
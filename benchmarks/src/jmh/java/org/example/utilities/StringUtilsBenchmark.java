@@ -0,0 +1,72 @@
+package org.example.utilities;
+
+import com.emr.gds.bench.ClinicalNotes;
+import org.example.list.LinkedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StringUtils#split(String)} and {@link StringUtils#join(LinkedList)} on word streams from note size
+ * up to 16 MB (about 3.2 million tokens).
+ * <p>
+ * Both are linear on the array-backed {@link LinkedList}: the time per call should grow with
+ * {@code noteSize} at a constant cost per token. {@link #build()} isolates the list itself by appending the
+ * already split tokens and reading them back by index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class StringUtilsBenchmark {
+
+    /** 16 MB of words, for the multi-million-token end of the scaling curve. */
+    private static final String SIZE_16M = "16777216";
+
+    @Param({ClinicalNotes.SIZE_1K, ClinicalNotes.SIZE_16K, ClinicalNotes.SIZE_128K, ClinicalNotes.SIZE_1M, SIZE_16M})
+    public int noteSize;
+
+    private String text;
+    private LinkedList words;
+
+    @Setup
+    public void setUp() {
+        text = ClinicalNotes.words(noteSize);
+        words = StringUtils.split(text);
+    }
+
+    @Benchmark
+    public LinkedList split() {
+        return StringUtils.split(text);
+    }
+
+    @Benchmark
+    public String join() {
+        return StringUtils.join(words);
+    }
+
+    @Benchmark
+    public int build() {
+        LinkedList list = new LinkedList();
+        for (String word : words) {
+            list.add(word);
+        }
+        int length = 0;
+        for (int i = 0; i < list.size(); ++i) {
+            length += list.get(i).length();
+        }
+        return length;
+    }
+}
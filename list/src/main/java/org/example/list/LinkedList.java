@@ -3,79 +3,102 @@
  */
 package org.example.list;
 
-public class LinkedList {
-    private Node head;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An ordered list of strings backed by one contiguous, growable array.
+ * <p>
+ * The class keeps its original name and API, but no longer links nodes: {@code add} is amortized O(1)
+ * (the array doubles when full), {@code size} and {@code get} are O(1), and iteration walks the array.
+ * Building a list of n tokens and reading it back by index is therefore linear instead of quadratic.
+ * {@code remove} still searches from the head and shifts the tail down, O(n) as before.
+ */
+public class LinkedList implements Iterable<String> {
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final String[] EMPTY = {};
 
-    public void add(String element) {
-        Node newNode = new Node(element);
+    private String[] elements;
+    private int size;
 
-        Node it = tail(head);
-        if (it == null) {
-            head = newNode;
-        } else {
-            it.next = newNode;
-        }
+    public LinkedList() {
+        elements = EMPTY;
     }
 
-    private static Node tail(Node head) {
-        Node it;
-
-        for (it = head; it != null && it.next != null; it = it.next) {}
+    /**
+     * Creates an empty list with room for {@code initialCapacity} elements before it has to grow.
+     */
+    public LinkedList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        elements = initialCapacity == 0 ? EMPTY : new String[initialCapacity];
+    }
 
-        return it;
+    public void add(String element) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[size++] = element;
     }
 
-    public boolean remove(String element) {
-        boolean result = false;
-        Node previousIt = null;
-        Node it = null;
-        for (it = head; !result && it != null; previousIt = it, it = it.next) {
-            if (0 == element.compareTo(it.data)) {
-                result = true;
-                unlink(previousIt, it);
-                break;
+    private void grow() {
+        int capacity = elements.length == 0 ? DEFAULT_CAPACITY : elements.length << 1;
+        if (capacity < 0) {
+            // Past 2^30 elements; grow to the largest array the VM will allocate
+            if (elements.length == Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("List is too large");
             }
+            capacity = Integer.MAX_VALUE - 8;
         }
-
-        return result;
+        elements = Arrays.copyOf(elements, capacity);
     }
 
-    private void unlink(Node previousIt, Node currentIt) {
-        if (currentIt == head) {
-            head = currentIt.next;
-        } else {
-            previousIt.next = currentIt.next;
+    public boolean remove(String element) {
+        for (int i = 0; i < size; i++) {
+            if (0 == element.compareTo(elements[i])) {
+                int moved = size - i - 1;
+                if (moved > 0) {
+                    System.arraycopy(elements, i + 1, elements, i, moved);
+                }
+                elements[--size] = null;
+                return true;
+            }
         }
+
+        return false;
     }
 
     public int size() {
-        int size = 0;
-
-        for (Node it = head; it != null; ++size, it = it.next) {}
-
         return size;
     }
 
     public String get(int index) {
-        Node it = head;
-        while (index > 0 && it != null) {
-            it = it.next;
-            index--;
-        }
-
-        if (it == null) {
+        if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index is out of range");
         }
 
-        return it.data;
+        return elements[index];
     }
 
-    private static class Node {
-        final String data;
-        Node next;
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private int next;
 
-        Node(String data) {
-            this.data = data;
-        }
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public String next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elements[next++];
+            }
+        };
     }
 }
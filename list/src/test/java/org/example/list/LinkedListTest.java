@@ -47,4 +47,42 @@ class LinkedListTest {
         assertFalse(list.remove("three"));
         assertEquals(2, list.size());
     }
+
+    @Test void testGrowsPastInitialCapacity() {
+        LinkedList list = new LinkedList(1);
+
+        for (int i = 0; i < 1000; ++i) {
+            list.add("t" + i);
+        }
+        assertEquals(1000, list.size());
+        assertEquals("t0", list.get(0));
+        assertEquals("t999", list.get(999));
+
+        assertTrue(list.remove("t500"));
+        assertEquals(999, list.size());
+        assertEquals("t501", list.get(500));
+        assertEquals("t999", list.get(998));
+    }
+
+    @Test void testGetOutOfRange() {
+        LinkedList list = new LinkedList();
+        list.add("one");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+    }
+
+    @Test void testIterator() {
+        LinkedList list = new LinkedList();
+        list.add("one");
+        list.add("two");
+        list.add("three");
+        list.remove("two");
+
+        StringBuilder seen = new StringBuilder();
+        for (String element : list) {
+            seen.append(element).append(',');
+        }
+        assertEquals("one,three,", seen.toString());
+    }
 }
@@ -7,12 +7,23 @@ import org.example.list.LinkedList;
 
 class JoinUtils {
     public static String join(LinkedList source) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < source.size(); ++i) {
+        int size = source.size();
+        if (size == 0) {
+            return "";
+        }
+
+        // Size the builder up front so the result is copied once
+        long length = size - 1;
+        for (String token : source) {
+            length += token == null ? 4 : token.length();
+        }
+
+        StringBuilder result = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE - 8));
+        for (String token : source) {
             if (result.length() > 0) {
-                result.append(" ");
+                result.append(' ');
             }
-            result.append(source.get(i));
+            result.append(token);
         }
 
         return result.toString();
@@ -6,34 +6,31 @@ package org.example.utilities;
 import org.example.list.LinkedList;
 
 class SplitUtils {
+    /**
+     * Splits {@code source} on single spaces, dropping the empty tokens left by runs of spaces.
+     * One pass over the string; each token is copied once.
+     */
     public static LinkedList split(String source) {
-        int lastFind = 0;
-        int currentFind = 0;
         LinkedList result = new LinkedList();
+        int start = 0;
+        int space;
 
-        while ((currentFind = source.indexOf(" ", lastFind)) != -1) {
-            String token = source.substring(lastFind);
-            if (currentFind != -1) {
-                token = token.substring(0, currentFind - lastFind);
-            }
-
-            addIfValid(token, result);
-            lastFind = currentFind + 1;
+        while ((space = source.indexOf(' ', start)) != -1) {
+            addIfValid(source, start, space, result);
+            start = space + 1;
         }
-
-        String token = source.substring(lastFind);
-        addIfValid(token, result);
+        addIfValid(source, start, source.length(), result);
 
         return result;
     }
 
-    private static void addIfValid(String token, LinkedList list) {
-        if (isTokenValid(token)) {
-            list.add(token);
+    private static void addIfValid(String source, int start, int end, LinkedList list) {
+        if (isTokenValid(start, end)) {
+            list.add(source.substring(start, end));
         }
     }
 
-    private static boolean isTokenValid(String token) {
-        return !token.isEmpty();
+    private static boolean isTokenValid(int start, int end) {
+        return end > start;
     }
 }